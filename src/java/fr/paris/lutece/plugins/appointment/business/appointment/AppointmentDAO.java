@@ -42,14 +42,17 @@ import fr.paris.lutece.util.sql.DAOUtil;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import java.io.Serializable;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.text.MessageFormat;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -88,6 +91,13 @@ public final class AppointmentDAO implements IAppointmentDAO
             + " FROM appointment_appointment app " + "INNER JOIN appointment_user user ON app.id_user = user.id_user "
             + " INNER JOIN appointment_appointment_slot app_slot ON app.id_appointment = app_slot.id_appointment"
             + " INNER JOIN appointment_slot slot ON app_slot.id_slot = slot.id_slot WHERE id_form != 0";
+    private static final String SQL_QUERY_FROM_BY_FILTER = " FROM appointment_appointment app INNER JOIN appointment_user user ON app.id_user = user.id_user"
+            + " INNER JOIN appointment_appointment_slot app_slot ON app.id_appointment = app_slot.id_appointment"
+            + " INNER JOIN appointment_slot slot ON app_slot.id_slot = slot.id_slot WHERE id_form != 0";
+    private static final String SQL_QUERY_SELECT_SORT_KEYS_BY_FILTER = "SELECT DISTINCT app.id_appointment, {0} AS sort_value" + SQL_QUERY_FROM_BY_FILTER;
+    private static final String SQL_QUERY_SELECT_WITH_USER = "SELECT app.id_appointment, user.first_name, user.last_name, user.email, user.phone_number"
+            + " FROM appointment_appointment app INNER JOIN appointment_user user ON app.id_user = user.id_user";
+    private static final String SQL_QUERY_COUNT_BY_FILTER = "SELECT COUNT( DISTINCT app.id_appointment )" + SQL_QUERY_FROM_BY_FILTER;
 
     private static final String SQL_QUERY_INSERT_APPT_SLT = "INSERT INTO appointment_appointment_slot (id_appointment, id_slot, nb_places) VALUES ( ?, ?, ?)";
     private static final String SQL_QUERY_DELETE_APPT_SLT = "DELETE FROM appointment_appointment_slot WHERE id_appointment = ?";
@@ -116,21 +126,33 @@ public final class AppointmentDAO implements IAppointmentDAO
     private static final String SQL_FILTER_DATE_APPOINTMENT_MAX = "slot.starting_date_time < ?";
     private static final String SQL_FILTER_ID_LIST_START = "app.id_appointment IN ( ";
     private static final String SQL_FILTER_ID_LIST_END = " ) ";
+    private static final String SQL_FILTER_NO_APPOINTMENT = "1 = 0";
+    private static final String SQL_FILTER_NOT_INDEXED_START = "( app.id_appointment > ? OR ";
+    private static final String SQL_FILTER_NOT_INDEXED_END = " )";
+    private static final String SQL_FILTER_AFTER_SORT_KEY = "( {0} {1} ? OR ( {0} = ? AND app.id_appointment {1} ? ) )";
 
     private static final String SQL_SORT_USER_LAST_NAME = "user.last_name";
     private static final String SQL_SORT_USER_FIRST_NAME = "user.first_name";
-    private static final String SQL_SORT_USER_EMAIL = "user.email";
-    private static final String SQL_SORT_USER_PHONE_NUMBER = "user.phone_number";
+    private static final String SQL_SORT_USER_EMAIL = "COALESCE( user.email, '' )";
+    private static final String SQL_SORT_USER_PHONE_NUMBER = "COALESCE( user.phone_number, '' )";
     private static final String SQL_SORT_APP_NB_PLACES = "app.nb_places";
     private static final String SQL_SORT_SLOT_STARTING_DATE_TIME = "slot.starting_date_time";
-    private static final String SQL_SORT_APP_ID_ADMIN_USER = "app.id_admin_user";
+    private static final String SQL_SORT_APPOINTMENT_STARTING_DATE_TIME = "( SELECT MIN( first_slot.starting_date_time )"
+            + " FROM appointment_appointment_slot first_app_slot INNER JOIN appointment_slot first_slot ON first_app_slot.id_slot = first_slot.id_slot"
+            + " WHERE first_app_slot.id_appointment = app.id_appointment )";
+    private static final String SQL_SORT_SLOTS_OF_APPOINTMENT = ", app.id_appointment, slot.starting_date_time";
+    private static final String SQL_SORT_APP_ID_ADMIN_USER = "COALESCE( app.id_admin_user, 0 )";
     private static final String SQL_SORT_APP_IS_CANCELLED = "app.is_cancelled";
     private static final String SQL_SORT_ASC = " ASC ";
     private static final String SQL_SORT_DESC = " DESC ";
+    private static final String SQL_SORT_SORT_KEY = "sort_value {0}, app.id_appointment {0}";
+    private static final String SQL_LIMIT_OFFSET = " LIMIT ? OFFSET ?";
 
     private static final String CONSTANT_AND = " AND ";
     private static final String CONSTANT_PERCENT = "%";
     private static final String CONSTANT_ORDER_BY = " ORDER BY ";
+    private static final String CONSTANT_GREATER = ">";
+    private static final String CONSTANT_LOWER = "<";
 
     private static final String LAST_NAME = "last_name";
     private static final String FIRST_NAME = "first_name";
@@ -371,48 +393,41 @@ public final class AppointmentDAO implements IAppointmentDAO
     @Override
     public List<Appointment> findByFilter( AppointmentFilterDTO appointmentFilter, Plugin plugin )
     {
-        Map<Integer, Appointment> mapAppointment = new HashMap<>( );
-        boolean isFirst = true;
-        try ( DAOUtil daoUtil = new DAOUtil( getSqlQueryFromFilter( appointmentFilter, SQL_QUERY_SELECT_BY_FILTER ), plugin ) )
+        List<Appointment> listAppointment = new ArrayList<>( );
+        forEachByFilter( appointmentFilter, listAppointment::add, plugin );
+        return listAppointment;
+    }
+
+    @Override
+    public void forEachByFilter( AppointmentFilterDTO appointmentFilter, Consumer<Appointment> consumer, Plugin plugin )
+    {
+        // All the rows of an appointment, one per slot, must follow each other: the appointments are sorted on a value of their own, even by date
+        String strQuery = getOrderQuery( appointmentFilter, getSqlQueryFromFilter( appointmentFilter, SQL_QUERY_SELECT_BY_FILTER ),
+                SQL_SORT_APPOINTMENT_STARTING_DATE_TIME ) + SQL_SORT_SLOTS_OF_APPOINTMENT;
+        try ( DAOUtil daoUtil = new DAOUtil( strQuery, plugin ) )
         {
             addFilterParametersToDAOUtil( appointmentFilter, daoUtil );
             daoUtil.executeQuery( );
 
+            Appointment appointment = null;
             while ( daoUtil.next( ) )
             {
-                Appointment appt = buildAppointment( daoUtil );
-
-                Slot slot = builSlot( daoUtil, 18 );
-                User user = buildUser( daoUtil, 12 );
-
-                if ( isFirst || daoUtil.isLast( ) )
-                {
-
-                    appt.setSlot( SlotHome.findByIdAppointment( appt.getIdAppointment( ) ) );
-
-                }
-                else
+                if ( appointment == null || appointment.getIdAppointment( ) != daoUtil.getInt( 1 ) )
                 {
-
-                    appt.addSlot( slot );
+                    if ( appointment != null )
+                    {
+                        consumer.accept( appointment );
+                    }
+                    appointment = buildAppointment( daoUtil );
+                    appointment.setUser( buildUser( daoUtil, 12 ) );
                 }
-                appt.setUser( user );
-
-                Appointment apptAdded = mapAppointment.get( appt.getIdAppointment( ) );
-                if ( apptAdded == null )
-                {
-                    mapAppointment.put( appt.getIdAppointment( ), appt );
-                }
-                else
-                {
-                    apptAdded.addSlot( slot );
-                }
-
-                isFirst = false;
+                appointment.addSlot( builSlot( daoUtil, 18 ) );
+            }
+            if ( appointment != null )
+            {
+                consumer.accept( appointment );
             }
-
         }
-        return new ArrayList<>( mapAppointment.values( ) );
     }
 
     @Override
@@ -421,7 +436,7 @@ public final class AppointmentDAO implements IAppointmentDAO
         List<Integer> list = new ArrayList<>( );
 
         String sqlQueryFromFilter = getSqlQueryFromFilter(appointmentFilter, SQL_QUERY_SELECT_IDS_BY_FILTER);
-        String sqlQuery = getOrderQuery( appointmentFilter, sqlQueryFromFilter );
+        String sqlQuery = getOrderQuery( appointmentFilter, sqlQueryFromFilter, SQL_SORT_SLOT_STARTING_DATE_TIME );
         try (DAOUtil daoUtil = new DAOUtil(sqlQuery, plugin ) )
         {
             addFilterParametersToDAOUtil( appointmentFilter, daoUtil );
@@ -438,6 +453,80 @@ public final class AppointmentDAO implements IAppointmentDAO
         return list;
     }
 
+    @Override
+    public List<AppointmentSortKey> findSortKeysByFilter( AppointmentFilterDTO appointmentFilter, AppointmentSortKey sortKeyAfter, int nOffset, int nLimit,
+            Plugin plugin )
+    {
+        List<AppointmentSortKey> listSortKey = new ArrayList<>( );
+        String strSortColumn = getSortColumn( appointmentFilter, SQL_SORT_APPOINTMENT_STARTING_DATE_TIME );
+        StringBuilder sbSql = new StringBuilder(
+                getSqlQueryFromFilter( appointmentFilter, MessageFormat.format( SQL_QUERY_SELECT_SORT_KEYS_BY_FILTER, strSortColumn ) ) );
+        if ( sortKeyAfter != null )
+        {
+            sbSql.append( CONSTANT_AND );
+            String strComparison = appointmentFilter.isOrderAsc( ) ? CONSTANT_GREATER : CONSTANT_LOWER;
+            sbSql.append( MessageFormat.format( SQL_FILTER_AFTER_SORT_KEY, strSortColumn, strComparison ) );
+        }
+        sbSql.append( CONSTANT_ORDER_BY );
+        sbSql.append( MessageFormat.format( SQL_SORT_SORT_KEY, appointmentFilter.isOrderAsc( ) ? SQL_SORT_ASC : SQL_SORT_DESC ) );
+        sbSql.append( SQL_LIMIT_OFFSET );
+        try ( DAOUtil daoUtil = new DAOUtil( sbSql.toString( ), plugin ) )
+        {
+            int nIndex = addFilterParametersToDAOUtil( appointmentFilter, daoUtil );
+            if ( sortKeyAfter != null )
+            {
+                setSortValue( daoUtil, ++nIndex, sortKeyAfter.getSortValue( ) );
+                setSortValue( daoUtil, ++nIndex, sortKeyAfter.getSortValue( ) );
+                daoUtil.setInt( ++nIndex, sortKeyAfter.getIdAppointment( ) );
+            }
+            daoUtil.setInt( ++nIndex, nLimit );
+            daoUtil.setInt( ++nIndex, nOffset );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                listSortKey.add( new AppointmentSortKey( daoUtil.getInt( 1 ), getSortValue( daoUtil, appointmentFilter.getOrderBy( ), 2 ) ) );
+            }
+        }
+        return listSortKey;
+    }
+
+    @Override
+    public int countByFilter( AppointmentFilterDTO appointmentFilter, Plugin plugin )
+    {
+        int nCount = 0;
+        try ( DAOUtil daoUtil = new DAOUtil( getSqlQueryFromFilter( appointmentFilter, SQL_QUERY_COUNT_BY_FILTER ), plugin ) )
+        {
+            addFilterParametersToDAOUtil( appointmentFilter, daoUtil );
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                nCount = daoUtil.getInt( 1 );
+            }
+        }
+        return nCount;
+    }
+
+    @Override
+    public void forEachWithUser( Consumer<Appointment> consumer, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_WITH_USER, plugin ) )
+        {
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                int nIndex = 1;
+                Appointment appointment = new Appointment( );
+                appointment.setIdAppointment( daoUtil.getInt( nIndex++ ) );
+                appointment.setFirstName( daoUtil.getString( nIndex++ ) );
+                appointment.setLastName( daoUtil.getString( nIndex++ ) );
+                appointment.setEmail( daoUtil.getString( nIndex++ ) );
+                appointment.setPhoneNumber( daoUtil.getString( nIndex ) );
+                consumer.accept( appointment );
+            }
+        }
+    }
+
     @Override
     public List<Appointment> findByCategoryAndMail( int nIdCategory, String mail, Plugin plugin )
     {
@@ -493,8 +582,9 @@ public final class AppointmentDAO implements IAppointmentDAO
      *            the filter
      * @param daoUtil
      *            the daoutil
+     * @return the index of the last parameter set
      */
-    private void addFilterParametersToDAOUtil( AppointmentFilterDTO appointmentFilter, DAOUtil daoUtil )
+    private int addFilterParametersToDAOUtil( AppointmentFilterDTO appointmentFilter, DAOUtil daoUtil )
     {
         int nIndex = 0;
         if ( appointmentFilter.getIdForm( ) != 0 )
@@ -558,6 +648,15 @@ public final class AppointmentDAO implements IAppointmentDAO
         {
             daoUtil.setInt( ++nIndex, id );
         }
+        if ( appointmentFilter.getListIdAppointmentMatchingText( ) != null )
+        {
+            daoUtil.setInt( ++nIndex, appointmentFilter.getIdLastIndexedAppointment( ) );
+            for ( Integer id : appointmentFilter.getListIdAppointmentMatchingText( ) )
+            {
+                daoUtil.setInt( ++nIndex, id );
+            }
+        }
+        return nIndex;
     }
 
     /**
@@ -624,16 +723,67 @@ public final class AppointmentDAO implements IAppointmentDAO
             sbSql.append( listId.stream( ).map( s -> "?" ).collect( Collectors.joining( "," ) ) );
             sbSql.append( SQL_FILTER_ID_LIST_END );
         }
+        List<Integer> listIdMatchingText = appointmentFilter.getListIdAppointmentMatchingText( );
+        if ( listIdMatchingText != null )
+        {
+            // The appointments created after the index was built, on another node, are not in the index
+            sbSql.append( CONSTANT_AND );
+            sbSql.append( SQL_FILTER_NOT_INDEXED_START );
+            if ( listIdMatchingText.isEmpty( ) )
+            {
+                sbSql.append( SQL_FILTER_NO_APPOINTMENT );
+            }
+            else
+            {
+                sbSql.append( SQL_FILTER_ID_LIST_START );
+                sbSql.append( listIdMatchingText.stream( ).map( s -> "?" ).collect( Collectors.joining( "," ) ) );
+                sbSql.append( SQL_FILTER_ID_LIST_END );
+            }
+            sbSql.append( SQL_FILTER_NOT_INDEXED_END );
+        }
 
         return sbSql.toString( );
     }
 
-    private String getOrderQuery( AppointmentFilterDTO appointmentFilter, String strQuery )
+    /**
+     * Add the order of the filter to the sql query
+     *
+     * @param appointmentFilter
+     *            the filter
+     * @param strQuery
+     *            the query
+     * @param strSortDateAppointment
+     *            the sql expression to sort on the date of the appointments
+     * @return the query
+     */
+    private String getOrderQuery( AppointmentFilterDTO appointmentFilter, String strQuery, String strSortDateAppointment )
     {
         StringBuilder sbSql = new StringBuilder( strQuery );
 
         sbSql.append( CONSTANT_ORDER_BY );
+        sbSql.append( getSortColumn( appointmentFilter, strSortDateAppointment ) );
+        if ( appointmentFilter.isOrderAsc( ) )
+        {
+            sbSql.append( SQL_SORT_ASC );
+        }
+        else
+        {
+            sbSql.append( SQL_SORT_DESC );
+        }
+        return sbSql.toString( );
+    }
 
+    /**
+     * Get the sql expression of the column to sort on, the date of the appointments by default
+     *
+     * @param appointmentFilter
+     *            the filter
+     * @param strSortDateAppointment
+     *            the sql expression to sort on the date of the appointments
+     * @return the sql expression
+     */
+    private String getSortColumn( AppointmentFilterDTO appointmentFilter, String strSortDateAppointment )
+    {
         if ( appointmentFilter.getOrderBy( ) == null )
         {
             appointmentFilter.setOrderBy( DATE_APPOINTMENT );
@@ -642,41 +792,88 @@ public final class AppointmentDAO implements IAppointmentDAO
         switch( appointmentFilter.getOrderBy( ) )
         {
             case LAST_NAME:
-                sbSql.append( SQL_SORT_USER_LAST_NAME );
-                break;
+                return SQL_SORT_USER_LAST_NAME;
             case FIRST_NAME:
-                sbSql.append( SQL_SORT_USER_FIRST_NAME );
-                break;
+                return SQL_SORT_USER_FIRST_NAME;
             case EMAIL:
-                sbSql.append( SQL_SORT_USER_EMAIL );
-                break;
+                return SQL_SORT_USER_EMAIL;
             case PHONE_NUMBER:
-                sbSql.append( SQL_SORT_USER_PHONE_NUMBER );
-                break;
+                return SQL_SORT_USER_PHONE_NUMBER;
             case NB_BOOKED_SEATS:
-                sbSql.append( SQL_SORT_APP_NB_PLACES );
-                break;
+                return SQL_SORT_APP_NB_PLACES;
             case DATE_APPOINTMENT:
-                sbSql.append( SQL_SORT_SLOT_STARTING_DATE_TIME );
-                break;
+                return strSortDateAppointment;
             case ADMIN:
-                sbSql.append( SQL_SORT_APP_ID_ADMIN_USER );
-                break;
+                return SQL_SORT_APP_ID_ADMIN_USER;
             case STATUS:
-                sbSql.append( SQL_SORT_APP_IS_CANCELLED );
-                break;
+                return SQL_SORT_APP_IS_CANCELLED;
             default:
-                sbSql.append( SQL_SORT_SLOT_STARTING_DATE_TIME );
+                return strSortDateAppointment;
         }
-        if ( appointmentFilter.isOrderAsc( ) )
+    }
+
+    /**
+     * Get the value of the sort column of an appointment from the resultset, with the type of the column. The nullable columns are sorted on a default
+     * value, so that a NULL value can be compared to the key of the previous page: a NULL value is read as this default value
+     *
+     * @param daoUtil
+     *            the prepare statement util object
+     * @param strOrderBy
+     *            the order of the filter
+     * @param nIndex
+     *            the index of the column
+     * @return the value
+     */
+    private Serializable getSortValue( DAOUtil daoUtil, String strOrderBy, int nIndex )
+    {
+        switch( strOrderBy )
         {
-            sbSql.append( SQL_SORT_ASC );
+            case LAST_NAME:
+            case FIRST_NAME:
+            case EMAIL:
+            case PHONE_NUMBER:
+                return StringUtils.defaultString( daoUtil.getString( nIndex ) );
+            case NB_BOOKED_SEATS:
+                return daoUtil.getInt( nIndex );
+            case ADMIN:
+                return daoUtil.getObject( nIndex ) == null ? 0 : daoUtil.getInt( nIndex );
+            case STATUS:
+                return daoUtil.getBoolean( nIndex );
+            default:
+                return daoUtil.getTimestamp( nIndex );
         }
-        else
+    }
+
+    /**
+     * Set the value of a sort column as a parameter, with its type
+     *
+     * @param daoUtil
+     *            the prepare statement util object
+     * @param nIndex
+     *            the index of the parameter
+     * @param sortValue
+     *            the value
+     */
+    private void setSortValue( DAOUtil daoUtil, int nIndex, Serializable sortValue )
+    {
+        if ( sortValue instanceof Integer )
         {
-            sbSql.append( SQL_SORT_DESC );
+            daoUtil.setInt( nIndex, (Integer) sortValue );
         }
-        return sbSql.toString( );
+        else
+            if ( sortValue instanceof Boolean )
+            {
+                daoUtil.setBoolean( nIndex, (Boolean) sortValue );
+            }
+            else
+                if ( sortValue instanceof Timestamp )
+                {
+                    daoUtil.setTimestamp( nIndex, (Timestamp) sortValue );
+                }
+                else
+                {
+                    daoUtil.setString( nIndex, (String) sortValue );
+                }
     }
 
     @Override
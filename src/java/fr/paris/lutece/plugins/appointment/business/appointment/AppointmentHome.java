@@ -34,6 +34,7 @@
 package fr.paris.lutece.plugins.appointment.business.appointment;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFilterDTO;
@@ -211,11 +212,67 @@ public final class AppointmentHome
     {
         return _dao.findByFilter( appointmentFilter, _plugin );
     }
+
+    /**
+     * Give the appointments matching the filter one by one to a consumer, in the order of the filter
+     * 
+     * @param appointmentFilter
+     *            the filter
+     * @param consumer
+     *            the consumer of the appointments
+     */
+    public static void forEachByFilter( AppointmentFilterDTO appointmentFilter, Consumer<Appointment> consumer )
+    {
+        _dao.forEachByFilter( appointmentFilter, consumer, _plugin );
+    }
+
     public static List<Integer> findIdsByFilter( AppointmentFilterDTO appointmentFilter )
     {
         return _dao.findIdsByFilter( appointmentFilter, _plugin );
     }
 
+    /**
+     * Returns the sort keys of a page of the appointments matching the filter, in the order of the filter
+     * 
+     * @param appointmentFilter
+     *            the filter
+     * @param sortKeyAfter
+     *            the sort key of the appointment after which the page is read, null to read from the first appointment
+     * @param nOffset
+     *            the number of appointments to skip after this position
+     * @param nLimit
+     *            the maximum number of appointments of the page
+     * @return the sort keys of the appointments of the page
+     */
+    public static List<AppointmentSortKey> findSortKeysByFilter( AppointmentFilterDTO appointmentFilter, AppointmentSortKey sortKeyAfter, int nOffset,
+            int nLimit )
+    {
+        return _dao.findSortKeysByFilter( appointmentFilter, sortKeyAfter, nOffset, nLimit, _plugin );
+    }
+
+    /**
+     * Give all the appointments one by one to a consumer, with the names, the email and the phone number of their user
+     * 
+     * @param consumer
+     *            the consumer of the appointments
+     */
+    public static void forEachWithUser( Consumer<Appointment> consumer )
+    {
+        _dao.forEachWithUser( consumer, _plugin );
+    }
+
+    /**
+     * Returns the number of appointments matching the filter
+     * 
+     * @param appointmentFilter
+     *            the filter
+     * @return the number of appointments
+     */
+    public static int countByFilter( AppointmentFilterDTO appointmentFilter )
+    {
+        return _dao.countByFilter( appointmentFilter, _plugin );
+    }
+
     /**
      * Find a list of appointments by id category and mail
      * 
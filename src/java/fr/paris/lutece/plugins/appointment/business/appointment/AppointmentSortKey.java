@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.appointment;
+
+import java.io.Serializable;
+
+/**
+ * The position of an appointment in a list of appointments sorted on a column: the value of the column, and the id of the appointment which orders the
+ * appointments having the same value. The list can be read from a position without reading the appointments before it.
+ */
+public final class AppointmentSortKey implements Serializable
+{
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = -3165409825734620127L;
+
+    private final int _nIdAppointment;
+    private final Serializable _sortValue;
+
+    /**
+     * Constructor
+     * 
+     * @param nIdAppointment
+     *            the id of the appointment
+     * @param sortValue
+     *            the value of the sort column for the appointment: a String, an Integer, a Boolean or a Timestamp
+     */
+    public AppointmentSortKey( int nIdAppointment, Serializable sortValue )
+    {
+        _nIdAppointment = nIdAppointment;
+        _sortValue = sortValue;
+    }
+
+    /**
+     * Get the id of the appointment
+     * 
+     * @return the id of the appointment
+     */
+    public int getIdAppointment( )
+    {
+        return _nIdAppointment;
+    }
+
+    /**
+     * Get the value of the sort column for the appointment
+     * 
+     * @return the value of the sort column
+     */
+    public Serializable getSortValue( )
+    {
+        return _sortValue;
+    }
+}
@@ -34,6 +34,7 @@
 package fr.paris.lutece.plugins.appointment.business.appointment;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFilterDTO;
 import fr.paris.lutece.portal.service.plugin.Plugin;
@@ -175,6 +176,18 @@ public interface IAppointmentDAO
      */
     List<Appointment> findByFilter( AppointmentFilterDTO appointmentFilter, Plugin plugin );
 
+    /**
+     * Give the appointments matching the filter one by one to a consumer, in the order of the filter, without keeping them in memory
+     * 
+     * @param appointmentFilter
+     *            the filter
+     * @param consumer
+     *            the consumer of the appointments, called while the rows are read
+     * @param plugin
+     *            the plugin
+     */
+    void forEachByFilter( AppointmentFilterDTO appointmentFilter, Consumer<Appointment> consumer, Plugin plugin );
+
     /**
      * Returns a list of appointments ids matching the filter
      *
@@ -186,6 +199,46 @@ public interface IAppointmentDAO
      */
     List<Integer> findIdsByFilter( AppointmentFilterDTO appointmentFilter, Plugin plugin );
 
+    /**
+     * Returns the sort keys of a page of the appointments matching the filter, in the order of the filter. The page is read from the position of an
+     * appointment, then from an offset, so a page following a known position is read without reading the appointments before it.
+     * 
+     * @param appointmentFilter
+     *            the filter
+     * @param sortKeyAfter
+     *            the sort key of the appointment after which the page is read, null to read from the first appointment
+     * @param nOffset
+     *            the number of appointments to skip after this position
+     * @param nLimit
+     *            the maximum number of appointments of the page
+     * @param plugin
+     *            the plugin
+     * @return the sort keys of the appointments of the page
+     */
+    List<AppointmentSortKey> findSortKeysByFilter( AppointmentFilterDTO appointmentFilter, AppointmentSortKey sortKeyAfter, int nOffset, int nLimit,
+            Plugin plugin );
+
+    /**
+     * Give all the appointments one by one to a consumer, with the names, the email and the phone number of their user
+     * 
+     * @param consumer
+     *            the consumer of the appointments, called while the rows are read
+     * @param plugin
+     *            the plugin
+     */
+    void forEachWithUser( Consumer<Appointment> consumer, Plugin plugin );
+
+    /**
+     * Returns the number of appointments matching the filter
+     * 
+     * @param appointmentFilter
+     *            the filter
+     * @param plugin
+     *            the plugin
+     * @return the number of appointments
+     */
+    int countByFilter( AppointmentFilterDTO appointmentFilter, Plugin plugin );
+
     /**
      * Find a list of appointments by id category and mail
      * 
@@ -34,6 +34,9 @@
 package fr.paris.lutece.plugins.appointment.business.display;
 
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import fr.paris.lutece.portal.service.image.ImageResource;
 import fr.paris.lutece.portal.service.plugin.Plugin;
@@ -55,6 +58,7 @@ public final class DisplayDAO implements IDisplayDAO
     private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_display, display_title_fo, icon_form_content, icon_form_mime_type, nb_weeks_to_display, is_displayed_on_portlet, id_calendar_template, id_form FROM appointment_display";
     private static final String SQL_QUERY_SELECT = SQL_QUERY_SELECT_COLUMNS + " WHERE id_display = ?";
     private static final String SQL_QUERY_SELECT_BY_ID_FORM = SQL_QUERY_SELECT_COLUMNS + " WHERE id_form = ?";
+    private static final String SQL_QUERY_SELECT_BY_LIST_ID_FORM = SQL_QUERY_SELECT_COLUMNS + " WHERE id_form IN ( ";
 
     @Override
     public void insert( Display display, Plugin plugin )
@@ -130,6 +134,30 @@ public final class DisplayDAO implements IDisplayDAO
         return display;
     }
 
+    @Override
+    public List<Display> findByListIdForm( List<Integer> listIdForm, Plugin plugin )
+    {
+        List<Display> listDisplay = new ArrayList<>( );
+        if ( listIdForm.isEmpty( ) )
+        {
+            return listDisplay;
+        }
+        String query = SQL_QUERY_SELECT_BY_LIST_ID_FORM + listIdForm.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) ) + " )";
+        try ( DAOUtil daoUtil = new DAOUtil( query, plugin ) )
+        {
+            for ( int i = 0; i < listIdForm.size( ); i++ )
+            {
+                daoUtil.setInt( i + 1, listIdForm.get( i ) );
+            }
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listDisplay.add( buildDisplay( daoUtil ) );
+            }
+        }
+        return listDisplay;
+    }
+
     /**
      * Build a Display business object from the resultset
      * 
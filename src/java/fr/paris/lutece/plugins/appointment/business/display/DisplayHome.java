@@ -33,6 +33,8 @@
  */
 package fr.paris.lutece.plugins.appointment.business.display;
 
+import java.util.List;
+
 import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.plugin.PluginService;
@@ -131,4 +133,16 @@ public final class DisplayHome
         return _dao.findByIdForm( nIdForm, _plugin );
     }
 
+    /**
+     * Returns the displays of a list of forms
+     * 
+     * @param listIdForm
+     *            the ids of the forms
+     * @return the displays of the forms
+     */
+    public static List<Display> findByListIdForm( List<Integer> listIdForm )
+    {
+        return _dao.findByListIdForm( listIdForm, _plugin );
+    }
+
 }
@@ -33,6 +33,8 @@
  */
 package fr.paris.lutece.plugins.appointment.business.display;
 
+import java.util.List;
+
 import fr.paris.lutece.portal.service.plugin.Plugin;
 
 /**
@@ -104,4 +106,15 @@ public interface IDisplayDAO
      * @return the form display
      */
     Display findByIdForm( int nIdForm, Plugin plugin );
+
+    /**
+     * Returns the displays of a list of forms
+     * 
+     * @param listIdForm
+     *            the ids of the forms
+     * @param plugin
+     *            the plugin
+     * @return the displays of the forms
+     */
+    List<Display> findByListIdForm( List<Integer> listIdForm, Plugin plugin );
 }
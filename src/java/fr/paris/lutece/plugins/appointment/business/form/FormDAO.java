@@ -36,6 +36,7 @@ package fr.paris.lutece.plugins.appointment.business.form;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.util.sql.DAOUtil;
@@ -56,6 +57,7 @@ public final class FormDAO implements IFormDAO
     private static final String SQL_QUERY_SELECT_BY_TITLE = SQL_QUERY_SELECT_COLUMNS + " WHERE title = ?";
     private static final String SQL_QUERY_SELECT_ALL = SQL_QUERY_SELECT_COLUMNS;
     private static final String SQL_QUERY_SELECT = SQL_QUERY_SELECT_COLUMNS + " WHERE id_form = ?";
+    private static final String SQL_QUERY_SELECT_BY_LIST_ID_FORM = SQL_QUERY_SELECT_COLUMNS + " WHERE form.id_form IN ( ";
     private static final String SQL_QUERY_SELECT_ACTIVE_FORMS = SQL_QUERY_SELECT_COLUMNS + " WHERE is_active = 1";
     private static final String SQL_QUERY_SELECT_ACTIVE_AND_DISPLAYED_ON_PORTLET_FORMS = SQL_QUERY_SELECT_COLUMNS
             + " INNER JOIN appointment_display display ON form.id_form = display.id_form WHERE form.is_active = 1 AND display.is_displayed_on_portlet = 1";
@@ -186,6 +188,30 @@ public final class FormDAO implements IFormDAO
         return listForms;
     }
 
+    @Override
+    public List<Form> findByListIdForm( List<Integer> listIdForm, Plugin plugin )
+    {
+        List<Form> listForm = new ArrayList<>( );
+        if ( listIdForm.isEmpty( ) )
+        {
+            return listForm;
+        }
+        String query = SQL_QUERY_SELECT_BY_LIST_ID_FORM + listIdForm.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) ) + " )";
+        try ( DAOUtil daoUtil = new DAOUtil( query, plugin ) )
+        {
+            for ( int i = 0; i < listIdForm.size( ); i++ )
+            {
+                daoUtil.setInt( i + 1, listIdForm.get( i ) );
+            }
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listForm.add( buildForm( daoUtil ) );
+            }
+        }
+        return listForm;
+    }
+
     /**
      * Build a Form business object from the resultset
      * 
@@ -167,4 +167,16 @@ public final class FormHome
 
     }
 
+    /**
+     * Returns the forms of a list of ids
+     * 
+     * @param listIdForm
+     *            the ids of the forms
+     * @return the forms found
+     */
+    public static List<Form> findByListIdForm( List<Integer> listIdForm )
+    {
+        return _dao.findByListIdForm( listIdForm, _plugin );
+    }
+
 }
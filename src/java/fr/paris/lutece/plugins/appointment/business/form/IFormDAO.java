@@ -136,4 +136,15 @@ public interface IFormDAO
      */
     List<Form> findAllForms( Plugin plugin );
 
+    /**
+     * Returns the forms of a list of ids
+     * 
+     * @param listIdForm
+     *            the ids of the forms
+     * @param plugin
+     *            the plugin
+     * @return the forms found
+     */
+    List<Form> findByListIdForm( List<Integer> listIdForm, Plugin plugin );
+
 }
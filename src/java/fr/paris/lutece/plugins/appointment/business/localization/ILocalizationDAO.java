@@ -33,6 +33,8 @@
  */
 package fr.paris.lutece.plugins.appointment.business.localization;
 
+import java.util.List;
+
 import fr.paris.lutece.portal.service.plugin.Plugin;
 
 /**
@@ -104,4 +106,24 @@ public interface ILocalizationDAO
      * @return the form Localization
      */
     Localization findByIdForm( int nIdForm, Plugin plugin );
+
+    /**
+     * Returns all the Localizations with a latitude and a longitude
+     * 
+     * @param plugin
+     *            the plugin
+     * @return the list of the Localizations
+     */
+    List<Localization> findAllWithCoordinates( Plugin plugin );
+
+    /**
+     * Returns the localizations of a list of forms
+     * 
+     * @param listIdForm
+     *            the ids of the forms
+     * @param plugin
+     *            the plugin
+     * @return the localizations of the forms
+     */
+    List<Localization> findByListIdForm( List<Integer> listIdForm, Plugin plugin );
 }
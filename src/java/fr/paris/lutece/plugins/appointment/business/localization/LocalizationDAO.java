@@ -34,6 +34,9 @@
 package fr.paris.lutece.plugins.appointment.business.localization;
 
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.util.sql.DAOUtil;
@@ -48,6 +51,8 @@ public final class LocalizationDAO implements ILocalizationDAO
     private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_localization, longitude, latitude, address, id_form FROM appointment_localization";
     private static final String SQL_QUERY_SELECT = SQL_QUERY_SELECT_COLUMNS + " WHERE id_localization = ?";
     private static final String SQL_QUERY_SELECT_BY_ID_FORM = SQL_QUERY_SELECT_COLUMNS + " WHERE id_form = ?";
+    private static final String SQL_QUERY_SELECT_BY_LIST_ID_FORM = SQL_QUERY_SELECT_COLUMNS + " WHERE id_form IN ( ";
+    private static final String SQL_QUERY_SELECT_WITH_COORDINATES = SQL_QUERY_SELECT_COLUMNS + " WHERE latitude IS NOT NULL AND longitude IS NOT NULL";
 
     @Override
     public void insert( Localization localization, Plugin plugin )
@@ -123,6 +128,45 @@ public final class LocalizationDAO implements ILocalizationDAO
         return localization;
     }
 
+    @Override
+    public List<Localization> findAllWithCoordinates( Plugin plugin )
+    {
+        List<Localization> listLocalization = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_WITH_COORDINATES, plugin ) )
+        {
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listLocalization.add( buildLocalization( daoUtil ) );
+            }
+        }
+        return listLocalization;
+    }
+
+    @Override
+    public List<Localization> findByListIdForm( List<Integer> listIdForm, Plugin plugin )
+    {
+        List<Localization> listLocalization = new ArrayList<>( );
+        if ( listIdForm.isEmpty( ) )
+        {
+            return listLocalization;
+        }
+        String query = SQL_QUERY_SELECT_BY_LIST_ID_FORM + listIdForm.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) ) + " )";
+        try ( DAOUtil daoUtil = new DAOUtil( query, plugin ) )
+        {
+            for ( int i = 0; i < listIdForm.size( ); i++ )
+            {
+                daoUtil.setInt( i + 1, listIdForm.get( i ) );
+            }
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listLocalization.add( buildLocalization( daoUtil ) );
+            }
+        }
+        return listLocalization;
+    }
+
     /**
      * Build a Localization business object from the resultset
      * 
@@ -33,6 +33,8 @@
  */
 package fr.paris.lutece.plugins.appointment.business.localization;
 
+import java.util.List;
+
 import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.plugin.PluginService;
@@ -131,4 +133,26 @@ public final class LocalizationHome
         return _dao.findByIdForm( nIdForm, _plugin );
     }
 
+    /**
+     * Returns all the Localizations with a latitude and a longitude
+     * 
+     * @return the list of the Localizations
+     */
+    public static List<Localization> findAllWithCoordinates( )
+    {
+        return _dao.findAllWithCoordinates( _plugin );
+    }
+
+    /**
+     * Returns the localizations of a list of forms
+     * 
+     * @param listIdForm
+     *            the ids of the forms
+     * @return the localizations of the forms
+     */
+    public static List<Localization> findByListIdForm( List<Integer> listIdForm )
+    {
+        return _dao.findByListIdForm( listIdForm, _plugin );
+    }
+
 }
@@ -34,6 +34,9 @@
 package fr.paris.lutece.plugins.appointment.business.message;
 
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.util.sql.DAOUtil;
@@ -54,6 +57,7 @@ public final class FormMessageDAO implements IFormMessageDAO
     private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_form_message, calendar_title, field_firstname_title, field_firstname_help, field_lastname_title, field_lastname_help, field_email_title, field_email_help,field_confirmationEmail_title, field_confirmationEmail_help, text_appointment_created, url_redirect_after_creation, text_appointment_canceled, label_button_redirection, no_available_slot, calendar_description, calendar_reserve_label, calendar_full_label, id_form FROM appointment_form_message";
     private static final String SQL_QUERY_SELECT = SQL_QUERY_SELECT_COLUMNS + " WHERE id_form_message = ?";
     private static final String SQL_QUERY_SELECT_BY_ID_FORM = SQL_QUERY_SELECT_COLUMNS + " WHERE id_form = ?";
+    private static final String SQL_QUERY_SELECT_BY_LIST_ID_FORM = SQL_QUERY_SELECT_COLUMNS + " WHERE id_form IN ( ";
 
     @Override
     public void insert( FormMessage formMessage, Plugin plugin )
@@ -129,6 +133,30 @@ public final class FormMessageDAO implements IFormMessageDAO
         return formMessage;
     }
 
+    @Override
+    public List<FormMessage> findByListIdForm( List<Integer> listIdForm, Plugin plugin )
+    {
+        List<FormMessage> listFormMessage = new ArrayList<>( );
+        if ( listIdForm.isEmpty( ) )
+        {
+            return listFormMessage;
+        }
+        String query = SQL_QUERY_SELECT_BY_LIST_ID_FORM + listIdForm.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) ) + " )";
+        try ( DAOUtil daoUtil = new DAOUtil( query, plugin ) )
+        {
+            for ( int i = 0; i < listIdForm.size( ); i++ )
+            {
+                daoUtil.setInt( i + 1, listIdForm.get( i ) );
+            }
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listFormMessage.add( buildFormMessage( daoUtil ) );
+            }
+        }
+        return listFormMessage;
+    }
+
     /**
      * Build a Form Message business object from the resultset
      * 
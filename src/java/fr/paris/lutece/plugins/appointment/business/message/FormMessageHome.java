@@ -33,6 +33,8 @@
  */
 package fr.paris.lutece.plugins.appointment.business.message;
 
+import java.util.List;
+
 import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.plugin.PluginService;
@@ -124,4 +126,16 @@ public final class FormMessageHome
     {
         return _dao.findByIdForm( nIdForm, _plugin );
     }
+
+    /**
+     * Returns the messages of a list of forms
+     * 
+     * @param listIdForm
+     *            the ids of the forms
+     * @return the messages of the forms
+     */
+    public static List<FormMessage> findByListIdForm( List<Integer> listIdForm )
+    {
+        return _dao.findByListIdForm( listIdForm, _plugin );
+    }
 }
@@ -33,6 +33,8 @@
  */
 package fr.paris.lutece.plugins.appointment.business.message;
 
+import java.util.List;
+
 import fr.paris.lutece.portal.service.plugin.Plugin;
 
 /**
@@ -104,4 +106,15 @@ public interface IFormMessageDAO
      */
     FormMessage findByIdForm( int nIdForm, Plugin plugin );
 
+    /**
+     * Returns the messages of a list of forms
+     * 
+     * @param listIdForm
+     *            the ids of the forms
+     * @param plugin
+     *            the plugin
+     * @return the messages of the forms
+     */
+    List<FormMessage> findByListIdForm( List<Integer> listIdForm, Plugin plugin );
+
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.outbox;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * Interface for ListenerEvent DAO
+ */
+public interface IListenerEventDAO
+{
+    /**
+     * Insert a list of new events in one statement
+     * 
+     * @param listEvent
+     *            the events to insert
+     * @param plugin
+     *            the plugin
+     */
+    void insertList( List<ListenerEvent> listEvent, Plugin plugin );
+
+    /**
+     * Find the ids of the oldest events ready to be delivered
+     * 
+     * @param dateTime
+     *            the current date time
+     * @param nLimit
+     *            the max number of ids returned
+     * @param plugin
+     *            the plugin
+     * @return the ids of the events, in the order of their creation
+     */
+    List<Integer> findIdReady( LocalDateTime dateTime, int nLimit, Plugin plugin );
+
+    /**
+     * Claim events for a delivery. An event is claimed only if it is still ready (not claimed by another dispatcher in the meantime), and stays claimed until
+     * the end of the lease
+     * 
+     * @param listIdEvent
+     *            the ids of the events
+     * @param strClaimToken
+     *            the token of the claim
+     * @param dateTime
+     *            the current date time
+     * @param leaseEndDateTime
+     *            the end of the lease
+     * @param plugin
+     *            the plugin
+     * @return the number of events claimed
+     */
+    int claim( List<Integer> listIdEvent, String strClaimToken, LocalDateTime dateTime, LocalDateTime leaseEndDateTime, Plugin plugin );
+
+    /**
+     * Find the events of a claim
+     * 
+     * @param strClaimToken
+     *            the token of the claim
+     * @param plugin
+     *            the plugin
+     * @return the events, in the order of their creation
+     */
+    List<ListenerEvent> findByClaimToken( String strClaimToken, Plugin plugin );
+
+    /**
+     * Delete a list of events
+     * 
+     * @param listIdEvent
+     *            the ids of the events
+     * @param plugin
+     *            the plugin
+     * @return the number of events deleted
+     */
+    int deleteList( List<Integer> listIdEvent, Plugin plugin );
+
+    /**
+     * Release the claim on a list of events whose delivery failed, and postpone their next delivery
+     * 
+     * @param listIdEvent
+     *            the ids of the events
+     * @param nextAttemptDateTime
+     *            the date time of the next delivery
+     * @param plugin
+     *            the plugin
+     */
+    void postpone( List<Integer> listIdEvent, LocalDateTime nextAttemptDateTime, Plugin plugin );
+
+    /**
+     * Count the events not yet delivered
+     * 
+     * @param plugin
+     *            the plugin
+     * @return the number of events
+     */
+    int count( Plugin plugin );
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.outbox;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Business class of a listener event: a notification for the slot or appointment listeners, written in the transaction of the change and delivered by the
+ * ListenerEventDispatcher once the transaction is committed
+ */
+public final class ListenerEvent implements Serializable
+{
+    /**
+     * A slot has been changed
+     */
+    public static final String TYPE_SLOT_CHANGE = "slot_change";
+
+    /**
+     * A slot has been created
+     */
+    public static final String TYPE_SLOT_CREATION = "slot_creation";
+
+    /**
+     * An appointment has been created
+     */
+    public static final String TYPE_APPOINTMENT_CREATED = "appointment_created";
+
+    /**
+     * An appointment has been updated
+     */
+    public static final String TYPE_APPOINTMENT_UPDATED = "appointment_updated";
+
+    /**
+     * A slot has been removed, the data of the event holds the slot
+     */
+    public static final String TYPE_SLOT_REMOVAL = "slot_removal";
+
+    /**
+     * The ending time of a slot has changed, the data of the event holds the form and the new ending date time
+     */
+    public static final String TYPE_SLOT_ENDING_TIME_CHANGED = "slot_ending_time_changed";
+
+    /**
+     * An appointment has been removed
+     */
+    public static final String TYPE_APPOINTMENT_REMOVAL = "appointment_removal";
+
+    /**
+     * An appointment form has been removed
+     */
+    public static final String TYPE_APPOINTMENT_FORM_REMOVAL = "appointment_form_removal";
+
+    /**
+     * A workflow action has been triggered on an appointment, the data of the event holds the id of the action
+     */
+    public static final String TYPE_APPOINTMENT_WF_ACTION = "appointment_wf_action";
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = -2389457326188413650L;
+
+    /**
+     * Id of the event
+     */
+    private int _nIdEvent;
+
+    /**
+     * Type of the event
+     */
+    private String _strEventType;
+
+    /**
+     * Id of the slot, of the appointment or of the form
+     */
+    private int _nIdResource;
+
+    /**
+     * Data of the event, for the types needing more than the id of the resource
+     */
+    private String _strData;
+
+    /**
+     * Date time of the change
+     */
+    private LocalDateTime _creationDateTime;
+
+    /**
+     * Number of failed deliveries
+     */
+    private int _nNbAttempts;
+
+    /**
+     * Default constructor
+     */
+    public ListenerEvent( )
+    {
+    }
+
+    /**
+     * Constructor of a new event
+     * 
+     * @param strEventType
+     *            the type of the event
+     * @param nIdResource
+     *            the id of the slot, of the appointment or of the form
+     */
+    public ListenerEvent( String strEventType, int nIdResource )
+    {
+        this( strEventType, nIdResource, null );
+    }
+
+    /**
+     * Constructor of a new event with data
+     * 
+     * @param strEventType
+     *            the type of the event
+     * @param nIdResource
+     *            the id of the slot, of the appointment or of the form
+     * @param strData
+     *            the data of the event
+     */
+    public ListenerEvent( String strEventType, int nIdResource, String strData )
+    {
+        _strEventType = strEventType;
+        _nIdResource = nIdResource;
+        _strData = strData;
+        _creationDateTime = LocalDateTime.now( );
+    }
+
+    /**
+     * Get the id of the event
+     * 
+     * @return the id of the event
+     */
+    public int getIdEvent( )
+    {
+        return _nIdEvent;
+    }
+
+    /**
+     * Set the id of the event
+     * 
+     * @param nIdEvent
+     *            the id to set
+     */
+    public void setIdEvent( int nIdEvent )
+    {
+        this._nIdEvent = nIdEvent;
+    }
+
+    /**
+     * Get the type of the event
+     * 
+     * @return the type of the event
+     */
+    public String getEventType( )
+    {
+        return _strEventType;
+    }
+
+    /**
+     * Set the type of the event
+     * 
+     * @param strEventType
+     *            the type to set
+     */
+    public void setEventType( String strEventType )
+    {
+        this._strEventType = strEventType;
+    }
+
+    /**
+     * Get the id of the slot or of the appointment
+     * 
+     * @return the id of the resource
+     */
+    public int getIdResource( )
+    {
+        return _nIdResource;
+    }
+
+    /**
+     * Set the id of the slot or of the appointment
+     * 
+     * @param nIdResource
+     *            the id to set
+     */
+    public void setIdResource( int nIdResource )
+    {
+        this._nIdResource = nIdResource;
+    }
+
+    /**
+     * Get the data of the event
+     * 
+     * @return the data, null if the type of the event has no data
+     */
+    public String getData( )
+    {
+        return _strData;
+    }
+
+    /**
+     * Set the data of the event
+     * 
+     * @param strData
+     *            the data to set
+     */
+    public void setData( String strData )
+    {
+        this._strData = strData;
+    }
+
+    /**
+     * Get the date time of the change
+     * 
+     * @return the creation date time
+     */
+    public LocalDateTime getCreationDateTime( )
+    {
+        return _creationDateTime;
+    }
+
+    /**
+     * Set the date time of the change
+     * 
+     * @param creationDateTime
+     *            the creation date time to set
+     */
+    public void setCreationDateTime( LocalDateTime creationDateTime )
+    {
+        this._creationDateTime = creationDateTime;
+    }
+
+    /**
+     * Get the number of failed deliveries
+     * 
+     * @return the number of attempts
+     */
+    public int getNbAttempts( )
+    {
+        return _nNbAttempts;
+    }
+
+    /**
+     * Set the number of failed deliveries
+     * 
+     * @param nNbAttempts
+     *            the number of attempts to set
+     */
+    public void setNbAttempts( int nNbAttempts )
+    {
+        this._nNbAttempts = nNbAttempts;
+    }
+}
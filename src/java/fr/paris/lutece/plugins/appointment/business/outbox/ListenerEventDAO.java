@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.outbox;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for ListenerEvent objects
+ */
+public final class ListenerEventDAO implements IListenerEventDAO
+{
+    private static final String SQL_QUERY_INSERT_LIST = "INSERT INTO appointment_listener_event (event_type, id_resource, event_data, date_creation, date_next_attempt, nb_attempts) VALUES ";
+    private static final String SQL_QUERY_INSERT_LIST_VALUES = "( ?, ?, ?, ?, ?, 0 )";
+    private static final String SQL_QUERY_SELECT_ID_READY = "SELECT id_event FROM appointment_listener_event WHERE date_next_attempt <= ? ORDER BY id_event LIMIT ?";
+    private static final String SQL_QUERY_CLAIM = "UPDATE appointment_listener_event SET claim_token = ?, date_next_attempt = ? WHERE date_next_attempt <= ? AND id_event IN ( ";
+    private static final String SQL_QUERY_SELECT_BY_CLAIM_TOKEN = "SELECT id_event, event_type, id_resource, event_data, date_creation, nb_attempts FROM appointment_listener_event WHERE claim_token = ? ORDER BY id_event";
+    private static final String SQL_QUERY_DELETE_LIST = "DELETE FROM appointment_listener_event WHERE id_event IN ( ";
+    private static final String SQL_QUERY_POSTPONE = "UPDATE appointment_listener_event SET claim_token = NULL, nb_attempts = nb_attempts + 1, date_next_attempt = ? WHERE id_event IN ( ";
+    private static final String SQL_QUERY_COUNT = "SELECT COUNT(*) FROM appointment_listener_event";
+    private static final String SQL_LIST_END = " )";
+
+    @Override
+    public void insertList( List<ListenerEvent> listEvent, Plugin plugin )
+    {
+        if ( listEvent.isEmpty( ) )
+        {
+            return;
+        }
+        String query = SQL_QUERY_INSERT_LIST + listEvent.stream( ).map( e -> SQL_QUERY_INSERT_LIST_VALUES ).collect( Collectors.joining( "," ) );
+        try ( DAOUtil daoUtil = new DAOUtil( query, plugin ) )
+        {
+            int nIndex = 1;
+            for ( ListenerEvent event : listEvent )
+            {
+                Timestamp creationDate = Timestamp.valueOf( event.getCreationDateTime( ) );
+                daoUtil.setString( nIndex++, event.getEventType( ) );
+                daoUtil.setInt( nIndex++, event.getIdResource( ) );
+                daoUtil.setString( nIndex++, event.getData( ) );
+                daoUtil.setTimestamp( nIndex++, creationDate );
+                daoUtil.setTimestamp( nIndex++, creationDate );
+            }
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public List<Integer> findIdReady( LocalDateTime dateTime, int nLimit, Plugin plugin )
+    {
+        List<Integer> listIdEvent = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_ID_READY, plugin ) )
+        {
+            daoUtil.setTimestamp( 1, Timestamp.valueOf( dateTime ) );
+            daoUtil.setInt( 2, nLimit );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listIdEvent.add( daoUtil.getInt( 1 ) );
+            }
+        }
+        return listIdEvent;
+    }
+
+    @Override
+    public int claim( List<Integer> listIdEvent, String strClaimToken, LocalDateTime dateTime, LocalDateTime leaseEndDateTime, Plugin plugin )
+    {
+        if ( listIdEvent.isEmpty( ) )
+        {
+            return 0;
+        }
+        String query = SQL_QUERY_CLAIM + listIdEvent.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) ) + SQL_LIST_END;
+        try ( DAOUtil daoUtil = new DAOUtil( query, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setString( nIndex++, strClaimToken );
+            daoUtil.setTimestamp( nIndex++, Timestamp.valueOf( leaseEndDateTime ) );
+            daoUtil.setTimestamp( nIndex++, Timestamp.valueOf( dateTime ) );
+            for ( int nIdEvent : listIdEvent )
+            {
+                daoUtil.setInt( nIndex++, nIdEvent );
+            }
+            return daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public List<ListenerEvent> findByClaimToken( String strClaimToken, Plugin plugin )
+    {
+        List<ListenerEvent> listEvent = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_BY_CLAIM_TOKEN, plugin ) )
+        {
+            daoUtil.setString( 1, strClaimToken );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listEvent.add( buildListenerEvent( daoUtil ) );
+            }
+        }
+        return listEvent;
+    }
+
+    @Override
+    public int deleteList( List<Integer> listIdEvent, Plugin plugin )
+    {
+        if ( listIdEvent.isEmpty( ) )
+        {
+            return 0;
+        }
+        String query = SQL_QUERY_DELETE_LIST + listIdEvent.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) ) + SQL_LIST_END;
+        try ( DAOUtil daoUtil = new DAOUtil( query, plugin ) )
+        {
+            for ( int i = 0; i < listIdEvent.size( ); i++ )
+            {
+                daoUtil.setInt( i + 1, listIdEvent.get( i ) );
+            }
+            return daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public void postpone( List<Integer> listIdEvent, LocalDateTime nextAttemptDateTime, Plugin plugin )
+    {
+        if ( listIdEvent.isEmpty( ) )
+        {
+            return;
+        }
+        String query = SQL_QUERY_POSTPONE + listIdEvent.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) ) + SQL_LIST_END;
+        try ( DAOUtil daoUtil = new DAOUtil( query, plugin ) )
+        {
+            daoUtil.setTimestamp( 1, Timestamp.valueOf( nextAttemptDateTime ) );
+            for ( int i = 0; i < listIdEvent.size( ); i++ )
+            {
+                daoUtil.setInt( i + 2, listIdEvent.get( i ) );
+            }
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public int count( Plugin plugin )
+    {
+        int nCount = 0;
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_COUNT, plugin ) )
+        {
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                nCount = daoUtil.getInt( 1 );
+            }
+        }
+        return nCount;
+    }
+
+    /**
+     * Build a ListenerEvent business object from the resultset
+     * 
+     * @param daoUtil
+     *            the prepare statement util object
+     * @return a new ListenerEvent with all its attributes assigned
+     */
+    private ListenerEvent buildListenerEvent( DAOUtil daoUtil )
+    {
+        int nIndex = 1;
+        ListenerEvent event = new ListenerEvent( );
+        event.setIdEvent( daoUtil.getInt( nIndex++ ) );
+        event.setEventType( daoUtil.getString( nIndex++ ) );
+        event.setIdResource( daoUtil.getInt( nIndex++ ) );
+        event.setData( daoUtil.getString( nIndex++ ) );
+        event.setCreationDateTime( daoUtil.getTimestamp( nIndex++ ).toLocalDateTime( ) );
+        event.setNbAttempts( daoUtil.getInt( nIndex ) );
+        return event;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.outbox;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides instances management methods for ListenerEvent objects. The events are written with the connection of the current transaction if any,
+ * so that they are discarded if the transaction is rolled back
+ */
+public final class ListenerEventHome
+{
+    // Static variable pointed at the DAO instance
+    private static IListenerEventDAO _dao = SpringContextService.getBean( "appointment.listenerEventDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( AppointmentPlugin.PLUGIN_NAME );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private ListenerEventHome( )
+    {
+    }
+
+    /**
+     * Create an event
+     * 
+     * @param event
+     *            the event to store
+     */
+    public static void create( ListenerEvent event )
+    {
+        _dao.insertList( Collections.singletonList( event ), _plugin );
+    }
+
+    /**
+     * Create a list of events in one statement
+     * 
+     * @param listEvent
+     *            the events to store
+     */
+    public static void createList( List<ListenerEvent> listEvent )
+    {
+        _dao.insertList( listEvent, _plugin );
+    }
+
+    /**
+     * Find the ids of the oldest events ready to be delivered
+     * 
+     * @param dateTime
+     *            the current date time
+     * @param nLimit
+     *            the max number of ids returned
+     * @return the ids of the events, in the order of their creation
+     */
+    public static List<Integer> findIdReady( LocalDateTime dateTime, int nLimit )
+    {
+        return _dao.findIdReady( dateTime, nLimit, _plugin );
+    }
+
+    /**
+     * Claim events for a delivery, until the end of the lease
+     * 
+     * @param listIdEvent
+     *            the ids of the events
+     * @param strClaimToken
+     *            the token of the claim
+     * @param dateTime
+     *            the current date time
+     * @param leaseEndDateTime
+     *            the end of the lease
+     * @return the number of events claimed
+     */
+    public static int claim( List<Integer> listIdEvent, String strClaimToken, LocalDateTime dateTime, LocalDateTime leaseEndDateTime )
+    {
+        return _dao.claim( listIdEvent, strClaimToken, dateTime, leaseEndDateTime, _plugin );
+    }
+
+    /**
+     * Find the events of a claim
+     * 
+     * @param strClaimToken
+     *            the token of the claim
+     * @return the events, in the order of their creation
+     */
+    public static List<ListenerEvent> findByClaimToken( String strClaimToken )
+    {
+        return _dao.findByClaimToken( strClaimToken, _plugin );
+    }
+
+    /**
+     * Delete a list of events
+     * 
+     * @param listIdEvent
+     *            the ids of the events
+     * @return the number of events deleted
+     */
+    public static int deleteList( List<Integer> listIdEvent )
+    {
+        return _dao.deleteList( listIdEvent, _plugin );
+    }
+
+    /**
+     * Release the claim on a list of events whose delivery failed, and postpone their next delivery
+     * 
+     * @param listIdEvent
+     *            the ids of the events
+     * @param nextAttemptDateTime
+     *            the date time of the next delivery
+     */
+    public static void postpone( List<Integer> listIdEvent, LocalDateTime nextAttemptDateTime )
+    {
+        _dao.postpone( listIdEvent, nextAttemptDateTime, _plugin );
+    }
+
+    /**
+     * Count the events not yet delivered
+     * 
+     * @return the number of events
+     */
+    public static int count( )
+    {
+        return _dao.count( _plugin );
+    }
+}
@@ -34,6 +34,9 @@
 package fr.paris.lutece.plugins.appointment.business.rule;
 
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.util.sql.DAOUtil;
@@ -54,6 +57,7 @@ public final class FormRuleDAO implements IFormRuleDAO
     private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_form_rule, is_captcha_enabled, is_mandatory_email_enabled, is_active_authentication, nb_days_before_new_appointment, min_time_before_appointment, nb_max_appointments_per_user, nb_days_for_max_appointments_per_user, bo_overbooking, id_form FROM appointment_form_rule";
     private static final String SQL_QUERY_SELECT = SQL_QUERY_SELECT_COLUMNS + " WHERE id_form_rule = ?";
     private static final String SQL_QUERY_SELECT_BY_ID_FORM = SQL_QUERY_SELECT_COLUMNS + " WHERE id_form = ?";
+    private static final String SQL_QUERY_SELECT_BY_LIST_ID_FORM = SQL_QUERY_SELECT_COLUMNS + " WHERE id_form IN ( ";
 
     @Override
     public synchronized void insert( FormRule formRule, Plugin plugin )
@@ -129,6 +133,30 @@ public final class FormRuleDAO implements IFormRuleDAO
         return formRule;
     }
 
+    @Override
+    public List<FormRule> findByListIdForm( List<Integer> listIdForm, Plugin plugin )
+    {
+        List<FormRule> listFormRule = new ArrayList<>( );
+        if ( listIdForm.isEmpty( ) )
+        {
+            return listFormRule;
+        }
+        String query = SQL_QUERY_SELECT_BY_LIST_ID_FORM + listIdForm.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) ) + " )";
+        try ( DAOUtil daoUtil = new DAOUtil( query, plugin ) )
+        {
+            for ( int i = 0; i < listIdForm.size( ); i++ )
+            {
+                daoUtil.setInt( i + 1, listIdForm.get( i ) );
+            }
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listFormRule.add( buildFormRule( daoUtil ) );
+            }
+        }
+        return listFormRule;
+    }
+
     /**
      * Build a Form rule business object from the resultset
      * 
@@ -33,6 +33,8 @@
  */
 package fr.paris.lutece.plugins.appointment.business.rule;
 
+import java.util.List;
+
 import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.plugin.PluginService;
@@ -132,4 +134,16 @@ public final class FormRuleHome
         return _dao.findByIdForm( nIdForm, _plugin );
     }
 
+    /**
+     * Returns the rules of a list of forms
+     * 
+     * @param listIdForm
+     *            the ids of the forms
+     * @return the rules of the forms
+     */
+    public static List<FormRule> findByListIdForm( List<Integer> listIdForm )
+    {
+        return _dao.findByListIdForm( listIdForm, _plugin );
+    }
+
 }
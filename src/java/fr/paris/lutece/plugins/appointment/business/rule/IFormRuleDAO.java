@@ -33,6 +33,8 @@
  */
 package fr.paris.lutece.plugins.appointment.business.rule;
 
+import java.util.List;
+
 import fr.paris.lutece.portal.service.plugin.Plugin;
 
 /**
@@ -104,4 +106,15 @@ public interface IFormRuleDAO
      * @return the form rule of the form
      */
     FormRule findByIdForm( int nIdForm, Plugin plugin );
+
+    /**
+     * Returns the rules of a list of forms
+     * 
+     * @param listIdForm
+     *            the ids of the forms
+     * @param plugin
+     *            the plugin
+     * @return the rules of the forms
+     */
+    List<FormRule> findByListIdForm( List<Integer> listIdForm, Plugin plugin );
 }
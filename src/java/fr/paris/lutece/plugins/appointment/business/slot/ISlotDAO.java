@@ -207,6 +207,102 @@ public interface ISlotDAO
      */
     void updatePotentialRemainingPlaces( int nbPotentialRemainingPlaces, int nIdSlot, Plugin plugin );
 
+    /**
+     * Take places on a slot in a single conditional update. The number of remaining places is checked by the database so that two concurrent bookings can
+     * not both take the last places of the slot
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places to take
+     * @param nbPotentialPlacesHeld
+     *            the number of potential places held by the user while filling the form, given back to the slot
+     * @param minEndingDateTime
+     *            the slot must not end before this date time (no check if null)
+     * @param bOverbookingAllowed
+     *            true if the remaining places must not be checked
+     * @param plugin
+     *            the plugin
+     * @return the number of rows updated: 0 if the slot does not exist, is full or is over
+     */
+    int reservePlaces( int nIdSlot, int nbPlaces, int nbPotentialPlacesHeld, LocalDateTime minEndingDateTime, boolean bOverbookingAllowed, Plugin plugin );
+
+    /**
+     * Give back places to a slot (appointment moved, deleted or cancelled) in a single update. The new values take into account the capacity of the slot, in
+     * case of the slot was over booked
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places released
+     * @param plugin
+     *            the plugin
+     * @return the number of rows updated
+     */
+    int releasePlaces( int nIdSlot, int nbPlaces, Plugin plugin );
+
+    /**
+     * Lock the rows of the slots until the end of the current transaction. The rows are locked in one query, in the order of their ids, so that two
+     * transactions locking overlapping sets of slots can not deadlock
+     * 
+     * @param listIdSlot
+     *            the ids of the slots, sorted in ascending order
+     * @param plugin
+     *            the plugin
+     * @return the number of slots locked
+     */
+    int lockSlots( List<Integer> listIdSlot, Plugin plugin );
+
+    /**
+     * Insert a list of new slots in one statement. The ids of the slots are not set, the slots must be read again to get them
+     * 
+     * @param listSlot
+     *            the slots to insert
+     * @param plugin
+     *            the plugin
+     */
+    void insertList( List<Slot> listSlot, Plugin plugin );
+
+    /**
+     * Add places to the capacity, the remaining places and the potential remaining places of a list of slots in one statement
+     * 
+     * @param listIdSlot
+     *            the ids of the slots
+     * @param nIncrementingValue
+     *            the number of places to add (may be negative)
+     * @param bIsSpecific
+     *            the specific flag to set on the slots
+     * @param plugin
+     *            the plugin
+     * @return the number of slots updated
+     */
+    int incrementMaxCapacity( List<Integer> listIdSlot, int nIncrementingValue, boolean bIsSpecific, Plugin plugin );
+
+    /**
+     * Increment the potential remaining places of a slot, without exceeding its remaining places
+     * 
+     * @param nbPlaces
+     *            the number of places to add
+     * @param nIdSlot
+     *            the id of the slot
+     * @param plugin
+     *            the plugin
+     */
+    void incrementPotentialRemainingPlaces( int nbPlaces, int nIdSlot, Plugin plugin );
+
+    /**
+     * Decrement the potential remaining places of a slot, only if the slot has enough potential remaining places
+     * 
+     * @param nbPlaces
+     *            the number of places to remove
+     * @param nIdSlot
+     *            the id of the slot
+     * @param plugin
+     *            the plugin
+     * @return the number of rows updated (1 if the places have been taken, 0 otherwise)
+     */
+    int decrementPotentialRemainingPlaces( int nbPlaces, int nIdSlot, Plugin plugin );
+
     /**
      * update the availabilities metrics
      * 
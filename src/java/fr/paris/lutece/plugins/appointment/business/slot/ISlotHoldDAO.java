@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.slot;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * Slot Hold DAO Interface
+ */
+public interface ISlotHoldDAO
+{
+    /**
+     * Insert a new record in the table
+     * 
+     * @param slotHold
+     *            instance of the SlotHold object to insert
+     * @param plugin
+     *            the plugin
+     */
+    void insert( SlotHold slotHold, Plugin plugin );
+
+    /**
+     * Delete a hold from the table
+     * 
+     * @param nIdHold
+     *            identifier of the hold to delete
+     * @param plugin
+     *            the plugin
+     * @return the number of rows deleted (0 if the hold has already been released)
+     */
+    int delete( int nIdHold, Plugin plugin );
+
+    /**
+     * Delete a list of holds from the table
+     * 
+     * @param listIdHold
+     *            the identifiers of the holds to delete
+     * @param plugin
+     *            the plugin
+     * @return the number of rows deleted
+     */
+    int deleteList( List<Integer> listIdHold, Plugin plugin );
+
+    /**
+     * Load the data from the table
+     * 
+     * @param nIdHold
+     *            the identifier of the hold
+     * @param plugin
+     *            the plugin
+     * @return the instance of the SlotHold
+     */
+    SlotHold select( int nIdHold, Plugin plugin );
+
+    /**
+     * Returns the holds expired at the given date time, the oldest first
+     * 
+     * @param dateTime
+     *            the date time
+     * @param nLimit
+     *            the max number of holds to return
+     * @param plugin
+     *            the plugin
+     * @return the list of the expired holds
+     */
+    List<SlotHold> findExpired( LocalDateTime dateTime, int nLimit, Plugin plugin );
+
+    /**
+     * Set the potential remaining places of the slots to their remaining places minus the places of their live holds
+     * 
+     * @param listIdSlot
+     *            the ids of the slots
+     * @param dateTime
+     *            the date time (the holds expired at this date time are not counted)
+     * @param plugin
+     *            the plugin
+     */
+    void reconcilePotentialRemainingPlaces( List<Integer> listIdSlot, LocalDateTime dateTime, Plugin plugin );
+}
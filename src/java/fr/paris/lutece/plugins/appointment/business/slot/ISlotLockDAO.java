@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.slot;
+
+import java.time.LocalDateTime;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * Slot Lock DAO Interface
+ */
+public interface ISlotLockDAO
+{
+    /**
+     * Insert a free lock in the table, if it does not exist yet
+     * 
+     * @param strKey
+     *            the key of the lock
+     * @param plugin
+     *            the plugin
+     */
+    void insertIfAbsent( String strKey, Plugin plugin );
+
+    /**
+     * Take the lock if it is free or expired
+     * 
+     * @param strKey
+     *            the key of the lock
+     * @param strOwner
+     *            the owner of the lock
+     * @param now
+     *            the current date time
+     * @param expirationDateTime
+     *            the date time after which the lock is expired
+     * @param plugin
+     *            the plugin
+     * @return the number of rows updated (1 if the lock has been taken, 0 otherwise)
+     */
+    int lock( String strKey, String strOwner, LocalDateTime now, LocalDateTime expirationDateTime, Plugin plugin );
+
+    /**
+     * Release the lock if it is still held by the owner
+     * 
+     * @param strKey
+     *            the key of the lock
+     * @param strOwner
+     *            the owner of the lock
+     * @param plugin
+     *            the plugin
+     */
+    void unlock( String strKey, String strOwner, Plugin plugin );
+
+    /**
+     * Delete the row of a lock
+     * 
+     * @param strKey
+     *            the key of the lock
+     * @param plugin
+     *            the plugin
+     */
+    void delete( String strKey, Plugin plugin );
+}
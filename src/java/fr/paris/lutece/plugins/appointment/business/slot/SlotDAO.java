@@ -39,6 +39,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.util.sql.DAOUtil;
@@ -55,6 +56,18 @@ public final class SlotDAO implements ISlotDAO
     private static final String SQL_QUERY_INSERT = "INSERT INTO appointment_slot (starting_date_time, ending_date_time, is_open, is_specific, max_capacity, nb_remaining_places, nb_potential_remaining_places, nb_places_taken, id_form) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?)";
     private static final String SQL_QUERY_UPDATE = "UPDATE appointment_slot SET starting_date_time = ?, ending_date_time = ?, is_open = ?, is_specific = ?, max_capacity = ?, nb_remaining_places = ?, nb_potential_remaining_places = ?, nb_places_taken = ?, id_form = ? WHERE id_slot = ?";
     private static final String SQL_QUERY_UPDATE_POTENTIAL_REMAINING_PLACE = "UPDATE appointment_slot SET nb_potential_remaining_places = ? WHERE id_slot = ?";
+    private static final String SQL_QUERY_RESERVE_PLACES = "UPDATE appointment_slot SET nb_potential_remaining_places = LEAST( nb_potential_remaining_places + ? - ?, nb_remaining_places - ? ), nb_remaining_places = nb_remaining_places - ?, nb_places_taken = nb_places_taken + ? WHERE id_slot = ?";
+    private static final String SQL_FILTER_REMAINING_PLACES = " AND nb_remaining_places >= ?";
+    private static final String SQL_FILTER_ENDING_DATE_TIME = " AND ending_date_time >= ?";
+    private static final String SQL_QUERY_RELEASE_PLACES = "UPDATE appointment_slot SET nb_potential_remaining_places = LEAST( max_capacity, nb_potential_remaining_places + ?, nb_remaining_places + ?, max_capacity - nb_places_taken + ? ), nb_remaining_places = LEAST( max_capacity, nb_remaining_places + ?, max_capacity - nb_places_taken + ? ), nb_places_taken = nb_places_taken - ? WHERE id_slot = ?";
+    private static final String SQL_QUERY_LOCK_SLOTS = "SELECT id_slot FROM appointment_slot WHERE id_slot IN ( ";
+    private static final String SQL_QUERY_LOCK_SLOTS_END = " ) ORDER BY id_slot FOR UPDATE";
+    private static final String SQL_QUERY_INSERT_LIST = "INSERT INTO appointment_slot (starting_date_time, ending_date_time, is_open, is_specific, max_capacity, nb_remaining_places, nb_potential_remaining_places, nb_places_taken, id_form) VALUES ";
+    private static final String SQL_QUERY_INSERT_LIST_VALUES = "( ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_QUERY_INCREMENT_MAX_CAPACITY = "UPDATE appointment_slot SET max_capacity = max_capacity + ?, nb_remaining_places = nb_remaining_places + ?, nb_potential_remaining_places = nb_potential_remaining_places + ?, is_specific = ? WHERE id_slot IN ( ";
+    private static final String SQL_QUERY_INCREMENT_MAX_CAPACITY_END = " )";
+    private static final String SQL_QUERY_INCREMENT_POTENTIAL_REMAINING_PLACES = "UPDATE appointment_slot SET nb_potential_remaining_places = LEAST( nb_potential_remaining_places + ?, nb_remaining_places ) WHERE id_slot = ?";
+    private static final String SQL_QUERY_DECREMENT_POTENTIAL_REMAINING_PLACES = "UPDATE appointment_slot SET nb_potential_remaining_places = nb_potential_remaining_places - ? WHERE id_slot = ? AND nb_potential_remaining_places >= ?";
     private static final String SQL_QUERY_UPDATE_POTENTIAL_REMAINING_PLACE_IF_SHUTDOWN = "UPDATE appointment_slot SET nb_potential_remaining_places = nb_remaining_places WHERE nb_potential_remaining_places < nb_remaining_places ";
     private static final String SQL_QUERY_DELETE = "DELETE FROM appointment_slot WHERE id_slot = ?";
     private static final String SQL_QUERY_DELETE_BY_ID_FORM = "DELETE FROM appointment_slot WHERE id_form = ?";
@@ -281,6 +294,156 @@ public final class SlotDAO implements ISlotDAO
         }
     }
 
+    @Override
+    public int reservePlaces( int nIdSlot, int nbPlaces, int nbPotentialPlacesHeld, LocalDateTime minEndingDateTime, boolean bOverbookingAllowed,
+            Plugin plugin )
+    {
+        // The potential remaining places are set first: some databases (MySQL) evaluate the assignments from left to right
+        StringBuilder sbQuery = new StringBuilder( SQL_QUERY_RESERVE_PLACES );
+        if ( !bOverbookingAllowed )
+        {
+            sbQuery.append( SQL_FILTER_REMAINING_PLACES );
+        }
+        if ( minEndingDateTime != null )
+        {
+            sbQuery.append( SQL_FILTER_ENDING_DATE_TIME );
+        }
+        try ( DAOUtil daoUtil = new DAOUtil( sbQuery.toString( ), plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, nbPotentialPlacesHeld );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex++, nIdSlot );
+            if ( !bOverbookingAllowed )
+            {
+                daoUtil.setInt( nIndex++, nbPlaces );
+            }
+            if ( minEndingDateTime != null )
+            {
+                daoUtil.setTimestamp( nIndex, Timestamp.valueOf( minEndingDateTime ) );
+            }
+            return daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public int releasePlaces( int nIdSlot, int nbPlaces, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_RELEASE_PLACES, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex++, nbPlaces );
+            daoUtil.setInt( nIndex, nIdSlot );
+            return daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public int lockSlots( List<Integer> listIdSlot, Plugin plugin )
+    {
+        int nbSlotsLocked = 0;
+        if ( listIdSlot.isEmpty( ) )
+        {
+            return nbSlotsLocked;
+        }
+        String query = SQL_QUERY_LOCK_SLOTS + listIdSlot.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) ) + SQL_QUERY_LOCK_SLOTS_END;
+        try ( DAOUtil daoUtil = new DAOUtil( query, plugin ) )
+        {
+            for ( int i = 0; i < listIdSlot.size( ); i++ )
+            {
+                daoUtil.setInt( i + 1, listIdSlot.get( i ) );
+            }
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                nbSlotsLocked++;
+            }
+        }
+        return nbSlotsLocked;
+    }
+
+    @Override
+    public void insertList( List<Slot> listSlot, Plugin plugin )
+    {
+        if ( listSlot.isEmpty( ) )
+        {
+            return;
+        }
+        String query = SQL_QUERY_INSERT_LIST + listSlot.stream( ).map( s -> SQL_QUERY_INSERT_LIST_VALUES ).collect( Collectors.joining( "," ) );
+        try ( DAOUtil daoUtil = new DAOUtil( query, plugin ) )
+        {
+            int nIndex = 1;
+            for ( Slot slot : listSlot )
+            {
+                daoUtil.setTimestamp( nIndex++, slot.getStartingTimestampDate( ) );
+                daoUtil.setTimestamp( nIndex++, slot.getEndingTimestampDate( ) );
+                daoUtil.setBoolean( nIndex++, slot.getIsOpen( ) );
+                daoUtil.setBoolean( nIndex++, slot.getIsSpecific( ) );
+                daoUtil.setInt( nIndex++, slot.getMaxCapacity( ) );
+                daoUtil.setInt( nIndex++, slot.getNbRemainingPlaces( ) );
+                daoUtil.setInt( nIndex++, slot.getNbPotentialRemainingPlaces( ) );
+                daoUtil.setInt( nIndex++, slot.getNbPlacesTaken( ) );
+                daoUtil.setInt( nIndex++, slot.getIdForm( ) );
+            }
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public int incrementMaxCapacity( List<Integer> listIdSlot, int nIncrementingValue, boolean bIsSpecific, Plugin plugin )
+    {
+        if ( listIdSlot.isEmpty( ) )
+        {
+            return 0;
+        }
+        String query = SQL_QUERY_INCREMENT_MAX_CAPACITY + listIdSlot.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) )
+                + SQL_QUERY_INCREMENT_MAX_CAPACITY_END;
+        try ( DAOUtil daoUtil = new DAOUtil( query, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, nIncrementingValue );
+            daoUtil.setInt( nIndex++, nIncrementingValue );
+            daoUtil.setInt( nIndex++, nIncrementingValue );
+            daoUtil.setBoolean( nIndex++, bIsSpecific );
+            for ( int nIdSlot : listIdSlot )
+            {
+                daoUtil.setInt( nIndex++, nIdSlot );
+            }
+            return daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public void incrementPotentialRemainingPlaces( int nbPlaces, int nIdSlot, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INCREMENT_POTENTIAL_REMAINING_PLACES, plugin ) )
+        {
+            daoUtil.setInt( 1, nbPlaces );
+            daoUtil.setInt( 2, nIdSlot );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public int decrementPotentialRemainingPlaces( int nbPlaces, int nIdSlot, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DECREMENT_POTENTIAL_REMAINING_PLACES, plugin ) )
+        {
+            daoUtil.setInt( 1, nbPlaces );
+            daoUtil.setInt( 2, nIdSlot );
+            daoUtil.setInt( 3, nbPlaces );
+            return daoUtil.executeUpdate( );
+        }
+    }
+
     /**
      * Build a Slot business object from the resultset
      * 
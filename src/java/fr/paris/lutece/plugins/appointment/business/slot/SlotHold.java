@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.slot;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Business class of a hold: the places of a slot potentially taken by a user while filling the appointment form
+ */
+public final class SlotHold implements Serializable
+{
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = 3651298364562385231L;
+
+    /**
+     * Id of the hold
+     */
+    private int _nIdHold;
+
+    /**
+     * Id of the slot held
+     */
+    private int _nIdSlot;
+
+    /**
+     * Number of places held
+     */
+    private int _nNbPlaces;
+
+    /**
+     * Date time after which the places are given back to the slot
+     */
+    private LocalDateTime _expiryDateTime;
+
+    /**
+     * Get the id of the hold
+     * 
+     * @return the id of the hold
+     */
+    public int getIdHold( )
+    {
+        return _nIdHold;
+    }
+
+    /**
+     * Set the id of the hold
+     * 
+     * @param nIdHold
+     *            the id to set
+     */
+    public void setIdHold( int nIdHold )
+    {
+        this._nIdHold = nIdHold;
+    }
+
+    /**
+     * Get the id of the slot held
+     * 
+     * @return the id of the slot
+     */
+    public int getIdSlot( )
+    {
+        return _nIdSlot;
+    }
+
+    /**
+     * Set the id of the slot held
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     */
+    public void setIdSlot( int nIdSlot )
+    {
+        this._nIdSlot = nIdSlot;
+    }
+
+    /**
+     * Get the number of places held
+     * 
+     * @return the number of places
+     */
+    public int getNbPlaces( )
+    {
+        return _nNbPlaces;
+    }
+
+    /**
+     * Set the number of places held
+     * 
+     * @param nNbPlaces
+     *            the number of places
+     */
+    public void setNbPlaces( int nNbPlaces )
+    {
+        this._nNbPlaces = nNbPlaces;
+    }
+
+    /**
+     * Get the date time after which the places are given back to the slot
+     * 
+     * @return the expiry date time
+     */
+    public LocalDateTime getExpiryDateTime( )
+    {
+        return _expiryDateTime;
+    }
+
+    /**
+     * Set the date time after which the places are given back to the slot
+     * 
+     * @param expiryDateTime
+     *            the expiry date time
+     */
+    public void setExpiryDateTime( LocalDateTime expiryDateTime )
+    {
+        this._expiryDateTime = expiryDateTime;
+    }
+
+    /**
+     * Check if the hold is expired
+     * 
+     * @param dateTime
+     *            the date time to compare with
+     * @return true if the hold is expired at this date time
+     */
+    public boolean isExpired( LocalDateTime dateTime )
+    {
+        return _expiryDateTime == null || !_expiryDateTime.isAfter( dateTime );
+    }
+}
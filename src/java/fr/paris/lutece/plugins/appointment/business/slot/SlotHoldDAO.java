@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.slot;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for SlotHold objects
+ */
+public final class SlotHoldDAO implements ISlotHoldDAO
+{
+    private static final String SQL_QUERY_INSERT = "INSERT INTO appointment_slot_hold (id_slot, nb_places, date_expiry) VALUES ( ?, ?, ? )";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM appointment_slot_hold WHERE id_hold = ?";
+    private static final String SQL_QUERY_DELETE_LIST = "DELETE FROM appointment_slot_hold WHERE id_hold IN ( ";
+    private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_hold, id_slot, nb_places, date_expiry FROM appointment_slot_hold";
+    private static final String SQL_QUERY_SELECT = SQL_QUERY_SELECT_COLUMNS + " WHERE id_hold = ?";
+    private static final String SQL_QUERY_SELECT_EXPIRED = SQL_QUERY_SELECT_COLUMNS + " WHERE date_expiry <= ? ORDER BY date_expiry LIMIT ?";
+    private static final String SQL_QUERY_RECONCILE_POTENTIAL_REMAINING_PLACES = "UPDATE appointment_slot SET nb_potential_remaining_places = nb_remaining_places - "
+            + "COALESCE( ( SELECT SUM( hold.nb_places ) FROM appointment_slot_hold hold WHERE hold.id_slot = appointment_slot.id_slot AND hold.date_expiry > ? ), 0 ) "
+            + "WHERE id_slot IN ( ";
+    private static final String SQL_LIST_END = " )";
+
+    @Override
+    public void insert( SlotHold slotHold, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin ) )
+        {
+            daoUtil.setInt( 1, slotHold.getIdSlot( ) );
+            daoUtil.setInt( 2, slotHold.getNbPlaces( ) );
+            daoUtil.setTimestamp( 3, Timestamp.valueOf( slotHold.getExpiryDateTime( ) ) );
+            daoUtil.executeUpdate( );
+            if ( daoUtil.nextGeneratedKey( ) )
+            {
+                slotHold.setIdHold( daoUtil.getGeneratedKeyInt( 1 ) );
+            }
+        }
+    }
+
+    @Override
+    public int delete( int nIdHold, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdHold );
+            return daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public int deleteList( List<Integer> listIdHold, Plugin plugin )
+    {
+        if ( listIdHold.isEmpty( ) )
+        {
+            return 0;
+        }
+        String query = SQL_QUERY_DELETE_LIST + listIdHold.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) ) + SQL_LIST_END;
+        try ( DAOUtil daoUtil = new DAOUtil( query, plugin ) )
+        {
+            for ( int i = 0; i < listIdHold.size( ); i++ )
+            {
+                daoUtil.setInt( i + 1, listIdHold.get( i ) );
+            }
+            return daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public SlotHold select( int nIdHold, Plugin plugin )
+    {
+        SlotHold slotHold = null;
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdHold );
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                slotHold = buildSlotHold( daoUtil );
+            }
+        }
+        return slotHold;
+    }
+
+    @Override
+    public List<SlotHold> findExpired( LocalDateTime dateTime, int nLimit, Plugin plugin )
+    {
+        List<SlotHold> listSlotHold = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_EXPIRED, plugin ) )
+        {
+            daoUtil.setTimestamp( 1, Timestamp.valueOf( dateTime ) );
+            daoUtil.setInt( 2, nLimit );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listSlotHold.add( buildSlotHold( daoUtil ) );
+            }
+        }
+        return listSlotHold;
+    }
+
+    @Override
+    public void reconcilePotentialRemainingPlaces( List<Integer> listIdSlot, LocalDateTime dateTime, Plugin plugin )
+    {
+        if ( listIdSlot.isEmpty( ) )
+        {
+            return;
+        }
+        String query = SQL_QUERY_RECONCILE_POTENTIAL_REMAINING_PLACES + listIdSlot.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) )
+                + SQL_LIST_END;
+        try ( DAOUtil daoUtil = new DAOUtil( query, plugin ) )
+        {
+            daoUtil.setTimestamp( 1, Timestamp.valueOf( dateTime ) );
+            for ( int i = 0; i < listIdSlot.size( ); i++ )
+            {
+                daoUtil.setInt( i + 2, listIdSlot.get( i ) );
+            }
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * Build a SlotHold business object from the resultset
+     * 
+     * @param daoUtil
+     *            the prepare statement util object
+     * @return a new SlotHold with all its attributes assigned
+     */
+    private SlotHold buildSlotHold( DAOUtil daoUtil )
+    {
+        int nIndex = 1;
+        SlotHold slotHold = new SlotHold( );
+        slotHold.setIdHold( daoUtil.getInt( nIndex++ ) );
+        slotHold.setIdSlot( daoUtil.getInt( nIndex++ ) );
+        slotHold.setNbPlaces( daoUtil.getInt( nIndex++ ) );
+        slotHold.setExpiryDateTime( daoUtil.getTimestamp( nIndex ).toLocalDateTime( ) );
+        return slotHold;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.slot;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides instances management methods for SlotHold objects
+ */
+public final class SlotHoldHome
+{
+    // Static variable pointed at the DAO instance
+    private static ISlotHoldDAO _dao = SpringContextService.getBean( "appointment.slotHoldDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( AppointmentPlugin.PLUGIN_NAME );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private SlotHoldHome( )
+    {
+    }
+
+    /**
+     * Create an instance of the SlotHold class
+     * 
+     * @param slotHold
+     *            The instance of the SlotHold which contains the informations to store
+     * @return The instance of the SlotHold which has been created with its primary key.
+     */
+    public static SlotHold create( SlotHold slotHold )
+    {
+        _dao.insert( slotHold, _plugin );
+
+        return slotHold;
+    }
+
+    /**
+     * Delete the SlotHold whose identifier is specified in parameter
+     * 
+     * @param nKey
+     *            The SlotHold Id
+     * @return true if the hold has been deleted, false if it had already been released
+     */
+    public static boolean delete( int nKey )
+    {
+        return _dao.delete( nKey, _plugin ) > 0;
+    }
+
+    /**
+     * Delete the SlotHolds whose identifiers are specified in parameter
+     * 
+     * @param listIdHold
+     *            The SlotHold Ids
+     * @return the number of holds deleted
+     */
+    public static int deleteList( List<Integer> listIdHold )
+    {
+        return _dao.deleteList( listIdHold, _plugin );
+    }
+
+    /**
+     * Returns an instance of the SlotHold whose identifier is specified in parameter
+     * 
+     * @param nKey
+     *            The SlotHold primary key
+     * @return an instance of the SlotHold
+     */
+    public static SlotHold findByPrimaryKey( int nKey )
+    {
+        return _dao.select( nKey, _plugin );
+    }
+
+    /**
+     * Returns the holds expired at the given date time, the oldest first
+     * 
+     * @param dateTime
+     *            the date time
+     * @param nLimit
+     *            the max number of holds to return
+     * @return the list of the expired holds
+     */
+    public static List<SlotHold> findExpired( LocalDateTime dateTime, int nLimit )
+    {
+        return _dao.findExpired( dateTime, nLimit, _plugin );
+    }
+
+    /**
+     * Set the potential remaining places of the slots to their remaining places minus the places of their live holds
+     * 
+     * @param listIdSlot
+     *            the ids of the slots
+     * @param dateTime
+     *            the date time (the holds expired at this date time are not counted)
+     */
+    public static void reconcilePotentialRemainingPlaces( List<Integer> listIdSlot, LocalDateTime dateTime )
+    {
+        _dao.reconcilePotentialRemainingPlaces( listIdSlot, dateTime, _plugin );
+    }
+}
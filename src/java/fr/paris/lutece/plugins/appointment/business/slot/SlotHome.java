@@ -249,6 +249,106 @@ public final class SlotHome
 
     }
 
+    /**
+     * Take places on a slot if there are enough remaining places (checked by the database)
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places to take
+     * @param nbPotentialPlacesHeld
+     *            the number of potential places held by the user, given back to the slot
+     * @param minEndingDateTime
+     *            the slot must not end before this date time (no check if null)
+     * @param bOverbookingAllowed
+     *            true if the remaining places must not be checked
+     * @return true if the places have been taken, false if the slot does not exist, is full or is over
+     */
+    public static boolean reservePlaces( int nIdSlot, int nbPlaces, int nbPotentialPlacesHeld, LocalDateTime minEndingDateTime, boolean bOverbookingAllowed )
+    {
+        return _dao.reservePlaces( nIdSlot, nbPlaces, nbPotentialPlacesHeld, minEndingDateTime, bOverbookingAllowed, _plugin ) > 0;
+    }
+
+    /**
+     * Give back places to a slot
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places released
+     * @return true if the slot has been updated
+     */
+    public static boolean releasePlaces( int nIdSlot, int nbPlaces )
+    {
+        return _dao.releasePlaces( nIdSlot, nbPlaces, _plugin ) > 0;
+    }
+
+    /**
+     * Lock the rows of the slots until the end of the current transaction, in the order of their ids
+     * 
+     * @param listIdSlot
+     *            the ids of the slots, sorted in ascending order
+     * @return the number of slots locked
+     */
+    public static int lockSlots( List<Integer> listIdSlot )
+    {
+        return _dao.lockSlots( listIdSlot, _plugin );
+    }
+
+    /**
+     * Insert a list of new slots in one statement. The ids of the slots are not set
+     * 
+     * @param listSlot
+     *            the slots to insert
+     */
+    public static void createList( List<Slot> listSlot )
+    {
+        _dao.insertList( listSlot, _plugin );
+    }
+
+    /**
+     * Add places to the capacity, the remaining places and the potential remaining places of a list of slots
+     * 
+     * @param listIdSlot
+     *            the ids of the slots
+     * @param nIncrementingValue
+     *            the number of places to add (may be negative)
+     * @param bIsSpecific
+     *            the specific flag to set on the slots
+     * @return the number of slots updated
+     */
+    public static int incrementMaxCapacity( List<Integer> listIdSlot, int nIncrementingValue, boolean bIsSpecific )
+    {
+        return _dao.incrementMaxCapacity( listIdSlot, nIncrementingValue, bIsSpecific, _plugin );
+    }
+
+    /**
+     * Increment the potential remaining places of a slot, without exceeding its remaining places
+     * 
+     * @param nbPlaces
+     *            the number of places to add
+     * @param nIdSlot
+     *            the id of the slot
+     */
+    public static void incrementPotentialRemainingPlaces( int nbPlaces, int nIdSlot )
+    {
+        _dao.incrementPotentialRemainingPlaces( nbPlaces, nIdSlot, _plugin );
+    }
+
+    /**
+     * Decrement the potential remaining places of a slot, only if the slot has enough potential remaining places
+     * 
+     * @param nbPlaces
+     *            the number of places to remove
+     * @param nIdSlot
+     *            the id of the slot
+     * @return true if the places have been taken
+     */
+    public static boolean decrementPotentialRemainingPlaces( int nbPlaces, int nIdSlot )
+    {
+        return _dao.decrementPotentialRemainingPlaces( nbPlaces, nIdSlot, _plugin ) == 1;
+    }
+
     /**
      * Reset Potential Remaining Places
      * 
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business.slot;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * This class provides Data Access methods for the locks shared by the nodes
+ */
+public final class SlotLockDAO implements ISlotLockDAO
+{
+    private static final String SQL_QUERY_INSERT_IF_ABSENT = "INSERT INTO appointment_slot_lock (lock_key) SELECT ? FROM appointment_slot_lock WHERE lock_key = ? HAVING COUNT(*) = 0";
+    private static final String SQL_QUERY_LOCK = "UPDATE appointment_slot_lock SET lock_owner = ?, date_expiry = ? WHERE lock_key = ? AND ( lock_owner IS NULL OR date_expiry < ? )";
+    private static final String SQL_QUERY_UNLOCK = "UPDATE appointment_slot_lock SET lock_owner = NULL, date_expiry = NULL WHERE lock_key = ? AND lock_owner = ?";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM appointment_slot_lock WHERE lock_key = ?";
+
+    @Override
+    public void insertIfAbsent( String strKey, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT_IF_ABSENT, plugin ) )
+        {
+            daoUtil.setString( 1, strKey );
+            daoUtil.setString( 2, strKey );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public int lock( String strKey, String strOwner, LocalDateTime now, LocalDateTime expirationDateTime, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_LOCK, plugin ) )
+        {
+            daoUtil.setString( 1, strOwner );
+            daoUtil.setTimestamp( 2, Timestamp.valueOf( expirationDateTime ) );
+            daoUtil.setString( 3, strKey );
+            daoUtil.setTimestamp( 4, Timestamp.valueOf( now ) );
+            return daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public void unlock( String strKey, String strOwner, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UNLOCK, plugin ) )
+        {
+            daoUtil.setString( 1, strKey );
+            daoUtil.setString( 2, strOwner );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    @Override
+    public void delete( String strKey, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin ) )
+        {
+            daoUtil.setString( 1, strKey );
+            daoUtil.executeUpdate( );
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.util.Collection;
+
+import fr.paris.lutece.plugins.appointment.service.admission.AdmissionService;
+import fr.paris.lutece.plugins.appointment.service.admission.FormAdmissionQueue;
+import fr.paris.lutece.portal.service.daemon.Daemon;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * Daemon that publishes the metrics of the admission queues of the forms in its last run logs and in the application logs
+ */
+public class AdmissionMetricsDaemon extends Daemon
+{
+
+    @Override
+    public void run( )
+    {
+        if ( !AdmissionService.isEnabled( ) )
+        {
+            setLastRunLogs( "Admission control disabled" );
+            return;
+        }
+        Collection<FormAdmissionQueue> listQueues = AdmissionService.getQueues( );
+        StringBuilder sbLogs = new StringBuilder( );
+        sbLogs.append( listQueues.size( ) ).append( " queue(s)" );
+        for ( FormAdmissionQueue queue : listQueues )
+        {
+            sbLogs.append( "\nForm " ).append( queue.getIdForm( ) ).append( ": " ).append( queue.getNbInProgress( ) ).append( " in progress, " )
+                    .append( queue.getNbWaiting( ) ).append( " waiting (max " ).append( queue.getMaxWaiting( ) ).append( "), " )
+                    .append( queue.getNbAdmitted( ) ).append( " admitted, " ).append( queue.getNbRejected( ) ).append( " rejected since the start" );
+        }
+        String strLogs = sbLogs.toString( );
+        AppLogService.info( strLogs );
+        setLastRunLogs( strLogs );
+    }
+
+}
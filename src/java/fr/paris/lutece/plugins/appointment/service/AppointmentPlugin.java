@@ -36,6 +36,8 @@ package fr.paris.lutece.plugins.appointment.service;
 import java.text.DateFormat;
 import java.util.Locale;
 
+import fr.paris.lutece.plugins.appointment.service.listeners.ListenerEventDispatcher;
+import fr.paris.lutece.plugins.appointment.service.listeners.ListenerRegistry;
 import fr.paris.lutece.plugins.appointment.web.file.AppointmentFormIconService;
 import org.apache.commons.beanutils.BeanUtilsBean;
 import org.dozer.converters.DateConverter;
@@ -63,6 +65,8 @@ public final class AppointmentPlugin extends Plugin
     public void init( )
     {
         AppointmentFormIconService.init( );
+        ListenerRegistry.init( );
+        ListenerEventDispatcher.getInstance( ).start( );
         BeanUtilsBean.getInstance( ).getConvertUtils( )
                 .register( new DateConverter( DateFormat.getDateInstance( DateFormat.SHORT, getPluginLocale( ) ) ), java.sql.Date.class );
     }
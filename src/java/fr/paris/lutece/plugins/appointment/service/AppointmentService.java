@@ -35,7 +35,9 @@ package fr.paris.lutece.plugins.appointment.service;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.StringJoiner;
 import java.util.stream.Collectors;
 
@@ -47,20 +49,23 @@ import org.apache.commons.lang3.StringUtils;
 import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
 import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentHome;
 import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentSlot;
+import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentSortKey;
 import fr.paris.lutece.plugins.appointment.business.form.Form;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
 import fr.paris.lutece.plugins.appointment.business.user.User;
 import fr.paris.lutece.plugins.appointment.business.user.UserHome;
+import fr.paris.lutece.plugins.appointment.service.cache.AdminUserName;
+import fr.paris.lutece.plugins.appointment.service.cache.AvailabilityCacheService;
+import fr.paris.lutece.plugins.appointment.service.cache.DirectoryCacheService;
 import fr.paris.lutece.plugins.appointment.service.listeners.AppointmentListenerManager;
 import fr.paris.lutece.plugins.appointment.service.listeners.SlotListenerManager;
+import fr.paris.lutece.plugins.appointment.service.search.AppointmentTextIndexService;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFilterDTO;
 import fr.paris.lutece.plugins.genericattributes.business.Field;
 import fr.paris.lutece.plugins.genericattributes.business.Response;
 import fr.paris.lutece.plugins.genericattributes.business.ResponseHome;
 import fr.paris.lutece.plugins.genericattributes.service.entrytype.IEntryTypeService;
-import fr.paris.lutece.portal.business.user.AdminUser;
-import fr.paris.lutece.portal.business.user.AdminUserHome;
 import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
@@ -255,12 +260,7 @@ public final class AppointmentService
      */
     public static List<AppointmentDTO> findListAppointmentsDTOByFilter( AppointmentFilterDTO appointmentFilter )
     {
-        List<AppointmentDTO> listAppointmentsDTO = new ArrayList<>( );
-        for ( Appointment appointment : AppointmentHome.findByFilter( appointmentFilter ) )
-        {
-            listAppointmentsDTO.add( buildAppointmentDTO( appointment ) );
-        }
-        return listAppointmentsDTO;
+        return buildListAppointmentDTO( AppointmentHome.findByFilter( appointmentFilter ) );
     }
 
     /**
@@ -274,12 +274,7 @@ public final class AppointmentService
      */
     public static List<AppointmentDTO> findAppointmentByMailAndCategory( int nIdCategory, String mail )
     {
-        List<AppointmentDTO> listAppointmentsDTO = new ArrayList<>( );
-        for ( Appointment appointment : AppointmentHome.findByMailAndCategory( nIdCategory, mail ) )
-        {
-            listAppointmentsDTO.add( buildAppointmentDTO( appointment ) );
-        }
-        return listAppointmentsDTO;
+        return buildListAppointmentDTO( AppointmentHome.findByMailAndCategory( nIdCategory, mail ) );
     }
 
     /**
@@ -305,6 +300,56 @@ public final class AppointmentService
         return AppointmentHome.findIdsByFilter( appointmentFilter );
     }
 
+    /**
+     * Find the sort keys of a page of the appointments matching the filter, in the order of the filter
+     *
+     * @param appointmentFilter
+     *            the filter
+     * @param sortKeyAfter
+     *            the sort key of the appointment after which the page is read, null to read from the first appointment
+     * @param nOffset
+     *            the number of appointments to skip after this position
+     * @param nLimit
+     *            the maximum number of appointments of the page
+     * @return the sort keys of the appointments of the page
+     */
+    public static List<AppointmentSortKey> findListAppointmentsSortKeysByFilter( AppointmentFilterDTO appointmentFilter, AppointmentSortKey sortKeyAfter,
+            int nOffset, int nLimit )
+    {
+        return AppointmentHome.findSortKeysByFilter( appointmentFilter, sortKeyAfter, nOffset, nLimit );
+    }
+
+    /**
+     * Count the appointments matching the filter
+     *
+     * @param appointmentFilter
+     *            the filter
+     * @return the number of appointments
+     */
+    public static int countAppointmentsByFilter( AppointmentFilterDTO appointmentFilter )
+    {
+        return AppointmentHome.countByFilter( appointmentFilter );
+    }
+
+    /**
+     * Build the appointment dtos of a list of appointment business objects. The names of their admin users are read at once
+     * 
+     * @param listAppointment
+     *            the appointment business objects
+     * @return the appointment DTOs
+     */
+    private static List<AppointmentDTO> buildListAppointmentDTO( List<Appointment> listAppointment )
+    {
+        Map<Integer, AdminUserName> mapAdminUserName = DirectoryCacheService.getAdminUserNames( listAppointment.stream( )
+                .map( Appointment::getIdAdminUser ).filter( nIdAdminUser -> nIdAdminUser != 0 ).collect( Collectors.toSet( ) ) );
+        List<AppointmentDTO> listAppointmentsDTO = new ArrayList<>( );
+        for ( Appointment appointment : listAppointment )
+        {
+            listAppointmentsDTO.add( buildAppointmentDTO( appointment, mapAdminUserName ) );
+        }
+        return listAppointmentsDTO;
+    }
+
     /**
      * Build an appointment dto from an appointment business object
      * 
@@ -313,6 +358,23 @@ public final class AppointmentService
      * @return the appointment DTO
      */
     private static AppointmentDTO buildAppointmentDTO( Appointment appointment )
+    {
+        Map<Integer, AdminUserName> mapAdminUserName = ( appointment.getIdAdminUser( ) != 0 )
+                ? DirectoryCacheService.getAdminUserNames( Collections.singleton( appointment.getIdAdminUser( ) ) )
+                : Collections.emptyMap( );
+        return buildAppointmentDTO( appointment, mapAdminUserName );
+    }
+
+    /**
+     * Build an appointment dto from an appointment business object
+     * 
+     * @param appointment
+     *            the appointment business object
+     * @param mapAdminUserName
+     *            the names of the admin users, by id, containing the admin user of the appointment if it exists
+     * @return the appointment DTO
+     */
+    private static AppointmentDTO buildAppointmentDTO( Appointment appointment, Map<Integer, AdminUserName> mapAdminUserName )
     {
         AppointmentDTO appointmentDTO = new AppointmentDTO( );
         appointmentDTO.setIdForm( appointment.getSlot( ).get( 0 ).getIdForm( ) );
@@ -343,12 +405,11 @@ public final class AppointmentService
         appointmentDTO.setUser( appointment.getUser( ) );
         if ( appointment.getIdAdminUser( ) != 0 )
         {
-            AdminUser adminUser = AdminUserHome.findByPrimaryKey( appointment.getIdAdminUser( ) );
-            if ( adminUser != null )
+            AdminUserName adminUserName = mapAdminUserName.get( appointment.getIdAdminUser( ) );
+            if ( adminUserName != null )
             {
-                appointmentDTO.setIdAdminUser( adminUser.getUserId());
-                appointmentDTO.setAdminUser(
-                        new StringBuilder( adminUser.getFirstName( ) + org.apache.commons.lang3.StringUtils.SPACE + adminUser.getLastName( ) ).toString( ) );
+                appointmentDTO.setIdAdminUser( adminUserName.getIdUser( ) );
+                appointmentDTO.setAdminUser( adminUserName.getDisplayName( ) );
             }
         }
         else
@@ -389,6 +450,7 @@ public final class AppointmentService
             deleteWorkflowResource( nIdAppointment );
             if ( !appointmentToDelete.getIsCancelled( ) )
             {
+                SlotSafeService.lockSlots( appointmentToDelete.getListAppointmentSlot( ).stream( ).map( AppointmentSlot::getIdSlot ).collect( Collectors.toList( ) ) );
                 for ( AppointmentSlot appSlot : appointmentToDelete.getListAppointmentSlot( ) )
                 {
                     // Need to update the nb remaining places of the related slot
@@ -400,12 +462,15 @@ public final class AppointmentService
             AppointmentResponseService.removeResponsesByIdAppointment( nIdAppointment );
             AppointmentService.deleteAppointment( appointmentToDelete );
             UserHome.delete( appointmentToDelete.getIdUser( ) );
-            TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
-            AppointmentListenerManager.notifyListenersAppointmentRemoval( nIdAppointment );
             for ( AppointmentSlot appSlot : appointmentToDelete.getListAppointmentSlot( ) )
             {
                 SlotListenerManager.notifyListenersSlotChange( appSlot.getIdSlot( ) );
             }
+            AppointmentListenerManager.notifyListenersAppointmentRemoval( nIdAppointment );
+            TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
+            AvailabilityCacheService.replaceSlots(
+                    appointmentToDelete.getListAppointmentSlot( ).stream( ).map( AppointmentSlot::getIdSlot ).collect( Collectors.toList( ) ) );
+            AppointmentTextIndexService.notifyAppointmentRemoval( nIdAppointment );
         }
         catch( Exception e )
         {
@@ -513,6 +578,7 @@ public final class AppointmentService
             }
         }
         AppointmentListenerManager.notifyListenersAppointmentUpdated( nIdappointment );
+        AppointmentTextIndexService.notifyAppointmentChange( nIdappointment );
     }
 
     /**
@@ -530,6 +596,10 @@ public final class AppointmentService
         TransactionManager.beginTransaction( AppointmentPlugin.getPlugin( ) );
         try
         {
+            if ( oldAppointment.getIsCancelled( ) != appointment.getIsCancelled( ) )
+            {
+                SlotSafeService.lockSlots( oldAppointment.getListAppointmentSlot( ).stream( ).map( AppointmentSlot::getIdSlot ).collect( Collectors.toList( ) ) );
+            }
             if ( !oldAppointment.getIsCancelled( ) && appointment.getIsCancelled( ) )
             {
                 for ( AppointmentSlot appSlot : oldAppointment.getListAppointmentSlot( ) )
@@ -550,7 +620,6 @@ public final class AppointmentService
                     statusUpdated = true;
                 }
             AppointmentHome.update( appointment );
-            TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
             AppointmentListenerManager.notifyListenersAppointmentUpdated( appointment.getIdAppointment( ) );
             if ( statusUpdated )
             {
@@ -559,6 +628,13 @@ public final class AppointmentService
                     SlotListenerManager.notifyListenersSlotChange( appSlot.getIdSlot( ) );
                 }
             }
+            TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
+            if ( statusUpdated )
+            {
+                AvailabilityCacheService.replaceSlots(
+                        oldAppointment.getListAppointmentSlot( ).stream( ).map( AppointmentSlot::getIdSlot ).collect( Collectors.toList( ) ) );
+            }
+            AppointmentTextIndexService.notifyAppointmentChange( appointment.getIdAppointment( ) );
         }
         catch( Exception e )
         {
@@ -33,7 +33,9 @@
  */
 package fr.paris.lutece.plugins.appointment.service;
 
-import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
+import fr.paris.lutece.plugins.appointment.service.listeners.ListenerEventDispatcher;
+import fr.paris.lutece.plugins.appointment.service.listeners.ListenerRegistry;
+import fr.paris.lutece.plugins.appointment.service.lock.HoldExpiryWheel;
 import fr.paris.lutece.portal.service.init.ShutdownService;
 
 public class AppointmentShutdownService implements ShutdownService
@@ -54,10 +56,10 @@ public class AppointmentShutdownService implements ShutdownService
     @Override
     public void process( )
     {
-        AppointmentUtilities.shutdownSecheduledExecutor( );
+        HoldExpiryWheel.getInstance( ).shutdown( );
+        ListenerEventDispatcher.getInstance( ).shutdown( );
+        ListenerRegistry.shutdown( );
         AppointmentExecutorService.INSTANCE.shutdown( );
-        SlotHome.resetPotentialRemainingPlaces( );
-
     }
 
 }
@@ -48,11 +48,6 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
@@ -69,8 +64,8 @@ import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
 import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
 import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHold;
 import fr.paris.lutece.plugins.appointment.business.user.User;
-import fr.paris.lutece.plugins.appointment.service.lock.SlotEditTask;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFilterDTO;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
@@ -118,10 +113,6 @@ public final class AppointmentUtilities
     public static final String PROPERTY_DEFAULT_EXPIRED_TIME_EDIT_APPOINTMENT = "appointment.edit.expired.time";
 
     public static final int THIRTY_MINUTES = 30;
-    // We don't need to instantiate an ScheduledExecutorService with the removeOnCancel=true because we are using non-periodic and short time tasks.
-    // The getTask call removes the task from the queue.
-    private static final ScheduledExecutorService _secheduledExecutor = Executors
-            .newSingleThreadScheduledExecutor( r -> new Thread( r, "Lutece-AppointmentSecheduledExecutor-thread" ) );
 
     // CONSTANTS
     // Name of the phone number's generic attribute bean
@@ -650,65 +641,73 @@ public final class AppointmentUtilities
      *            the id Slot
      */
 
+    /**
+     * Release the hold taken on a slot by the user of the session
+     * 
+     * @param request
+     *            the request
+     * @param idSlot
+     *            the id of the slot
+     */
     public static void cancelTaskTimer( HttpServletRequest request, int idSlot )
     {
-        ScheduledFuture<Slot> task = (ScheduledFuture) request.getSession( ).getAttribute( SESSION_TASK_TIMER_SLOT + idSlot );
-        if ( task != null )
+        Integer nIdHold = (Integer) request.getSession( ).getAttribute( SESSION_TASK_TIMER_SLOT + idSlot );
+        if ( nIdHold != null )
         {
-            if ( !task.isDone( ) )
-                task.cancel( false );
+            SlotHoldService.releaseHold( nIdHold );
             request.getSession( ).removeAttribute( SESSION_TASK_TIMER_SLOT + idSlot );
         }
     }
 
+    /**
+     * Check if the hold taken on a slot by the user of the session has expired
+     * 
+     * @param request
+     *            the request
+     * @param idSlot
+     *            the id of the slot
+     * @return true if the hold has expired or has been released by the sweeper
+     */
     public static boolean isEditSlotTaskExpiredTime( HttpServletRequest request, int idSlot )
     {
-        ScheduledFuture<Slot> task = (ScheduledFuture) request.getSession( ).getAttribute( SESSION_TASK_TIMER_SLOT + idSlot );
-        return ( task != null && task.isDone( ) );
+        Integer nIdHold = (Integer) request.getSession( ).getAttribute( SESSION_TASK_TIMER_SLOT + idSlot );
+        return ( nIdHold != null && SlotHoldService.isExpired( nIdHold ) );
     }
 
     /**
-     * Create a timer on a slot
+     * Create a hold on a slot and store its id in session
      * 
-     * @param slot
-     *            the slot
+     * @param request
+     *            the request
+     * @param nIdSlot
+     *            the id of the slot
      * @param appointmentDTO
      *            the appointment
      * @param maxPeoplePerAppointment
      *            the max people per appointment
-     * @return the ScheduledFuture
+     * @return the hold, null if there is no potential remaining place on the slot
      */
-    public static ScheduledFuture<Slot> putTimerInSession( HttpServletRequest request, int nIdSlot, AppointmentDTO appointmentDTO, int maxPeoplePerAppointment )
+    public static SlotHold putTimerInSession( HttpServletRequest request, int nIdSlot, AppointmentDTO appointmentDTO, int maxPeoplePerAppointment )
     {
-        Lock lock = SlotSafeService.getLockOnSlot( nIdSlot );
-        lock.lock( );
-        try
+        Slot slot = SlotService.findSlotById( nIdSlot );
+        while ( slot.getNbPotentialRemainingPlaces( ) > 0 )
         {
-            Slot slot = SlotService.findSlotById( nIdSlot );
-
-            int nbPotentialRemainingPlaces = slot.getNbPotentialRemainingPlaces( );
-            int nbPotentialPlacesTaken = Math.min( nbPotentialRemainingPlaces, maxPeoplePerAppointment );
+            int nbPotentialPlacesTaken = Math.min( slot.getNbPotentialRemainingPlaces( ), maxPeoplePerAppointment );
             int nNewNbMaxPotentialBookedSeats = Math.min( nbPotentialPlacesTaken + appointmentDTO.getNbMaxPotentialBookedSeats( ), maxPeoplePerAppointment );
-
-            if ( slot.getNbPotentialRemainingPlaces( ) > 0 )
+            SlotHold slotHold = SlotHoldService.createHold( slot.getIdSlot( ), nbPotentialPlacesTaken,
+                    AppPropertiesService.getPropertyInt( PROPERTY_DEFAULT_EXPIRED_TIME_EDIT_APPOINTMENT, 1 ) );
+            if ( slotHold != null )
             {
-
-                ScheduledFuture<Slot> scheduledFuture = _secheduledExecutor.schedule( new SlotEditTask( slot.getIdSlot( ), nbPotentialPlacesTaken ),
-                        AppPropertiesService.getPropertyInt( PROPERTY_DEFAULT_EXPIRED_TIME_EDIT_APPOINTMENT, 1 ), TimeUnit.MINUTES );
                 appointmentDTO.setNbMaxPotentialBookedSeats( nNewNbMaxPotentialBookedSeats );
-                SlotSafeService.decrementPotentialRemainingPlaces( nbPotentialPlacesTaken, slot.getIdSlot( ) );
 
-                request.getSession( ).setAttribute( SESSION_TASK_TIMER_SLOT + slot.getIdSlot( ), scheduledFuture );
-                return scheduledFuture;
+                request.getSession( ).setAttribute( SESSION_TASK_TIMER_SLOT + slot.getIdSlot( ), slotHold.getIdHold( ) );
+                return slotHold;
             }
-            appointmentDTO.setNbMaxPotentialBookedSeats( 0 );
+            // The places have been held by someone else in the meantime: read the slot again
+            slot = SlotService.findSlotById( nIdSlot );
         }
+        appointmentDTO.setNbMaxPotentialBookedSeats( 0 );
 
-        finally
-        {
-
-            lock.unlock( );
-        }
         return null;
     }
 
@@ -1212,30 +1211,6 @@ public final class AppointmentUtilities
         return true;
     }
 
-    /**
-     * The following method shuts down the _executorService in two phases, first by calling shutdown to reject incoming tasks, and then calling shutdownNow, if
-     * necessary, to cancel any lingering tasks:
-     */
-    public static void shutdownSecheduledExecutor( )
-    {
-        _secheduledExecutor.shutdown( );
-        try
-        {
-            if ( !_secheduledExecutor.awaitTermination( 60, TimeUnit.SECONDS ) )
-            {
-                _secheduledExecutor.shutdownNow( );
-            }
-        }
-        catch( InterruptedException e )
-        {
-            // (Re-)Cancel if current thread also interrupted
-            AppLogService.error( e.getMessage( ), e );
-            _secheduledExecutor.shutdownNow( );
-            Thread.currentThread().interrupt();
-        }
-
-    }
-    
     /**
      * Build an appointment dto from an appointment business object
      * 
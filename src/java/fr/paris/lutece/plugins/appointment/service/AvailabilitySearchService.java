@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.form.FormHome;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.cache.FormAvailabilityCache;
+import fr.paris.lutece.plugins.appointment.service.cache.FormSpatialIndex;
+import fr.paris.lutece.plugins.appointment.service.cache.FormSpatialIndexService;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlan;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlanService;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
+import fr.paris.lutece.plugins.appointment.web.dto.NearbyFormDTO;
+
+/**
+ * Service searching the earliest available slots across several forms (for example the forms of a category, one per site). The forms without available
+ * slot in the period are left out with the FirstAvailableSlotIndex, then the slots of the other forms are merged week by week from the cache of the
+ * AvailabilityCacheService: only the first weeks of each form are read until the number of slots asked is reached.
+ * 
+ * The nearest forms with an available slot are searched in the same way: the forms are read from the FormSpatialIndex by increasing distance, and their
+ * first available slot from the FirstAvailableSlotIndex.
+ */
+public final class AvailabilitySearchService
+{
+    private static final Comparator<Slot> COMPARATOR_SLOT = Comparator.comparing( Slot::getStartingDateTime ).thenComparingInt( Slot::getIdForm );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private AvailabilitySearchService( )
+    {
+    }
+
+    /**
+     * Find the earliest available slots of the active forms of a category
+     * 
+     * @param nIdCategory
+     *            the id of the category
+     * @param nNbPlaces
+     *            the number of places to book: for a multi slot form, the number of consecutive slots, otherwise the number of places in the slot
+     * @param startingDate
+     *            the first day of the period
+     * @param endingDate
+     *            the last day of the period
+     * @param nNbSlots
+     *            the max number of slots to return
+     * @return the slots, sorted by starting date time (for a multi slot form, the groups of slots)
+     */
+    public static List<Slot> findEarliestSlotsOfCategory( int nIdCategory, int nNbPlaces, LocalDate startingDate, LocalDate endingDate, int nNbSlots )
+    {
+        return findEarliestSlotsOfForms( FormHome.findByCategory( nIdCategory ), nNbPlaces, startingDate, endingDate, nNbSlots );
+    }
+
+    /**
+     * Find the earliest available slots of a set of forms
+     * 
+     * @param collectionIdForm
+     *            the ids of the forms
+     * @param nNbPlaces
+     *            the number of places to book: for a multi slot form, the number of consecutive slots, otherwise the number of places in the slot
+     * @param startingDate
+     *            the first day of the period
+     * @param endingDate
+     *            the last day of the period
+     * @param nNbSlots
+     *            the max number of slots to return
+     * @return the slots, sorted by starting date time (for a multi slot form, the groups of slots)
+     */
+    public static List<Slot> findEarliestSlots( Collection<Integer> collectionIdForm, int nNbPlaces, LocalDate startingDate, LocalDate endingDate,
+            int nNbSlots )
+    {
+        return findEarliestSlotsOfForms( FormHome.findByListIdForm( new ArrayList<>( collectionIdForm ) ), nNbPlaces, startingDate, endingDate, nNbSlots );
+    }
+
+    /**
+     * Find the earliest available slots of a list of forms already loaded
+     * 
+     * @param listForm
+     *            the forms
+     * @param nNbPlaces
+     *            the number of places to book: for a multi slot form, the number of consecutive slots, otherwise the number of places in the slot
+     * @param startingDate
+     *            the first day of the period
+     * @param endingDate
+     *            the last day of the period
+     * @param nNbSlots
+     *            the max number of slots to return
+     * @return the slots, sorted by starting date time (for a multi slot form, the groups of slots)
+     */
+    private static List<Slot> findEarliestSlotsOfForms( List<Form> listForm, int nNbPlaces, LocalDate startingDate, LocalDate endingDate, int nNbSlots )
+    {
+        List<Iterator<Slot>> listCursor = new ArrayList<>( );
+        for ( Form form : listForm )
+        {
+            if ( !form.getIsActive( ) || form.getStartingValidityDate( ) == null )
+            {
+                continue;
+            }
+            AppointmentFormDTO appointmentForm = FormService.buildAppointmentFormWithoutReservationRule( form.getIdForm( ) );
+            int nNbPlacesToTake = AvailabilityService.getNbPlacesToTake( appointmentForm, nNbPlaces );
+            int nNbBookedSeats = AvailabilityService.getNbBookedSeats( appointmentForm, nNbPlaces );
+            Slot firstSlot = AvailabilityService.findFirstFreeOpenSlot( appointmentForm, nNbPlacesToTake, nNbBookedSeats );
+            if ( firstSlot == null )
+            {
+                continue;
+            }
+            LocalDate firstDate = firstSlot.getStartingDateTime( ).toLocalDate( );
+            LocalDate lastDate = AvailabilityService.getLastDayOfBooking( appointmentForm, AvailabilityService.getFirstDayOfBooking( appointmentForm ) );
+            LocalDate startingDateOfForm = firstDate.isAfter( startingDate ) ? firstDate : startingDate;
+            LocalDate endingDateOfForm = lastDate.isBefore( endingDate ) ? lastDate : endingDate;
+            if ( !startingDateOfForm.isAfter( endingDateOfForm ) )
+            {
+                listCursor.add( new FormCursor( appointmentForm, nNbPlacesToTake, nNbBookedSeats, startingDateOfForm, endingDateOfForm ) );
+            }
+        }
+        return mergeEarliestSlots( listCursor, nNbSlots );
+    }
+
+    /**
+     * Find the nearest active forms of a position having an available slot in the next days
+     * 
+     * @param dLatitude
+     *            the latitude of the position, in degrees
+     * @param dLongitude
+     *            the longitude of the position, in degrees
+     * @param nNbPlaces
+     *            the number of places to book: for a multi slot form, the number of consecutive slots, otherwise the number of places in the slot
+     * @param nNbDays
+     *            the number of days from today in which the slot must be
+     * @param nNbForms
+     *            the max number of forms to return
+     * @param dMaxDistance
+     *            the max distance of the forms to the position, in kilometers
+     * @return the forms with their distance and their first available slot, by increasing distance
+     */
+    public static List<NearbyFormDTO> findNearestFormsWithFreeSlot( double dLatitude, double dLongitude, int nNbPlaces, int nNbDays, int nNbForms,
+            double dMaxDistance )
+    {
+        List<NearbyFormDTO> listNearbyForm = new ArrayList<>( );
+        LocalDate lastDate = LocalDate.now( ).plusDays( nNbDays );
+        Iterator<FormSpatialIndex.Neighbor> iterator = FormSpatialIndexService.getIndex( ).findNearest( dLatitude, dLongitude );
+        while ( listNearbyForm.size( ) < nNbForms && iterator.hasNext( ) )
+        {
+            FormSpatialIndex.Neighbor neighbor = iterator.next( );
+            if ( neighbor.getDistance( ) > dMaxDistance )
+            {
+                break;
+            }
+            Slot firstSlot = FormService.findFirstAvailableSlot( neighbor.getIdForm( ), nNbPlaces );
+            if ( firstSlot != null && !firstSlot.getStartingDateTime( ).toLocalDate( ).isAfter( lastDate ) )
+            {
+                NearbyFormDTO nearbyForm = new NearbyFormDTO( );
+                nearbyForm.setIdForm( neighbor.getIdForm( ) );
+                nearbyForm.setDistance( neighbor.getDistance( ) );
+                nearbyForm.setFirstAvailableSlot( firstSlot );
+                listNearbyForm.add( nearbyForm );
+            }
+        }
+        return listNearbyForm;
+    }
+
+    /**
+     * Merge the slots of several forms, each sorted by starting date time, and keep the earliest ones. The iterators are read only as far as needed
+     * 
+     * @param listIterator
+     *            the iterators on the slots of the forms
+     * @param nNbSlots
+     *            the max number of slots to return
+     * @return the earliest slots, sorted by starting date time then by id of form
+     */
+    public static List<Slot> mergeEarliestSlots( List<Iterator<Slot>> listIterator, int nNbSlots )
+    {
+        List<Slot> listSlot = new ArrayList<>( );
+        PriorityQueue<Head> queueHeads = new PriorityQueue<>( Math.max( 1, listIterator.size( ) ),
+                ( h1, h2 ) -> COMPARATOR_SLOT.compare( h1._slot, h2._slot ) );
+        for ( Iterator<Slot> iterator : listIterator )
+        {
+            if ( iterator.hasNext( ) )
+            {
+                queueHeads.add( new Head( iterator.next( ), iterator ) );
+            }
+        }
+        while ( listSlot.size( ) < nNbSlots && !queueHeads.isEmpty( ) )
+        {
+            Head head = queueHeads.poll( );
+            listSlot.add( head._slot );
+            if ( head._iterator.hasNext( ) )
+            {
+                head._slot = head._iterator.next( );
+                queueHeads.add( head );
+            }
+        }
+        return listSlot;
+    }
+
+    /**
+     * Next slot of an iterator of the merge
+     */
+    private static final class Head
+    {
+        private Slot _slot;
+        private final Iterator<Slot> _iterator;
+
+        Head( Slot slot, Iterator<Slot> iterator )
+        {
+            _slot = slot;
+            _iterator = iterator;
+        }
+    }
+
+    /**
+     * Iterator on the available slots of a form, reading the slots week by week from the plan of the form and the cache of the AvailabilityCacheService
+     */
+    private static final class FormCursor implements Iterator<Slot>
+    {
+        private final AppointmentFormDTO _appointmentForm;
+        private final FormSchedulePlan _plan;
+        private final int _nNbPlacesToTake;
+        private final int _nNbBookedSeats;
+        private final LocalDate _endingDate;
+        private LocalDate _nextDate;
+        private final Deque<Slot> _slots = new ArrayDeque<>( );
+
+        FormCursor( AppointmentFormDTO appointmentForm, int nNbPlacesToTake, int nNbBookedSeats, LocalDate startingDate, LocalDate endingDate )
+        {
+            _appointmentForm = appointmentForm;
+            _plan = FormSchedulePlanService.getPlan( appointmentForm.getIdForm( ) );
+            _nNbPlacesToTake = nNbPlacesToTake;
+            _nNbBookedSeats = nNbBookedSeats;
+            _nextDate = startingDate;
+            _endingDate = endingDate;
+        }
+
+        @Override
+        public boolean hasNext( )
+        {
+            while ( _slots.isEmpty( ) && !_nextDate.isAfter( _endingDate ) )
+            {
+                // Read up to the end of the week, as the weeks are cached
+                LocalDate endingDateOfWeek = FormAvailabilityCache.getFirstDayOfWeek( _nextDate ).plusDays( 6 );
+                if ( endingDateOfWeek.isAfter( _endingDate ) )
+                {
+                    endingDateOfWeek = _endingDate;
+                }
+                AvailabilityService.findListSlotToDisplay( _appointmentForm, _plan, _nextDate, endingDateOfWeek, _nNbPlacesToTake, _nNbBookedSeats, false )
+                        .stream( ).filter( s -> s.getIsOpen( ) && s.getNbPotentialRemainingPlaces( ) > 0 ).sorted( COMPARATOR_SLOT ).forEach( _slots::add );
+                _nextDate = endingDateOfWeek.plusDays( 1 );
+            }
+            return !_slots.isEmpty( );
+        }
+
+        @Override
+        public Slot next( )
+        {
+            if ( !hasNext( ) )
+            {
+                throw new NoSuchElementException( );
+            }
+            return _slots.poll( );
+        }
+    }
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalField;
+import java.time.temporal.WeekFields;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.cache.AvailabilityCacheService;
+import fr.paris.lutece.plugins.appointment.service.cache.FirstAvailableSlotIndex;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlan;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlanService;
+import fr.paris.lutece.plugins.appointment.service.plan.SlotGrid;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.portal.web.l10n.LocaleService;
+
+/**
+ * Service building the slots of the calendar of the front office for a window of time (usually the week displayed), and their JSON representation
+ */
+public final class AvailabilityService
+{
+    /**
+     * The JSON of a window without slot
+     */
+    public static final String JSON_NO_SLOT = "{\"slots\":[]}";
+
+    private static final String PROPERTY_MAX_NB_DAYS = "appointment.availability.maxNbDays";
+    private static final int DEFAULT_MAX_NB_DAYS = 42;
+
+    private static final String JSON_FROM = "from";
+    private static final String JSON_TO = "to";
+    private static final String JSON_RETRY = "retry";
+    private static final String JSON_SLOTS = "slots";
+    private static final String JSON_ID = "id";
+    private static final String JSON_START = "start";
+    private static final String JSON_END = "end";
+    private static final String JSON_OPEN = "open";
+    private static final String JSON_REMAINING = "remaining";
+    private static final String JSON_POTENTIAL = "potential";
+
+    private static final ObjectMapper _mapper = new ObjectMapper( );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private AvailabilityService( )
+    {
+    }
+
+    /**
+     * Get the max number of days of a window of the calendar
+     * 
+     * @return the max number of days
+     */
+    public static int getMaxNbDays( )
+    {
+        return AppPropertiesService.getPropertyInt( PROPERTY_MAX_NB_DAYS, DEFAULT_MAX_NB_DAYS );
+    }
+
+    /**
+     * Get the slots of the calendar of a form to display to the users of the front office on a window of time
+     * 
+     * @param appointmentForm
+     *            the form
+     * @param startingDate
+     *            the first day of the window
+     * @param endingDate
+     *            the last day of the window
+     * @param nNbPlacesToTake
+     *            the number of places to take, 0 if the form is not a multi slot form
+     * @param nNbBookedSeats
+     *            the number of places of the appointment whose date is changed, 0 if no appointment is changed
+     * @param bFreeSlotsOnly
+     *            true to keep only the open slots with remaining places
+     * @return the slots of the window
+     */
+    public static List<Slot> findListSlotToDisplay( AppointmentFormDTO appointmentForm, LocalDate startingDate, LocalDate endingDate, int nNbPlacesToTake,
+            int nNbBookedSeats, boolean bFreeSlotsOnly )
+    {
+        // The week definitions and the rules are read from the shared plan of the form, not from the database
+        return findListSlotToDisplay( appointmentForm, FormSchedulePlanService.getPlan( appointmentForm.getIdForm( ) ), startingDate, endingDate,
+                nNbPlacesToTake, nNbBookedSeats, bFreeSlotsOnly );
+    }
+
+    /**
+     * Get the slots of the calendar of a form to display to the users of the front office on a window of time, with the plan of the form already read
+     * 
+     * @param appointmentForm
+     *            the form
+     * @param plan
+     *            the whole plan of the form (see FormSchedulePlanService.getPlan)
+     * @param startingDate
+     *            the first day of the window
+     * @param endingDate
+     *            the last day of the window
+     * @param nNbPlacesToTake
+     *            the number of places to take, 0 if the form is not a multi slot form
+     * @param nNbBookedSeats
+     *            the number of places of the appointment whose date is changed, 0 if no appointment is changed
+     * @param bFreeSlotsOnly
+     *            true to keep only the open slots with remaining places
+     * @return the slots of the window
+     */
+    public static List<Slot> findListSlotToDisplay( AppointmentFormDTO appointmentForm, FormSchedulePlan plan, LocalDate startingDate, LocalDate endingDate,
+            int nNbPlacesToTake, int nNbBookedSeats, boolean bFreeSlotsOnly )
+    {
+        if ( plan.getMapReservationRule( ).isEmpty( ) )
+        {
+            return new ArrayList<>( );
+        }
+        List<Slot> listSlot = AvailabilityCacheService.getListSlot( plan, startingDate, endingDate );
+        if ( nNbPlacesToTake > 0 )
+        {
+            // The groups of slots of a multi slot form are built from the slots of the cache
+            listSlot = SlotGrid.fromListSlot( plan, listSlot ).buildListGroupedSlot( nNbPlacesToTake, false, LocalDateTime.now( ) );
+        }
+        // The min time from now before a user can take an appointment (in hours)
+        LocalDateTime dateTimeBeforeAppointment = LocalDateTime.now( ).plusHours( appointmentForm.getMinTimeBeforeAppointment( ) );
+        return listSlot.stream( ).filter( s -> s.getStartingDateTime( ).isAfter( dateTimeBeforeAppointment ) )
+                .filter( s -> nNbBookedSeats <= 0 || ( s.getNbPotentialRemainingPlaces( ) >= nNbBookedSeats && s.getIsOpen( ) ) )
+                .filter( s -> !bFreeSlotsOnly || ( s.getNbRemainingPlaces( ) > 0 && s.getIsOpen( ) ) ).collect( Collectors.toList( ) );
+    }
+
+    /**
+     * Get the first day a form can be booked: today, or the starting validity date of the form if it is after
+     * 
+     * @param appointmentForm
+     *            the form
+     * @return the first day
+     */
+    public static LocalDate getFirstDayOfBooking( AppointmentFormDTO appointmentForm )
+    {
+        LocalDate startingDate = LocalDate.now( );
+        if ( appointmentForm.getDateStartValidity( ) != null && appointmentForm.getDateStartValidity( ).toLocalDate( ).isAfter( startingDate ) )
+        {
+            startingDate = appointmentForm.getDateStartValidity( ).toLocalDate( );
+        }
+        return startingDate;
+    }
+
+    /**
+     * Get the last day a form can be booked, with the default locale of the site
+     * 
+     * @param appointmentForm
+     *            the form
+     * @param startingDate
+     *            the first day a form can be booked
+     * @return the last day
+     * @see #getLastDayOfBooking(AppointmentFormDTO, LocalDate, Locale)
+     */
+    public static LocalDate getLastDayOfBooking( AppointmentFormDTO appointmentForm, LocalDate startingDate )
+    {
+        return getLastDayOfBooking( appointmentForm, startingDate, LocaleService.getDefault( ) );
+    }
+
+    /**
+     * Get the last day a form can be booked. The number of weeks to display includes the current week, so it ends on the (n) next sunday of the locale, or on
+     * the ending validity date of the form if it is before
+     * 
+     * @param appointmentForm
+     *            the form
+     * @param startingDate
+     *            the first day a form can be booked
+     * @param locale
+     *            the locale, which gives the first day of the week
+     * @return the last day
+     */
+    public static LocalDate getLastDayOfBooking( AppointmentFormDTO appointmentForm, LocalDate startingDate, Locale locale )
+    {
+        TemporalField fieldISO = WeekFields.of( locale ).dayOfWeek( );
+        LocalDate dateOfSunday = startingDate.with( fieldISO, DayOfWeek.SUNDAY.getValue( ) );
+        LocalDate endingDate = dateOfSunday.plusWeeks( (long) appointmentForm.getNbWeeksToDisplay( ) - 1 );
+        if ( appointmentForm.getDateEndValidity( ) != null && endingDate.isAfter( appointmentForm.getDateEndValidity( ).toLocalDate( ) ) )
+        {
+            endingDate = appointmentForm.getDateEndValidity( ).toLocalDate( );
+        }
+        return endingDate;
+    }
+
+    /**
+     * Get the number of consecutive slots to take to book a number of places
+     * 
+     * @param appointmentForm
+     *            the form
+     * @param nNbPlaces
+     *            the number of places: for a multi slot form, the number of consecutive slots, otherwise the number of places in the slot
+     * @return the number of places to take, 0 if the form is not a multi slot form
+     */
+    public static int getNbPlacesToTake( AppointmentFormDTO appointmentForm, int nNbPlaces )
+    {
+        return appointmentForm.getIsMultislotAppointment( ) && nNbPlaces > 1 ? nNbPlaces : 0;
+    }
+
+    /**
+     * Get the number of places to book in a slot to book a number of places
+     * 
+     * @param appointmentForm
+     *            the form
+     * @param nNbPlaces
+     *            the number of places: for a multi slot form, the number of consecutive slots, otherwise the number of places in the slot
+     * @return the number of places to book in the slot, 0 for one place
+     */
+    public static int getNbBookedSeats( AppointmentFormDTO appointmentForm, int nNbPlaces )
+    {
+        return !appointmentForm.getIsMultislotAppointment( ) && nNbPlaces > 1 ? nNbPlaces : 0;
+    }
+
+    /**
+     * Find the first slot a user can book in a form, from now to the number of weeks to display of the form. The slot is kept in the FirstAvailableSlotIndex,
+     * which is kept up to date on the changes of the slots of the form
+     * 
+     * @param appointmentForm
+     *            the form
+     * @param nNbPlacesToTake
+     *            the number of places to take, 0 if the form is not a multi slot form
+     * @param nNbBookedSeats
+     *            the number of places of the appointment whose date is changed, 0 if no appointment is changed
+     * @return the first slot (for a multi slot form, the group of slots), or null if there is none
+     */
+    public static Slot findFirstFreeOpenSlot( AppointmentFormDTO appointmentForm, int nNbPlacesToTake, int nNbBookedSeats )
+    {
+        LocalDate startingDate = getFirstDayOfBooking( appointmentForm );
+        LocalDate endingDate = getLastDayOfBooking( appointmentForm, startingDate );
+        if ( !AvailabilityCacheService.isEnabled( ) )
+        {
+            return searchFirstFreeOpenSlot( appointmentForm, startingDate, endingDate, nNbPlacesToTake, nNbBookedSeats );
+        }
+        int nIdForm = appointmentForm.getIdForm( );
+        FirstAvailableSlotIndex index = AvailabilityCacheService.getFirstAvailableSlotIndex( );
+        // Read before searching, so that a change made meanwhile makes the entry invalid
+        long lChangeSequence = AvailabilityCacheService.getChangeSequence( nIdForm );
+        long lNow = System.currentTimeMillis( );
+        FirstAvailableSlotIndex.Lookup lookup = index.get( nIdForm, nNbPlacesToTake, nNbBookedSeats,
+                LocalDateTime.now( ).plusHours( appointmentForm.getMinTimeBeforeAppointment( ) ), endingDate, lChangeSequence, lNow );
+        if ( lookup.isKnown( ) )
+        {
+            return lookup.getSlot( );
+        }
+        Slot slot = searchFirstFreeOpenSlot( appointmentForm, startingDate, endingDate, nNbPlacesToTake, nNbBookedSeats );
+        index.put( nIdForm, nNbPlacesToTake, nNbBookedSeats, slot, endingDate, lChangeSequence, lNow );
+        return slot;
+    }
+
+    /**
+     * Search the first open slot with free places of a form. The period is searched through windows of one week, then two weeks, four weeks... so that only
+     * the first weeks are built when a slot is found soon
+     * 
+     * @param appointmentForm
+     *            the form
+     * @param startingDate
+     *            the first day of the period
+     * @param endingDate
+     *            the last day of the period
+     * @param nNbPlacesToTake
+     *            the number of places to take, 0 if the form is not a multi slot form
+     * @param nNbBookedSeats
+     *            the number of places of the appointment whose date is changed, 0 if no appointment is changed
+     * @return the first free slot, or null if there is none on the period
+     */
+    private static Slot searchFirstFreeOpenSlot( AppointmentFormDTO appointmentForm, LocalDate startingDate, LocalDate endingDate, int nNbPlacesToTake,
+            int nNbBookedSeats )
+    {
+        FormSchedulePlan plan = FormSchedulePlanService.getPlan( appointmentForm.getIdForm( ) );
+        LocalDate startingDateOfWindow = startingDate;
+        long lNbWeeks = 1;
+        while ( !startingDateOfWindow.isAfter( endingDate ) )
+        {
+            LocalDate endingDateOfWindow = startingDateOfWindow.plusWeeks( lNbWeeks ).minusDays( 1 );
+            if ( endingDateOfWindow.isAfter( endingDate ) )
+            {
+                endingDateOfWindow = endingDate;
+            }
+            Slot firstSlot = findListSlotToDisplay( appointmentForm, plan, startingDateOfWindow, endingDateOfWindow, nNbPlacesToTake, nNbBookedSeats, false )
+                    .stream( ).filter( s -> s.getNbPotentialRemainingPlaces( ) > 0 && s.getIsOpen( ) )
+                    .min( Comparator.comparing( Slot::getStartingDateTime ) ).orElse( null );
+            if ( firstSlot != null )
+            {
+                return firstSlot;
+            }
+            startingDateOfWindow = endingDateOfWindow.plusDays( 1 );
+            lNbWeeks = lNbWeeks * 2;
+        }
+        return null;
+    }
+
+    /**
+     * Build the JSON of the slots of a window of the calendar: {"from":"2030-01-07","to":"2030-01-13","slots":[{"id":0,"start":"2030-01-07T09:00",
+     * "end":"2030-01-07T09:30","open":true,"remaining":2,"potential":1}]}
+     * 
+     * @param startingDate
+     *            the first day of the window
+     * @param endingDate
+     *            the last day of the window
+     * @param listSlot
+     *            the slots of the window
+     * @return the JSON
+     */
+    public static String toJson( LocalDate startingDate, LocalDate endingDate, List<Slot> listSlot )
+    {
+        ObjectNode node = _mapper.createObjectNode( );
+        node.put( JSON_FROM, startingDate.toString( ) );
+        node.put( JSON_TO, endingDate.toString( ) );
+        ArrayNode arraySlots = node.putArray( JSON_SLOTS );
+        for ( Slot slot : listSlot )
+        {
+            ObjectNode nodeSlot = arraySlots.addObject( );
+            nodeSlot.put( JSON_ID, slot.getIdSlot( ) );
+            nodeSlot.put( JSON_START, slot.getStartingDateTime( ).toString( ) );
+            nodeSlot.put( JSON_END, slot.getEndingDateTime( ).toString( ) );
+            nodeSlot.put( JSON_OPEN, slot.getIsOpen( ) );
+            nodeSlot.put( JSON_REMAINING, slot.getNbRemainingPlaces( ) );
+            nodeSlot.put( JSON_POTENTIAL, slot.getNbPotentialRemainingPlaces( ) );
+        }
+        return write( node );
+    }
+
+    /**
+     * Build the JSON telling the user is not admitted yet: {"retry":5,"slots":[]}
+     * 
+     * @param nRetryDelay
+     *            the delay (in seconds) before asking the slots again
+     * @return the JSON
+     */
+    public static String toJsonRetry( int nRetryDelay )
+    {
+        ObjectNode node = _mapper.createObjectNode( );
+        node.put( JSON_RETRY, nRetryDelay );
+        node.putArray( JSON_SLOTS );
+        return write( node );
+    }
+
+    /**
+     * Write a JSON node
+     * 
+     * @param node
+     *            the node
+     * @return the JSON
+     */
+    private static String write( ObjectNode node )
+    {
+        try
+        {
+            return _mapper.writeValueAsString( node );
+        }
+        catch( JsonProcessingException e )
+        {
+            AppLogService.error( "Error while writing the slots in JSON", e );
+            return JSON_NO_SLOT;
+        }
+    }
+}
@@ -37,19 +37,32 @@ import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.ArrayList;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import fr.paris.lutece.plugins.appointment.business.planning.TimeSlot;
 import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
-import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
 import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
-import fr.paris.lutece.plugins.appointment.business.slot.Period;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.plan.DaySchedule;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlan;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlanService;
+import fr.paris.lutece.plugins.appointment.service.plan.RuleSchedule;
+import fr.paris.lutece.plugins.appointment.service.plan.SlotGrid;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 
 public class CalendarBuilder
 {
+    // Initial capacity of the grid, by day of the period
+    private static final int INITIAL_NB_SLOTS_PER_DAY = 16;
+    private static final String PROPERTY_PARALLEL_THRESHOLD = "appointment.calendarBuilder.parallelThreshold";
+    private static final String PROPERTY_PARALLEL_CHUNK_SIZE = "appointment.calendarBuilder.parallelChunkSize";
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 120;
+    private static final int DEFAULT_PARALLEL_CHUNK_SIZE = 28;
+
     /**
      * Private constructor
      */
@@ -73,70 +86,160 @@ public class CalendarBuilder
      */
     public static List<Slot> buildListSlot( int nIdForm, Map<WeekDefinition, ReservationRule> mapReservationRule, LocalDate startingDate, LocalDate endingDate )
     {
-        List<Slot> listSlot = new ArrayList<>( );
-        final List<WeekDefinition> listDateReservationRule = new ArrayList<>( mapReservationRule.keySet( ) );
-        WeekDefinition closestweeDef;
+        return buildSlotGrid( nIdForm, mapReservationRule, startingDate, endingDate ).getListSlot( );
+    }
+
+    /**
+     * Build the grid of all the slot for a period with all the rules (open hours ...) to apply on each day, for each slot
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param mapReservationRule
+     *            the map of the rule week definition
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the periode
+     * @return the grid of all the slots built
+     */
+    public static SlotGrid buildSlotGrid( int nIdForm, Map<WeekDefinition, ReservationRule> mapReservationRule, LocalDate startingDate, LocalDate endingDate )
+    {
+        // Get the compiled plan of the form: week definitions, working days, time slots and closing days
+        return buildSlotGrid( nIdForm, FormSchedulePlanService.getPlan( nIdForm, mapReservationRule, startingDate, endingDate ), startingDate, endingDate );
+    }
+
+    /**
+     * Build the grid of all the slot for a period from the compiled plan of the form
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param plan
+     *            the compiled plan of the form
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the periode
+     * @return the grid of all the slots built
+     */
+    public static SlotGrid buildSlotGrid( int nIdForm, FormSchedulePlan plan, LocalDate startingDate, LocalDate endingDate )
+    {
+        // Need to check if this date is not before the form date creation
+        final LocalDate firstDateOfReservationRule = plan.getFirstDateOfApply( );
+        LocalDate startingDateToUse = startingDate;
+        if ( firstDateOfReservationRule != null && startingDate.isBefore( firstDateOfReservationRule ) )
+        {
+            startingDateToUse = firstDateOfReservationRule;
+        }
+        // Get all the slot between these two dates
+        Map<LocalDateTime, Slot> mapSlot = SlotService.buildMapSlotsByIdFormAndDateRangeWithDateForKey( nIdForm, startingDateToUse.atStartOfDay( ),
+                endingDate.atTime( LocalTime.MAX ) );
+        long lNbDays = ChronoUnit.DAYS.between( startingDate, endingDate ) + 1;
+        // The short periods (the weeks of the front office) are built on the calling thread
+        int nParallelChunkSize = 0;
+        if ( lNbDays >= AppPropertiesService.getPropertyInt( PROPERTY_PARALLEL_THRESHOLD, DEFAULT_PARALLEL_THRESHOLD ) )
+        {
+            nParallelChunkSize = AppPropertiesService.getPropertyInt( PROPERTY_PARALLEL_CHUNK_SIZE, DEFAULT_PARALLEL_CHUNK_SIZE );
+        }
+        return buildSlotGrid( nIdForm, plan, mapSlot, startingDate, endingDate, nParallelChunkSize );
+    }
+
+    /**
+     * Build the grid of all the slot for a period from the compiled plan of the form and the slots of the period in database. The period can be split in
+     * chunks of days built in parallel: the days are independent once the plan and the slots are loaded, and the chunks are merged in the order of the days,
+     * so that the grid is the same as the one built on the calling thread
+     * 
+     * @param nIdForm
+     *            the form Id
+     * @param plan
+     *            the compiled plan of the form
+     * @param mapSlot
+     *            the slots of the period in database, by starting date time
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @param nParallelChunkSize
+     *            the number of days of the chunks built in parallel, 0 to build the period on the calling thread
+     * @return the grid of all the slots built
+     */
+    public static SlotGrid buildSlotGrid( int nIdForm, FormSchedulePlan plan, Map<LocalDateTime, Slot> mapSlot, LocalDate startingDate, LocalDate endingDate,
+            int nParallelChunkSize )
+    {
+        if ( nParallelChunkSize > 0 && ChronoUnit.DAYS.between( startingDate, endingDate ) + 1 > nParallelChunkSize )
+        {
+            return ForkJoinPool.commonPool( ).invoke( new BuildGridTask( nIdForm, plan, mapSlot, startingDate, endingDate, nParallelChunkSize ) );
+        }
+        SlotGrid grid = new SlotGrid( nIdForm, (int) ( ChronoUnit.DAYS.between( startingDate, endingDate ) + 1 ) * INITIAL_NB_SLOTS_PER_DAY );
+        buildDays( grid, plan, mapSlot, startingDate, endingDate );
+        return grid;
+    }
+
+    /**
+     * Add to a grid the slots of the days of a period
+     * 
+     * @param grid
+     *            the grid
+     * @param plan
+     *            the compiled plan of the form
+     * @param mapSlot
+     *            the slots of the period in database, by starting date time
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     */
+    private static void buildDays( SlotGrid grid, FormSchedulePlan plan, Map<LocalDateTime, Slot> mapSlot, LocalDate startingDate, LocalDate endingDate )
+    {
+        RuleSchedule ruleSchedule;
         ReservationRule reservationRuleToApply = null;
         LocalDate dateTemp = startingDate;
         int nMaxCapacity;
         DayOfWeek dayOfWeek;
-        WorkingDay workingDay;
+        DaySchedule daySchedule;
         LocalTime minTimeForThisDay;
         LocalTime maxTimeForThisDay;
         LocalTime timeTemp;
-        LocalDateTime dateTimeTemp;
+        int nFirstMinuteOfDay;
+        int nStartingMinute;
         Slot slotToAdd;
         TimeSlot timeSlot;
         LocalDate dateToCompare;
-        // Need to check if this date is not before the form date creation
-        WeekDefinition firsWeek = listDateReservationRule.stream( ).sorted( ( week1, week2 ) -> week1.getDateOfApply( ).compareTo( week2.getDateOfApply( ) ) )
-                .findFirst( ).orElse( null );
-        final LocalDate firstDateOfReservationRule = firsWeek.getDateOfApply( );
-        LocalDate startingDateToUse = startingDate;
-        if ( firstDateOfReservationRule != null && startingDate.isBefore( firstDateOfReservationRule ) )
-        {
-            startingDateToUse = firstDateOfReservationRule;
-        }
-        // Get all the closing day of this period
-        List<LocalDate> listDateOfClosingDay = ClosingDayService.findListDateOfClosingDayByIdFormAndDateRange( nIdForm, startingDateToUse, endingDate );
-        // Get all the slot between these two dates
-        Map<LocalDateTime, Slot> mapSlot = SlotService.buildMapSlotsByIdFormAndDateRangeWithDateForKey( nIdForm, startingDateToUse.atStartOfDay( ),
-                endingDate.atTime( LocalTime.MAX ) );
 
         // Get or build all the event for the period
         while ( !dateTemp.isAfter( endingDate ) )
         {
             dateToCompare = dateTemp;
+            nFirstMinuteOfDay = SlotGrid.toEpochMinute( dateTemp.atStartOfDay( ) );
             // Find the closest date of apply of reservation rule with the given
             // date
             reservationRuleToApply = null;
-            closestweeDef = Utilities.getClosestWeekDefinitionInPast( listDateReservationRule, dateToCompare );
-            if ( closestweeDef != null )
+            ruleSchedule = plan.getRuleSchedule( dateToCompare );
+            if ( ruleSchedule != null )
             {
 
-                reservationRuleToApply = mapReservationRule.get( closestweeDef );
+                reservationRuleToApply = ruleSchedule.getReservationRule( );
 
             }
             nMaxCapacity = 0;
             // Get the day of week of the date
             dayOfWeek = dateTemp.getDayOfWeek( );
             // Get the working day of this day of week
-            workingDay = null;
+            daySchedule = null;
             if ( reservationRuleToApply != null )
             {
                 nMaxCapacity = reservationRuleToApply.getMaxCapacityPerSlot( );
-                workingDay = WorkingDayService.getWorkingDayOfDayOfWeek( reservationRuleToApply.getListWorkingDay( ), dayOfWeek );
+                daySchedule = ruleSchedule.getDaySchedule( dayOfWeek );
 
             }
-            if ( workingDay != null )
+            if ( daySchedule != null )
             {
-                minTimeForThisDay = WorkingDayService.getMinStartingTimeOfAWorkingDay( workingDay );
-                maxTimeForThisDay = WorkingDayService.getMaxEndingTimeOfAWorkingDay( workingDay );
+                minTimeForThisDay = daySchedule.getMinStartingTime( );
+                maxTimeForThisDay = daySchedule.getMaxEndingTime( );
                 // Check if this day is a closing day
-                if ( listDateOfClosingDay.contains( dateTemp ) )
+                if ( plan.isClosingDay( dateTemp ) )
                 {
-                    listSlot.add( SlotService.buildSlot( nIdForm, new Period( dateTemp.atTime( minTimeForThisDay ), dateTemp.atTime( maxTimeForThisDay ) ),
-                            nMaxCapacity, nMaxCapacity, nMaxCapacity, 0, Boolean.FALSE, Boolean.FALSE ) );
+                    grid.addSlot( nFirstMinuteOfDay + toMinuteOfDay( minTimeForThisDay ), nFirstMinuteOfDay + toMinuteOfDay( maxTimeForThisDay ), nMaxCapacity,
+                            false, false );
                 }
                 else
                 {
@@ -144,26 +247,23 @@ public class CalendarBuilder
                     // For each slot of this day
                     while ( timeTemp.isBefore( maxTimeForThisDay ) || !timeTemp.equals( maxTimeForThisDay ) )
                     {
-                        // Get the LocalDateTime
-                        dateTimeTemp = dateTemp.atTime( timeTemp );
+                        nStartingMinute = nFirstMinuteOfDay + toMinuteOfDay( timeTemp );
                         // Search if there is a slot for this datetime
-                        if ( mapSlot.containsKey( dateTimeTemp ) )
+                        slotToAdd = mapSlot.isEmpty( ) ? null : mapSlot.get( dateTemp.atTime( timeTemp ) );
+                        if ( slotToAdd != null )
                         {
-                            slotToAdd = mapSlot.get( dateTimeTemp );
                             timeTemp = slotToAdd.getEndingDateTime( ).toLocalTime( );
-                            listSlot.add( slotToAdd );
+                            grid.addSlot( slotToAdd, true );
                         }
                         else
                         {
                             // Search the timeslot
-                            timeSlot = TimeSlotService.getTimeSlotInListOfTimeSlotWithStartingTime( workingDay.getListTimeSlot( ), timeTemp );
+                            timeSlot = daySchedule.getTimeSlotWithStartingTime( timeTemp );
                             if ( timeSlot != null )
                             {
                                 timeTemp = timeSlot.getEndingTime( );
-                                int nMaxCapacityToPut = timeSlot.getMaxCapacity( );
-                                slotToAdd = SlotService.buildSlot( nIdForm, new Period( dateTimeTemp, dateTemp.atTime( timeTemp ) ), nMaxCapacityToPut,
-                                        nMaxCapacityToPut, nMaxCapacityToPut, 0, timeSlot.getIsOpen( ), Boolean.FALSE );
-                                listSlot.add( slotToAdd );
+                                grid.addSlot( nStartingMinute, nFirstMinuteOfDay + toMinuteOfDay( timeTemp ), timeSlot.getMaxCapacity( ),
+                                        timeSlot.getIsOpen( ), true );
                             }
                             else
                             {
@@ -179,8 +279,8 @@ public class CalendarBuilder
                 // We build all the slots closed for this day
                 if ( reservationRuleToApply != null )
                 {
-                    minTimeForThisDay = WorkingDayService.getMinStartingTimeOfAListOfWorkingDay( reservationRuleToApply.getListWorkingDay( ) );
-                    maxTimeForThisDay = WorkingDayService.getMaxEndingTimeOfAListOfWorkingDay( reservationRuleToApply.getListWorkingDay( ) );
+                    minTimeForThisDay = ruleSchedule.getMinStartingTime( );
+                    maxTimeForThisDay = ruleSchedule.getMaxEndingTime( );
                     int nDuration = reservationRuleToApply.getDurationAppointments( );
                     if ( minTimeForThisDay != null && maxTimeForThisDay != null )
                     {
@@ -188,14 +288,13 @@ public class CalendarBuilder
                         // For each slot of this day
                         while ( timeTemp.isBefore( maxTimeForThisDay ) || !timeTemp.equals( maxTimeForThisDay ) )
                         {
-                            // Get the LocalDateTime
-                            dateTimeTemp = dateTemp.atTime( timeTemp );
+                            nStartingMinute = nFirstMinuteOfDay + toMinuteOfDay( timeTemp );
                             // Search if there is a slot for this datetime
-                            if ( mapSlot.containsKey( dateTimeTemp ) )
+                            slotToAdd = mapSlot.isEmpty( ) ? null : mapSlot.get( dateTemp.atTime( timeTemp ) );
+                            if ( slotToAdd != null )
                             {
-                                slotToAdd = mapSlot.get( dateTimeTemp );
                                 timeTemp = slotToAdd.getEndingDateTime( ).toLocalTime( );
-                                listSlot.add( slotToAdd );
+                                grid.addSlot( slotToAdd, false );
                             }
                             else
                             {
@@ -204,9 +303,7 @@ public class CalendarBuilder
                                 {
                                     timeTemp = maxTimeForThisDay;
                                 }
-                                slotToAdd = SlotService.buildSlot( nIdForm, new Period( dateTimeTemp, dateTemp.atTime( timeTemp ) ), nMaxCapacity, nMaxCapacity,
-                                        nMaxCapacity, 0, Boolean.FALSE, Boolean.FALSE );
-                                listSlot.add( slotToAdd );
+                                grid.addSlot( nStartingMinute, nFirstMinuteOfDay + toMinuteOfDay( timeTemp ), nMaxCapacity, false, false );
                             }
                         }
                     }
@@ -214,7 +311,6 @@ public class CalendarBuilder
             }
             dateTemp = dateTemp.plusDays( 1 );
         }
-        return listSlot;
     }
 
     /**
@@ -237,192 +333,61 @@ public class CalendarBuilder
     public static List<Slot> buildListSlot( int nIdForm, Map<WeekDefinition, ReservationRule> mapReservationRule, LocalDate startingDate, LocalDate endingDate,
             int nNbPlaces, boolean isAllOpenSlot )
     {
-        List<Slot> listSlotToShow = new ArrayList<>( );
+        // The slots are grouped on the grid, only the groups are built as slot objects
+        return buildSlotGrid( nIdForm, mapReservationRule, startingDate, endingDate ).buildListGroupedSlot( nNbPlaces, isAllOpenSlot, LocalDateTime.now( ) );
+    }
 
-        final List<WeekDefinition> listDateReservationRule = new ArrayList<>( mapReservationRule.keySet( ) );
-        WeekDefinition closestweeDef;
-        ReservationRule reservationRuleToApply = null;
-        LocalDate dateTemp = startingDate;
-        DayOfWeek dayOfWeek;
-        WorkingDay workingDay;
-        LocalTime minTimeForThisDay;
-        LocalTime maxTimeForThisDay;
-        LocalTime timeTemp;
-        LocalDateTime dateTimeTemp;
-        LocalDateTime endingDateTime;
-        LocalDateTime startingDateTime = null;
-        LocalTime tempEndingDateTime = null;
-        LocalDateTime localDateTimeNow = LocalDateTime.now( );
+    /**
+     * Task building the grid of a period: the period is split in two until it is not longer than the chunk size
+     */
+    private static final class BuildGridTask extends RecursiveTask<SlotGrid>
+    {
+        private static final long serialVersionUID = 1L;
 
-        boolean isChanged = true;
-        boolean isfull = false;
-        int sumNbPotentialRemainingPlaces;
-        int sumNbRemainingPlaces;
-        int nbSlot;
+        private final int _nIdForm;
+        private final transient FormSchedulePlan _plan;
+        private final transient Map<LocalDateTime, Slot> _mapSlot;
+        private final LocalDate _startingDate;
+        private final LocalDate _endingDate;
+        private final int _nChunkSize;
 
-        Slot slotToAdd;
-        TimeSlot timeSlot;
-        LocalDate dateToCompare;
-        // Need to check if this date is not before the form date creation
-        WeekDefinition firsWeek = listDateReservationRule.stream( ).sorted( ( week1, week2 ) -> week1.getDateOfApply( ).compareTo( week2.getDateOfApply( ) ) )
-                .findFirst( ).orElse( null );
-        final LocalDate firstDateOfReservationRule = firsWeek.getDateOfApply( );
-        LocalDate startingDateToUse = startingDate;
-        if ( firstDateOfReservationRule != null && startingDate.isBefore( firstDateOfReservationRule ) )
+        BuildGridTask( int nIdForm, FormSchedulePlan plan, Map<LocalDateTime, Slot> mapSlot, LocalDate startingDate, LocalDate endingDate, int nChunkSize )
         {
-            startingDateToUse = firstDateOfReservationRule;
+            _nIdForm = nIdForm;
+            _plan = plan;
+            _mapSlot = mapSlot;
+            _startingDate = startingDate;
+            _endingDate = endingDate;
+            _nChunkSize = nChunkSize;
         }
-        // Get all the closing day of this period
-        List<LocalDate> listDateOfClosingDay = ClosingDayService.findListDateOfClosingDayByIdFormAndDateRange( nIdForm, startingDateToUse, endingDate );
-        // Get all the slot between these two dates
-        Map<LocalDateTime, Slot> mapSlot = SlotService.buildMapSlotsByIdFormAndDateRangeWithDateForKey( nIdForm, startingDateToUse.atStartOfDay( ),
-                endingDate.atTime( LocalTime.MAX ) );
 
-        // Get or build all the event for the period
-        while ( !dateTemp.isAfter( endingDate ) )
+        @Override
+        protected SlotGrid compute( )
         {
-            dateToCompare = dateTemp;
-            // Find the closest date of apply of reservation rule with the given
-            // date
-            reservationRuleToApply = null;
-            closestweeDef = Utilities.getClosestWeekDefinitionInPast( listDateReservationRule, dateToCompare );
-            if ( closestweeDef != null )
-            {
-
-                reservationRuleToApply = mapReservationRule.get( closestweeDef );
-
-            }
-            // Get the day of week of the date
-            dayOfWeek = dateTemp.getDayOfWeek( );
-            // Get the working day of this day of week
-            workingDay = null;
-            if ( reservationRuleToApply != null )
-            {
-                workingDay = WorkingDayService.getWorkingDayOfDayOfWeek( reservationRuleToApply.getListWorkingDay( ), dayOfWeek );
-
-            }
-
-            if ( workingDay != null )
+            long lNbDays = ChronoUnit.DAYS.between( _startingDate, _endingDate ) + 1;
+            if ( lNbDays <= _nChunkSize )
             {
-                minTimeForThisDay = WorkingDayService.getMinStartingTimeOfAWorkingDay( workingDay );
-                maxTimeForThisDay = WorkingDayService.getMaxEndingTimeOfAWorkingDay( workingDay );
-                // Check if this day is a closing day
-                if ( !listDateOfClosingDay.contains( dateTemp ) )
-                {
-                    timeTemp = minTimeForThisDay;
-                    sumNbPotentialRemainingPlaces = 0;
-                    sumNbRemainingPlaces = 0;
-                    nbSlot = 0;
-                    isChanged = true;
-                    tempEndingDateTime = timeTemp;
-                    // For each slot of this day
-                    while ( timeTemp.isBefore( maxTimeForThisDay ) || !timeTemp.equals( maxTimeForThisDay ) )
-                    {
-
-                        // Get the LocalDateTime
-                        dateTimeTemp = dateTemp.atTime( timeTemp );
-                        // Search if there is a slot for this datetime
-                        if ( isChanged )
-                        {
-
-                            startingDateTime = dateTimeTemp;
-                            isChanged = false;
-                        }
-                        if ( mapSlot.containsKey( dateTimeTemp ) )
-                        {
-                            slotToAdd = mapSlot.get( dateTimeTemp );
-                            timeTemp = slotToAdd.getEndingDateTime( ).toLocalTime( );
-
-                        }
-                        else
-                        {
-                            // Search the timeslot
-                            timeSlot = TimeSlotService.getTimeSlotInListOfTimeSlotWithStartingTime( workingDay.getListTimeSlot( ), timeTemp );
-                            if ( timeSlot != null )
-                            {
-                                timeTemp = timeSlot.getEndingTime( );
-                                int nMaxCapacityToPut = timeSlot.getMaxCapacity( );
-                                slotToAdd = SlotService.buildSlot( nIdForm, new Period( dateTimeTemp, dateTemp.atTime( timeTemp ) ), nMaxCapacityToPut,
-                                        nMaxCapacityToPut, nMaxCapacityToPut, 0, timeSlot.getIsOpen( ), Boolean.FALSE );
-
-                            }
-                            else
-                            {
-                                break;
-                            }
-                        }
-
-                        if ( isNewSlot( sumNbPotentialRemainingPlaces, nNbPlaces, slotToAdd, localDateTimeNow, isAllOpenSlot, nbSlot ) )
-                        {
-
-                            sumNbPotentialRemainingPlaces = 0;
-                            nbSlot = 0;
-                            sumNbRemainingPlaces = 0;
-                            startingDateTime = slotToAdd.getEndingDateTime( );
-                            tempEndingDateTime = slotToAdd.getEndingTime( );
-                        }
-                        else
-                        {
-                            if ( slotToAdd.getNbPotentialRemainingPlaces( ) <= 0 )
-                            {
-                                isfull = true;
-                            }
-                            sumNbPotentialRemainingPlaces = sumNbPotentialRemainingPlaces + 1;
-                            nbSlot = nbSlot + 1;
-                            sumNbRemainingPlaces = sumNbRemainingPlaces + 1;
-                        }
-
-                        if ( buildNewSlot( sumNbPotentialRemainingPlaces, nNbPlaces, isAllOpenSlot, nbSlot ) )
-                        {
-
-                            endingDateTime = slotToAdd.getEndingDateTime( );
-                            Slot slt = new Slot( );
-                            slt.setStartingDateTime( startingDateTime );
-                            slt.setEndingDateTime( endingDateTime );
-                            slt.setIsOpen( true );
-                            slt.setNbPotentialRemainingPlaces( sumNbPotentialRemainingPlaces );
-                            slt.setNbRemainingPlaces( sumNbRemainingPlaces );
-                            slt.setDate( slotToAdd.getDate( ) );
-                            slt.setIdForm( slotToAdd.getIdForm( ) );
-                            slt.setIsFull( isfull ? 1 : 0 );
-                            listSlotToShow.add( slt );
-                            isChanged = true;
-                            isfull = false;
-                            timeTemp = tempEndingDateTime;
-                        }
-
-                    }
-                }
+                return buildSlotGrid( _nIdForm, _plan, _mapSlot, _startingDate, _endingDate, 0 );
             }
-
-            dateTemp = dateTemp.plusDays( 1 );
+            LocalDate endingDateOfFirstHalf = _startingDate.plusDays( lNbDays / 2 - 1 );
+            BuildGridTask taskFirstHalf = new BuildGridTask( _nIdForm, _plan, _mapSlot, _startingDate, endingDateOfFirstHalf, _nChunkSize );
+            taskFirstHalf.fork( );
+            SlotGrid gridSecondHalf = new BuildGridTask( _nIdForm, _plan, _mapSlot, endingDateOfFirstHalf.plusDays( 1 ), _endingDate, _nChunkSize ).compute( );
+            SlotGrid grid = taskFirstHalf.join( );
+            grid.addAll( gridSecondHalf );
+            return grid;
         }
-        return listSlotToShow;
-
     }
 
-    private static boolean isNewSlot( int sumNbPotentialRemainingPlaces, int nNbPlaces, Slot slotToAdd, LocalDateTime localDateTimeNow, boolean isAllOpenSlot,
-            int nbSlot )
-    {
-
-        if ( isAllOpenSlot )
-        {
-
-            return nbSlot == nNbPlaces || !slotToAdd.getIsOpen( ) || slotToAdd.getEndingDateTime( ).isBefore( localDateTimeNow );
-        }
-
-        return sumNbPotentialRemainingPlaces >= nNbPlaces || !slotToAdd.getIsOpen( ) || slotToAdd.getNbPotentialRemainingPlaces( ) <= 0
-                || slotToAdd.getEndingDateTime( ).isBefore( localDateTimeNow );
-    }
-
-    private static boolean buildNewSlot( int sumNbPotentialRemainingPlaces, int nNbPlaces, boolean isAllOpenSlot, int nbSlot )
+    /**
+     * Get the number of minutes since midnight of a time
+     * 
+     * @param time
+     *            the time
+     * @return the number of minutes
+     */
+    private static int toMinuteOfDay( LocalTime time )
     {
-        if ( isAllOpenSlot )
-        {
-
-            return nbSlot == nNbPlaces;
-        }
-
-        return sumNbPotentialRemainingPlaces >= nNbPlaces;
+        return time.getHour( ) * 60 + time.getMinute( );
     }
 }
@@ -54,6 +54,8 @@ import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import fr.paris.lutece.plugins.appointment.business.planning.ClosingDay;
 import fr.paris.lutece.plugins.appointment.business.planning.ClosingDayHome;
+import fr.paris.lutece.plugins.appointment.service.cache.AvailabilityCacheService;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlanService;
 
 /**
  * Service class for the closing day
@@ -170,6 +172,8 @@ public final class ClosingDayService
         closingDay.setIdForm( nIdForm );
         closingDay.setDateOfClosingDay( closingDate );
         ClosingDayHome.create( closingDay );
+        FormSchedulePlanService.invalidate( nIdForm );
+        AvailabilityCacheService.invalidateWeek( nIdForm, closingDate );
     }
 
     /**
@@ -181,6 +185,8 @@ public final class ClosingDayService
     public static void saveClosingDay( ClosingDay closingDay )
     {
         ClosingDayHome.create( closingDay );
+        FormSchedulePlanService.invalidate( closingDay.getIdForm( ) );
+        AvailabilityCacheService.invalidateWeek( closingDay.getIdForm( ), closingDay.getDateOfClosingDay( ) );
     }
 
     /**
@@ -192,6 +198,8 @@ public final class ClosingDayService
     public static void removeClosingDay( ClosingDay closingDay )
     {
         ClosingDayHome.delete( closingDay.getIdClosingDay( ) );
+        FormSchedulePlanService.invalidate( closingDay.getIdForm( ) );
+        AvailabilityCacheService.invalidateWeek( closingDay.getIdForm( ), closingDay.getDateOfClosingDay( ) );
     }
 
     /**
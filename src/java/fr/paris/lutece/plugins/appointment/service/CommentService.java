@@ -40,6 +40,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -49,6 +50,8 @@ import fr.paris.lutece.plugins.appointment.business.comment.CommentNotificationC
 import fr.paris.lutece.plugins.appointment.business.comment.CommentNotificationConfig.NotificationType;
 import fr.paris.lutece.plugins.appointment.business.comment.CommentNotificationHome;
 import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.service.cache.AdminUserName;
+import fr.paris.lutece.plugins.appointment.service.cache.DirectoryCacheService;
 import fr.paris.lutece.plugins.appointment.web.dto.CommentDTO;
 import fr.paris.lutece.portal.business.mailinglist.Recipient;
 import fr.paris.lutece.portal.business.user.AdminUser;
@@ -196,10 +199,10 @@ public class CommentService
     {
 
         List<CommentDTO> listComments = new ArrayList<>( );
-        List<Form> listFom = FormService.findAllForms( );
-        Collection<AdminUser> listAdminUser = AdminUserHome.findUserList( );
-        AdminUser user = null;
-        Form frm = null;
+        Map<Integer, String> mapFormTitle = DirectoryCacheService
+                .getFormTitles( listComment.stream( ).map( Comment::getIdForm ).collect( Collectors.toSet( ) ) );
+        Map<String, AdminUserName> mapAdminUserName = DirectoryCacheService
+                .getAdminUserNamesByLogin( listComment.stream( ).map( Comment::getCreatorUserName ).collect( Collectors.toSet( ) ) );
         for ( Comment comment : listComment )
         {
             CommentDTO commentDTO = new CommentDTO( );
@@ -213,11 +216,11 @@ public class CommentService
             commentDTO.setStartingValidityDate( comment.getStartingValidityDate( ) );
             commentDTO.setStartingValidityTime( comment.getStartingValidityTime( ) );
 
-            frm = listFom.stream( ).filter( form -> form.getIdForm( ) == comment.getIdForm( ) ).findAny( ).orElse( null );
-            user = listAdminUser.stream( ).filter( usr -> usr.getAccessCode( ).equals( comment.getCreatorUserName( ) ) ).findAny( ).orElse( null );
-            if ( frm != null )
+            String strFormTitle = mapFormTitle.get( comment.getIdForm( ) );
+            AdminUserName user = mapAdminUserName.get( comment.getCreatorUserName( ) );
+            if ( strFormTitle != null )
             {
-                commentDTO.setFormTitle( frm.getTitle( ) );
+                commentDTO.setFormTitle( strFormTitle );
             }
             if ( user != null )
             {
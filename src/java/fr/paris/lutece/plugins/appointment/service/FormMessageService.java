@@ -37,6 +37,7 @@ import org.apache.commons.lang3.StringUtils;
 
 import fr.paris.lutece.plugins.appointment.business.message.FormMessage;
 import fr.paris.lutece.plugins.appointment.business.message.FormMessageHome;
+import fr.paris.lutece.plugins.appointment.service.cache.FormSnapshotService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 
 /**
@@ -152,6 +153,7 @@ public final class FormMessageService
     public static void updateFormMessage( FormMessage formMessage )
     {
         FormMessageHome.update( formMessage );
+        FormSnapshotService.invalidate( formMessage.getIdForm( ) );
     }
 
 }
@@ -66,6 +66,8 @@ import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
 import fr.paris.lutece.plugins.appointment.business.rule.ReservationRuleHome;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
 import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
+import fr.paris.lutece.plugins.appointment.service.cache.FormSnapshot;
+import fr.paris.lutece.plugins.appointment.service.cache.FormSnapshotService;
 import fr.paris.lutece.plugins.appointment.service.listeners.AppointmentListenerManager;
 import fr.paris.lutece.plugins.appointment.service.listeners.FormListenerManager;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
@@ -294,7 +296,10 @@ public final class FormService
     public static List<AppointmentFormDTO> buildAllActiveAppointmentForm( )
     {
         List<AppointmentFormDTO> listActiveAppointmentForm = new ArrayList<>( );
-        for ( Form form : FormHome.findActiveForms( ) )
+        List<Form> listForm = FormHome.findActiveForms( );
+        // Read the snapshots missing from the cache with one query per table
+        FormSnapshotService.getFormSnapshots( listForm.stream( ).map( Form::getIdForm ).collect( Collectors.toList( ) ) );
+        for ( Form form : listForm )
         {
             listActiveAppointmentForm.add( buildAppointmentForm( form.getIdForm( ), 0 ) );
         }
@@ -341,7 +346,10 @@ public final class FormService
     public static List<AppointmentFormDTO> buildAllActiveAndDisplayedOnPortletAppointmentForm( )
     {
         List<AppointmentFormDTO> listAppointmentForm = new ArrayList<>( );
-        for ( Form form : FormService.findAllActiveAndDisplayedOnPortletForms( ) )
+        List<Form> listForm = FormService.findAllActiveAndDisplayedOnPortletForms( );
+        // Read the snapshots missing from the cache with one query per table
+        FormSnapshotService.getFormSnapshots( listForm.stream( ).map( Form::getIdForm ).collect( Collectors.toList( ) ) );
+        for ( Form form : listForm )
         {
             listAppointmentForm.add( buildAppointmentForm( form.getIdForm( ), 0 ) );
         }
@@ -426,7 +434,7 @@ public final class FormService
     }
 
     /**
-     * Build an appointmentForm DTO
+     * Build an appointmentForm DTO from the snapshot of the form (see FormSnapshotService)
      * 
      * @param form
      *            the Form object
@@ -436,19 +444,23 @@ public final class FormService
     public static AppointmentFormDTO buildAppointmentFormWithoutReservationRule( int nIdForm )
     {
         AppointmentFormDTO appointmentForm = new AppointmentFormDTO( );
-        Form form = FormService.findFormLightByPrimaryKey( nIdForm );
-        fillAppointmentFormWithFormPart( appointmentForm, form );
-        Display display = DisplayService.findDisplayWithFormId( form.getIdForm( ) );
+        FormSnapshot formSnapshot = FormSnapshotService.getFormSnapshot( nIdForm );
+        if ( formSnapshot == null )
+        {
+            throw new AppException( "Form not found: " + nIdForm );
+        }
+        fillAppointmentFormWithFormPart( appointmentForm, formSnapshot.getForm( ) );
+        Display display = formSnapshot.getDisplay( );
         if ( display != null )
         {
             fillAppointmentFormWithDisplayPart( appointmentForm, display );
         }
-        Localization localization = LocalizationService.findLocalizationWithFormId( form.getIdForm( ) );
+        Localization localization = formSnapshot.getLocalization( );
         if ( localization != null )
         {
             fillAppointmentFormWithLocalizationPart( appointmentForm, localization );
         }
-        FormRule formRule = FormRuleService.findFormRuleWithFormId( form.getIdForm( ) );
+        FormRule formRule = formSnapshot.getFormRule( );
         if ( formRule != null )
         {
             fillAppointmentFormWithFormRulePart( appointmentForm, formRule );
@@ -457,6 +469,27 @@ public final class FormService
         return appointmentForm;
     }
 
+    /**
+     * Find the first slot of an active form a user can book, from now to the number of weeks to display of the form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param nNbPlaces
+     *            the number of places to book: for a multi slot form, the number of consecutive slots, otherwise the number of places in the slot
+     * @return the first slot (for a multi slot form, the group of slots), or null if there is none
+     */
+    public static Slot findFirstAvailableSlot( int nIdForm, int nNbPlaces )
+    {
+        Form form = findFormLightByPrimaryKey( nIdForm );
+        if ( form == null || !form.getIsActive( ) || form.getStartingValidityDate( ) == null )
+        {
+            return null;
+        }
+        AppointmentFormDTO appointmentForm = buildAppointmentFormWithoutReservationRule( nIdForm );
+        return AvailabilityService.findFirstFreeOpenSlot( appointmentForm, AvailabilityService.getNbPlacesToTake( appointmentForm, nNbPlaces ),
+                AvailabilityService.getNbBookedSeats( appointmentForm, nNbPlaces ) );
+    }
+
     /**
      * Fill the appointmentForm DTO with the Reservation Rule
      * 
@@ -51,7 +51,9 @@ import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
 import fr.paris.lutece.plugins.appointment.business.planning.WorkingDayHome;
 import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
 import fr.paris.lutece.plugins.appointment.business.rule.ReservationRuleHome;
+import fr.paris.lutece.plugins.appointment.service.cache.AvailabilityCacheService;
 import fr.paris.lutece.plugins.appointment.service.listeners.WeekDefinitionManagerListener;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlanService;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.util.ReferenceList;
@@ -218,6 +220,7 @@ public final class ReservationRuleService
 
             }
             ReservationRuleHome.delete( rule.getIdReservationRule( ) );
+            FormSchedulePlanService.invalidate( rule.getIdForm( ) );
         }
     }
 
@@ -252,6 +255,9 @@ public final class ReservationRuleService
         {
             fillInReservationRule( reservationRule, appointmentForm, nIdForm );
             ReservationRuleHome.update( reservationRule );
+            // The capacity of the slots not yet in database may have changed
+            FormSchedulePlanService.invalidate( nIdForm );
+            AvailabilityCacheService.invalidateForm( nIdForm );
         }
         return reservationRule;
     }
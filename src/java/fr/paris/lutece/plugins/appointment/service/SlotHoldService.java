@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHold;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHoldHome;
+import fr.paris.lutece.plugins.appointment.service.cache.AvailabilityCacheService;
+import fr.paris.lutece.plugins.appointment.service.listeners.SlotListenerManager;
+import fr.paris.lutece.plugins.appointment.service.lock.HoldExpiryWheel;
+import fr.paris.lutece.plugins.appointment.service.lock.SlotEditTask;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Service class for the holds taken on the slots while an appointment is being filled in. The holds are stored in database so that they survive a restart
+ * and are shared by all the nodes of a cluster: the potential remaining places of a slot are always its remaining places minus the places of its live holds.
+ */
+public final class SlotHoldService
+{
+    private static final String PROPERTY_SWEEPER_BATCH_SIZE = "appointment.slotHold.sweeper.batchSize";
+    private static final int DEFAULT_SWEEPER_BATCH_SIZE = 500;
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private SlotHoldService( )
+    {
+    }
+
+    /**
+     * Decrement the potential remaining places of a slot, then create a hold on it and schedule its release. The places are taken by a conditional update,
+     * so two concurrent holds can not take the same places
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places held
+     * @param nExpiredTimeMinutes
+     *            the duration of the hold in minutes
+     * @return the hold created, null if the slot has not enough potential remaining places
+     */
+    public static SlotHold createHold( int nIdSlot, int nbPlaces, int nExpiredTimeMinutes )
+    {
+        if ( !SlotSafeService.decrementPotentialRemainingPlaces( nbPlaces, nIdSlot ) )
+        {
+            return null;
+        }
+        SlotHold slotHold = new SlotHold( );
+        slotHold.setIdSlot( nIdSlot );
+        slotHold.setNbPlaces( nbPlaces );
+        slotHold.setExpiryDateTime( LocalDateTime.now( ).plusMinutes( nExpiredTimeMinutes ) );
+        SlotHoldHome.create( slotHold );
+        HoldExpiryWheel.getInstance( ).schedule( new SlotEditTask( slotHold.getIdHold( ), nIdSlot, nbPlaces ), nExpiredTimeMinutes, TimeUnit.MINUTES );
+
+        return slotHold;
+    }
+
+    /**
+     * Check if a hold is expired or has already been released
+     * 
+     * @param nIdHold
+     *            the id of the hold
+     * @return true if the hold is no longer live
+     */
+    public static boolean isExpired( int nIdHold )
+    {
+        SlotHold slotHold = SlotHoldHome.findByPrimaryKey( nIdHold );
+
+        return slotHold == null || slotHold.isExpired( LocalDateTime.now( ) );
+    }
+
+    /**
+     * Release a hold and give its places back to the potential remaining places of the slot
+     * 
+     * @param nIdHold
+     *            the id of the hold
+     */
+    public static void releaseHold( int nIdHold )
+    {
+        HoldExpiryWheel.getInstance( ).cancel( nIdHold );
+        SlotHold slotHold = SlotHoldHome.findByPrimaryKey( nIdHold );
+        if ( slotHold != null && SlotHoldHome.delete( nIdHold ) )
+        {
+            SlotHoldHome.reconcilePotentialRemainingPlaces( Collections.singletonList( slotHold.getIdSlot( ) ), LocalDateTime.now( ) );
+            SlotListenerManager.notifyListenersSlotChange( slotHold.getIdSlot( ) );
+            AvailabilityCacheService.replaceSlot( slotHold.getIdSlot( ) );
+        }
+    }
+
+    /**
+     * Release the expired holds left in database, by a node stopped before their expiry for instance, and give their places back to the potential remaining
+     * places of the slots. The holds of the running nodes are released on time by the {@link HoldExpiryWheel}.
+     * 
+     * @return the number of holds released
+     */
+    public static int releaseExpiredHolds( )
+    {
+        int nBatchSize = AppPropertiesService.getPropertyInt( PROPERTY_SWEEPER_BATCH_SIZE, DEFAULT_SWEEPER_BATCH_SIZE );
+        int nNbReleased = 0;
+        List<SlotHold> listExpired;
+        do
+        {
+            listExpired = SlotHoldHome.findExpired( LocalDateTime.now( ), nBatchSize );
+            Map<Integer, List<SlotEditTask>> mapTasksBySlot = new LinkedHashMap<>( );
+            for ( SlotHold slotHold : listExpired )
+            {
+                HoldExpiryWheel.getInstance( ).cancel( slotHold.getIdHold( ) );
+                mapTasksBySlot.computeIfAbsent( slotHold.getIdSlot( ), k -> new ArrayList<>( ) )
+                        .add( new SlotEditTask( slotHold.getIdHold( ), slotHold.getIdSlot( ), slotHold.getNbPlaces( ) ) );
+            }
+            if ( !mapTasksBySlot.isEmpty( ) )
+            {
+                SlotSafeService.incrementPotentialRemainingPlaces( mapTasksBySlot );
+            }
+            nNbReleased += listExpired.size( );
+        }
+        while ( listExpired.size( ) == nBatchSize );
+
+        return nNbReleased;
+    }
+
+}
@@ -38,6 +38,7 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -47,11 +48,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
@@ -65,19 +62,28 @@ import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
 import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
 import fr.paris.lutece.plugins.appointment.business.slot.Period;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHoldHome;
 import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
 import fr.paris.lutece.plugins.appointment.business.user.User;
 import fr.paris.lutece.plugins.appointment.exception.AppointmentSavedException;
 import fr.paris.lutece.plugins.appointment.exception.SlotEditTaskExpiredTimeException;
 import fr.paris.lutece.plugins.appointment.exception.SlotFullException;
+import fr.paris.lutece.plugins.appointment.service.cache.AvailabilityCacheService;
 import fr.paris.lutece.plugins.appointment.service.listeners.AppointmentListenerManager;
 import fr.paris.lutece.plugins.appointment.service.listeners.SlotListenerManager;
+import fr.paris.lutece.plugins.appointment.service.lock.ISlotLockProvider;
 import fr.paris.lutece.plugins.appointment.service.lock.SlotEditTask;
+import fr.paris.lutece.plugins.appointment.service.plan.DaySchedule;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlanService;
+import fr.paris.lutece.plugins.appointment.service.plan.RuleSchedule;
+import fr.paris.lutece.plugins.appointment.service.search.AppointmentTextIndexService;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
 import fr.paris.lutece.plugins.genericattributes.business.Response;
 import fr.paris.lutece.plugins.genericattributes.business.ResponseHome;
 import fr.paris.lutece.portal.business.user.AdminUser;
 import fr.paris.lutece.portal.service.admin.AdminUserService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.workflow.WorkflowService;
 import fr.paris.lutece.portal.web.l10n.LocaleService;
@@ -86,8 +92,9 @@ import fr.paris.lutece.util.sql.TransactionManager;
 public final class SlotSafeService
 {
 
-    private static final ConcurrentMap<Integer, Lock> _listSlot = new ConcurrentHashMap<>( );
-    private static final ConcurrentMap<Integer, Object> _lockFormId = new ConcurrentHashMap<>( );
+    private static final String BEAN_SLOT_LOCK_PROVIDER = "appointment.slotLockProvider";
+    private static ISlotLockProvider _lockProvider = SpringContextService.getBean( BEAN_SLOT_LOCK_PROVIDER );
+    private static final int BULK_CHUNK_SIZE = 500;
 
     /**
      * Private constructor - this class does not need to be instantiated
@@ -104,7 +111,7 @@ public final class SlotSafeService
     public static Map<Integer, Lock> getListSlotInMemory( )
     {
 
-        return _listSlot;
+        return _lockProvider.getSlotLocksInMemory( );
     }
 
     /**
@@ -116,12 +123,7 @@ public final class SlotSafeService
      */
     public static Lock getLockOnSlot( int nIdSlot )
     {
-        if ( nIdSlot == 0 )
-        {
-            return new ReentrantLock( );
-        }
-        _listSlot.putIfAbsent( nIdSlot, new ReentrantLock( ) );
-        return _listSlot.get( nIdSlot );
+        return _lockProvider.getLockOnSlot( nIdSlot );
     }
 
     /**
@@ -133,55 +135,61 @@ public final class SlotSafeService
     public static void removeSlotInMemory( int nIdSlot )
     {
 
-        _listSlot.remove( nIdSlot );
-    }
-
-    /**
-     * get lock for form
-     * 
-     * @param nIdform
-     *            Id from
-     * @return return lock
-     */
-    private static Object getLockOnForm( int nIdform )
-    {
-        _lockFormId.putIfAbsent( nIdform, new Object( ) );
-        return _lockFormId.get( nIdform );
+        _lockProvider.removeLockOnSlot( nIdSlot );
     }
 
     /**
-     * Create slot
+     * Create a slot if it does not exist yet. Two slots of a form can not start at the same time (appointment_slot_unique_starting index): when the slot is
+     * created at the same time by another request, the insert is refused by the database and the slot created by the other request is returned. The
+     * creations of the different slots of a form are thus not serialized.
      * 
      * @param slot
      * @return slot
      */
     public static Slot createSlot( Slot slot )
     {
-        Object formLock = getLockOnForm( slot.getIdForm( ) );
-        synchronized( formLock )
+        Slot slotSaved = findSlotByStartingDateTime( slot );
+        if ( slotSaved != null )
         {
-            Slot slotSaved = null;
-            HashMap<LocalDateTime, Slot> slotInDbMap = SlotService.buildMapSlotsByIdFormAndDateRangeWithDateForKey( slot.getIdForm( ),
-                    slot.getStartingDateTime( ), slot.getEndingDateTime( ) );
-            if ( !slotInDbMap.isEmpty( ) )
-            {
-                slotSaved = slotInDbMap.get( slot.getStartingDateTime( ) );
-            }
-            else
+            return slotSaved;
+        }
+        try
+        {
+            slotSaved = SlotHome.create( slot );
+        }
+        catch( AppException e )
+        {
+            slotSaved = findSlotByStartingDateTime( slot );
+            if ( slotSaved == null )
             {
-
-                slotSaved = SlotHome.create( slot );
-                SlotListenerManager.notifyListenersSlotCreation( slot.getIdSlot( ) );
+                throw e;
             }
-
             return slotSaved;
-
         }
+        SlotListenerManager.notifyListenersSlotCreation( slotSaved.getIdSlot( ) );
+        AvailabilityCacheService.replaceSlot( slotSaved.getIdSlot( ) );
+
+        return slotSaved;
     }
 
     /**
+     * Find the slot of the form starting at the same date time as the given slot
      * 
-     * Increment max capacity
+     * @param slot
+     *            the slot
+     * @return the slot in database, null if there is none
+     */
+    private static Slot findSlotByStartingDateTime( Slot slot )
+    {
+        return SlotService.buildMapSlotsByIdFormAndDateRangeWithDateForKey( slot.getIdForm( ), slot.getStartingDateTime( ), slot.getEndingDateTime( ) )
+                .get( slot.getStartingDateTime( ) );
+    }
+
+    /**
+     * 
+     * Increment max capacity of the slots of a period. The missing slots are created with one insert, and the capacities of all the slots are then updated with
+     * set-based updates (one per chunk of slots). No lock is taken on the slots: the places are added to the current values in database, so the concurrent
+     * bookings are not lost. The listeners are notified once for the whole period
      * 
      * @param nIdForm
      *            the Id form
@@ -192,104 +200,165 @@ public final class SlotSafeService
      * @param endingDateTime
      *            the ending Date time
      * @param lace
-     *            the lace
+     *            the lace (only one slot out of two is incremented)
      */
     public static void incrementMaxCapacity( int nIdForm, int nIncrementingValue, LocalDateTime startindDateTime, LocalDateTime endingDateTime, boolean lace )
     {
-        int index = 0;
         List<WeekDefinition> listWeekDefinition = WeekDefinitionService.findListWeekDefinition( nIdForm );
         Map<WeekDefinition, ReservationRule> mapReservationRule = ReservationRuleService.findAllReservationRule( nIdForm, listWeekDefinition );
         List<Slot> listSlot = SlotService.buildListSlot( nIdForm, mapReservationRule, startindDateTime.toLocalDate( ), endingDateTime.toLocalDate( ) );
         listSlot = listSlot.stream( )
                 .filter( slt -> slt.getEndingDateTime( ).isBefore( endingDateTime ) && slt.getEndingDateTime( ).isAfter( startindDateTime ) )
                 .collect( Collectors.toList( ) );
-        for ( Slot slot : listSlot )
+        if ( lace )
         {
-            if ( !lace )
+            // The slots of the period are interleaved with virtual slots: the selection is done on the built list, not in SQL
+            List<Slot> listSlotLace = new ArrayList<>( );
+            for ( int index = 0; index < listSlot.size( ); index += 2 )
             {
-                incrementMaxCapacity( nIncrementingValue, slot );
+                listSlotLace.add( listSlot.get( index ) );
             }
-            else
+            listSlot = listSlotLace;
+        }
+        if ( listSlot.isEmpty( ) )
+        {
+            return;
+        }
+        createListSlotInBulk( nIdForm, listSlot );
+
+        List<WeekDefinition> listDateReservationRule = new ArrayList<>( mapReservationRule.keySet( ) );
+        Map<Boolean, List<Integer>> mapIdSlotBySpecific = new HashMap<>( );
+        List<Integer> listIdSlot = new ArrayList<>( );
+        for ( Slot slot : listSlot )
+        {
+            slot.setMaxCapacity( slot.getMaxCapacity( ) + nIncrementingValue );
+            boolean bIsSpecific = isSpecificSlot( slot, listDateReservationRule, mapReservationRule );
+            mapIdSlotBySpecific.computeIfAbsent( bIsSpecific, b -> new ArrayList<>( ) ).add( slot.getIdSlot( ) );
+            listIdSlot.add( slot.getIdSlot( ) );
+        }
+        for ( Map.Entry<Boolean, List<Integer>> entry : mapIdSlotBySpecific.entrySet( ) )
+        {
+            List<Integer> listIdSlotToUpdate = entry.getValue( );
+            for ( int nFrom = 0; nFrom < listIdSlotToUpdate.size( ); nFrom += BULK_CHUNK_SIZE )
             {
-                if ( index % 2 == 0 )
-                {
-                    incrementMaxCapacity( nIncrementingValue, slot );
-                }
-                index++;
+                SlotHome.incrementMaxCapacity( listIdSlotToUpdate.subList( nFrom, Math.min( nFrom + BULK_CHUNK_SIZE, listIdSlotToUpdate.size( ) ) ),
+                        nIncrementingValue, entry.getKey( ) );
             }
         }
+        SlotListenerManager.notifyListenersListSlotChange( listIdSlot );
+        AvailabilityCacheService.invalidateForm( nIdForm );
     }
 
     /**
-     * Incrementing max capacity
+     * Create in database the slots of the list which do not exist yet, with one insert per chunk of slots, and set their ids. If a slot of a chunk has been
+     * created in the meantime by another request, the slots of this chunk are created one by one
      * 
-     * @param nIncrementingValue
-     *            the incrementing value
-     * @param slot
-     *            the slot
+     * @param nIdForm
+     *            the id of the form
+     * @param listSlot
+     *            the slots of the period, sorted by starting date
      */
-    private static void incrementMaxCapacity( int nIncrementingValue, Slot slot )
+    private static void createListSlotInBulk( int nIdForm, List<Slot> listSlot )
     {
-        Slot editSlot = null;
-
-        if ( slot.getIdSlot( ) == 0 )
+        List<Slot> listSlotToCreate = listSlot.stream( ).filter( slot -> slot.getIdSlot( ) == 0 ).collect( Collectors.toList( ) );
+        if ( listSlotToCreate.isEmpty( ) )
         {
-            editSlot = createSlot( slot );
+            return;
         }
-        else
+        List<Slot> listSlotCreatedOneByOne = new ArrayList<>( );
+        for ( int nFrom = 0; nFrom < listSlotToCreate.size( ); nFrom += BULK_CHUNK_SIZE )
         {
-            editSlot = slot;
+            List<Slot> listChunk = listSlotToCreate.subList( nFrom, Math.min( nFrom + BULK_CHUNK_SIZE, listSlotToCreate.size( ) ) );
+            try
+            {
+                SlotHome.createList( listChunk );
+            }
+            catch( AppException e )
+            {
+                AppLogService.debug( "Slots created concurrently, creating the slots one by one", e );
+                for ( Slot slot : listChunk )
+                {
+                    slot.setIdSlot( createSlot( slot ).getIdSlot( ) );
+                    listSlotCreatedOneByOne.add( slot );
+                }
+            }
         }
-        Lock lock = getLockOnSlot( editSlot.getIdSlot( ) );
-        lock.lock( );
-        try
+        Map<LocalDateTime, Slot> mapSlotSaved = SlotService.buildMapSlotsByIdFormAndDateRangeWithDateForKey( nIdForm,
+                listSlotToCreate.get( 0 ).getStartingDateTime( ), listSlotToCreate.get( listSlotToCreate.size( ) - 1 ).getEndingDateTime( ) );
+        List<Integer> listIdSlotCreated = new ArrayList<>( );
+        for ( Slot slot : listSlotToCreate )
         {
-            editSlot = SlotService.findSlotById( editSlot.getIdSlot( ) );
-
-            editSlot.setMaxCapacity( editSlot.getMaxCapacity( ) + nIncrementingValue );
-            editSlot.setNbPotentialRemainingPlaces( editSlot.getNbPotentialRemainingPlaces( ) + nIncrementingValue );
-            editSlot.setNbRemainingPlaces( editSlot.getNbRemainingPlaces( ) + nIncrementingValue );
-            editSlot.setIsSpecific( SlotService.isSpecificSlot( editSlot ) );
-            saveSlot( editSlot );
+            if ( !listSlotCreatedOneByOne.contains( slot ) )
+            {
+                Slot slotSaved = mapSlotSaved.get( slot.getStartingDateTime( ) );
+                slot.setIdSlot( slotSaved.getIdSlot( ) );
+                listIdSlotCreated.add( slot.getIdSlot( ) );
+            }
         }
-        finally
+        if ( !listIdSlotCreated.isEmpty( ) )
         {
-
-            lock.unlock( );
+            SlotListenerManager.notifyListenersListSlotCreation( listIdSlotCreated );
         }
+    }
 
+    /**
+     * To know if a slot is specific, with the rules of the form already loaded
+     * 
+     * @param slot
+     *            the slot
+     * @param listDateReservationRule
+     *            the week definitions of the form
+     * @param mapReservationRule
+     *            the rules of the week definitions
+     * @return true if it's a specific slot
+     */
+    private static boolean isSpecificSlot( Slot slot, List<WeekDefinition> listDateReservationRule, Map<WeekDefinition, ReservationRule> mapReservationRule )
+    {
+        LocalDate dateOfSlot = slot.getStartingDateTime( ).toLocalDate( );
+        WeekDefinition weekDefinition = Utilities.getClosestWeekDefinitionInPast( listDateReservationRule, dateOfSlot );
+        ReservationRule reservationRule = weekDefinition != null ? mapReservationRule.get( weekDefinition ) : null;
+        if ( reservationRule == null )
+        {
+            return SlotService.isSpecificSlot( slot );
+        }
+        WorkingDay workingDay = WorkingDayService.getWorkingDayOfDayOfWeek( reservationRule.getListWorkingDay( ), dateOfSlot.getDayOfWeek( ) );
+        List<TimeSlot> listTimeSlot = workingDay != null ? workingDay.getListTimeSlot( ) : null;
+        return SlotService.isSpecificSlot( slot, workingDay, listTimeSlot, reservationRule.getMaxCapacityPerSlot( ) );
     }
 
     /**
-     * Update potential remaining places
+     * Give back the places of the expired holds to the potential remaining places of their slots. The holds are deleted in one query and the slots updated in
+     * another one, whatever the number of holds.
      * 
-     * @param task
-     *            the task timer
+     * @param mapTasksBySlot
+     *            the tasks of the expired holds grouped by id of slot
      */
-    public static Slot incrementPotentialRemainingPlaces( SlotEditTask task )
+    public static void incrementPotentialRemainingPlaces( Map<Integer, List<SlotEditTask>> mapTasksBySlot )
     {
-        Lock lock = getLockOnSlot( task.getIdSlot( ) );
-        Slot slot;
-        lock.lock( );
-        try
+        List<Integer> listIdHold = mapTasksBySlot.values( ).stream( ).flatMap( List::stream ).map( SlotEditTask::getIdHold ).collect( Collectors.toList( ) );
+        if ( SlotHoldHome.deleteList( listIdHold ) > 0 )
         {
-            slot = SlotService.findSlotById( task.getIdSlot( ) );
-            if ( slot != null )
+            List<Integer> listIdSlot = new ArrayList<>( mapTasksBySlot.keySet( ) );
+            SlotHoldHome.reconcilePotentialRemainingPlaces( listIdSlot, LocalDateTime.now( ) );
+            for ( int nIdSlot : listIdSlot )
             {
-
-                int nNewPotentialRemainingPlaces = Math.min( slot.getNbPotentialRemainingPlaces( ) + task.getNbPlacesTaken( ), slot.getNbRemainingPlaces( ) );
-                slot.setNbPotentialRemainingPlaces( nNewPotentialRemainingPlaces );
-                SlotHome.updatePotentialRemainingPlaces( nNewPotentialRemainingPlaces, slot.getIdSlot( ) );
-                SlotListenerManager.notifyListenersSlotChange( slot.getIdSlot( ) );
-
+                SlotListenerManager.notifyListenersSlotChange( nIdSlot );
             }
+            AvailabilityCacheService.replaceSlots( listIdSlot );
         }
-        finally
-        {
-            lock.unlock( );
+    }
 
-        }
-        return slot;
+    /**
+     * Lock the slots until the end of the current transaction. The slots are always taken in the order of their ids, whatever the order of the list, so that
+     * two transactions working on overlapping sets of slots wait for each other instead of deadlocking
+     * 
+     * @param listIdSlot
+     *            the ids of the slots
+     */
+    public static void lockSlots( Collection<Integer> listIdSlot )
+    {
+        List<Integer> listIdSlotSorted = listIdSlot.stream( ).filter( nIdSlot -> nIdSlot > 0 ).distinct( ).sorted( ).collect( Collectors.toList( ) );
+        SlotHome.lockSlots( listIdSlotSorted );
     }
 
     /**
@@ -299,31 +368,17 @@ public final class SlotSafeService
      *            the nbPotentialRemainingPlaces
      * @param nIdSlot
      *            the is Slot
+     * @return true if the places have been taken, false if the slot has not enough potential remaining places anymore
      */
-    public static void decrementPotentialRemainingPlaces( int nbPotentialRemainingPlaces, int nIdSlot )
+    public static boolean decrementPotentialRemainingPlaces( int nbPotentialRemainingPlaces, int nIdSlot )
     {
-
-        Lock lock = getLockOnSlot( nIdSlot );
-        lock.lock( );
-        try
-        {
-            Slot slot = SlotService.findSlotById( nIdSlot );
-            if ( slot != null )
-            {
-                int nNewPotentialRemainingPlaces = slot.getNbPotentialRemainingPlaces( ) - nbPotentialRemainingPlaces;
-                slot.setNbPotentialRemainingPlaces( nNewPotentialRemainingPlaces );
-                SlotHome.updatePotentialRemainingPlaces( nNewPotentialRemainingPlaces, nIdSlot );
-                SlotListenerManager.notifyListenersSlotChange( slot.getIdSlot( ) );
-
-            }
-
-        }
-        finally
+        if ( !SlotHome.decrementPotentialRemainingPlaces( nbPotentialRemainingPlaces, nIdSlot ) )
         {
-
-            lock.unlock( );
+            return false;
         }
-
+        SlotListenerManager.notifyListenersSlotChange( nIdSlot );
+        AvailabilityCacheService.replaceSlot( nIdSlot );
+        return true;
     }
 
     /**
@@ -337,7 +392,6 @@ public final class SlotSafeService
     {
         Locale locale = null;
         User user = appointmentDTO.getUser( );
-        List<Lock> listLock = new ArrayList<>( );
         // change date appointment
         boolean isReport = appointmentDTO.getIdAppointment( ) != 0;
         if ( appointmentDTO.getIsSaved( ) )
@@ -358,7 +412,7 @@ public final class SlotSafeService
         TransactionManager.beginTransaction( AppointmentPlugin.getPlugin( ) );
         try
         {
-            Set<Integer> listSlotUpdated = saveSlots( appointmentDTO, listLock, request );
+            Set<Integer> listSlotUpdated = saveSlots( appointmentDTO, request );
             if ( !isReport )
             {
                 user = UserService.saveUser( appointmentDTO );
@@ -374,10 +428,17 @@ public final class SlotSafeService
                 }
             }
             processeActionWorkflow( appointment, request, locale, appointmentDTO.getIdForm( ), isReport );
+            // The events of the outbox are written in the transaction of the appointment: they are committed or rolled back with it
+            publishListenerEvents( appointment, listSlotUpdated, isReport );
             TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
             appointmentDTO.setIdAppointment( appointment.getIdAppointment( ) );
             appointmentDTO.setIsSaved( true );
-            notifyListner( appointment, listSlotUpdated, isReport, locale );
+            AvailabilityCacheService.replaceSlots( listSlotUpdated );
+            if ( !isReport )
+            {
+                AppointmentTextIndexService.notifyAppointmentChange( appointment.getIdAppointment( ) );
+            }
+            notifyListner( appointment, isReport, locale );
             if ( request != null )
             {
                 for ( AppointmentSlot apptSlot : appointmentDTO.getListAppointmentSlot( ) )
@@ -396,17 +457,10 @@ public final class SlotSafeService
             AppLogService.error( "Error Save appointment " + e.getMessage( ), e );
             throw new SlotFullException( e.getMessage( ), e );
         }
-        finally
-        {
-            for ( Lock lock : listLock )
-            {
-                lock.unlock( );
-            }
-        }
     }
 
     /**
-     * notify Appointment/Slot Listner
+     * Write the events of the slots changed and of the appointment created in the outbox, in the current transaction
      * 
      * @param appointment
      *            the appointment
@@ -414,16 +468,28 @@ public final class SlotSafeService
      *            the list slot updated to notify
      * @param isReport,
      *            true if it is a postponement of appointment
-     * @param locale
-     *            the locale
      */
-    private static void notifyListner( Appointment appointment, Set<Integer> listSlotUpdated, boolean isReport, Locale locale )
+    private static void publishListenerEvents( Appointment appointment, Set<Integer> listSlotUpdated, boolean isReport )
     {
-
-        for ( int idSlot : listSlotUpdated )
+        SlotListenerManager.notifyListenersListSlotChange( new ArrayList<>( listSlotUpdated ) );
+        if ( !isReport )
         {
-            SlotListenerManager.notifyListenersSlotChange( idSlot );
+            AppointmentListenerManager.notifyListenersAppointmentCreated( appointment.getIdAppointment( ) );
         }
+    }
+
+    /**
+     * notify Appointment Listner of a postponement, once the appointment is committed
+     * 
+     * @param appointment
+     *            the appointment
+     * @param isReport,
+     *            true if it is a postponement of appointment
+     * @param locale
+     *            the locale
+     */
+    private static void notifyListner( Appointment appointment, boolean isReport, Locale locale )
+    {
         if ( isReport )
         {
             AppointmentListenerManager.notifyListenersAppointmentDateChanged( appointment.getIdAppointment( ),
@@ -432,11 +498,6 @@ public final class SlotSafeService
             {
                 AppointmentListenerManager.notifyAppointmentWFActionTriggered( appointment.getIdAppointment( ), appointment.getIdActionReported( ) );
             }
-
-        }
-        else
-        {
-            AppointmentListenerManager.notifyListenersAppointmentCreated( appointment.getIdAppointment( ) );
         }
     }
 
@@ -485,44 +546,8 @@ public final class SlotSafeService
     static void updateRemaningPlacesWithAppointmentMovedDeletedOrCanceled( int nbPlaces, int nIdSlot )
     {
         // The capacity of the slot (that can be less than the number of places
-        // taken on the slot --> overbook)
-
-        Lock lock = getLockOnSlot( nIdSlot );
-        lock.lock( );
-        try
-        {
-            Slot slot = SlotService.findSlotById( nIdSlot );
-            if ( slot != null )
-            {
-                int nMaxCapacity = slot.getMaxCapacity( );
-                // The old remaining places of the slot (before we delete or cancel or move the
-                // appointment
-                int nOldRemainingPlaces = slot.getNbRemainingPlaces( );
-                int nOldPotentialRemaningPlaces = slot.getNbPotentialRemainingPlaces( );
-                int nOldPlacesTaken = slot.getNbPlacesTaken( );
-                int nNewPlacesTaken = nOldPlacesTaken - nbPlaces;
-                // The new value of the remaining places of the slot is the minimal
-                // value between :
-                // - the minimal value between the potentially new max capacity and the old remaining places plus the number of places released by the
-                // appointment
-                // - and the capacity of the slot minus the new places taken on the slot
-                int nNewRemainingPlaces = Math.min( Math.min( nMaxCapacity, nOldRemainingPlaces + nbPlaces ), ( nMaxCapacity - nNewPlacesTaken ) );
-
-                int nNewPotentialRemainingPlaces = Math.min( Math.min( nMaxCapacity, nOldPotentialRemaningPlaces + nbPlaces ),
-                        ( nMaxCapacity - nNewPlacesTaken ) );
-
-                slot.setNbRemainingPlaces( nNewRemainingPlaces );
-                slot.setNbPotentialRemainingPlaces( nNewPotentialRemainingPlaces );
-                slot.setNbPlacestaken( nNewPlacesTaken );
-                SlotHome.update( slot );
-            }
-        }
-        finally
-        {
-
-            lock.unlock( );
-        }
-
+        // taken on the slot --> overbook) is taken into account by the update
+        SlotHome.releasePlaces( nIdSlot, nbPlaces );
     }
 
     /**
@@ -536,27 +561,8 @@ public final class SlotSafeService
      */
     static void updateRemaningPlacesWithAppointmentReactivated( int nbPlaces, int nIdSlot )
     {
-        // The capacity of the slot (that can be less than the number of places
-        // taken on the slot --> overbook)
-        Lock lock = getLockOnSlot( nIdSlot );
-        lock.lock( );
-        try
-        {
-            Slot slot = SlotService.findSlotById( nIdSlot );
-            if ( slot != null )
-            {
-                slot.setNbRemainingPlaces( slot.getNbRemainingPlaces( ) - nbPlaces );
-                slot.setNbPotentialRemainingPlaces( slot.getNbPotentialRemainingPlaces( ) - nbPlaces );
-                slot.setNbPlacestaken( slot.getNbPlacesTaken( ) + nbPlaces );
-                SlotHome.update( slot );
-            }
-        }
-        finally
-        {
-
-            lock.unlock( );
-        }
-
+        // The places are taken even if the slot is full or over (overbook)
+        SlotHome.reservePlaces( nIdSlot, nbPlaces, 0, null, true );
     }
 
     /**
@@ -593,12 +599,7 @@ public final class SlotSafeService
         }
         else
         {
-            // The ending time of the slot has not changed
-            // If it's an update of an existing slot
-            if ( slot.getIdSlot( ) != 0 )
-            {
-                updateRemainingPlaces( slot );
-            }
+            // The ending time of the slot has not changed. The places of an existing slot are computed again when it is saved
             saveSlot( slot );
         }
 
@@ -663,11 +664,7 @@ public final class SlotSafeService
                     slot.getMaxCapacity( ), slot.getMaxCapacity( ), 0, Boolean.FALSE, Boolean.TRUE );
             listSlotToCreate.add( slotToCreate );
         }
-        // If it's an update of an existing slot
-        if ( slot.getIdSlot( ) != 0 )
-        {
-            updateRemainingPlaces( slot );
-        }
+        // The places of an existing slot are computed again when it is saved
         saveSlot( slot );
         createListSlot( listSlotToCreate );
     }
@@ -763,11 +760,7 @@ public final class SlotSafeService
         {
             timeToSubstract = slot.getEndingTime( ).until( previousEndingTime, ChronoUnit.MINUTES );
         }
-        // If it's an update of an existing slot
-        if ( slot.getIdSlot( ) != 0 )
-        {
-            updateRemainingPlaces( slot );
-        }
+        // The places of an existing slot are computed again when it is saved
         saveSlot( slot );
         // Need to set the new starting and ending time of all the slots
         // to shift and update them
@@ -834,21 +827,29 @@ public final class SlotSafeService
     {
         List<Slot> listSlotToCreate = new ArrayList<>( );
         LocalDate dateOfCreation = dateTimeToStartCreation.toLocalDate( );
-        ReservationRule reservationRule = ReservationRuleService.findReservationRuleByIdFormAndClosestToDateOfApply( nIdForm, dateOfCreation );
+        RuleSchedule ruleSchedule = FormSchedulePlanService.getPlan( nIdForm ).getRuleSchedule( dateOfCreation );
+        if ( ruleSchedule == null )
+        {
+            // No reservation rule applies to this date
+            return listSlotToCreate;
+        }
+        ReservationRule reservationRule = ruleSchedule.getReservationRule( );
         int nMaxCapacity = reservationRule.getMaxCapacityPerSlot( );
 
-        WorkingDay workingDay = WorkingDayService.getWorkingDayOfDayOfWeek( reservationRule.getListWorkingDay( ), dateOfCreation.getDayOfWeek( ) );
+        DaySchedule daySchedule = ruleSchedule.getDaySchedule( dateOfCreation.getDayOfWeek( ) );
+        WorkingDay workingDay = null;
         LocalTime endingTimeOfTheDay = null;
         List<TimeSlot> listTimeSlot = new ArrayList<>( );
         int nDurationSlot = reservationRule.getDurationAppointments( );
-        if ( workingDay != null )
+        if ( daySchedule != null )
         {
-            endingTimeOfTheDay = WorkingDayService.getMaxEndingTimeOfAWorkingDay( workingDay );
-            listTimeSlot = TimeSlotService.findListTimeSlotByWorkingDay( workingDay.getIdWorkingDay( ) );
+            workingDay = daySchedule.getWorkingDay( );
+            endingTimeOfTheDay = daySchedule.getMaxEndingTime( );
+            listTimeSlot = daySchedule.getListTimeSlot( );
         }
         else
         {
-            endingTimeOfTheDay = WorkingDayService.getMaxEndingTimeOfAListOfWorkingDay( reservationRule.getListWorkingDay( ) );
+            endingTimeOfTheDay = ruleSchedule.getMaxEndingTime( );
         }
         LocalDateTime endingDateTimeOfTheDay = endingTimeOfTheDay.atDate( dateOfCreation );
         LocalDateTime startingDateTime = dateTimeToStartCreation;
@@ -880,7 +881,8 @@ public final class SlotSafeService
      * 
      */
     /**
-     * Update the capacity of the slot
+     * Update the capacity of the slot: the remaining places and the places taken are computed from the values in database. The values are up to date only if
+     * the slot is locked (see {@link #lockSlots(Collection)})
      * 
      * @param slot
      *            the slot to update
@@ -888,6 +890,7 @@ public final class SlotSafeService
     public static void updateRemainingPlaces( Slot slot )
     {
         Slot oldSlot = SlotHome.findByPrimaryKey( slot.getIdSlot( ) );
+        slot.setNbPlacestaken( oldSlot.getNbPlacesTaken( ) );
         int nNewNbMaxCapacity = slot.getMaxCapacity( );
         int nOldBnMaxCapacity = oldSlot.getMaxCapacity( );
         // If the max capacity has been modified
@@ -943,17 +946,32 @@ public final class SlotSafeService
     }
 
     /**
-     * Update a slot
+     * Update a slot. The row of the slot is locked and its places are computed again from the values in database before it is written, so that the places
+     * taken by a booking committed since the slot was read are not overwritten: only the change of the max capacity is applied to the remaining places
      * 
      * @param slot
      *            the slot updated
      */
     public static Slot updateSlot( Slot slot )
     {
-        Slot slotToReturn = SlotHome.update( slot );
-        SlotListenerManager.notifyListenersSlotChange( slot.getIdSlot( ) );
+        Slot slotToReturn;
+        TransactionManager.beginTransaction( AppointmentPlugin.getPlugin( ) );
+        try
+        {
+            lockSlots( Collections.singletonList( slot.getIdSlot( ) ) );
+            updateRemainingPlaces( slot );
+            slotToReturn = SlotHome.update( slot );
+            SlotListenerManager.notifyListenersSlotChange( slot.getIdSlot( ) );
+            TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
+        }
+        catch( Exception e )
+        {
+            TransactionManager.rollBack( AppointmentPlugin.getPlugin( ) );
+            AppLogService.error( "Error update slot " + e.getMessage( ), e );
+            throw new AppException( e.getMessage( ), e );
+        }
+        AvailabilityCacheService.replaceSlot( slot.getIdSlot( ) );
         return slotToReturn;
-
     }
 
     /**
@@ -979,7 +997,7 @@ public final class SlotSafeService
     public static void cleanSlotlist( )
     {
 
-        Iterator<Integer> it = _listSlot.keySet( ).iterator( );
+        Iterator<Integer> it = _lockProvider.getSlotLocksInMemory( ).keySet( ).iterator( );
         int idSlot;
         while ( it.hasNext( ) )
         {
@@ -988,50 +1006,51 @@ public final class SlotSafeService
             Slot slot = SlotService.findSlotById( idSlot );
             if ( slot == null || slot.getStartingDateTime( ).isBefore( LocalDateTime.now( ) ) || slot.getMaxCapacity( ) <= slot.getNbPlacesTaken( ) )
             {
-                _listSlot.remove( idSlot );
+                _lockProvider.removeLockOnSlot( idSlot );
             }
 
         }
     }
 
     /**
-     * Save and update slots
+     * Save and update slots. The places are taken with a conditional update on each slot, the database guarantees that a slot can not be overbooked by two
+     * concurrent bookings
      * 
      * @param appointmentDTO
      *            the appointmentDTO
+     * @param request
+     *            the request
      * @return list id slot updated
-     * @throws InterruptedException
+     * @throws CloneNotSupportedException
      */
-    private static Set<Integer> saveSlots( AppointmentDTO appointmentDTO, List<Lock> listLock, HttpServletRequest request ) throws InterruptedException, CloneNotSupportedException
+    private static Set<Integer> saveSlots( AppointmentDTO appointmentDTO, HttpServletRequest request ) throws CloneNotSupportedException
     {
-        Appointment oldAppointment = null;
-        List<Slot> listOldSlot = new ArrayList<>( );
-        List<Slot> listSlotToUpdate = new ArrayList<>( );
+        Set<Integer> listSlotUpdated = new HashSet<>( );
         int nbSumRemainingPlaces = 0;
-        // if it's an update for modification of the date of the appointment
+        Appointment oldAppointment = null;
+        List<Integer> listIdSlotToLock = appointmentDTO.getListAppointmentSlot( ).stream( ).map( AppointmentSlot::getIdSlot )
+                .collect( Collectors.toList( ) );
         if ( appointmentDTO.getIdAppointment( ) != 0 )
         {
             oldAppointment = AppointmentService.findAppointmentById( appointmentDTO.getIdAppointment( ) );
+            listIdSlotToLock.addAll( oldAppointment.getListAppointmentSlot( ).stream( ).map( AppointmentSlot::getIdSlot ).collect( Collectors.toList( ) ) );
+        }
+        // Take all the slots of the booking (old and new ones) in one step, so that two reports swapping their slots can not deadlock
+        lockSlots( listIdSlotToLock );
+        // if it's an update for modification of the date of the appointment
+        if ( oldAppointment != null )
+        {
             if ( oldAppointment.getIsCancelled( ) )
             {
                 throw new SlotFullException( "ERROR APPOINTMENT CANCELLED " );
             }
-            // Need to update the old slot
+            // Need to give back the places of the old slots, before taking the new ones (they can be the same)
             for ( AppointmentSlot appointmentSlot : oldAppointment.getListAppointmentSlot( ) )
             {
-                Lock lock = getLockOnSlot( appointmentSlot.getIdSlot( ) );
-                if ( lock.tryLock( 3, TimeUnit.SECONDS ) )
-                {
-                    listLock.add( lock );
-                }
-                else
-                {
-                    throw new SlotFullException( "ERROR SLOT LOCKED" );
-                }
                 Slot slt = SlotService.findSlotById( appointmentSlot.getIdSlot( ) );
                 oldAppointment.addSlot( slt.clone( ) );
-                slt = updateRemaningPlacesWithAppointmentMoved( appointmentSlot.getNbPlaces( ), slt );
-                listOldSlot.add( slt );
+                SlotHome.releasePlaces( appointmentSlot.getIdSlot( ), appointmentSlot.getNbPlaces( ) );
+                listSlotUpdated.add( appointmentSlot.getIdSlot( ) );
             }
             //We set the appointmentDTO object in the request before proceeding with its update, 
             //especially in the context of report an appointment. 
@@ -1040,37 +1059,8 @@ public final class SlotSafeService
         }
         for ( AppointmentSlot appSlot : appointmentDTO.getListAppointmentSlot( ) )
         {
-            Slot slt = null;
-            // if it's an update for modification of the date of the appointment we load the slots in the listOldSlot because are updated already
-            if ( appointmentDTO.getIdAppointment( ) != 0 && listOldSlot.stream( ).anyMatch( slot -> slot.getIdSlot( ) == appSlot.getIdSlot( ) ) )
-            {
-                slt = listOldSlot.stream( ).filter( slot -> slot.getIdSlot( ) == appSlot.getIdSlot( ) ).findFirst( ).orElse( null );
-                listOldSlot.removeIf( slot -> slot.getIdSlot( ) == appSlot.getIdSlot( ) );
-            }
-            else
-            {
-                Lock lock = getLockOnSlot( appSlot.getIdSlot( ) );
-                if ( lock.tryLock( 3, TimeUnit.SECONDS ) )
-                {
-                    listLock.add( lock );
-                }
-                else
-                {
-                    throw new SlotFullException( "ERROR SLOT LOCKED" );
-                }
-                slt = SlotService.findSlotById( appSlot.getIdSlot( ) );
-            }
-            if ( slt == null || ( ( appSlot.getNbPlaces( ) > slt.getNbRemainingPlaces( ) && !appointmentDTO.getOverbookingAllowed( ) )
-                    || slt.getEndingDateTime( ).isBefore( LocalDateTime.now( ) ) ) )
-
-            {
-                AppLogService.error( "ERROR SLOT FULL, ID SLOT: " + appSlot.getIdSlot( ) );
-                throw new SlotFullException( "ERROR SLOT FULL " );
-            }
-            nbSumRemainingPlaces = nbSumRemainingPlaces + slt.getNbRemainingPlaces( );
-            // Update of the remaining places of the slot and appointmentDTO if over booking Allowed
-            updateRemaningPlacesAndappointmentDTO( appSlot.getNbPlaces( ), slt, appointmentDTO );
-            listSlotToUpdate.add( slt );
+            nbSumRemainingPlaces = nbSumRemainingPlaces + reserveSlot( appSlot, appointmentDTO );
+            listSlotUpdated.add( appSlot.getIdSlot( ) );
         }
         // this test is for form with the possibility of taking several appointments on the same slot
         if ( appointmentDTO.getNbBookedSeats( ) > nbSumRemainingPlaces && !appointmentDTO.getOverbookingAllowed( ) )
@@ -1078,88 +1068,31 @@ public final class SlotSafeService
             AppLogService.error( "ERROR SLOT FULL" );
             throw new SlotFullException( "ERROR SLOT FULL" );
         }
-        listSlotToUpdate.addAll( listOldSlot );
-        return updateListSlots( listSlotToUpdate );
-
-    }
-
-    /**
-     * Update slots passed in the parmaters
-     * 
-     * @param listSlotToUpdate
-     *            the list of slot to update
-     * @return ids list slot Updated
-     */
-    private static Set<Integer> updateListSlots( List<Slot> listSlotToUpdate )
-    {
-        Set<Integer> listSlot = new HashSet<>( );
-        for ( Slot slot : listSlotToUpdate )
-        {
-            SlotHome.update( slot );
-            listSlot.add( slot.getIdSlot( ) );
-        }
-        return listSlot;
+        return listSlotUpdated;
     }
 
     /**
-     * Set the new number of remaining places (and potential) when an appointment is moved This new value must take in account the capacity of the slot, in case
-     * of the slot was already over booked
+     * Take the places of the appointment on a slot and update the appointmentDTO if over booking allowed
      * 
-     * @param nbPlaces
-     *            the nb places taken of the appointment that we want to move
-     * @param slot
-     *            the related slot
-     * @return the slot updated
-     */
-    private static Slot updateRemaningPlacesWithAppointmentMoved( int nbPlaces, Slot slot )
-    {
-        // The capacity of the slot (that can be less than the number of places
-        // taken on the slot --> overbook)
-        int nMaxCapacity = slot.getMaxCapacity( );
-        // The old remaining places of the slot before we move the appointment
-        int nOldRemainingPlaces = slot.getNbRemainingPlaces( );
-        int nOldPotentialRemaningPlaces = slot.getNbPotentialRemainingPlaces( );
-        int nOldPlacesTaken = slot.getNbPlacesTaken( );
-        int nNewPlacesTaken = nOldPlacesTaken - nbPlaces;
-        // The new value of the remaining places of the slot is the minimal
-        // value between :
-        // - the minimal value between the potentially new max capacity and the old remaining places plus the number of places released by the appointment
-        // - and the capacity of the slot minus the new places taken on the slot
-        int nNewRemainingPlaces = Math.min( Math.min( nMaxCapacity, nOldRemainingPlaces + nbPlaces ), ( nMaxCapacity - nNewPlacesTaken ) );
-        int nNewPotentialRemainingPlaces = Math.min( Math.min( nNewRemainingPlaces, nOldPotentialRemaningPlaces + nbPlaces ),
-                ( nMaxCapacity - nNewPlacesTaken ) );
-        slot.setNbRemainingPlaces( nNewRemainingPlaces );
-        slot.setNbPotentialRemainingPlaces( nNewPotentialRemainingPlaces );
-        slot.setNbPlacestaken( nNewPlacesTaken );
-        return slot;
-    }
-
-    /**
-     * update remaning places and appointmentDTO
-     * 
-     * @param effectiveBookedSeats
-     *            the effective booked seats
-     * @param slt
-     *            the slot
+     * @param appSlot
+     *            the places to take on the slot
      * @param appointmentDTO
      *            the appointment
+     * @return the number of remaining places of the slot before the reservation
      */
-    private static void updateRemaningPlacesAndappointmentDTO( int effectiveBookedSeats, Slot slt, AppointmentDTO appointmentDTO )
+    private static int reserveSlot( AppointmentSlot appSlot, AppointmentDTO appointmentDTO )
     {
-
-        // Update of the remaining places of the slot
-        int newNbRemainingPlaces = slt.getNbRemainingPlaces( ) - effectiveBookedSeats;
-        int newPotentialRemaningPlaces = slt.getNbPotentialRemainingPlaces( ) + appointmentDTO.getNbMaxPotentialBookedSeats( ) - effectiveBookedSeats;
-        int newNbPlacesTaken = slt.getNbPlacesTaken( ) + effectiveBookedSeats;
-        slt.setNbRemainingPlaces( newNbRemainingPlaces );
-        slt.setNbPlacestaken( newNbPlacesTaken );
-        slt.setNbPotentialRemainingPlaces( Math.min( newPotentialRemaningPlaces, newNbRemainingPlaces ) );
-
+        if ( !SlotHome.reservePlaces( appSlot.getIdSlot( ), appSlot.getNbPlaces( ), appointmentDTO.getNbMaxPotentialBookedSeats( ), LocalDateTime.now( ),
+                appointmentDTO.getOverbookingAllowed( ) ) )
+        {
+            AppLogService.error( "ERROR SLOT FULL, ID SLOT: " + appSlot.getIdSlot( ) );
+            throw new SlotFullException( "ERROR SLOT FULL " );
+        }
+        Slot slt = SlotService.findSlotById( appSlot.getIdSlot( ) );
         if ( slt.getNbPlacesTaken( ) > slt.getMaxCapacity( ) )
         {
             if ( appointmentDTO.getOverbookingAllowed( ) )
             {
-
                 appointmentDTO.setIsSurbooked( true );
             }
             else
@@ -1167,5 +1100,6 @@ public final class SlotSafeService
                 throw new SlotFullException( "case of overbooking" );
             }
         }
+        return slt.getNbRemainingPlaces( ) + appSlot.getNbPlaces( );
     }
 }
@@ -48,7 +48,9 @@ import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
 import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinitionHome;
 import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
 import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.service.cache.AvailabilityCacheService;
 import fr.paris.lutece.plugins.appointment.service.listeners.WeekDefinitionManagerListener;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlanService;
 import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.util.ReferenceList;
@@ -555,6 +557,8 @@ public final class WeekDefinitionService
             }
             TransactionManager.commitTransaction( AppointmentPlugin.getPlugin( ) );
             // WeekDefinitionManagerListener.notifyListenersListWeekDefinitionChanged( nIdForm, listWeekToEdit );
+            FormSchedulePlanService.invalidate( nIdForm );
+            AvailabilityCacheService.invalidateForm( nIdForm );
         }
         catch( Exception e )
         {
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.admission;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Admission control ("waiting room") in front of the booking of the appointments. When it is enabled, each form has its own bounded queue: the requests
+ * beyond its capacity are rejected before any access to the database, so that the user can be asked to come back later.
+ */
+public final class AdmissionService
+{
+    private static final String PROPERTY_ENABLED = "appointment.admission.enabled";
+    private static final String PROPERTY_MAX_CONCURRENT = "appointment.admission.maxConcurrent";
+    private static final String PROPERTY_QUEUE_LENGTH = "appointment.admission.queueLength";
+    private static final String PROPERTY_MAX_WAIT = "appointment.admission.maxWait";
+    private static final String PROPERTY_RETRY_DELAY = "appointment.admission.retryDelay";
+    private static final int DEFAULT_MAX_CONCURRENT = 10;
+    private static final int DEFAULT_QUEUE_LENGTH = 100;
+    private static final int DEFAULT_MAX_WAIT = 2000;
+    private static final int DEFAULT_RETRY_DELAY = 5;
+
+    private static final AdmissionTicket TICKET_ADMISSION_DISABLED = new AdmissionTicket( null, true, 0 );
+    private static Map<Integer, FormAdmissionQueue> _mapQueues = new ConcurrentHashMap<>( );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private AdmissionService( )
+    {
+    }
+
+    /**
+     * Check if the admission control is enabled
+     * 
+     * @return true if the admission control is enabled
+     */
+    public static boolean isEnabled( )
+    {
+        return AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, false );
+    }
+
+    /**
+     * Ask for the admission of a request on a form. The ticket must be closed at the end of the processing of the request.
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the ticket, always admitted if the admission control is disabled
+     */
+    public static AdmissionTicket enter( int nIdForm )
+    {
+        if ( !isEnabled( ) )
+        {
+            return TICKET_ADMISSION_DISABLED;
+        }
+        FormAdmissionQueue queue = _mapQueues.computeIfAbsent( nIdForm,
+                id -> new FormAdmissionQueue( id, AppPropertiesService.getPropertyInt( PROPERTY_MAX_CONCURRENT, DEFAULT_MAX_CONCURRENT ),
+                        AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_LENGTH, DEFAULT_QUEUE_LENGTH ) ) );
+        AdmissionTicket ticket = queue.enter( AppPropertiesService.getPropertyInt( PROPERTY_MAX_WAIT, DEFAULT_MAX_WAIT ) );
+        if ( !ticket.isAdmitted( ) )
+        {
+            AppLogService.debug( "Admission refused on form " + nIdForm + ", position " + ticket.getPosition( ) + ", " + queue.getNbWaiting( ) + " waiting, "
+                    + queue.getNbRejected( ) + " rejected since the start" );
+        }
+        return ticket;
+    }
+
+    /**
+     * Get the delay after which a user not admitted is invited to try again
+     * 
+     * @return the delay in seconds
+     */
+    public static int getRetryDelay( )
+    {
+        return AppPropertiesService.getPropertyInt( PROPERTY_RETRY_DELAY, DEFAULT_RETRY_DELAY );
+    }
+
+    /**
+     * Get the queues of the forms, with their metrics
+     * 
+     * @return the queues
+     */
+    public static Collection<FormAdmissionQueue> getQueues( )
+    {
+        return Collections.unmodifiableCollection( _mapQueues.values( ) );
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.admission;
+
+/**
+ * Result of a request to enter the admission queue of a form. An admitted ticket holds a place until it is closed.
+ */
+public final class AdmissionTicket implements AutoCloseable
+{
+    private final FormAdmissionQueue _queue;
+    private final boolean _bAdmitted;
+    private final int _nPosition;
+    private boolean _bClosed;
+
+    /**
+     * Constructor
+     * 
+     * @param queue
+     *            the queue which delivered the ticket, null if the admission control is disabled
+     * @param bAdmitted
+     *            true if the request is admitted
+     * @param nPosition
+     *            the position in the queue of a request not admitted
+     */
+    AdmissionTicket( FormAdmissionQueue queue, boolean bAdmitted, int nPosition )
+    {
+        _queue = queue;
+        _bAdmitted = bAdmitted;
+        _nPosition = nPosition;
+    }
+
+    /**
+     * Check if the request is admitted
+     * 
+     * @return true if the request can be processed
+     */
+    public boolean isAdmitted( )
+    {
+        return _bAdmitted;
+    }
+
+    /**
+     * Get the position of a request not admitted
+     * 
+     * @return the position in the queue when the request has been rejected, 0 if it is admitted
+     */
+    public int getPosition( )
+    {
+        return _nPosition;
+    }
+
+    /**
+     * Give the place back to the queue
+     */
+    @Override
+    public void close( )
+    {
+        if ( _bAdmitted && !_bClosed && _queue != null )
+        {
+            _bClosed = true;
+            _queue.leave( );
+        }
+    }
+}
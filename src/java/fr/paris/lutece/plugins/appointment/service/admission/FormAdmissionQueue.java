@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.admission;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded admission queue of a form: at most a given number of requests are processed at the same time, the others wait in FIFO order, and the requests
+ * arriving when the queue is full are rejected at once.
+ */
+public final class FormAdmissionQueue
+{
+    private final int _nIdForm;
+    private final int _nMaxConcurrent;
+    private final int _nMaxQueueLength;
+    private final Semaphore _semaphore;
+    private final AtomicInteger _nbWaiting = new AtomicInteger( );
+    private final AtomicInteger _nMaxWaiting = new AtomicInteger( );
+    private final AtomicLong _lNbAdmitted = new AtomicLong( );
+    private final AtomicLong _lNbRejected = new AtomicLong( );
+
+    /**
+     * Constructor
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param nMaxConcurrent
+     *            the max number of requests processed at the same time
+     * @param nMaxQueueLength
+     *            the max number of requests waiting
+     */
+    public FormAdmissionQueue( int nIdForm, int nMaxConcurrent, int nMaxQueueLength )
+    {
+        _nIdForm = nIdForm;
+        _nMaxConcurrent = Math.max( 1, nMaxConcurrent );
+        _nMaxQueueLength = Math.max( 0, nMaxQueueLength );
+        _semaphore = new Semaphore( _nMaxConcurrent, true );
+    }
+
+    /**
+     * Try to enter the queue
+     * 
+     * @param lMaxWait
+     *            the max time to wait for a place, in milliseconds
+     * @return the ticket, admitted or not
+     */
+    public AdmissionTicket enter( long lMaxWait )
+    {
+        int nPosition = _nbWaiting.incrementAndGet( );
+        try
+        {
+            if ( nPosition > _nMaxQueueLength && _semaphore.availablePermits( ) == 0 )
+            {
+                // The queue is full: shed the request without waiting
+                return reject( nPosition );
+            }
+            _nMaxWaiting.accumulateAndGet( nPosition, Math::max );
+            // The fair semaphore serves the waiting requests in FIFO order
+            if ( _semaphore.tryAcquire( lMaxWait, TimeUnit.MILLISECONDS ) )
+            {
+                _lNbAdmitted.incrementAndGet( );
+                return new AdmissionTicket( this, true, 0 );
+            }
+            return reject( _nbWaiting.get( ) );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            return reject( nPosition );
+        }
+        finally
+        {
+            _nbWaiting.decrementAndGet( );
+        }
+    }
+
+    /**
+     * Give a place back
+     */
+    void leave( )
+    {
+        _semaphore.release( );
+    }
+
+    /**
+     * Build a rejected ticket
+     * 
+     * @param nPosition
+     *            the position in the queue
+     * @return the ticket
+     */
+    private AdmissionTicket reject( int nPosition )
+    {
+        _lNbRejected.incrementAndGet( );
+        return new AdmissionTicket( this, false, Math.max( 1, nPosition ) );
+    }
+
+    /**
+     * Get the id of the form
+     * 
+     * @return the id of the form
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Get the number of requests being processed
+     * 
+     * @return the number of requests in process
+     */
+    public int getNbInProgress( )
+    {
+        return _nMaxConcurrent - _semaphore.availablePermits( );
+    }
+
+    /**
+     * Get the number of requests waiting
+     * 
+     * @return the queue depth
+     */
+    public int getNbWaiting( )
+    {
+        return _nbWaiting.get( );
+    }
+
+    /**
+     * Get the max number of requests waiting at the same time
+     * 
+     * @return the max queue depth
+     */
+    public int getMaxWaiting( )
+    {
+        return _nMaxWaiting.get( );
+    }
+
+    /**
+     * Get the number of requests admitted
+     * 
+     * @return the number of requests admitted
+     */
+    public long getNbAdmitted( )
+    {
+        return _lNbAdmitted.get( );
+    }
+
+    /**
+     * Get the number of requests rejected
+     * 
+     * @return the number of requests rejected
+     */
+    public long getNbRejected( )
+    {
+        return _lNbRejected.get( );
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.portal.business.user.AdminUser;
+
+/**
+ * Name of an admin user, as kept in the directory cache
+ */
+public final class AdminUserName
+{
+    private final int _nIdUser;
+    private final String _strFirstName;
+    private final String _strLastName;
+
+    /**
+     * Constructor
+     * 
+     * @param adminUser
+     *            the admin user
+     */
+    public AdminUserName( AdminUser adminUser )
+    {
+        _nIdUser = adminUser.getUserId( );
+        _strFirstName = adminUser.getFirstName( );
+        _strLastName = adminUser.getLastName( );
+    }
+
+    /**
+     * Get the id of the admin user
+     * 
+     * @return the id of the admin user
+     */
+    public int getIdUser( )
+    {
+        return _nIdUser;
+    }
+
+    /**
+     * Get the first name of the admin user
+     * 
+     * @return the first name
+     */
+    public String getFirstName( )
+    {
+        return _strFirstName;
+    }
+
+    /**
+     * Get the last name of the admin user
+     * 
+     * @return the last name
+     */
+    public String getLastName( )
+    {
+        return _strLastName;
+    }
+
+    /**
+     * Get the name to display: the first name and the last name
+     * 
+     * @return the name to display
+     */
+    public String getDisplayName( )
+    {
+        return _strFirstName + StringUtils.SPACE + _strLastName;
+    }
+}
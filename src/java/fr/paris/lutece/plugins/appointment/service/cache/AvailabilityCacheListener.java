@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRuleHome;
+import fr.paris.lutece.plugins.appointment.service.listeners.IFormListener;
+import fr.paris.lutece.plugins.appointment.service.listeners.IWeekDefinitionListener;
+
+/**
+ * Listener keeping the cache of the AvailabilityCacheService up to date: all the weeks of a form are removed when its week definitions or the form change.
+ * The slots are not followed through the listeners, whose changes are delivered by the outbox to a single node of a cluster: the services writing them update
+ * the cache of their node directly (see AvailabilityCacheService)
+ */
+public class AvailabilityCacheListener implements IWeekDefinitionListener, IFormListener
+{
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyWeekAssigned( WeekDefinition weekDefinition )
+    {
+        invalidateFormOfWeek( weekDefinition );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyWeekUnassigned( WeekDefinition weekDefinition )
+    {
+        invalidateFormOfWeek( weekDefinition );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyListWeeksChanged( int nIdForm, List<WeekDefinition> listWeek )
+    {
+        AvailabilityCacheService.invalidateForm( nIdForm );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyFormChange( int nIdForm )
+    {
+        AvailabilityCacheService.invalidateForm( nIdForm );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyFormCreation( int nIdForm )
+    {
+        // Nothing in the cache for a new form
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyFormRemoval( int nIdForm )
+    {
+        AvailabilityCacheService.invalidateForm( nIdForm );
+    }
+
+    /**
+     * Remove from the cache all the weeks of the form of a week definition. If the form is not found, all the cache is cleared
+     * 
+     * @param weekDefinition
+     *            the week definition
+     */
+    private static void invalidateFormOfWeek( WeekDefinition weekDefinition )
+    {
+        ReservationRule reservationRule = ReservationRuleHome.findByPrimaryKey( weekDefinition.getIdReservationRule( ) );
+        if ( reservationRule != null )
+        {
+            AvailabilityCacheService.invalidateForm( reservationRule.getIdForm( ) );
+        }
+        else
+        {
+            AvailabilityCacheService.clear( );
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.CalendarBuilder;
+import fr.paris.lutece.plugins.appointment.service.SlotService;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlan;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Service serving the slots of the calendar of the forms from the FormAvailabilityCache. The cache is kept up to date by the services writing the slots,
+ * right after their change (the events of the outbox are delivered to a single node of a cluster), by the SlotListenerManager for the slots removed and by
+ * the AvailabilityCacheListener for the changes of the forms and of their week definitions. The changes made on another node of a cluster are not notified to
+ * this node: the cached weeks are built again after the time to live.
+ * 
+ * Each form has a change sequence, incremented after each change of its slots in the cache. It is the base of the ETag of the slots of the form sent to the
+ * browsers (see getETag), and of the validity of the entries of the FirstAvailableSlotIndex.
+ */
+public final class AvailabilityCacheService
+{
+    private static final String PROPERTY_ENABLED = "appointment.availabilityCache.enabled";
+    private static final String PROPERTY_MAX_SIZE = "appointment.availabilityCache.maxSize";
+    private static final String PROPERTY_TIME_TO_LIVE = "appointment.availabilityCache.timeToLive";
+    private static final int DEFAULT_MAX_SIZE = 2000;
+    private static final int DEFAULT_TIME_TO_LIVE = 60;
+
+    private static final String ETAG_WEAK_PREFIX = "W/";
+    private static final String ETAG_ANY = "*";
+
+    private static final FormAvailabilityCache _cache = new FormAvailabilityCache( AppPropertiesService.getPropertyInt( PROPERTY_MAX_SIZE, DEFAULT_MAX_SIZE ),
+            AppPropertiesService.getPropertyInt( PROPERTY_TIME_TO_LIVE, DEFAULT_TIME_TO_LIVE ) * 1000L );
+    private static final FirstAvailableSlotIndex _firstAvailableSlotIndex = new FirstAvailableSlotIndex(
+            AppPropertiesService.getPropertyInt( PROPERTY_TIME_TO_LIVE, DEFAULT_TIME_TO_LIVE ) * 1000L );
+    private static final Map<Integer, AtomicLong> _mapChangeSequence = new ConcurrentHashMap<>( );
+    // Incremented when all the cache is cleared
+    private static final AtomicLong _lGlobalChangeSequence = new AtomicLong( );
+    // The sequences start again at each start of the webapp
+    private static final String START_ID = Long.toString( System.currentTimeMillis( ), Character.MAX_RADIX );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private AvailabilityCacheService( )
+    {
+    }
+
+    /**
+     * Check if the cache is enabled
+     * 
+     * @return true if the cache is enabled
+     */
+    public static boolean isEnabled( )
+    {
+        return AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, true );
+    }
+
+    /**
+     * Get the cache
+     * 
+     * @return the cache
+     */
+    public static FormAvailabilityCache getCache( )
+    {
+        return _cache;
+    }
+
+    /**
+     * Get the index of the first available slot of the forms
+     * 
+     * @return the index
+     */
+    public static FirstAvailableSlotIndex getFirstAvailableSlotIndex( )
+    {
+        return _firstAvailableSlotIndex;
+    }
+
+    /**
+     * Get all the slots of the calendar of a form for a period, as SlotService.buildListSlot does. The weeks not in the cache are built at once from the plan,
+     * which must be the whole plan of the form (see FormSchedulePlanService.getPlan) since the weeks are cached beyond the period, and put in the cache
+     * 
+     * @param plan
+     *            the plan of the form
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @return the list of the slots, which can be modified by the caller
+     */
+    public static List<Slot> getListSlot( FormSchedulePlan plan, LocalDate startingDate, LocalDate endingDate )
+    {
+        int nIdForm = plan.getIdForm( );
+        if ( plan.getMapReservationRule( ).isEmpty( ) || startingDate.isAfter( endingDate ) )
+        {
+            return new ArrayList<>( );
+        }
+        if ( !isEnabled( ) )
+        {
+            return CalendarBuilder.buildSlotGrid( nIdForm, plan, startingDate, endingDate ).getListSlot( );
+        }
+        long lNow = System.currentTimeMillis( );
+        Map<LocalDate, List<Slot>> mapSlotsByWeek = new TreeMap<>( );
+        LocalDate firstMissingWeek = null;
+        LocalDate lastMissingWeek = null;
+        for ( LocalDate week = FormAvailabilityCache.getFirstDayOfWeek( startingDate ); !week.isAfter( endingDate ); week = week.plusWeeks( 1 ) )
+        {
+            List<Slot> listSlotOfWeek = _cache.get( nIdForm, week, lNow );
+            if ( listSlotOfWeek == null )
+            {
+                if ( firstMissingWeek == null )
+                {
+                    firstMissingWeek = week;
+                }
+                lastMissingWeek = week;
+            }
+            else
+            {
+                mapSlotsByWeek.put( week, listSlotOfWeek );
+            }
+        }
+        if ( firstMissingWeek != null )
+        {
+            long lVersion = _cache.getVersion( nIdForm );
+            Map<LocalDate, List<Slot>> mapSlotsBuilt = new TreeMap<>( );
+            for ( LocalDate week = firstMissingWeek; !week.isAfter( lastMissingWeek ); week = week.plusWeeks( 1 ) )
+            {
+                mapSlotsBuilt.put( week, new ArrayList<>( ) );
+            }
+            for ( Slot slot : CalendarBuilder.buildSlotGrid( nIdForm, plan, firstMissingWeek, lastMissingWeek.plusDays( 6 ) ).getListSlot( ) )
+            {
+                mapSlotsBuilt.computeIfAbsent( FormAvailabilityCache.getFirstDayOfWeek( slot.getStartingDateTime( ).toLocalDate( ) ), week -> new ArrayList<>( ) )
+                        .add( slot );
+            }
+            for ( Map.Entry<LocalDate, List<Slot>> entry : mapSlotsBuilt.entrySet( ) )
+            {
+                _cache.put( nIdForm, entry.getKey( ), entry.getValue( ), lVersion, lNow );
+            }
+            mapSlotsByWeek.putAll( mapSlotsBuilt );
+        }
+        List<Slot> listSlot = new ArrayList<>( );
+        for ( List<Slot> listSlotOfWeek : mapSlotsByWeek.values( ) )
+        {
+            for ( Slot slot : listSlotOfWeek )
+            {
+                LocalDate dateOfSlot = slot.getStartingDateTime( ).toLocalDate( );
+                if ( !dateOfSlot.isBefore( startingDate ) && !dateOfSlot.isAfter( endingDate ) )
+                {
+                    listSlot.add( slot );
+                }
+            }
+        }
+        return listSlot;
+    }
+
+    /**
+     * Remove from the cache the week of a form containing a date, when a closing day has been changed
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param date
+     *            the date
+     */
+    public static void invalidateWeek( int nIdForm, LocalDate date )
+    {
+        _cache.invalidateWeek( nIdForm, date );
+        incrementChangeSequence( nIdForm );
+        _firstAvailableSlotIndex.invalidateForm( nIdForm );
+    }
+
+    /**
+     * Remove from the cache all the weeks of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void invalidateForm( int nIdForm )
+    {
+        _cache.invalidateForm( nIdForm );
+        incrementChangeSequence( nIdForm );
+        _firstAvailableSlotIndex.invalidateForm( nIdForm );
+    }
+
+    /**
+     * Replace a slot in the cache by its state in the database
+     * 
+     * @param slot
+     *            the slot as saved in the database
+     */
+    public static void replaceSlot( Slot slot )
+    {
+        _cache.replaceSlot( slot );
+        _firstAvailableSlotIndex.updateSlot( slot, incrementChangeSequence( slot.getIdForm( ) ) );
+    }
+
+    /**
+     * Replace a slot in the cache by its state in the database
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     */
+    public static void replaceSlot( int nIdSlot )
+    {
+        Slot slot = SlotService.findSlotById( nIdSlot );
+        if ( slot != null )
+        {
+            replaceSlot( slot );
+        }
+    }
+
+    /**
+     * Replace slots in the cache by their state in the database
+     * 
+     * @param listIdSlot
+     *            the ids of the slots
+     */
+    public static void replaceSlots( Collection<Integer> listIdSlot )
+    {
+        for ( int nIdSlot : listIdSlot )
+        {
+            replaceSlot( nIdSlot );
+        }
+    }
+
+    /**
+     * Remove all the weeks from the cache
+     */
+    public static void clear( )
+    {
+        _cache.clear( );
+        _lGlobalChangeSequence.incrementAndGet( );
+        _firstAvailableSlotIndex.clear( );
+    }
+
+    /**
+     * Get the change sequence of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the number of changes of the slots of the form and of clears of the cache since the start of the webapp
+     */
+    public static long getChangeSequence( int nIdForm )
+    {
+        AtomicLong lChangeSequence = _mapChangeSequence.get( nIdForm );
+        return _lGlobalChangeSequence.get( ) + ( lChangeSequence != null ? lChangeSequence.get( ) : 0 );
+    }
+
+    /**
+     * Get the ETag of the slots of a form. It changes with the change sequence of the form, and at least once per time to live of the cache so that the
+     * changes made by another node of a cluster and the slots becoming passed are seen after this delay
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param lNow
+     *            the current time (in milliseconds)
+     * @return the ETag, quoted
+     */
+    public static String getETag( int nIdForm, long lNow )
+    {
+        long lTimeToLive = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_TIME_TO_LIVE, DEFAULT_TIME_TO_LIVE ) ) * 1000L;
+        return "\"" + START_ID + "-" + getChangeSequence( nIdForm ) + "-" + lNow / lTimeToLive + "\"";
+    }
+
+    /**
+     * Check if the value of an If-None-Match header matches an ETag, with the weak comparison
+     * 
+     * @param strIfNoneMatch
+     *            the value of the header, may be null
+     * @param strETag
+     *            the ETag
+     * @return true if the resource has not been modified
+     */
+    public static boolean matchesETag( String strIfNoneMatch, String strETag )
+    {
+        if ( StringUtils.isBlank( strIfNoneMatch ) )
+        {
+            return false;
+        }
+        for ( String strTag : strIfNoneMatch.split( "," ) )
+        {
+            String strTagTrimmed = strTag.trim( );
+            if ( strTagTrimmed.startsWith( ETAG_WEAK_PREFIX ) )
+            {
+                strTagTrimmed = strTagTrimmed.substring( ETAG_WEAK_PREFIX.length( ) );
+            }
+            if ( ETAG_ANY.equals( strTagTrimmed ) || strTagTrimmed.equals( strETag ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Increment the change sequence of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the change sequence of the form after the change
+     */
+    private static long incrementChangeSequence( int nIdForm )
+    {
+        return _lGlobalChangeSequence.get( ) + _mapChangeSequence.computeIfAbsent( nIdForm, id -> new AtomicLong( ) ).incrementAndGet( );
+    }
+}
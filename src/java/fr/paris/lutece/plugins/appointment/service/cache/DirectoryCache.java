@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cache of the values of a directory (names of the users, titles of the forms...), by key. The values missing from the cache are loaded at once by the
+ * loader given. The keys without value are also kept, so that they are not loaded again. The cache is bounded: the least recently used keys are evicted
+ * first. A value is kept at most for the time to live given. The values loaded while a key was invalidated are not put in the cache.
+ * 
+ * @param <K>
+ *            the type of the keys
+ * @param <V>
+ *            the type of the values, which must be immutable
+ */
+public final class DirectoryCache<K, V>
+{
+    private final int _nMaxSize;
+    private final long _lTimeToLive;
+    // Guarded by itself
+    private final LinkedHashMap<K, DirectoryEntry<V>> _mapEntries;
+    // Incremented on each invalidation, guarded by _mapEntries
+    private long _lVersion;
+    private final AtomicLong _lNbHits = new AtomicLong( );
+    private final AtomicLong _lNbMisses = new AtomicLong( );
+
+    /**
+     * Constructor
+     * 
+     * @param nMaxSize
+     *            the max number of keys in the cache
+     * @param lTimeToLive
+     *            the max time (in milliseconds) a value stays in the cache
+     */
+    public DirectoryCache( int nMaxSize, long lTimeToLive )
+    {
+        _nMaxSize = nMaxSize;
+        _lTimeToLive = lTimeToLive;
+        _mapEntries = new LinkedHashMap<K, DirectoryEntry<V>>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<K, DirectoryEntry<V>> eldest )
+            {
+                return size( ) > _nMaxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the values of some keys. The keys which are not in the cache are loaded with a single call to the loader
+     * 
+     * @param collectionKey
+     *            the keys, the null keys are ignored
+     * @param loader
+     *            the loader of the values of a set of keys, which returns no value for the keys not found
+     * @param lNow
+     *            the current time (in milliseconds)
+     * @return the values found, by key
+     */
+    public Map<K, V> getAll( Collection<K> collectionKey, Function<Set<K>, Map<K, V>> loader, long lNow )
+    {
+        Map<K, V> mapValues = new HashMap<>( );
+        Set<K> setMissingKey = new HashSet<>( );
+        long lVersion;
+        synchronized( _mapEntries )
+        {
+            lVersion = _lVersion;
+            for ( K key : collectionKey )
+            {
+                if ( key == null || mapValues.containsKey( key ) || setMissingKey.contains( key ) )
+                {
+                    continue;
+                }
+                DirectoryEntry<V> entry = _mapEntries.get( key );
+                if ( entry != null && lNow - entry._lCreationTime > _lTimeToLive )
+                {
+                    _mapEntries.remove( key );
+                    entry = null;
+                }
+                if ( entry == null )
+                {
+                    setMissingKey.add( key );
+                }
+                else
+                    if ( entry._value != null )
+                    {
+                        mapValues.put( key, entry._value );
+                    }
+            }
+        }
+        if ( setMissingKey.isEmpty( ) )
+        {
+            _lNbHits.incrementAndGet( );
+            return mapValues;
+        }
+        _lNbMisses.incrementAndGet( );
+        Map<K, V> mapLoadedValues = loader.apply( setMissingKey );
+        synchronized( _mapEntries )
+        {
+            for ( K key : setMissingKey )
+            {
+                V value = mapLoadedValues.get( key );
+                if ( value != null )
+                {
+                    mapValues.put( key, value );
+                }
+                if ( lVersion == _lVersion )
+                {
+                    _mapEntries.put( key, new DirectoryEntry<>( value, lNow ) );
+                }
+            }
+        }
+        return mapValues;
+    }
+
+    /**
+     * Remove a key from the cache
+     * 
+     * @param key
+     *            the key
+     */
+    public void invalidate( K key )
+    {
+        synchronized( _mapEntries )
+        {
+            _lVersion++;
+            _mapEntries.remove( key );
+        }
+    }
+
+    /**
+     * Remove all the keys from the cache
+     */
+    public void clear( )
+    {
+        synchronized( _mapEntries )
+        {
+            _lVersion++;
+            _mapEntries.clear( );
+        }
+    }
+
+    /**
+     * Get the number of keys in the cache
+     * 
+     * @return the number of keys
+     */
+    public int size( )
+    {
+        synchronized( _mapEntries )
+        {
+            return _mapEntries.size( );
+        }
+    }
+
+    /**
+     * Get the number of calls served without the loader
+     * 
+     * @return the number of hits
+     */
+    public long getNbHits( )
+    {
+        return _lNbHits.get( );
+    }
+
+    /**
+     * Get the number of calls which needed the loader
+     * 
+     * @return the number of misses
+     */
+    public long getNbMisses( )
+    {
+        return _lNbMisses.get( );
+    }
+
+    /**
+     * Value of a key, null if the key has no value, with the time it was put in the cache
+     */
+    private static final class DirectoryEntry<V>
+    {
+        private final V _value;
+        private final long _lCreationTime;
+
+        DirectoryEntry( V value, long lCreationTime )
+        {
+            _value = value;
+            _lCreationTime = lCreationTime;
+        }
+    }
+}
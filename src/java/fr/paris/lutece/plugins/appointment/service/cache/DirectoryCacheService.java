@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.service.FormService;
+import fr.paris.lutece.portal.business.user.AdminUser;
+import fr.paris.lutece.portal.business.user.AdminUserHome;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Service serving the names of the admin users and the titles of the forms displayed with the appointments and the comments, from the DirectoryCache. The
+ * names and titles missing from the cache are loaded with a single query for all of them. The titles of the forms are removed from the cache when the forms
+ * change (see DirectoryCacheListener); the names of the admin users, and the changes made on another node of a cluster, are seen after the time to live.
+ */
+public final class DirectoryCacheService
+{
+    private static final String PROPERTY_ENABLED = "appointment.directoryCache.enabled";
+    private static final String PROPERTY_MAX_SIZE = "appointment.directoryCache.maxSize";
+    private static final String PROPERTY_TIME_TO_LIVE = "appointment.directoryCache.timeToLive";
+    private static final int DEFAULT_MAX_SIZE = 5000;
+    private static final int DEFAULT_TIME_TO_LIVE = 300;
+
+    private static final DirectoryCache<Integer, AdminUserName> _cacheAdminUserById = createCache( );
+    private static final DirectoryCache<String, AdminUserName> _cacheAdminUserByLogin = createCache( );
+    private static final DirectoryCache<Integer, String> _cacheFormTitle = createCache( );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private DirectoryCacheService( )
+    {
+    }
+
+    /**
+     * Get the names of some admin users
+     * 
+     * @param collectionIdAdminUser
+     *            the ids of the admin users
+     * @return the names of the admin users found, by id
+     */
+    public static Map<Integer, AdminUserName> getAdminUserNames( Collection<Integer> collectionIdAdminUser )
+    {
+        return getAll( _cacheAdminUserById, collectionIdAdminUser, DirectoryCacheService::loadAdminUserNames );
+    }
+
+    /**
+     * Get the names of some admin users
+     * 
+     * @param collectionLogin
+     *            the logins (access codes) of the admin users
+     * @return the names of the admin users found, by login
+     */
+    public static Map<String, AdminUserName> getAdminUserNamesByLogin( Collection<String> collectionLogin )
+    {
+        return getAll( _cacheAdminUserByLogin, collectionLogin, DirectoryCacheService::loadAdminUserNamesByLogin );
+    }
+
+    /**
+     * Get the titles of some forms
+     * 
+     * @param collectionIdForm
+     *            the ids of the forms
+     * @return the titles of the forms found, by id
+     */
+    public static Map<Integer, String> getFormTitles( Collection<Integer> collectionIdForm )
+    {
+        return getAll( _cacheFormTitle, collectionIdForm, DirectoryCacheService::loadFormTitles );
+    }
+
+    /**
+     * Remove the title of a form from the cache
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void invalidateForm( int nIdForm )
+    {
+        _cacheFormTitle.invalidate( nIdForm );
+    }
+
+    /**
+     * Remove all the names and titles from the cache
+     */
+    public static void clear( )
+    {
+        _cacheAdminUserById.clear( );
+        _cacheAdminUserByLogin.clear( );
+        _cacheFormTitle.clear( );
+    }
+
+    /**
+     * Create a cache with the size and the time to live of the properties
+     */
+    private static <K, V> DirectoryCache<K, V> createCache( )
+    {
+        return new DirectoryCache<>( AppPropertiesService.getPropertyInt( PROPERTY_MAX_SIZE, DEFAULT_MAX_SIZE ),
+                AppPropertiesService.getPropertyInt( PROPERTY_TIME_TO_LIVE, DEFAULT_TIME_TO_LIVE ) * 1000L );
+    }
+
+    /**
+     * Get the values of some keys from a cache, or from the loader if the cache is disabled
+     */
+    private static <K, V> Map<K, V> getAll( DirectoryCache<K, V> cache, Collection<K> collectionKey, Function<Set<K>, Map<K, V>> loader )
+    {
+        if ( AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, true ) )
+        {
+            return cache.getAll( collectionKey, loader, System.currentTimeMillis( ) );
+        }
+        Set<K> setKey = collectionKey.stream( ).filter( Objects::nonNull ).collect( Collectors.toSet( ) );
+        return setKey.isEmpty( ) ? new HashMap<>( ) : loader.apply( setKey );
+    }
+
+    /**
+     * Load the names of some admin users: a single user is read by its id, several users are read with the list of all the users
+     */
+    private static Map<Integer, AdminUserName> loadAdminUserNames( Set<Integer> setIdAdminUser )
+    {
+        Map<Integer, AdminUserName> mapAdminUserName = new HashMap<>( );
+        if ( setIdAdminUser.size( ) == 1 )
+        {
+            AdminUser adminUser = AdminUserHome.findByPrimaryKey( setIdAdminUser.iterator( ).next( ) );
+            if ( adminUser != null )
+            {
+                mapAdminUserName.put( adminUser.getUserId( ), new AdminUserName( adminUser ) );
+            }
+            return mapAdminUserName;
+        }
+        for ( AdminUser adminUser : AdminUserHome.findUserList( ) )
+        {
+            if ( setIdAdminUser.contains( adminUser.getUserId( ) ) )
+            {
+                mapAdminUserName.put( adminUser.getUserId( ), new AdminUserName( adminUser ) );
+            }
+        }
+        return mapAdminUserName;
+    }
+
+    /**
+     * Load the names of some admin users: a single user is read by its login, several users are read with the list of all the users
+     */
+    private static Map<String, AdminUserName> loadAdminUserNamesByLogin( Set<String> setLogin )
+    {
+        Map<String, AdminUserName> mapAdminUserName = new HashMap<>( );
+        if ( setLogin.size( ) == 1 )
+        {
+            AdminUser adminUser = AdminUserHome.findUserByLogin( setLogin.iterator( ).next( ) );
+            if ( adminUser != null )
+            {
+                mapAdminUserName.put( adminUser.getAccessCode( ), new AdminUserName( adminUser ) );
+            }
+            return mapAdminUserName;
+        }
+        for ( AdminUser adminUser : AdminUserHome.findUserList( ) )
+        {
+            if ( setLogin.contains( adminUser.getAccessCode( ) ) )
+            {
+                mapAdminUserName.put( adminUser.getAccessCode( ), new AdminUserName( adminUser ) );
+            }
+        }
+        return mapAdminUserName;
+    }
+
+    /**
+     * Load the titles of some forms: a single form is read by its id, several forms are read with the list of all the forms
+     */
+    private static Map<Integer, String> loadFormTitles( Set<Integer> setIdForm )
+    {
+        Map<Integer, String> mapFormTitle = new HashMap<>( );
+        if ( setIdForm.size( ) == 1 )
+        {
+            Form form = FormService.findFormLightByPrimaryKey( setIdForm.iterator( ).next( ) );
+            if ( form != null )
+            {
+                mapFormTitle.put( form.getIdForm( ), form.getTitle( ) );
+            }
+            return mapFormTitle;
+        }
+        for ( Form form : FormService.findAllForms( ) )
+        {
+            if ( setIdForm.contains( form.getIdForm( ) ) )
+            {
+                mapFormTitle.put( form.getIdForm( ), form.getTitle( ) );
+            }
+        }
+        return mapFormTitle;
+    }
+}
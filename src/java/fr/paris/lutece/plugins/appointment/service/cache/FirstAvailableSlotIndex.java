@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.plan.SlotGrid;
+
+/**
+ * Index of the first available slot of the forms, by number of places. An entry is valid for the change sequence of the form it was computed for (see
+ * AvailabilityCacheService.getChangeSequence): on a change of a slot, the entries of the form are updated at once when the change tells enough (a slot before
+ * the first one becoming available, the first one becoming unavailable...), and removed otherwise so that they are computed again on the next call. An entry
+ * is also computed again when its slot is too close to now, or after the time to live.
+ */
+public final class FirstAvailableSlotIndex
+{
+    private final long _lTimeToLive;
+    private final Map<Integer, Map<Long, IndexEntry>> _mapIndex = new ConcurrentHashMap<>( );
+
+    /**
+     * Constructor
+     * 
+     * @param lTimeToLive
+     *            the max time (in milliseconds) an entry is kept
+     */
+    public FirstAvailableSlotIndex( long lTimeToLive )
+    {
+        _lTimeToLive = lTimeToLive;
+    }
+
+    /**
+     * Get the first available slot of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param nNbPlacesToTake
+     *            the number of consecutive slots to take, 0 if the form is not a multi slot form
+     * @param nNbBookedSeats
+     *            the number of places to book in the slot, 0 for one place
+     * @param minStartingDateTime
+     *            the slot must start after this time
+     * @param endingDate
+     *            the last day of the period searched
+     * @param lChangeSequence
+     *            the current change sequence of the form
+     * @param lNow
+     *            the current time (in milliseconds)
+     * @return the result of the lookup: not known, or known with the first slot (a new object) or without slot if the form has no available slot
+     */
+    public Lookup get( int nIdForm, int nNbPlacesToTake, int nNbBookedSeats, LocalDateTime minStartingDateTime, LocalDate endingDate,
+            long lChangeSequence, long lNow )
+    {
+        Map<Long, IndexEntry> mapEntries = _mapIndex.get( nIdForm );
+        IndexEntry entry = mapEntries != null ? mapEntries.get( getKey( nNbPlacesToTake, nNbBookedSeats ) ) : null;
+        if ( entry == null || entry._lChangeSequence != lChangeSequence || !entry._endingDate.equals( endingDate )
+                || lNow - entry._lCreationTime > _lTimeToLive )
+        {
+            return Lookup.UNKNOWN;
+        }
+        if ( entry._grid.size( ) == 0 )
+        {
+            return Lookup.NO_SLOT;
+        }
+        if ( entry._grid.getStartingMinute( 0 ) <= SlotGrid.toEpochMinute( minStartingDateTime ) )
+        {
+            // The slot is no more available, the next one is not known
+            return Lookup.UNKNOWN;
+        }
+        return new Lookup( true, entry._grid.getSlot( 0 ) );
+    }
+
+    /**
+     * Put the first available slot of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param nNbPlacesToTake
+     *            the number of consecutive slots to take, 0 if the form is not a multi slot form
+     * @param nNbBookedSeats
+     *            the number of places to book in the slot, 0 for one place
+     * @param slot
+     *            the first slot, null if the form has no available slot
+     * @param endingDate
+     *            the last day of the period searched
+     * @param lChangeSequence
+     *            the change sequence of the form read before searching the slot
+     * @param lNow
+     *            the current time (in milliseconds)
+     */
+    public void put( int nIdForm, int nNbPlacesToTake, int nNbBookedSeats, Slot slot, LocalDate endingDate, long lChangeSequence, long lNow )
+    {
+        SlotGrid grid = slot != null ? SlotGrid.fromListSlot( nIdForm, Collections.singletonList( slot ) ) : new SlotGrid( nIdForm, 0 );
+        _mapIndex.computeIfAbsent( nIdForm, id -> new ConcurrentHashMap<>( ) ).put( getKey( nNbPlacesToTake, nNbBookedSeats ),
+                new IndexEntry( grid, endingDate, lChangeSequence, lNow ) );
+    }
+
+    /**
+     * Update the entries of the form of a slot after a change of the slot
+     * 
+     * @param slot
+     *            the slot, as saved in the database
+     * @param lChangeSequence
+     *            the change sequence of the form after the change
+     */
+    public void updateSlot( Slot slot, long lChangeSequence )
+    {
+        Map<Long, IndexEntry> mapEntries = _mapIndex.get( slot.getIdForm( ) );
+        if ( mapEntries == null )
+        {
+            return;
+        }
+        int nStartingMinute = SlotGrid.toEpochMinute( slot.getStartingDateTime( ) );
+        for ( Long lKey : mapEntries.keySet( ) )
+        {
+            mapEntries.computeIfPresent( lKey, ( key, entry ) -> updateEntry( entry, key, slot, nStartingMinute, lChangeSequence ) );
+        }
+    }
+
+    /**
+     * Remove the entries of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public void invalidateForm( int nIdForm )
+    {
+        _mapIndex.remove( nIdForm );
+    }
+
+    /**
+     * Remove all the entries
+     */
+    public void clear( )
+    {
+        _mapIndex.clear( );
+    }
+
+    /**
+     * Get the number of forms in the index
+     * 
+     * @return the number of forms
+     */
+    public int size( )
+    {
+        return _mapIndex.size( );
+    }
+
+    /**
+     * Update an entry after the change of a slot of its form
+     * 
+     * @param entry
+     *            the entry
+     * @param lKey
+     *            the key of the entry
+     * @param slot
+     *            the slot changed
+     * @param nStartingMinute
+     *            the starting minute of the slot changed
+     * @param lChangeSequence
+     *            the change sequence of the form after the change
+     * @return the entry updated, or null to remove it
+     */
+    private static IndexEntry updateEntry( IndexEntry entry, long lKey, Slot slot, int nStartingMinute, long lChangeSequence )
+    {
+        if ( entry._lChangeSequence != lChangeSequence - 1 )
+        {
+            // Another change has not been applied to the entry
+            return null;
+        }
+        boolean bHasSlot = entry._grid.size( ) > 0;
+        int nNbPlacesToTake = (int) ( lKey >>> Integer.SIZE );
+        if ( nNbPlacesToTake > 0 )
+        {
+            // The slot is a part of a group: only the changes after the first group are known to be without effect
+            return bHasSlot && nStartingMinute >= entry._grid.getEndingMinute( 0 ) ? entry.withChangeSequence( lChangeSequence ) : null;
+        }
+        boolean bAvailable = slot.getIsOpen( ) && slot.getNbPotentialRemainingPlaces( ) >= Math.max( 1, (int) lKey );
+        if ( !bHasSlot )
+        {
+            // A slot may have become available
+            return bAvailable && !slot.getStartingDateTime( ).toLocalDate( ).isAfter( entry._endingDate ) ? null : entry.withChangeSequence( lChangeSequence );
+        }
+        int nFirstStartingMinute = entry._grid.getStartingMinute( 0 );
+        if ( nStartingMinute == nFirstStartingMinute )
+        {
+            return bAvailable ? entry.withSlot( slot, lChangeSequence ) : null;
+        }
+        if ( bAvailable && nStartingMinute < nFirstStartingMinute )
+        {
+            return entry.withSlot( slot, lChangeSequence );
+        }
+        return entry.withChangeSequence( lChangeSequence );
+    }
+
+    /**
+     * Get the key of an entry of a form
+     * 
+     * @param nNbPlacesToTake
+     *            the number of consecutive slots to take
+     * @param nNbBookedSeats
+     *            the number of places to book in the slot
+     * @return the key
+     */
+    private static long getKey( int nNbPlacesToTake, int nNbBookedSeats )
+    {
+        return ( (long) nNbPlacesToTake << Integer.SIZE ) | ( nNbBookedSeats & 0xFFFFFFFFL );
+    }
+
+    /**
+     * Result of a lookup in the index
+     */
+    public static final class Lookup
+    {
+        private static final Lookup UNKNOWN = new Lookup( false, null );
+        private static final Lookup NO_SLOT = new Lookup( true, null );
+
+        private final boolean _bKnown;
+        private final Slot _slot;
+
+        private Lookup( boolean bKnown, Slot slot )
+        {
+            _bKnown = bKnown;
+            _slot = slot;
+        }
+
+        /**
+         * Check if the index knows the first available slot of the form
+         * 
+         * @return true if the index knows it, false if it must be searched
+         */
+        public boolean isKnown( )
+        {
+            return _bKnown;
+        }
+
+        /**
+         * Get the first available slot of the form, when it is known
+         * 
+         * @return the first slot, null if the form has no available slot or if it is not known
+         */
+        public Slot getSlot( )
+        {
+            return _slot;
+        }
+    }
+
+    /**
+     * Entry of the index: a grid with the first slot, or empty if there is no available slot
+     */
+    private static final class IndexEntry
+    {
+        private final SlotGrid _grid;
+        private final LocalDate _endingDate;
+        private final long _lChangeSequence;
+        private final long _lCreationTime;
+
+        IndexEntry( SlotGrid grid, LocalDate endingDate, long lChangeSequence, long lCreationTime )
+        {
+            _grid = grid;
+            _endingDate = endingDate;
+            _lChangeSequence = lChangeSequence;
+            _lCreationTime = lCreationTime;
+        }
+
+        IndexEntry withChangeSequence( long lChangeSequence )
+        {
+            return new IndexEntry( _grid, _endingDate, lChangeSequence, _lCreationTime );
+        }
+
+        IndexEntry withSlot( Slot slot, long lChangeSequence )
+        {
+            return new IndexEntry( SlotGrid.fromListSlot( _grid.getIdForm( ), Collections.singletonList( slot ) ), _endingDate, lChangeSequence,
+                    _lCreationTime );
+        }
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.plan.SlotGrid;
+
+/**
+ * Cache of the slots of the calendar of the forms, by form and by week (from monday to sunday). The cache is bounded: the least recently used weeks are
+ * evicted first. A week is kept at most for the time to live given. The slots of a week are stored in a SlotGrid, and the slots returned are new objects which
+ * can be modified by the caller. The slots built
+ * while the form changed in the cache are not put in the cache (see getVersion), so that a slot changed during the build is not overwritten by its former
+ * state.
+ */
+public final class FormAvailabilityCache
+{
+    private final int _nMaxSize;
+    private final long _lTimeToLive;
+    // Guarded by itself
+    private final LinkedHashMap<WeekKey, WeekEntry> _mapWeeks;
+    // Versions of the forms, incremented on each change of the form in the cache, guarded by _mapWeeks
+    private final Map<Integer, Long> _mapVersions = new HashMap<>( );
+    // Incremented on each clear of the cache, guarded by _mapWeeks
+    private long _lNbClears;
+    private final AtomicLong _lNbHits = new AtomicLong( );
+    private final AtomicLong _lNbMisses = new AtomicLong( );
+
+    /**
+     * Constructor
+     * 
+     * @param nMaxSize
+     *            the max number of weeks in the cache
+     * @param lTimeToLive
+     *            the max time (in milliseconds) a week stays in the cache
+     */
+    public FormAvailabilityCache( int nMaxSize, long lTimeToLive )
+    {
+        _nMaxSize = nMaxSize;
+        _lTimeToLive = lTimeToLive;
+        _mapWeeks = new LinkedHashMap<WeekKey, WeekEntry>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<WeekKey, WeekEntry> eldest )
+            {
+                return size( ) > _nMaxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the first day (monday) of the week of a date
+     * 
+     * @param date
+     *            the date
+     * @return the monday of the week
+     */
+    public static LocalDate getFirstDayOfWeek( LocalDate date )
+    {
+        return date.with( DayOfWeek.MONDAY );
+    }
+
+    /**
+     * Get the slots of a week of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param firstDayOfWeek
+     *            the monday of the week
+     * @param lNow
+     *            the current time (in milliseconds)
+     * @return the slots of the week, or null if the week is not in the cache
+     */
+    public List<Slot> get( int nIdForm, LocalDate firstDayOfWeek, long lNow )
+    {
+        WeekKey key = new WeekKey( nIdForm, firstDayOfWeek );
+        List<Slot> listSlot = null;
+        synchronized( _mapWeeks )
+        {
+            WeekEntry entry = _mapWeeks.get( key );
+            if ( entry != null && lNow - entry._lCreationTime > _lTimeToLive )
+            {
+                _mapWeeks.remove( key );
+                entry = null;
+            }
+            if ( entry != null )
+            {
+                listSlot = entry._grid.getListSlot( );
+            }
+        }
+        if ( listSlot == null )
+        {
+            _lNbMisses.incrementAndGet( );
+        }
+        else
+        {
+            _lNbHits.incrementAndGet( );
+        }
+        return listSlot;
+    }
+
+    /**
+     * Get the version of a form in the cache, to be read before building the slots of the form to put in the cache
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the version of the form
+     */
+    public long getVersion( int nIdForm )
+    {
+        synchronized( _mapWeeks )
+        {
+            return _lNbClears + _mapVersions.getOrDefault( nIdForm, 0L );
+        }
+    }
+
+    /**
+     * Put the slots of a week of a form in the cache. The slots are stored in a grid. Nothing is done if the form has changed in the cache since the
+     * version given was read
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param firstDayOfWeek
+     *            the monday of the week
+     * @param listSlot
+     *            the slots of the week
+     * @param lVersion
+     *            the version of the form read before building the slots
+     * @param lNow
+     *            the current time (in milliseconds)
+     */
+    public void put( int nIdForm, LocalDate firstDayOfWeek, List<Slot> listSlot, long lVersion, long lNow )
+    {
+        WeekEntry entry = new WeekEntry( SlotGrid.fromListSlot( nIdForm, listSlot ), lNow );
+        synchronized( _mapWeeks )
+        {
+            if ( lVersion != _lNbClears + _mapVersions.getOrDefault( nIdForm, 0L ) )
+            {
+                return;
+            }
+            _mapWeeks.put( new WeekKey( nIdForm, firstDayOfWeek ), entry );
+        }
+    }
+
+    /**
+     * Replace in the cache the slot with the same starting and ending time as the given one. If the week of the slot is in the cache but the slot is not
+     * found, the week is removed from the cache
+     * 
+     * @param slot
+     *            the slot as saved in the database
+     */
+    public void replaceSlot( Slot slot )
+    {
+        WeekKey key = new WeekKey( slot.getIdForm( ), getFirstDayOfWeek( slot.getStartingDateTime( ).toLocalDate( ) ) );
+        synchronized( _mapWeeks )
+        {
+            incrementVersion( slot.getIdForm( ) );
+            WeekEntry entry = _mapWeeks.get( key );
+            if ( entry != null && !entry._grid.replaceSlot( slot ) )
+            {
+                _mapWeeks.remove( key );
+            }
+        }
+    }
+
+    /**
+     * Remove from the cache the week of a form containing a date
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param date
+     *            the date
+     */
+    public void invalidateWeek( int nIdForm, LocalDate date )
+    {
+        synchronized( _mapWeeks )
+        {
+            incrementVersion( nIdForm );
+            _mapWeeks.remove( new WeekKey( nIdForm, getFirstDayOfWeek( date ) ) );
+        }
+    }
+
+    /**
+     * Remove from the cache all the weeks of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public void invalidateForm( int nIdForm )
+    {
+        synchronized( _mapWeeks )
+        {
+            incrementVersion( nIdForm );
+            Iterator<WeekKey> iterator = _mapWeeks.keySet( ).iterator( );
+            while ( iterator.hasNext( ) )
+            {
+                if ( iterator.next( )._nIdForm == nIdForm )
+                {
+                    iterator.remove( );
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove all the weeks from the cache
+     */
+    public void clear( )
+    {
+        synchronized( _mapWeeks )
+        {
+            _lNbClears++;
+            _mapWeeks.clear( );
+        }
+    }
+
+    /**
+     * Get the number of weeks in the cache
+     * 
+     * @return the number of weeks
+     */
+    public int size( )
+    {
+        synchronized( _mapWeeks )
+        {
+            return _mapWeeks.size( );
+        }
+    }
+
+    /**
+     * Get the max number of weeks in the cache
+     * 
+     * @return the max size
+     */
+    public int getMaxSize( )
+    {
+        return _nMaxSize;
+    }
+
+    /**
+     * Get the number of weeks found in the cache
+     * 
+     * @return the number of hits
+     */
+    public long getNbHits( )
+    {
+        return _lNbHits.get( );
+    }
+
+    /**
+     * Get the number of weeks not found in the cache
+     * 
+     * @return the number of misses
+     */
+    public long getNbMisses( )
+    {
+        return _lNbMisses.get( );
+    }
+
+    /**
+     * Increment the version of a form, the caller must hold the lock of _mapWeeks
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    private void incrementVersion( int nIdForm )
+    {
+        _mapVersions.merge( nIdForm, 1L, Long::sum );
+    }
+
+    /**
+     * Key of a week of a form
+     */
+    private static final class WeekKey
+    {
+        private final int _nIdForm;
+        private final LocalDate _firstDayOfWeek;
+
+        WeekKey( int nIdForm, LocalDate firstDayOfWeek )
+        {
+            _nIdForm = nIdForm;
+            _firstDayOfWeek = firstDayOfWeek;
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( !( o instanceof WeekKey ) )
+            {
+                return false;
+            }
+            WeekKey other = (WeekKey) o;
+            return _nIdForm == other._nIdForm && _firstDayOfWeek.equals( other._firstDayOfWeek );
+        }
+
+        @Override
+        public int hashCode( )
+        {
+            return Objects.hash( _nIdForm, _firstDayOfWeek );
+        }
+    }
+
+    /**
+     * Slots of a week, with the time they were put in the cache
+     */
+    private static final class WeekEntry
+    {
+        private final SlotGrid _grid;
+        private final long _lCreationTime;
+
+        WeekEntry( SlotGrid grid, long lCreationTime )
+        {
+            _grid = grid;
+            _lCreationTime = lCreationTime;
+        }
+    }
+}
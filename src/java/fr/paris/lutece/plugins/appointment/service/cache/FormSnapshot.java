@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import org.apache.commons.lang3.SerializationUtils;
+
+import fr.paris.lutece.plugins.appointment.business.calendar.CalendarTemplate;
+import fr.paris.lutece.plugins.appointment.business.display.Display;
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.localization.Localization;
+import fr.paris.lutece.plugins.appointment.business.message.FormMessage;
+import fr.paris.lutece.plugins.appointment.business.rule.FormRule;
+import fr.paris.lutece.portal.service.image.ImageResource;
+
+/**
+ * Snapshot of the parts of a form read to display it: the form, its display, its localization, its rule, its messages and its calendar template. A snapshot
+ * is shared by all the threads reading the form, so it is never modified: all its parts are returned as copies.
+ */
+public final class FormSnapshot
+{
+    private final Form _form;
+    private final Display _display;
+    private final Localization _localization;
+    private final FormRule _formRule;
+    private final FormMessage _formMessage;
+    private final CalendarTemplate _calendarTemplate;
+
+    /**
+     * Constructor
+     * 
+     * @param form
+     *            the form
+     * @param display
+     *            the display of the form, or null
+     * @param localization
+     *            the localization of the form, or null
+     * @param formRule
+     *            the rule of the form, or null
+     * @param formMessage
+     *            the messages of the form, or null
+     * @param calendarTemplate
+     *            the calendar template of the display of the form, or null
+     */
+    public FormSnapshot( Form form, Display display, Localization localization, FormRule formRule, FormMessage formMessage,
+            CalendarTemplate calendarTemplate )
+    {
+        _form = form;
+        _display = display;
+        _localization = localization;
+        _formRule = formRule;
+        _formMessage = formMessage;
+        _calendarTemplate = calendarTemplate;
+    }
+
+    /**
+     * Get a copy of the form
+     * 
+     * @return the form
+     */
+    public Form getForm( )
+    {
+        return SerializationUtils.clone( _form );
+    }
+
+    /**
+     * Get a copy of the display of the form
+     * 
+     * @return the display, or null
+     */
+    public Display getDisplay( )
+    {
+        return ( _display != null ) ? copy( _display ) : null;
+    }
+
+    /**
+     * Get a copy of the localization of the form
+     * 
+     * @return the localization, or null
+     */
+    public Localization getLocalization( )
+    {
+        return ( _localization != null ) ? SerializationUtils.clone( _localization ) : null;
+    }
+
+    /**
+     * Get a copy of the rule of the form
+     * 
+     * @return the rule, or null
+     */
+    public FormRule getFormRule( )
+    {
+        return ( _formRule != null ) ? SerializationUtils.clone( _formRule ) : null;
+    }
+
+    /**
+     * Get a copy of the messages of the form
+     * 
+     * @return the messages, or null
+     */
+    public FormMessage getFormMessage( )
+    {
+        return ( _formMessage != null ) ? SerializationUtils.clone( _formMessage ) : null;
+    }
+
+    /**
+     * Get a copy of the calendar template of the form
+     * 
+     * @return the calendar template, or null
+     */
+    public CalendarTemplate getCalendarTemplate( )
+    {
+        return ( _calendarTemplate != null ) ? SerializationUtils.clone( _calendarTemplate ) : null;
+    }
+
+    /**
+     * Copy a display field by field, without relying on the serialization of its icon
+     * 
+     * @param display
+     *            the display
+     * @return the copy
+     */
+    private static Display copy( Display display )
+    {
+        Display copy = new Display( );
+        copy.setIdDisplay( display.getIdDisplay( ) );
+        copy.setDisplayTitleFo( display.isDisplayTitleFo( ) );
+        copy.setIsDisplayedOnPortlet( display.isDisplayedOnPortlet( ) );
+        copy.setNbWeeksToDisplay( display.getNbWeeksToDisplay( ) );
+        copy.setIdCalendarTemplate( display.getIdCalendarTemplate( ) );
+        copy.setIdForm( display.getIdForm( ) );
+        ImageResource icon = display.getIcon( );
+        if ( icon != null )
+        {
+            ImageResource iconCopy = new ImageResource( );
+            iconCopy.setImage( ( icon.getImage( ) != null ) ? icon.getImage( ).clone( ) : null );
+            iconCopy.setMimeType( icon.getMimeType( ) );
+            copy.setIcon( iconCopy );
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import fr.paris.lutece.plugins.appointment.business.calendar.CalendarTemplate;
+import fr.paris.lutece.plugins.appointment.business.calendar.CalendarTemplateHome;
+import fr.paris.lutece.plugins.appointment.business.display.Display;
+import fr.paris.lutece.plugins.appointment.business.display.DisplayHome;
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.form.FormHome;
+import fr.paris.lutece.plugins.appointment.business.localization.Localization;
+import fr.paris.lutece.plugins.appointment.business.localization.LocalizationHome;
+import fr.paris.lutece.plugins.appointment.business.message.FormMessage;
+import fr.paris.lutece.plugins.appointment.business.message.FormMessageHome;
+import fr.paris.lutece.plugins.appointment.business.rule.FormRule;
+import fr.paris.lutece.plugins.appointment.business.rule.FormRuleHome;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Service serving the snapshots of the forms from a DirectoryCache. A snapshot is removed from the cache when its form is changed (see
+ * FormListenerManager) or when its messages are changed, and all the snapshots are removed when a calendar template is changed. A snapshot read while
+ * its form was changed is not put in the cache. The changes made on another node of a cluster are seen after the time to live.
+ */
+public final class FormSnapshotService
+{
+    private static final String PROPERTY_ENABLED = "appointment.formSnapshotCache.enabled";
+    private static final String PROPERTY_MAX_SIZE = "appointment.formSnapshotCache.maxSize";
+    private static final String PROPERTY_TIME_TO_LIVE = "appointment.formSnapshotCache.timeToLive";
+    private static final int DEFAULT_MAX_SIZE = 500;
+    private static final int DEFAULT_TIME_TO_LIVE = 300;
+
+    private static final DirectoryCache<Integer, FormSnapshot> _cache = new DirectoryCache<>(
+            AppPropertiesService.getPropertyInt( PROPERTY_MAX_SIZE, DEFAULT_MAX_SIZE ),
+            AppPropertiesService.getPropertyInt( PROPERTY_TIME_TO_LIVE, DEFAULT_TIME_TO_LIVE ) * 1000L );
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private FormSnapshotService( )
+    {
+    }
+
+    /**
+     * Get the snapshot of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the snapshot, or null if the form does not exist
+     */
+    public static FormSnapshot getFormSnapshot( int nIdForm )
+    {
+        return getFormSnapshots( Collections.singleton( nIdForm ) ).get( nIdForm );
+    }
+
+    /**
+     * Get the snapshots of some forms. The snapshots missing from the cache are read with one query per table
+     * 
+     * @param collectionIdForm
+     *            the ids of the forms
+     * @return the snapshots of the forms found, by id
+     */
+    public static Map<Integer, FormSnapshot> getFormSnapshots( Collection<Integer> collectionIdForm )
+    {
+        if ( AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, true ) )
+        {
+            return _cache.getAll( collectionIdForm, FormSnapshotService::loadFormSnapshots, System.currentTimeMillis( ) );
+        }
+        return loadFormSnapshots( collectionIdForm );
+    }
+
+    /**
+     * Get a copy of the messages of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the messages of the form, or null if they are not found
+     */
+    public static FormMessage getFormMessage( int nIdForm )
+    {
+        FormSnapshot formSnapshot = getFormSnapshot( nIdForm );
+        return ( formSnapshot != null ) ? formSnapshot.getFormMessage( ) : null;
+    }
+
+    /**
+     * Get a copy of the calendar template of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the calendar template of the form, or null if it is not found
+     */
+    public static CalendarTemplate getCalendarTemplate( int nIdForm )
+    {
+        FormSnapshot formSnapshot = getFormSnapshot( nIdForm );
+        return ( formSnapshot != null ) ? formSnapshot.getCalendarTemplate( ) : null;
+    }
+
+    /**
+     * Remove the snapshot of a form from the cache
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static void invalidate( int nIdForm )
+    {
+        _cache.invalidate( nIdForm );
+    }
+
+    /**
+     * Remove all the snapshots from the cache
+     */
+    public static void clear( )
+    {
+        _cache.clear( );
+    }
+
+    /**
+     * Read the snapshots of some forms in database, with one query per table
+     */
+    private static Map<Integer, FormSnapshot> loadFormSnapshots( Collection<Integer> collectionIdForm )
+    {
+        Map<Integer, FormSnapshot> mapFormSnapshot = new HashMap<>( );
+        List<Form> listForm = FormHome.findByListIdForm( collectionIdForm.stream( ).filter( Objects::nonNull ).distinct( ).collect( Collectors.toList( ) ) );
+        if ( listForm.isEmpty( ) )
+        {
+            return mapFormSnapshot;
+        }
+        List<Integer> listIdForm = listForm.stream( ).map( Form::getIdForm ).collect( Collectors.toList( ) );
+        Map<Integer, Display> mapDisplay = index( DisplayHome.findByListIdForm( listIdForm ), Display::getIdForm );
+        Map<Integer, Localization> mapLocalization = index( LocalizationHome.findByListIdForm( listIdForm ), Localization::getIdForm );
+        Map<Integer, FormRule> mapFormRule = index( FormRuleHome.findByListIdForm( listIdForm ), FormRule::getIdForm );
+        Map<Integer, FormMessage> mapFormMessage = index( FormMessageHome.findByListIdForm( listIdForm ), FormMessage::getIdForm );
+        Map<Integer, CalendarTemplate> mapCalendarTemplate = mapDisplay.isEmpty( ) ? Collections.emptyMap( )
+                : index( CalendarTemplateHome.findAll( ), CalendarTemplate::getIdCalendarTemplate );
+        for ( Form form : listForm )
+        {
+            Display display = mapDisplay.get( form.getIdForm( ) );
+            CalendarTemplate calendarTemplate = ( display != null ) ? mapCalendarTemplate.get( display.getIdCalendarTemplate( ) ) : null;
+            mapFormSnapshot.put( form.getIdForm( ), new FormSnapshot( form, display, mapLocalization.get( form.getIdForm( ) ),
+                    mapFormRule.get( form.getIdForm( ) ), mapFormMessage.get( form.getIdForm( ) ), calendarTemplate ) );
+        }
+        return mapFormSnapshot;
+    }
+
+    /**
+     * Index a list of objects by a key, keeping the first one read for each key
+     */
+    private static <T> Map<Integer, T> index( List<T> listObject, Function<T, Integer> key )
+    {
+        return listObject.stream( ).collect( Collectors.toMap( key, Function.identity( ), ( object1, object2 ) -> object1 ) );
+    }
+}
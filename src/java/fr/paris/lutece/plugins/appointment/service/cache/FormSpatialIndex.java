@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import fr.paris.lutece.plugins.appointment.business.localization.Localization;
+
+/**
+ * Spatial index of the localizations of the forms: a k-d tree of the points of the unit sphere (the straight distance between two points of the sphere
+ * grows with their distance on the sphere). The forms are returned from the nearest to the farthest of a position, read from the tree only as far as the
+ * caller iterates. The index is immutable: it is built again when the forms change.
+ */
+public final class FormSpatialIndex
+{
+    /**
+     * The mean radius of the Earth, in kilometers
+     */
+    public static final double EARTH_RADIUS = 6371.0088;
+
+    private static final int NB_AXES = 3;
+
+    private final int _nSize;
+    private final int [ ] _tabIdForm;
+    private final double [ ] [ ] _tabCoordinates;
+    // Bounding box of each subtree, stored at the index of the root of the subtree
+    private final double [ ] [ ] _tabMin;
+    private final double [ ] [ ] _tabMax;
+
+    /**
+     * Constructor
+     * 
+     * @param listLocalization
+     *            the localizations of the forms, with a latitude and a longitude
+     */
+    public FormSpatialIndex( List<Localization> listLocalization )
+    {
+        Localization [ ] tabLocalization = listLocalization.stream( ).filter( l -> l.getLatitude( ) != null && l.getLongitude( ) != null )
+                .toArray( Localization [ ]::new );
+        _nSize = tabLocalization.length;
+        _tabIdForm = new int [ _nSize];
+        _tabCoordinates = new double [ NB_AXES] [ _nSize];
+        _tabMin = new double [ NB_AXES] [ _nSize];
+        _tabMax = new double [ NB_AXES] [ _nSize];
+        double [ ] [ ] tabPoints = new double [ _nSize] [ ];
+        for ( int i = 0; i < _nSize; i++ )
+        {
+            tabPoints [i] = toPoint( tabLocalization [i].getLatitude( ), tabLocalization [i].getLongitude( ) );
+        }
+        Integer [ ] tabOrder = new Integer [ _nSize];
+        for ( int i = 0; i < _nSize; i++ )
+        {
+            tabOrder [i] = i;
+        }
+        build( tabPoints, tabOrder, 0, _nSize, 0 );
+        for ( int i = 0; i < _nSize; i++ )
+        {
+            _tabIdForm [i] = tabLocalization [tabOrder [i]].getIdForm( );
+            for ( int nAxis = 0; nAxis < NB_AXES; nAxis++ )
+            {
+                _tabCoordinates [nAxis] [i] = tabPoints [tabOrder [i]] [nAxis];
+            }
+        }
+        computeBoundingBox( 0, _nSize );
+    }
+
+    /**
+     * Get the number of forms of the index
+     * 
+     * @return the number of forms
+     */
+    public int size( )
+    {
+        return _nSize;
+    }
+
+    /**
+     * Get the forms from the nearest to the farthest of a position
+     * 
+     * @param dLatitude
+     *            the latitude of the position, in degrees
+     * @param dLongitude
+     *            the longitude of the position, in degrees
+     * @return an iterator on the forms and their distance, by increasing distance
+     */
+    public Iterator<Neighbor> findNearest( double dLatitude, double dLongitude )
+    {
+        return new NearestIterator( toPoint( dLatitude, dLongitude ) );
+    }
+
+    /**
+     * Get the distance on the Earth between two positions, with the formula of haversine
+     * 
+     * @param dLatitude1
+     *            the latitude of the first position, in degrees
+     * @param dLongitude1
+     *            the longitude of the first position, in degrees
+     * @param dLatitude2
+     *            the latitude of the second position, in degrees
+     * @param dLongitude2
+     *            the longitude of the second position, in degrees
+     * @return the distance, in kilometers
+     */
+    public static double getDistance( double dLatitude1, double dLongitude1, double dLatitude2, double dLongitude2 )
+    {
+        return toDistance( Math.sqrt( getSquaredChord( toPoint( dLatitude1, dLongitude1 ), toPoint( dLatitude2, dLongitude2 ) ) ) );
+    }
+
+    /**
+     * Sort the points of a subtree: the median point along the axis of the depth is the root of the subtree, the points before and after are its two
+     * subtrees
+     * 
+     * @param tabPoints
+     *            the points
+     * @param tabOrder
+     *            the order of the points in the tree
+     * @param nFrom
+     *            the first index of the subtree
+     * @param nTo
+     *            the index after the last one of the subtree
+     * @param nDepth
+     *            the depth of the subtree
+     */
+    private static void build( double [ ] [ ] tabPoints, Integer [ ] tabOrder, int nFrom, int nTo, int nDepth )
+    {
+        if ( nTo - nFrom <= 1 )
+        {
+            return;
+        }
+        int nAxis = nDepth % NB_AXES;
+        Arrays.sort( tabOrder, nFrom, nTo, Comparator.comparingDouble( i -> tabPoints [i] [nAxis] ) );
+        int nMiddle = ( nFrom + nTo ) >>> 1;
+        build( tabPoints, tabOrder, nFrom, nMiddle, nDepth + 1 );
+        build( tabPoints, tabOrder, nMiddle + 1, nTo, nDepth + 1 );
+    }
+
+    /**
+     * Compute the bounding boxes of a subtree and of its own subtrees
+     * 
+     * @param nFrom
+     *            the first index of the subtree
+     * @param nTo
+     *            the index after the last one of the subtree
+     */
+    private void computeBoundingBox( int nFrom, int nTo )
+    {
+        if ( nFrom >= nTo )
+        {
+            return;
+        }
+        int nMiddle = ( nFrom + nTo ) >>> 1;
+        for ( int nAxis = 0; nAxis < NB_AXES; nAxis++ )
+        {
+            double dMin = Double.MAX_VALUE;
+            double dMax = -Double.MAX_VALUE;
+            for ( int i = nFrom; i < nTo; i++ )
+            {
+                dMin = Math.min( dMin, _tabCoordinates [nAxis] [i] );
+                dMax = Math.max( dMax, _tabCoordinates [nAxis] [i] );
+            }
+            _tabMin [nAxis] [nMiddle] = dMin;
+            _tabMax [nAxis] [nMiddle] = dMax;
+        }
+        computeBoundingBox( nFrom, nMiddle );
+        computeBoundingBox( nMiddle + 1, nTo );
+    }
+
+    /**
+     * Get the point of the unit sphere of a position
+     * 
+     * @param dLatitude
+     *            the latitude, in degrees
+     * @param dLongitude
+     *            the longitude, in degrees
+     * @return the coordinates x, y, z of the point
+     */
+    private static double [ ] toPoint( double dLatitude, double dLongitude )
+    {
+        double dLatitudeRadians = Math.toRadians( dLatitude );
+        double dLongitudeRadians = Math.toRadians( dLongitude );
+        return new double [ ] {
+                Math.cos( dLatitudeRadians ) * Math.cos( dLongitudeRadians ), Math.cos( dLatitudeRadians ) * Math.sin( dLongitudeRadians ),
+                Math.sin( dLatitudeRadians )
+        };
+    }
+
+    /**
+     * Get the squared straight distance between two points
+     * 
+     * @param tabPoint1
+     *            the first point
+     * @param tabPoint2
+     *            the second point
+     * @return the squared distance
+     */
+    private static double getSquaredChord( double [ ] tabPoint1, double [ ] tabPoint2 )
+    {
+        double dSum = 0;
+        for ( int nAxis = 0; nAxis < NB_AXES; nAxis++ )
+        {
+            double dDelta = tabPoint1 [nAxis] - tabPoint2 [nAxis];
+            dSum += dDelta * dDelta;
+        }
+        return dSum;
+    }
+
+    /**
+     * Get the distance on the Earth of a straight distance between two points of the unit sphere
+     * 
+     * @param dChord
+     *            the straight distance
+     * @return the distance, in kilometers
+     */
+    private static double toDistance( double dChord )
+    {
+        return 2 * EARTH_RADIUS * Math.asin( Math.min( 1, dChord / 2 ) );
+    }
+
+    /**
+     * A form and its distance to the position searched
+     */
+    public static final class Neighbor
+    {
+        private final int _nIdForm;
+        private final double _dDistance;
+
+        /**
+         * Constructor
+         * 
+         * @param nIdForm
+         *            the id of the form
+         * @param dDistance
+         *            the distance, in kilometers
+         */
+        public Neighbor( int nIdForm, double dDistance )
+        {
+            _nIdForm = nIdForm;
+            _dDistance = dDistance;
+        }
+
+        /**
+         * Get the id of the form
+         * 
+         * @return the id of the form
+         */
+        public int getIdForm( )
+        {
+            return _nIdForm;
+        }
+
+        /**
+         * Get the distance to the position searched
+         * 
+         * @return the distance, in kilometers
+         */
+        public double getDistance( )
+        {
+            return _dDistance;
+        }
+    }
+
+    /**
+     * A subtree or a point to visit, by increasing squared distance (the distance to the bounding box for a subtree)
+     */
+    private static final class Candidate
+    {
+        private final double _dSquaredDistance;
+        private final int _nFrom;
+        private final int _nTo;
+        private final boolean _bPoint;
+
+        Candidate( double dSquaredDistance, int nFrom, int nTo, boolean bPoint )
+        {
+            _dSquaredDistance = dSquaredDistance;
+            _nFrom = nFrom;
+            _nTo = nTo;
+            _bPoint = bPoint;
+        }
+    }
+
+    /**
+     * Best first traversal of the tree: a point is returned when it is nearer than all the subtrees not yet visited
+     */
+    private final class NearestIterator implements Iterator<Neighbor>
+    {
+        private final double [ ] _tabPoint;
+        private final PriorityQueue<Candidate> _queue = new PriorityQueue<>( Comparator.comparingDouble( c -> c._dSquaredDistance ) );
+
+        NearestIterator( double [ ] tabPoint )
+        {
+            _tabPoint = tabPoint;
+            addSubtree( 0, _nSize );
+        }
+
+        @Override
+        public boolean hasNext( )
+        {
+            while ( !_queue.isEmpty( ) && !_queue.peek( )._bPoint )
+            {
+                Candidate subtree = _queue.poll( );
+                int nMiddle = ( subtree._nFrom + subtree._nTo ) >>> 1;
+                double dSquaredDistance = 0;
+                for ( int nAxis = 0; nAxis < NB_AXES; nAxis++ )
+                {
+                    double dDelta = _tabCoordinates [nAxis] [nMiddle] - _tabPoint [nAxis];
+                    dSquaredDistance += dDelta * dDelta;
+                }
+                _queue.add( new Candidate( dSquaredDistance, nMiddle, nMiddle + 1, true ) );
+                addSubtree( subtree._nFrom, nMiddle );
+                addSubtree( nMiddle + 1, subtree._nTo );
+            }
+            return !_queue.isEmpty( );
+        }
+
+        @Override
+        public Neighbor next( )
+        {
+            if ( !hasNext( ) )
+            {
+                throw new NoSuchElementException( );
+            }
+            Candidate point = _queue.poll( );
+            return new Neighbor( _tabIdForm [point._nFrom], toDistance( Math.sqrt( point._dSquaredDistance ) ) );
+        }
+
+        /**
+         * Add a subtree to visit
+         * 
+         * @param nFrom
+         *            the first index of the subtree
+         * @param nTo
+         *            the index after the last one of the subtree
+         */
+        private void addSubtree( int nFrom, int nTo )
+        {
+            if ( nFrom >= nTo )
+            {
+                return;
+            }
+            int nMiddle = ( nFrom + nTo ) >>> 1;
+            double dSquaredDistance = 0;
+            for ( int nAxis = 0; nAxis < NB_AXES; nAxis++ )
+            {
+                double dCoordinate = _tabPoint [nAxis];
+                double dDelta = 0;
+                if ( dCoordinate < _tabMin [nAxis] [nMiddle] )
+                {
+                    dDelta = _tabMin [nAxis] [nMiddle] - dCoordinate;
+                }
+                else
+                    if ( dCoordinate > _tabMax [nAxis] [nMiddle] )
+                    {
+                        dDelta = dCoordinate - _tabMax [nAxis] [nMiddle];
+                    }
+                dSquaredDistance += dDelta * dDelta;
+            }
+            _queue.add( new Candidate( dSquaredDistance, nFrom, nTo, false ) );
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.localization.Localization;
+import fr.paris.lutece.plugins.appointment.business.localization.LocalizationHome;
+import fr.paris.lutece.plugins.appointment.service.FormService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Service giving the spatial index of the localizations of the active forms. The index is built once and shared by all the requests, until a form is
+ * created, changed or removed. The changes made on another node of a cluster are not notified to this node: the index is built again after the time to live.
+ */
+public final class FormSpatialIndexService
+{
+    private static final String PROPERTY_TIME_TO_LIVE = "appointment.spatialIndex.timeToLive";
+    private static final int DEFAULT_TIME_TO_LIVE = 300;
+
+    // Guarded by the class
+    private static FormSpatialIndex _index;
+    private static long _lCreationTime;
+    // Incremented on each invalidation, guarded by the class
+    private static long _lVersion;
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private FormSpatialIndexService( )
+    {
+    }
+
+    /**
+     * Get the spatial index of the localizations of the active forms
+     * 
+     * @return the index
+     */
+    public static FormSpatialIndex getIndex( )
+    {
+        long lNow = System.currentTimeMillis( );
+        long lVersion;
+        synchronized( FormSpatialIndexService.class )
+        {
+            if ( _index != null && lNow - _lCreationTime <= AppPropertiesService.getPropertyInt( PROPERTY_TIME_TO_LIVE, DEFAULT_TIME_TO_LIVE ) * 1000L )
+            {
+                return _index;
+            }
+            lVersion = _lVersion;
+        }
+        Set<Integer> setIdActiveForm = FormService.findAllActiveForms( ).stream( ).map( Form::getIdForm ).collect( Collectors.toSet( ) );
+        List<Localization> listLocalization = LocalizationHome.findAllWithCoordinates( ).stream( ).filter( l -> setIdActiveForm.contains( l.getIdForm( ) ) )
+                .collect( Collectors.toList( ) );
+        FormSpatialIndex index = new FormSpatialIndex( listLocalization );
+        synchronized( FormSpatialIndexService.class )
+        {
+            // An index built while a form was changed is not shared
+            if ( lVersion == _lVersion )
+            {
+                _index = index;
+                _lCreationTime = lNow;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Remove the index, to build it again on the next use
+     */
+    public static synchronized void invalidate( )
+    {
+        _lVersion++;
+        _index = null;
+    }
+}
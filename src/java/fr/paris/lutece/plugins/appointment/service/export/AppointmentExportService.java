@@ -60,6 +60,7 @@ import fr.paris.lutece.plugins.appointment.business.form.Form;
 import fr.paris.lutece.plugins.appointment.business.form.FormHome;
 import fr.paris.lutece.plugins.appointment.service.AppointmentResponseService;
 import fr.paris.lutece.plugins.appointment.service.Utilities;
+import fr.paris.lutece.plugins.appointment.service.cache.DirectoryCacheService;
 import fr.paris.lutece.plugins.appointment.service.entrytype.EntryTypeGroup;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
 import fr.paris.lutece.plugins.genericattributes.business.Entry;
@@ -139,10 +140,17 @@ public final class AppointmentExportService
                 stateService = SpringContextService.getBean( StateService.BEAN_SERVICE );
             }
             Map<Integer, Form> formMap = new HashMap<>( );
+            // The titles of the forms and the labels of their categories are read once for all the lines
+            Map<Integer, String> mapFormTitle = DirectoryCacheService
+                    .getFormTitles( listAppointmentsDTO.stream( ).map( AppointmentDTO::getIdForm ).collect( Collectors.toSet( ) ) );
+            Map<Integer, String> mapCategoryLabel = new HashMap<>( );
             for ( AppointmentDTO appointmentDTO : listAppointmentsDTO )
             {
                 Form form = formMap.computeIfAbsent( appointmentDTO.getIdForm( ), FormHome::findByPrimaryKey );
-                linesValues.add( createLineContent( appointmentDTO, form, defaultColumnList, listEntry, stateService, locale ) );
+                String strFormTitle = mapFormTitle.getOrDefault( appointmentDTO.getIdForm( ), form.getTitle( ) );
+                String strCategoryLabel = mapCategoryLabel.computeIfAbsent( form.getIdCategory( ), AppointmentExportService::getCategoryLabel );
+                linesValues.add(
+                        createLineContent( appointmentDTO, form, strFormTitle, strCategoryLabel, defaultColumnList, listEntry, stateService, locale ) );
             }
         }
         writeWorkbook( linesValues, excelFile, locale );
@@ -208,11 +216,11 @@ public final class AppointmentExportService
         return strInfos;
     }
 
-    private static final List<Object> createLineContent( AppointmentDTO appointmentDTO, Form form, List<String> defaultColumnList, List<Entry> listEntry,
-            StateService stateService, Locale locale )
+    private static final List<Object> createLineContent( AppointmentDTO appointmentDTO, Form form, String strFormTitle, String strCategoryLabel,
+            List<String> defaultColumnList, List<Entry> listEntry, StateService stateService, Locale locale )
     {
         List<Object> strWriter = new ArrayList<>( );
-        addDefaultColumnValues( appointmentDTO, form, defaultColumnList, strWriter, stateService, locale );
+        addDefaultColumnValues( appointmentDTO, form, strFormTitle, strCategoryLabel, defaultColumnList, strWriter, stateService, locale );
 
         List<Integer> listIdResponse = AppointmentResponseService.findListIdResponse( appointmentDTO.getIdAppointment( ) );
         List<Response> listResponses = new ArrayList<>( );
@@ -232,22 +240,16 @@ public final class AppointmentExportService
         return strWriter;
     }
 
-    private static final void addDefaultColumnValues( AppointmentDTO appointmentDTO, Form form, List<String> defaultColumnList, List<Object> strWriter,
-            StateService stateService, Locale locale )
+    private static final void addDefaultColumnValues( AppointmentDTO appointmentDTO, Form form, String strFormTitle, String strCategoryLabel,
+            List<String> defaultColumnList, List<Object> strWriter, StateService stateService, Locale locale )
     {
         if ( defaultColumnList.contains( KEY_COLUMN_FORM_CATEGORY ) )
         {
-            Category category = CategoryHome.findByPrimaryKey( form.getIdCategory( ) );
-            String catStr = "";
-            if ( category != null )
-            {
-                catStr = category.getLabel( );
-            }
-            strWriter.add( catStr );
+            strWriter.add( strCategoryLabel );
         }
         if ( defaultColumnList.contains( KEY_COLUMN_FORM_TITLE ) )
         {
-            strWriter.add( form.getTitle( ) );
+            strWriter.add( strFormTitle );
         }
         if ( defaultColumnList.contains( KEY_COLUMN_LAST_NAME ) )
         {
@@ -299,6 +301,17 @@ public final class AppointmentExportService
         }
     }
 
+    private static String getCategoryLabel( int nIdCategory )
+    {
+        Category category = CategoryHome.findByPrimaryKey( nIdCategory );
+        String catStr = "";
+        if ( category != null )
+        {
+            catStr = category.getLabel( );
+        }
+        return catStr;
+    }
+
     private static String getStatusValue( AppointmentDTO appointmentDTO, Locale locale )
     {
         String status = I18nService.getLocalizedString( AppointmentDTO.PROPERTY_APPOINTMENT_STATUS_RESERVED, locale );
@@ -39,14 +39,17 @@ import java.util.Locale;
 
 import org.apache.commons.lang3.StringUtils;
 
-import fr.paris.lutece.plugins.appointment.service.AppointmentExecutorService;
-import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.plugins.appointment.business.outbox.ListenerEvent;
 
 /**
  * Manager for appointment listeners
  * 
  * Listeners are started by another thread asynchronously. Currently we have a problem with the propagation of the BDDS transaction when launching a workflow
  * task that triggers the listener
+ * 
+ * The notifications are written in the current transaction and delivered by the ListenerEventDispatcher once it is committed. They are delivered to a
+ * single node of a cluster: the services writing the appointments update the AppointmentTextIndexService of their node themselves, once committed. The
+ * change of date of an appointment is still notified synchronously, since the messages of the listeners are displayed to the user
  */
 public final class AppointmentListenerManager
 {
@@ -66,12 +69,7 @@ public final class AppointmentListenerManager
      */
     public static void notifyListenersAppointmentRemoval( int nIdAppointment )
     {
-        AppointmentExecutorService.INSTANCE.execute( ( ) -> {
-            for ( IAppointmentListener appointmentRemovalListener : SpringContextService.getBeansOfType( IAppointmentListener.class ) )
-            {
-                appointmentRemovalListener.notifyAppointmentRemoval( nIdAppointment );
-            }
-        } );
+        ListenerEventDispatcher.publish( ListenerEvent.TYPE_APPOINTMENT_REMOVAL, nIdAppointment );
     }
 
     /**
@@ -82,15 +80,7 @@ public final class AppointmentListenerManager
      */
     public static void notifyListenersAppointmentCreated( int nIdAppointment )
     {
-        AppointmentExecutorService.INSTANCE.execute( ( ) -> {
-
-            for ( IAppointmentListener appointmentListener : SpringContextService.getBeansOfType( IAppointmentListener.class ) )
-            {
-                appointmentListener.notifyAppointmentCreated( nIdAppointment );
-            }
-
-        } );
-
+        ListenerEventDispatcher.publish( ListenerEvent.TYPE_APPOINTMENT_CREATED, nIdAppointment );
     }
 
     /**
@@ -101,12 +91,7 @@ public final class AppointmentListenerManager
      */
     public static void notifyListenersAppointmentUpdated( int nIdAppointment )
     {
-        AppointmentExecutorService.INSTANCE.execute( ( ) -> {
-            for ( IAppointmentListener appointmentListener : SpringContextService.getBeansOfType( IAppointmentListener.class ) )
-            {
-                appointmentListener.notifyAppointmentUpdated( nIdAppointment );
-            }
-        } );
+        ListenerEventDispatcher.publish( ListenerEvent.TYPE_APPOINTMENT_UPDATED, nIdAppointment );
     }
 
     /**
@@ -124,7 +109,7 @@ public final class AppointmentListenerManager
     {
         List<String> listMessages = new ArrayList<>( );
 
-        for ( IAppointmentListener appointmentRemovalListener : SpringContextService.getBeansOfType( IAppointmentListener.class ) )
+        for ( IAppointmentListener appointmentRemovalListener : ListenerRegistry.getListeners( IAppointmentListener.class ) )
         {
             String strMessage = appointmentRemovalListener.appointmentDateChanged( nIdAppointment, listIdSlot, locale );
 
@@ -145,12 +130,7 @@ public final class AppointmentListenerManager
      */
     public static void notifyListenersAppointmentFormRemoval( int nIdAppointmentForm )
     {
-        AppointmentExecutorService.INSTANCE.execute( ( ) -> {
-            for ( IAppointmentFormRemovalListener appointmentRemovalListener : SpringContextService.getBeansOfType( IAppointmentFormRemovalListener.class ) )
-            {
-                appointmentRemovalListener.notifyAppointmentFormRemoval( nIdAppointmentForm );
-            }
-        } );
+        ListenerEventDispatcher.publish( ListenerEvent.TYPE_APPOINTMENT_FORM_REMOVAL, nIdAppointmentForm );
     }
 
     /**
@@ -163,12 +143,7 @@ public final class AppointmentListenerManager
      */
     public static void notifyAppointmentWFActionTriggered( int nIdAppointment, int nIdAction )
     {
-        AppointmentExecutorService.INSTANCE.execute( ( ) -> {
-            for ( IAppointmentWorkflowActionListener appointmentListener : SpringContextService.getBeansOfType( IAppointmentWorkflowActionListener.class ) )
-            {
-                appointmentListener.notifyAppointmentWFActionTriggered( nIdAppointment, nIdAction );
-            }
-        } );
+        ListenerEventDispatcher.publishAppointmentWFAction( nIdAppointment, nIdAction );
     }
 
 }
@@ -33,8 +33,9 @@
  */
 package fr.paris.lutece.plugins.appointment.service.listeners;
 
-import fr.paris.lutece.plugins.appointment.service.AppointmentExecutorService;
-import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.plugins.appointment.service.cache.FormSnapshotService;
+import fr.paris.lutece.plugins.appointment.service.cache.FormSpatialIndexService;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlanService;
 
 public final class FormListenerManager
 {
@@ -55,12 +56,9 @@ public final class FormListenerManager
      */
     public static void notifyListenersFormCreation( int nIdForm )
     {
-        AppointmentExecutorService.INSTANCE.execute( ( ) -> {
-            for ( IFormListener formListener : SpringContextService.getBeansOfType( IFormListener.class ) )
-            {
-                formListener.notifyFormCreation( nIdForm );
-            }
-        } );
+        FormSnapshotService.invalidate( nIdForm );
+        FormSpatialIndexService.invalidate( );
+        ListenerRegistry.dispatch( IFormListener.class, listener -> listener.notifyFormCreation( nIdForm ) );
     }
 
     /**
@@ -71,12 +69,10 @@ public final class FormListenerManager
      */
     public static void notifyListenersFormChange( int nIdForm )
     {
-        AppointmentExecutorService.INSTANCE.execute( ( ) -> {
-            for ( IFormListener formListener : SpringContextService.getBeansOfType( IFormListener.class ) )
-            {
-                formListener.notifyFormChange( nIdForm );
-            }
-        } );
+        FormSnapshotService.invalidate( nIdForm );
+        FormSchedulePlanService.invalidate( nIdForm );
+        FormSpatialIndexService.invalidate( );
+        ListenerRegistry.dispatch( IFormListener.class, listener -> listener.notifyFormChange( nIdForm ) );
     }
 
     /**
@@ -87,12 +83,10 @@ public final class FormListenerManager
      */
     public static void notifyListenersFormRemoval( int nIdForm )
     {
-        AppointmentExecutorService.INSTANCE.execute( ( ) -> {
-            for ( IFormListener formListener : SpringContextService.getBeansOfType( IFormListener.class ) )
-            {
-                formListener.notifyFormRemoval( nIdForm );
-            }
-        } );
+        FormSnapshotService.invalidate( nIdForm );
+        FormSchedulePlanService.invalidate( nIdForm );
+        FormSpatialIndexService.invalidate( );
+        ListenerRegistry.dispatch( IFormListener.class, listener -> listener.notifyFormRemoval( nIdForm ) );
     }
 
 }
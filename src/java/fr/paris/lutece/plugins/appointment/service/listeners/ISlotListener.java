@@ -34,6 +34,7 @@
 package fr.paris.lutece.plugins.appointment.service.listeners;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
 
@@ -62,6 +63,34 @@ public interface ISlotListener
      */
     void notifySlotCreation( int nIdSlot );
 
+    /**
+     * Notify the listener that a list of slots has been changed at once (bulk change over a period). By default, the listener is notified for each slot
+     * 
+     * @param listIdSlot
+     *            the ids of the slots
+     */
+    default void notifyListSlotChange( List<Integer> listIdSlot )
+    {
+        for ( int nIdSlot : listIdSlot )
+        {
+            notifySlotChange( nIdSlot );
+        }
+    }
+
+    /**
+     * Notify the listener that a list of slots has been created at once (bulk creation over a period). By default, the listener is notified for each slot
+     * 
+     * @param listIdSlot
+     *            the ids of the slots
+     */
+    default void notifyListSlotCreation( List<Integer> listIdSlot )
+    {
+        for ( int nIdSlot : listIdSlot )
+        {
+            notifySlotCreation( nIdSlot );
+        }
+    }
+
     /**
      * Notify the listener that a slot has been deleted
      * 
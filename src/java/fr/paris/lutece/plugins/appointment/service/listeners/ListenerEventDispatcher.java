@@ -0,0 +1,588 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.listeners;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import fr.paris.lutece.plugins.appointment.business.outbox.ListenerEvent;
+import fr.paris.lutece.plugins.appointment.business.outbox.ListenerEventHome;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Dispatcher of the listener events (outbox). The events are written in the appointment_listener_event table in the transaction of the change, and delivered
+ * to the listeners by a single thread once committed: an event of a transaction rolled back is never delivered, and the events not yet delivered survive a
+ * restart.
+ * 
+ * The events are read by batches. In a batch, the changes of the same slot are coalesced and the slots changed or created are given to the listeners in one
+ * call, made in the lane of each listener (see ListenerRegistry). When a listener fails, the events of the batch with the same type are delivered again later,
+ * to all the listeners: the delivery is "at least once".
+ * The events still failing after the max number of attempts are logged and dropped.
+ */
+public final class ListenerEventDispatcher
+{
+    private static final String PROPERTY_POLL_INTERVAL = "appointment.listenerEvent.dispatcher.pollInterval";
+    private static final String PROPERTY_BATCH_SIZE = "appointment.listenerEvent.dispatcher.batchSize";
+    private static final String PROPERTY_LEASE = "appointment.listenerEvent.dispatcher.lease";
+    private static final String PROPERTY_MAX_ATTEMPTS = "appointment.listenerEvent.dispatcher.maxAttempts";
+    private static final String PROPERTY_RETRY_DELAY = "appointment.listenerEvent.dispatcher.retryDelay";
+    private static final long DEFAULT_POLL_INTERVAL = 500;
+    private static final int DEFAULT_BATCH_SIZE = 200;
+    private static final int DEFAULT_LEASE = 60;
+    private static final int DEFAULT_MAX_ATTEMPTS = 10;
+    private static final int DEFAULT_RETRY_DELAY = 30;
+    private static final int PUBLISH_CHUNK_SIZE = 500;
+    private static final String THREAD_NAME_PREFIX = "Lutece-AppointmentListenerEventDispatcher-thread-";
+
+    // Fields of the data of the events
+    private static final String DATA_ID_FORM = "idForm";
+    private static final String DATA_STARTING_DATE_TIME = "startingDateTime";
+    private static final String DATA_ENDING_DATE_TIME = "endingDateTime";
+    private static final String DATA_IS_OPEN = "isOpen";
+    private static final String DATA_IS_SPECIFIC = "isSpecific";
+    private static final String DATA_MAX_CAPACITY = "maxCapacity";
+    private static final String DATA_NB_REMAINING_PLACES = "nbRemainingPlaces";
+    private static final String DATA_NB_POTENTIAL_REMAINING_PLACES = "nbPotentialRemainingPlaces";
+    private static final String DATA_NB_PLACES_TAKEN = "nbPlacesTaken";
+    private static final String DATA_ID_ACTION = "idAction";
+    private static final ObjectMapper _mapper = new ObjectMapper( );
+
+    private final long _lPollInterval = AppPropertiesService.getPropertyLong( PROPERTY_POLL_INTERVAL, DEFAULT_POLL_INTERVAL );
+    private final int _nBatchSize = AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE );
+    private final int _nLease = AppPropertiesService.getPropertyInt( PROPERTY_LEASE, DEFAULT_LEASE );
+    private final int _nMaxAttempts = AppPropertiesService.getPropertyInt( PROPERTY_MAX_ATTEMPTS, DEFAULT_MAX_ATTEMPTS );
+    private final int _nRetryDelay = AppPropertiesService.getPropertyInt( PROPERTY_RETRY_DELAY, DEFAULT_RETRY_DELAY );
+    private ScheduledExecutorService _executor;
+
+    // Metrics
+    private final AtomicLong _lNbDelivered = new AtomicLong( );
+    private final AtomicLong _lNbCoalesced = new AtomicLong( );
+    private final AtomicLong _lNbRetried = new AtomicLong( );
+    private final AtomicLong _lNbDropped = new AtomicLong( );
+    private volatile long _lLastLatency;
+    private volatile long _lMaxLatency;
+
+    /**
+     * Holder of the instance of the application
+     */
+    private static final class InstanceHolder
+    {
+        private static final ListenerEventDispatcher INSTANCE = new ListenerEventDispatcher( );
+    }
+
+    /**
+     * Private constructor
+     */
+    private ListenerEventDispatcher( )
+    {
+    }
+
+    /**
+     * Get the dispatcher of the application
+     * 
+     * @return the dispatcher
+     */
+    public static ListenerEventDispatcher getInstance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Write an event, in the current transaction if any
+     * 
+     * @param strEventType
+     *            the type of the event
+     * @param nIdResource
+     *            the id of the slot or of the appointment
+     */
+    public static void publish( String strEventType, int nIdResource )
+    {
+        ListenerEventHome.create( new ListenerEvent( strEventType, nIdResource ) );
+    }
+
+    /**
+     * Write the removal of a slot, in the current transaction if any. The slot is kept in the event since it no longer exists when the event is delivered
+     * 
+     * @param slot
+     *            the slot removed
+     */
+    public static void publishSlotRemoval( Slot slot )
+    {
+        ObjectNode node = _mapper.createObjectNode( );
+        node.put( DATA_ID_FORM, slot.getIdForm( ) );
+        node.put( DATA_STARTING_DATE_TIME, slot.getStartingDateTime( ).toString( ) );
+        node.put( DATA_ENDING_DATE_TIME, slot.getEndingDateTime( ).toString( ) );
+        node.put( DATA_IS_OPEN, slot.getIsOpen( ) );
+        node.put( DATA_IS_SPECIFIC, slot.getIsSpecific( ) );
+        node.put( DATA_MAX_CAPACITY, slot.getMaxCapacity( ) );
+        node.put( DATA_NB_REMAINING_PLACES, slot.getNbRemainingPlaces( ) );
+        node.put( DATA_NB_POTENTIAL_REMAINING_PLACES, slot.getNbPotentialRemainingPlaces( ) );
+        node.put( DATA_NB_PLACES_TAKEN, slot.getNbPlacesTaken( ) );
+        ListenerEventHome.create( new ListenerEvent( ListenerEvent.TYPE_SLOT_REMOVAL, slot.getIdSlot( ), write( node ) ) );
+    }
+
+    /**
+     * Write the change of the ending time of a slot, in the current transaction if any
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nIdForm
+     *            the id of the form
+     * @param endingDateTime
+     *            the new ending date time
+     */
+    public static void publishSlotEndingTimeChanged( int nIdSlot, int nIdForm, LocalDateTime endingDateTime )
+    {
+        ObjectNode node = _mapper.createObjectNode( );
+        node.put( DATA_ID_FORM, nIdForm );
+        node.put( DATA_ENDING_DATE_TIME, endingDateTime.toString( ) );
+        ListenerEventHome.create( new ListenerEvent( ListenerEvent.TYPE_SLOT_ENDING_TIME_CHANGED, nIdSlot, write( node ) ) );
+    }
+
+    /**
+     * Write a workflow action triggered on an appointment, in the current transaction if any
+     * 
+     * @param nIdAppointment
+     *            the id of the appointment
+     * @param nIdAction
+     *            the id of the action
+     */
+    public static void publishAppointmentWFAction( int nIdAppointment, int nIdAction )
+    {
+        ObjectNode node = _mapper.createObjectNode( );
+        node.put( DATA_ID_ACTION, nIdAction );
+        ListenerEventHome.create( new ListenerEvent( ListenerEvent.TYPE_APPOINTMENT_WF_ACTION, nIdAppointment, write( node ) ) );
+    }
+
+    /**
+     * Write the events of a list of resources with one statement per chunk of 500 events, in the current transaction if any
+     * 
+     * @param strEventType
+     *            the type of the events
+     * @param listIdResource
+     *            the ids of the slots or of the appointments
+     */
+    public static void publish( String strEventType, List<Integer> listIdResource )
+    {
+        for ( int nFrom = 0; nFrom < listIdResource.size( ); nFrom += PUBLISH_CHUNK_SIZE )
+        {
+            ListenerEventHome.createList( listIdResource.subList( nFrom, Math.min( nFrom + PUBLISH_CHUNK_SIZE, listIdResource.size( ) ) ).stream( )
+                    .map( nIdResource -> new ListenerEvent( strEventType, nIdResource ) ).collect( Collectors.toList( ) ) );
+        }
+    }
+
+    /**
+     * Start the delivery thread
+     */
+    public synchronized void start( )
+    {
+        if ( _executor == null )
+        {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory( THREAD_NAME_PREFIX );
+            threadFactory.setDaemon( true );
+            _executor = Executors.newSingleThreadScheduledExecutor( threadFactory );
+            _executor.scheduleWithFixedDelay( this::run, _lPollInterval, _lPollInterval, TimeUnit.MILLISECONDS );
+        }
+    }
+
+    /**
+     * Stop the delivery thread. The events not yet delivered stay in database until the next start
+     */
+    public synchronized void shutdown( )
+    {
+        if ( _executor != null )
+        {
+            _executor.shutdown( );
+            try
+            {
+                if ( !_executor.awaitTermination( 10, TimeUnit.SECONDS ) )
+                {
+                    _executor.shutdownNow( );
+                }
+            }
+            catch( InterruptedException e )
+            {
+                AppLogService.error( e.getMessage( ), e );
+                _executor.shutdownNow( );
+                Thread.currentThread( ).interrupt( );
+            }
+            _executor = null;
+        }
+    }
+
+    /**
+     * Deliver all the events ready
+     * 
+     * @return the number of events processed (delivered, postponed or dropped)
+     */
+    public int drain( )
+    {
+        int nbProcessed = 0;
+        int nbProcessedInBatch;
+        do
+        {
+            nbProcessedInBatch = dispatchBatch( );
+            nbProcessed += nbProcessedInBatch;
+        }
+        while ( nbProcessedInBatch >= _nBatchSize && !Thread.currentThread( ).isInterrupted( ) );
+        return nbProcessed;
+    }
+
+    /**
+     * Get the number of events not yet delivered
+     * 
+     * @return the queue depth
+     */
+    public int getQueueDepth( )
+    {
+        return ListenerEventHome.count( );
+    }
+
+    /**
+     * Get the delay between the oldest change of the last batch and its delivery
+     * 
+     * @return the latency in milliseconds
+     */
+    public long getLastLatency( )
+    {
+        return _lLastLatency;
+    }
+
+    /**
+     * Get the max delay between a change and its delivery since the start of the application
+     * 
+     * @return the latency in milliseconds
+     */
+    public long getMaxLatency( )
+    {
+        return _lMaxLatency;
+    }
+
+    /**
+     * Get the number of events delivered since the start of the application
+     * 
+     * @return the number of events delivered
+     */
+    public long getNbDelivered( )
+    {
+        return _lNbDelivered.get( );
+    }
+
+    /**
+     * Get the number of slot changes merged with another change of the same slot
+     * 
+     * @return the number of events coalesced
+     */
+    public long getNbCoalesced( )
+    {
+        return _lNbCoalesced.get( );
+    }
+
+    /**
+     * Get the number of events postponed after a failed delivery
+     * 
+     * @return the number of events retried
+     */
+    public long getNbRetried( )
+    {
+        return _lNbRetried.get( );
+    }
+
+    /**
+     * Get the number of events dropped after the max number of attempts
+     * 
+     * @return the number of events dropped
+     */
+    public long getNbDropped( )
+    {
+        return _lNbDropped.get( );
+    }
+
+    /**
+     * Task of the delivery thread
+     */
+    private void run( )
+    {
+        try
+        {
+            drain( );
+        }
+        catch( Exception e )
+        {
+            // The events stay in database, they will be delivered at the next run
+            AppLogService.error( "Error delivering the listener events " + e.getMessage( ), e );
+        }
+    }
+
+    /**
+     * Claim and deliver a batch of events
+     * 
+     * @return the number of events processed
+     */
+    private int dispatchBatch( )
+    {
+        LocalDateTime now = LocalDateTime.now( );
+        List<Integer> listIdEvent = ListenerEventHome.findIdReady( now, _nBatchSize );
+        if ( listIdEvent.isEmpty( ) )
+        {
+            return 0;
+        }
+        String strClaimToken = UUID.randomUUID( ).toString( );
+        if ( ListenerEventHome.claim( listIdEvent, strClaimToken, now, now.plusSeconds( _nLease ) ) == 0 )
+        {
+            // Claimed by another dispatcher
+            return listIdEvent.size( );
+        }
+
+        Map<String, List<ListenerEvent>> mapEventsByType = new LinkedHashMap<>( );
+        for ( ListenerEvent event : ListenerEventHome.findByClaimToken( strClaimToken ) )
+        {
+            mapEventsByType.computeIfAbsent( event.getEventType( ), t -> new ArrayList<>( ) ).add( event );
+        }
+        List<ListenerEvent> listEventDelivered = new ArrayList<>( );
+        List<ListenerEvent> listEventFailed = new ArrayList<>( );
+        for ( Map.Entry<String, List<ListenerEvent>> entry : mapEventsByType.entrySet( ) )
+        {
+            if ( deliver( entry.getKey( ), entry.getValue( ) ) )
+            {
+                listEventDelivered.addAll( entry.getValue( ) );
+            }
+            else
+            {
+                listEventFailed.addAll( entry.getValue( ) );
+            }
+        }
+        ListenerEventHome.deleteList( listEventDelivered.stream( ).map( ListenerEvent::getIdEvent ).collect( Collectors.toList( ) ) );
+        postpone( listEventFailed );
+
+        if ( !listEventDelivered.isEmpty( ) )
+        {
+            LocalDateTime oldestDateTime = listEventDelivered.stream( ).map( ListenerEvent::getCreationDateTime ).min( LocalDateTime::compareTo ).orElse( now );
+            long lLatency = Math.max( 0, Duration.between( oldestDateTime, LocalDateTime.now( ) ).toMillis( ) );
+            _lLastLatency = lLatency;
+            _lMaxLatency = Math.max( _lMaxLatency, lLatency );
+            _lNbDelivered.addAndGet( listEventDelivered.size( ) );
+        }
+        AppLogService.debug( "Listener events: " + listEventDelivered.size( ) + " delivered, " + listEventFailed.size( ) + " failed, latency "
+                + _lLastLatency + " ms" );
+        return listIdEvent.size( );
+    }
+
+    /**
+     * Deliver the events of a type to the listeners
+     * 
+     * @param strEventType
+     *            the type of the events
+     * @param listEvent
+     *            the events, in the order of their creation
+     * @return true if all the listeners have been notified, false if one of them has failed or is late
+     */
+    private boolean deliver( String strEventType, List<ListenerEvent> listEvent )
+    {
+        List<Integer> listIdResource = listEvent.stream( ).map( ListenerEvent::getIdResource ).distinct( ).collect( Collectors.toList( ) );
+        // The listeners must be done before the end of the lease, otherwise the events could be delivered by another node at the same time
+        long lTimeout = TimeUnit.SECONDS.toMillis( _nLease ) / 2;
+        switch( strEventType )
+        {
+            case ListenerEvent.TYPE_SLOT_CHANGE:
+                _lNbCoalesced.addAndGet( (long) listEvent.size( ) - listIdResource.size( ) );
+                return ListenerRegistry.deliver( ISlotListener.class, listener -> listener.notifyListSlotChange( listIdResource ), lTimeout );
+            case ListenerEvent.TYPE_SLOT_CREATION:
+                return ListenerRegistry.deliver( ISlotListener.class, listener -> listener.notifyListSlotCreation( listIdResource ), lTimeout );
+            case ListenerEvent.TYPE_APPOINTMENT_CREATED:
+                return ListenerRegistry.deliver( IAppointmentListener.class,
+                        listener -> listEvent.forEach( event -> listener.notifyAppointmentCreated( event.getIdResource( ) ) ), lTimeout );
+            case ListenerEvent.TYPE_APPOINTMENT_UPDATED:
+                return ListenerRegistry.deliver( IAppointmentListener.class,
+                        listener -> listEvent.forEach( event -> listener.notifyAppointmentUpdated( event.getIdResource( ) ) ), lTimeout );
+            case ListenerEvent.TYPE_APPOINTMENT_REMOVAL:
+                return ListenerRegistry.deliver( IAppointmentListener.class,
+                        listener -> listEvent.forEach( event -> listener.notifyAppointmentRemoval( event.getIdResource( ) ) ), lTimeout );
+            case ListenerEvent.TYPE_APPOINTMENT_FORM_REMOVAL:
+                return ListenerRegistry.deliver( IAppointmentFormRemovalListener.class,
+                        listener -> listIdResource.forEach( listener::notifyAppointmentFormRemoval ), lTimeout );
+            case ListenerEvent.TYPE_SLOT_REMOVAL:
+            case ListenerEvent.TYPE_SLOT_ENDING_TIME_CHANGED:
+            case ListenerEvent.TYPE_APPOINTMENT_WF_ACTION:
+                return deliverWithData( strEventType, listEvent, lTimeout );
+            default:
+                AppLogService.error( "Unknown type of listener event " + strEventType + ", the events are dropped" );
+                return true;
+        }
+    }
+
+    /**
+     * Deliver the events of a type whose data must be read first. The events whose data can not be read are logged and dropped
+     * 
+     * @param strEventType
+     *            the type of the events
+     * @param listEvent
+     *            the events, in the order of their creation
+     * @param lTimeout
+     *            the max time given to each listener, in milliseconds
+     * @return true if all the listeners have been notified, false if one of them has failed or is late
+     */
+    private boolean deliverWithData( String strEventType, List<ListenerEvent> listEvent, long lTimeout )
+    {
+        Map<ListenerEvent, JsonNode> mapData = new LinkedHashMap<>( );
+        for ( ListenerEvent event : listEvent )
+        {
+            try
+            {
+                mapData.put( event, _mapper.readTree( event.getData( ) ) );
+            }
+            catch( IOException | RuntimeException e )
+            {
+                AppLogService.error( "Listener event " + strEventType + " of resource " + event.getIdResource( ) + " dropped, its data can not be read: "
+                        + event.getData( ), e );
+            }
+        }
+        switch( strEventType )
+        {
+            case ListenerEvent.TYPE_SLOT_REMOVAL:
+                return ListenerRegistry.deliver( ISlotListener.class,
+                        listener -> mapData.forEach( ( event, node ) -> listener.notifySlotRemoval( readSlot( event.getIdResource( ), node ) ) ), lTimeout );
+            case ListenerEvent.TYPE_SLOT_ENDING_TIME_CHANGED:
+                return ListenerRegistry.deliver( ISlotListener.class,
+                        listener -> mapData.forEach( ( event, node ) -> listener.notifySlotEndingTimeHasChanged( event.getIdResource( ),
+                                node.get( DATA_ID_FORM ).asInt( ), LocalDateTime.parse( node.get( DATA_ENDING_DATE_TIME ).asText( ) ) ) ),
+                        lTimeout );
+            default:
+                return ListenerRegistry.deliver( IAppointmentWorkflowActionListener.class,
+                        listener -> mapData.forEach( ( event, node ) -> listener.notifyAppointmentWFActionTriggered( event.getIdResource( ),
+                                node.get( DATA_ID_ACTION ).asInt( ) ) ),
+                        lTimeout );
+        }
+    }
+
+    /**
+     * Build the slot of a removal event
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param node
+     *            the data of the event
+     * @return the slot
+     */
+    private static Slot readSlot( int nIdSlot, JsonNode node )
+    {
+        Slot slot = new Slot( );
+        slot.setIdSlot( nIdSlot );
+        slot.setIdForm( node.get( DATA_ID_FORM ).asInt( ) );
+        slot.setStartingDateTime( LocalDateTime.parse( node.get( DATA_STARTING_DATE_TIME ).asText( ) ) );
+        slot.setEndingDateTime( LocalDateTime.parse( node.get( DATA_ENDING_DATE_TIME ).asText( ) ) );
+        slot.setIsOpen( node.get( DATA_IS_OPEN ).asBoolean( ) );
+        slot.setIsSpecific( node.get( DATA_IS_SPECIFIC ).asBoolean( ) );
+        slot.setMaxCapacity( node.get( DATA_MAX_CAPACITY ).asInt( ) );
+        slot.setNbRemainingPlaces( node.get( DATA_NB_REMAINING_PLACES ).asInt( ) );
+        slot.setNbPotentialRemainingPlaces( node.get( DATA_NB_POTENTIAL_REMAINING_PLACES ).asInt( ) );
+        slot.setNbPlacestaken( node.get( DATA_NB_PLACES_TAKEN ).asInt( ) );
+        return slot;
+    }
+
+    /**
+     * Write the data of an event
+     * 
+     * @param node
+     *            the data
+     * @return the JSON
+     */
+    private static String write( ObjectNode node )
+    {
+        try
+        {
+            return _mapper.writeValueAsString( node );
+        }
+        catch( JsonProcessingException e )
+        {
+            throw new AppException( "Error while writing the data of a listener event", e );
+        }
+    }
+
+    /**
+     * Postpone the events whose delivery failed, or drop them if they have reached the max number of attempts
+     * 
+     * @param listEventFailed
+     *            the events whose delivery failed
+     */
+    private void postpone( List<ListenerEvent> listEventFailed )
+    {
+        Map<Integer, List<Integer>> mapIdEventByAttempts = new LinkedHashMap<>( );
+        List<Integer> listIdEventDropped = new ArrayList<>( );
+        for ( ListenerEvent event : listEventFailed )
+        {
+            int nAttempts = event.getNbAttempts( ) + 1;
+            if ( nAttempts >= _nMaxAttempts )
+            {
+                AppLogService.error( "Listener event " + event.getEventType( ) + " of resource " + event.getIdResource( ) + " dropped after " + nAttempts
+                        + " attempts" );
+                listIdEventDropped.add( event.getIdEvent( ) );
+            }
+            else
+            {
+                mapIdEventByAttempts.computeIfAbsent( nAttempts, n -> new ArrayList<>( ) ).add( event.getIdEvent( ) );
+            }
+        }
+        ListenerEventHome.deleteList( listIdEventDropped );
+        _lNbDropped.addAndGet( listIdEventDropped.size( ) );
+        LocalDateTime now = LocalDateTime.now( );
+        for ( Map.Entry<Integer, List<Integer>> entry : mapIdEventByAttempts.entrySet( ) )
+        {
+            // The delay grows with the number of attempts
+            ListenerEventHome.postpone( entry.getValue( ), now.plusSeconds( (long) _nRetryDelay * entry.getKey( ) ) );
+            _lNbRetried.addAndGet( entry.getValue( ).size( ) );
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.listeners;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * Lane of a listener: the notifications of the listener are run one after another by a thread of its own, so that a slow or failing listener does not delay
+ * the other ones. The queue of the lane is bounded (the notifications beyond are rejected) and a notification running longer than the timeout is interrupted.
+ */
+public final class ListenerLane
+{
+    private static final String THREAD_NAME_PREFIX = "Lutece-AppointmentListener-";
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor( buildThreadFactory( "Watchdog-" ) );
+
+    private final Object _listener;
+    private final String _strName;
+    private final long _lTimeout;
+    private final ThreadPoolExecutor _executor;
+
+    // Metrics
+    private final AtomicLong _lNbCalls = new AtomicLong( );
+    private final AtomicLong _lNbErrors = new AtomicLong( );
+    private final AtomicLong _lNbTimeouts = new AtomicLong( );
+    private final AtomicLong _lNbRejected = new AtomicLong( );
+    private final AtomicLong _lTotalLatency = new AtomicLong( );
+    private volatile long _lMaxLatency;
+
+    /**
+     * Constructor
+     * 
+     * @param listener
+     *            the listener
+     * @param nQueueSize
+     *            the max number of notifications waiting in the lane
+     * @param lTimeout
+     *            the max duration of a notification, in milliseconds
+     */
+    public ListenerLane( Object listener, int nQueueSize, long lTimeout )
+    {
+        _listener = listener;
+        _strName = listener.getClass( ).getName( );
+        _lTimeout = lTimeout;
+        _executor = new ThreadPoolExecutor( 1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>( Math.max( 1, nQueueSize ) ),
+                buildThreadFactory( listener.getClass( ).getSimpleName( ) + "-" ) );
+    }
+
+    /**
+     * Get the listener of the lane
+     * 
+     * @return the listener
+     */
+    public Object getListener( )
+    {
+        return _listener;
+    }
+
+    /**
+     * Get the name of the lane (the class of the listener)
+     * 
+     * @return the name
+     */
+    public String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * Queue a notification in the lane
+     * 
+     * @param notification
+     *            the notification
+     * @return the future of the notification, completed exceptionally if the notification has been rejected
+     */
+    public Future<?> submit( Runnable notification )
+    {
+        try
+        {
+            return _executor.submit( ( ) -> run( notification ) );
+        }
+        catch( RejectedExecutionException e )
+        {
+            _lNbRejected.incrementAndGet( );
+            AppLogService.error( "Notification of the listener " + _strName + " rejected, " + _executor.getQueue( ).size( ) + " notifications waiting" );
+            CompletableFuture<Void> future = new CompletableFuture<>( );
+            future.completeExceptionally( e );
+            return future;
+        }
+    }
+
+    /**
+     * Stop the lane, the notifications waiting are discarded
+     */
+    public void shutdown( )
+    {
+        _executor.shutdownNow( );
+    }
+
+    /**
+     * Get the number of notifications waiting in the lane
+     * 
+     * @return the queue size
+     */
+    public int getQueueSize( )
+    {
+        return _executor.getQueue( ).size( );
+    }
+
+    /**
+     * Get the number of notifications run
+     * 
+     * @return the number of calls
+     */
+    public long getNbCalls( )
+    {
+        return _lNbCalls.get( );
+    }
+
+    /**
+     * Get the number of notifications failed
+     * 
+     * @return the number of errors
+     */
+    public long getNbErrors( )
+    {
+        return _lNbErrors.get( );
+    }
+
+    /**
+     * Get the number of notifications interrupted after the timeout
+     * 
+     * @return the number of timeouts
+     */
+    public long getNbTimeouts( )
+    {
+        return _lNbTimeouts.get( );
+    }
+
+    /**
+     * Get the number of notifications rejected because the queue was full
+     * 
+     * @return the number of notifications rejected
+     */
+    public long getNbRejected( )
+    {
+        return _lNbRejected.get( );
+    }
+
+    /**
+     * Get the average duration of a notification
+     * 
+     * @return the latency in milliseconds
+     */
+    public long getAverageLatency( )
+    {
+        long lNbCalls = _lNbCalls.get( );
+        return lNbCalls == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis( _lTotalLatency.get( ) / lNbCalls );
+    }
+
+    /**
+     * Get the max duration of a notification
+     * 
+     * @return the latency in milliseconds
+     */
+    public long getMaxLatency( )
+    {
+        return TimeUnit.NANOSECONDS.toMillis( _lMaxLatency );
+    }
+
+    /**
+     * Run a notification in the thread of the lane, under the watch of the timeout
+     * 
+     * @param notification
+     *            the notification
+     */
+    private void run( Runnable notification )
+    {
+        long lStart = System.nanoTime( );
+        Thread worker = Thread.currentThread( );
+        AtomicBoolean bRunning = new AtomicBoolean( true );
+        ScheduledFuture<?> timeout = WATCHDOG.schedule( ( ) -> interruptIfRunning( worker, bRunning ), _lTimeout, TimeUnit.MILLISECONDS );
+        try
+        {
+            notification.run( );
+        }
+        catch( RuntimeException e )
+        {
+            _lNbErrors.incrementAndGet( );
+            AppLogService.error( "Error notifying the listener " + _strName + " " + e.getMessage( ), e );
+            throw e;
+        }
+        finally
+        {
+            synchronized( bRunning )
+            {
+                bRunning.set( false );
+            }
+            timeout.cancel( false );
+            // Clear the interruption of a timeout, the next notification must not be affected
+            Thread.interrupted( );
+            long lLatency = System.nanoTime( ) - lStart;
+            _lNbCalls.incrementAndGet( );
+            _lTotalLatency.addAndGet( lLatency );
+            _lMaxLatency = Math.max( _lMaxLatency, lLatency );
+        }
+    }
+
+    /**
+     * Interrupt the thread of the lane if the notification is still running
+     * 
+     * @param worker
+     *            the thread of the lane
+     * @param bRunning
+     *            true while the notification is running
+     */
+    private void interruptIfRunning( Thread worker, AtomicBoolean bRunning )
+    {
+        synchronized( bRunning )
+        {
+            if ( bRunning.get( ) )
+            {
+                _lNbTimeouts.incrementAndGet( );
+                AppLogService.error( "Notification of the listener " + _strName + " still running after " + _lTimeout + " ms, interrupted" );
+                worker.interrupt( );
+            }
+        }
+    }
+
+    /**
+     * Build the factory of the daemon threads of the lanes
+     * 
+     * @param strName
+     *            the name of the threads
+     * @return the thread factory
+     */
+    private static CustomizableThreadFactory buildThreadFactory( String strName )
+    {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory( THREAD_NAME_PREFIX + strName );
+        threadFactory.setDaemon( true );
+        return threadFactory;
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.listeners;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Registry of the listeners of the plugin. The listener beans are resolved once, at the init of the plugin, and resolved again when the Spring context is
+ * refreshed or a plugin is installed or uninstalled. Each listener has its own lane (see ListenerLane), shared by all the listener interfaces it implements.
+ * Once the registry is shut down, no lane is created anymore: the notifications dispatched are run in the current thread, and the deliveries are refused so
+ * that the events stay in the outbox.
+ */
+public final class ListenerRegistry
+{
+    private static final String PROPERTY_LANE_QUEUE_SIZE = "appointment.listener.lane.queueSize";
+    private static final String PROPERTY_LANE_TIMEOUT = "appointment.listener.lane.timeout";
+    private static final int DEFAULT_LANE_QUEUE_SIZE = 1000;
+    private static final long DEFAULT_LANE_TIMEOUT = 30000;
+    private static final List<Class<?>> LISTENER_TYPES = Arrays.asList( ISlotListener.class, IAppointmentListener.class, IAppointmentFormRemovalListener.class,
+            IAppointmentWorkflowActionListener.class, IFormListener.class, IWeekDefinitionListener.class );
+
+    private static final Map<Class<?>, List<ListenerLane>> _mapLanesByType = new ConcurrentHashMap<>( );
+    // Guarded by the class
+    private static final Map<Object, ListenerLane> _mapLanesByListener = new IdentityHashMap<>( );
+    // Written under the lock of the class
+    private static volatile boolean _bShutdown;
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private ListenerRegistry( )
+    {
+    }
+
+    /**
+     * Resolve the listeners and refresh them on the plugin events
+     */
+    public static void init( )
+    {
+        restart( );
+        PluginService.registerPluginEventListener( event -> refresh( ) );
+    }
+
+    /**
+     * Resolve the listeners again after a shutdown
+     */
+    static synchronized void restart( )
+    {
+        _bShutdown = false;
+        refresh( );
+    }
+
+    /**
+     * Resolve again all the listeners. The lanes of the listeners still present are kept, the other ones are stopped
+     */
+    public static synchronized void refresh( )
+    {
+        if ( _bShutdown )
+        {
+            return;
+        }
+        Set<Class<?>> setTypes = new LinkedHashSet<>( LISTENER_TYPES );
+        setTypes.addAll( _mapLanesByType.keySet( ) );
+        Map<Object, ListenerLane> mapLanesInUse = new IdentityHashMap<>( );
+        Map<Class<?>, List<ListenerLane>> mapLanesByType = new HashMap<>( );
+        for ( Class<?> type : setTypes )
+        {
+            mapLanesByType.put( type, resolve( type, mapLanesInUse ) );
+        }
+        _mapLanesByType.putAll( mapLanesByType );
+        for ( Map.Entry<Object, ListenerLane> entry : _mapLanesByListener.entrySet( ) )
+        {
+            if ( !mapLanesInUse.containsKey( entry.getKey( ) ) )
+            {
+                entry.getValue( ).shutdown( );
+            }
+        }
+        _mapLanesByListener.clear( );
+        _mapLanesByListener.putAll( mapLanesInUse );
+    }
+
+    /**
+     * Stop all the lanes
+     */
+    public static synchronized void shutdown( )
+    {
+        _bShutdown = true;
+        _mapLanesByListener.values( ).forEach( ListenerLane::shutdown );
+        _mapLanesByListener.clear( );
+        _mapLanesByType.clear( );
+    }
+
+    /**
+     * Get the listeners of a type, to be called in the current thread
+     * 
+     * @param type
+     *            the interface of the listeners
+     * @param <T>
+     *            the type of the listeners
+     * @return the listeners
+     */
+    public static <T> List<T> getListeners( Class<T> type )
+    {
+        if ( _bShutdown )
+        {
+            return SpringContextService.getBeansOfType( type );
+        }
+        return getLanes( type ).stream( ).map( lane -> type.cast( lane.getListener( ) ) ).collect( Collectors.toList( ) );
+    }
+
+    /**
+     * Notify the listeners of a type, each one in its lane, without waiting. Once the registry is shut down, the listeners are notified in the current thread
+     * 
+     * @param type
+     *            the interface of the listeners
+     * @param notification
+     *            the notification of a listener
+     * @param <T>
+     *            the type of the listeners
+     */
+    public static <T> void dispatch( Class<T> type, Consumer<T> notification )
+    {
+        if ( _bShutdown )
+        {
+            runInline( type, notification );
+            return;
+        }
+        for ( ListenerLane lane : getLanes( type ) )
+        {
+            lane.submit( ( ) -> notification.accept( type.cast( lane.getListener( ) ) ) );
+        }
+    }
+
+    /**
+     * Notify the listeners of a type, each one in its lane, and wait for the notifications
+     * 
+     * @param type
+     *            the interface of the listeners
+     * @param notification
+     *            the notification of a listener
+     * @param lTimeout
+     *            the max time to wait for the listeners, in milliseconds
+     * @param <T>
+     *            the type of the listeners
+     * @return true if all the listeners have been notified, false if one of them has failed or is late, or if the registry is shut down
+     */
+    public static <T> boolean deliver( Class<T> type, Consumer<T> notification, long lTimeout )
+    {
+        if ( _bShutdown )
+        {
+            return false;
+        }
+        List<Future<?>> listFuture = new ArrayList<>( );
+        for ( ListenerLane lane : getLanes( type ) )
+        {
+            listFuture.add( lane.submit( ( ) -> notification.accept( type.cast( lane.getListener( ) ) ) ) );
+        }
+        long lDeadline = System.nanoTime( ) + TimeUnit.MILLISECONDS.toNanos( lTimeout );
+        boolean bDelivered = true;
+        for ( Future<?> future : listFuture )
+        {
+            try
+            {
+                future.get( Math.max( 0, lDeadline - System.nanoTime( ) ), TimeUnit.NANOSECONDS );
+            }
+            catch( ExecutionException | TimeoutException e )
+            {
+                bDelivered = false;
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+                return false;
+            }
+        }
+        return bDelivered;
+    }
+
+    /**
+     * Get the lanes of all the listeners, to read their metrics
+     * 
+     * @return the lanes
+     */
+    public static synchronized Collection<ListenerLane> getLanes( )
+    {
+        return new ArrayList<>( _mapLanesByListener.values( ) );
+    }
+
+    /**
+     * Notify the listeners of a type in the current thread, after the shutdown of the registry
+     * 
+     * @param type
+     *            the interface of the listeners
+     * @param notification
+     *            the notification of a listener
+     * @param <T>
+     *            the type of the listeners
+     */
+    private static <T> void runInline( Class<T> type, Consumer<T> notification )
+    {
+        for ( T listener : SpringContextService.getBeansOfType( type ) )
+        {
+            try
+            {
+                notification.accept( listener );
+            }
+            catch( Exception e )
+            {
+                AppLogService.error( "Error notifying the listener " + listener.getClass( ).getName( ) + " after the shutdown " + e.getMessage( ), e );
+            }
+        }
+    }
+
+    /**
+     * Get the lanes of the listeners of a type, resolving them the first time. No lane is created once the registry is shut down
+     * 
+     * @param type
+     *            the interface of the listeners
+     * @return the lanes
+     */
+    private static List<ListenerLane> getLanes( Class<?> type )
+    {
+        List<ListenerLane> listLanes = _mapLanesByType.get( type );
+        if ( listLanes == null )
+        {
+            synchronized( ListenerRegistry.class )
+            {
+                if ( _bShutdown )
+                {
+                    return Collections.emptyList( );
+                }
+                listLanes = _mapLanesByType.get( type );
+                if ( listLanes == null )
+                {
+                    Map<Object, ListenerLane> mapLanesInUse = new IdentityHashMap<>( _mapLanesByListener );
+                    listLanes = resolve( type, mapLanesInUse );
+                    _mapLanesByListener.putAll( mapLanesInUse );
+                    _mapLanesByType.put( type, listLanes );
+                }
+            }
+        }
+        return listLanes;
+    }
+
+    /**
+     * Resolve the listener beans of a type
+     * 
+     * @param type
+     *            the interface of the listeners
+     * @param mapLanesInUse
+     *            the lanes already resolved, completed with the lanes of the listeners found
+     * @return the lanes of the listeners
+     */
+    private static List<ListenerLane> resolve( Class<?> type, Map<Object, ListenerLane> mapLanesInUse )
+    {
+        List<ListenerLane> listLanes = new ArrayList<>( );
+        for ( Object listener : SpringContextService.getBeansOfType( type ) )
+        {
+            ListenerLane lane = mapLanesInUse.get( listener );
+            if ( lane == null )
+            {
+                lane = _mapLanesByListener.get( listener );
+            }
+            if ( lane == null )
+            {
+                lane = new ListenerLane( listener, AppPropertiesService.getPropertyInt( PROPERTY_LANE_QUEUE_SIZE, DEFAULT_LANE_QUEUE_SIZE ),
+                        AppPropertiesService.getPropertyLong( PROPERTY_LANE_TIMEOUT, DEFAULT_LANE_TIMEOUT ) );
+                AppLogService.debug( "Lane created for the listener " + lane.getName( ) );
+            }
+            mapLanesInUse.put( listener, lane );
+            listLanes.add( lane );
+        }
+        return Collections.unmodifiableList( listLanes );
+    }
+}
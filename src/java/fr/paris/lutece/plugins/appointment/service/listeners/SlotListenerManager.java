@@ -34,16 +34,20 @@
 package fr.paris.lutece.plugins.appointment.service.listeners;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
+import fr.paris.lutece.plugins.appointment.business.outbox.ListenerEvent;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
-import fr.paris.lutece.plugins.appointment.service.AppointmentExecutorService;
-import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.plugins.appointment.service.cache.AvailabilityCacheService;
 
 /**
  * Manager for slot listeners
  * 
  * Listeners are started by another thread asynchronously. Currently we have a problem with the propagation of the BDDS transaction when launching a workflow
  * task that triggers the listener
+ * 
+ * The notifications are written in the current transaction and delivered by the ListenerEventDispatcher once it is committed. They are delivered to a
+ * single node of a cluster: the services writing the slots update the AvailabilityCacheService of their node themselves
  */
 public final class SlotListenerManager
 {
@@ -64,13 +68,7 @@ public final class SlotListenerManager
      */
     public static void notifyListenersSlotCreation( int nIdSlot )
     {
-        AppointmentExecutorService.INSTANCE.execute( ( ) -> {
-            for ( ISlotListener slotListener : SpringContextService.getBeansOfType( ISlotListener.class ) )
-            {
-                slotListener.notifySlotCreation( nIdSlot );
-            }
-        } );
-
+        ListenerEventDispatcher.publish( ListenerEvent.TYPE_SLOT_CREATION, nIdSlot );
     }
 
     /**
@@ -81,12 +79,29 @@ public final class SlotListenerManager
      */
     public static void notifyListenersSlotChange( int nIdSlot )
     {
-        AppointmentExecutorService.INSTANCE.execute( ( ) -> {
-            for ( ISlotListener slotListener : SpringContextService.getBeansOfType( ISlotListener.class ) )
-            {
-                slotListener.notifySlotChange( nIdSlot );
-            }
-        } );
+        ListenerEventDispatcher.publish( ListenerEvent.TYPE_SLOT_CHANGE, nIdSlot );
+    }
+
+    /**
+     * Notify listeners that a list of slots has been created, with one event for the whole list
+     * 
+     * @param listIdSlot
+     *            The ids of the slots that have been created
+     */
+    public static void notifyListenersListSlotCreation( List<Integer> listIdSlot )
+    {
+        ListenerEventDispatcher.publish( ListenerEvent.TYPE_SLOT_CREATION, listIdSlot );
+    }
+
+    /**
+     * Notify listeners that a list of slots has been changed, with one event for the whole list
+     * 
+     * @param listIdSlot
+     *            The ids of the slots that have been changed
+     */
+    public static void notifyListenersListSlotChange( List<Integer> listIdSlot )
+    {
+        ListenerEventDispatcher.publish( ListenerEvent.TYPE_SLOT_CHANGE, listIdSlot );
     }
 
     /**
@@ -97,12 +112,8 @@ public final class SlotListenerManager
      */
     public static void notifyListenersSlotRemoval( Slot slot )
     {
-        AppointmentExecutorService.INSTANCE.execute( ( ) -> {
-            for ( ISlotListener slotListener : SpringContextService.getBeansOfType( ISlotListener.class ) )
-            {
-                slotListener.notifySlotRemoval( slot );
-            }
-        } );
+        AvailabilityCacheService.invalidateWeek( slot.getIdForm( ), slot.getStartingDateTime( ).toLocalDate( ) );
+        ListenerEventDispatcher.publishSlotRemoval( slot );
     }
 
     /**
@@ -115,12 +126,8 @@ public final class SlotListenerManager
      */
     public static void notifySlotEndingTimeHasChanged( int nIdSlot, int nIdForm, LocalDateTime endingDateTime )
     {
-        AppointmentExecutorService.INSTANCE.execute( ( ) -> {
-            for ( ISlotListener slotListener : SpringContextService.getBeansOfType( ISlotListener.class ) )
-            {
-                slotListener.notifySlotEndingTimeHasChanged( nIdSlot, nIdForm, endingDateTime );
-            }
-        } );
+        AvailabilityCacheService.invalidateWeek( nIdForm, endingDateTime.toLocalDate( ) );
+        ListenerEventDispatcher.publishSlotEndingTimeChanged( nIdSlot, nIdForm, endingDateTime );
     }
 
 }
@@ -36,8 +36,7 @@ package fr.paris.lutece.plugins.appointment.service.listeners;
 import java.util.List;
 
 import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
-import fr.paris.lutece.plugins.appointment.service.AppointmentExecutorService;
-import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlanService;
 
 public final class WeekDefinitionManagerListener
 {
@@ -58,12 +57,9 @@ public final class WeekDefinitionManagerListener
      */
     public static void notifyListenersWeekDefinitionAssigned( WeekDefinition weekDefinition )
     {
-        AppointmentExecutorService.INSTANCE.execute( ( ) -> {
-            for ( IWeekDefinitionListener weekDefinitionListener : SpringContextService.getBeansOfType( IWeekDefinitionListener.class ) )
-            {
-                weekDefinitionListener.notifyWeekAssigned( weekDefinition );
-            }
-        } );
+        // The form of the week definition is not known here
+        FormSchedulePlanService.invalidateAll( );
+        ListenerRegistry.dispatch( IWeekDefinitionListener.class, listener -> listener.notifyWeekAssigned( weekDefinition ) );
     }
 
     /**
@@ -76,12 +72,8 @@ public final class WeekDefinitionManagerListener
      */
     public static void notifyListenersListWeekDefinitionChanged( int nIdForm, List<WeekDefinition> listWeek )
     {
-        AppointmentExecutorService.INSTANCE.execute( ( ) -> {
-            for ( IWeekDefinitionListener weekDefinitionListener : SpringContextService.getBeansOfType( IWeekDefinitionListener.class ) )
-            {
-                weekDefinitionListener.notifyListWeeksChanged( nIdForm, listWeek );
-            }
-        } );
+        FormSchedulePlanService.invalidate( nIdForm );
+        ListenerRegistry.dispatch( IWeekDefinitionListener.class, listener -> listener.notifyListWeeksChanged( nIdForm, listWeek ) );
     }
 
     /**
@@ -92,12 +84,8 @@ public final class WeekDefinitionManagerListener
      */
     public static void notifyListenersWeekDefinitionUnassigned( WeekDefinition weekDefinition )
     {
-        AppointmentExecutorService.INSTANCE.execute( ( ) -> {
-            for ( IWeekDefinitionListener weekDefinitionListener : SpringContextService.getBeansOfType( IWeekDefinitionListener.class ) )
-            {
-                weekDefinitionListener.notifyWeekUnassigned( weekDefinition );
-            }
-        } );
+        FormSchedulePlanService.invalidateAll( );
+        ListenerRegistry.dispatch( IWeekDefinitionListener.class, listener -> listener.notifyWeekUnassigned( weekDefinition ) );
     }
 
 }
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import fr.paris.lutece.plugins.appointment.business.slot.SlotLockHome;
+
+/**
+ * Lock shared by the nodes through a row of the appointment_slot_lock table. The lock is reentrant for the thread that holds it, the row is only taken by
+ * the first acquisition and released by the last release
+ */
+public final class DatabaseLock implements Lock
+{
+    private final ReentrantLock _localLock = new ReentrantLock( );
+    private final String _strKey;
+    private final long _lExpirationSeconds;
+    private final long _lRetryDelayMillis;
+    private String _strOwner;
+
+    /**
+     * Constructor
+     * 
+     * @param strKey
+     *            the key of the lock
+     * @param lExpirationSeconds
+     *            the time after which a lock not released can be taken by another node
+     * @param lRetryDelayMillis
+     *            the delay between two attempts to take the lock
+     */
+    DatabaseLock( String strKey, long lExpirationSeconds, long lRetryDelayMillis )
+    {
+        _strKey = strKey;
+        _lExpirationSeconds = lExpirationSeconds;
+        _lRetryDelayMillis = lRetryDelayMillis;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void lock( )
+    {
+        _localLock.lock( );
+        if ( _localLock.getHoldCount( ) > 1 )
+        {
+            return;
+        }
+        boolean bInterrupted = false;
+        try
+        {
+            while ( !tryLockRow( ) )
+            {
+                try
+                {
+                    Thread.sleep( _lRetryDelayMillis );
+                }
+                catch( InterruptedException e )
+                {
+                    bInterrupted = true;
+                }
+            }
+        }
+        catch( RuntimeException e )
+        {
+            _localLock.unlock( );
+            throw e;
+        }
+        if ( bInterrupted )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void lockInterruptibly( ) throws InterruptedException
+    {
+        _localLock.lockInterruptibly( );
+        if ( _localLock.getHoldCount( ) > 1 )
+        {
+            return;
+        }
+        try
+        {
+            while ( !tryLockRow( ) )
+            {
+                Thread.sleep( _lRetryDelayMillis );
+            }
+        }
+        catch( InterruptedException | RuntimeException e )
+        {
+            _localLock.unlock( );
+            throw e;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean tryLock( )
+    {
+        if ( !_localLock.tryLock( ) )
+        {
+            return false;
+        }
+        if ( _localLock.getHoldCount( ) > 1 )
+        {
+            return true;
+        }
+        boolean bLocked = false;
+        try
+        {
+            bLocked = tryLockRow( );
+        }
+        finally
+        {
+            if ( !bLocked )
+            {
+                _localLock.unlock( );
+            }
+        }
+        return bLocked;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean tryLock( long lTime, TimeUnit unit ) throws InterruptedException
+    {
+        long lDeadline = System.nanoTime( ) + unit.toNanos( lTime );
+        if ( !_localLock.tryLock( lTime, unit ) )
+        {
+            return false;
+        }
+        if ( _localLock.getHoldCount( ) > 1 )
+        {
+            return true;
+        }
+        boolean bLocked = false;
+        try
+        {
+            bLocked = tryLockRow( );
+            while ( !bLocked && System.nanoTime( ) < lDeadline )
+            {
+                Thread.sleep( Math.min( _lRetryDelayMillis, Math.max( 1, TimeUnit.NANOSECONDS.toMillis( lDeadline - System.nanoTime( ) ) ) ) );
+                bLocked = tryLockRow( );
+            }
+        }
+        finally
+        {
+            if ( !bLocked )
+            {
+                _localLock.unlock( );
+            }
+        }
+        return bLocked;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void unlock( )
+    {
+        if ( !_localLock.isHeldByCurrentThread( ) )
+        {
+            throw new IllegalMonitorStateException( );
+        }
+        try
+        {
+            if ( _localLock.getHoldCount( ) == 1 )
+            {
+                SlotLockHome.unlock( _strKey, _strOwner );
+                _strOwner = null;
+            }
+        }
+        finally
+        {
+            _localLock.unlock( );
+        }
+    }
+
+    /**
+     * Conditions are not supported by this lock
+     * 
+     * @return never
+     * @throws UnsupportedOperationException
+     *             always
+     */
+    @Override
+    public Condition newCondition( )
+    {
+        throw new UnsupportedOperationException( "Conditions are not supported by a database lock" );
+    }
+
+    /**
+     * Try to take the row of the lock in database
+     * 
+     * @return true if the row has been taken
+     */
+    private boolean tryLockRow( )
+    {
+        String strOwner = UUID.randomUUID( ).toString( );
+        LocalDateTime now = LocalDateTime.now( );
+        if ( SlotLockHome.tryLock( _strKey, strOwner, now, now.plusSeconds( _lExpirationSeconds ) ) )
+        {
+            _strOwner = strOwner;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Slot lock provider whose locks are shared by all the nodes using the same database. Each lock is a row of the appointment_slot_lock table, the lock is
+ * also held locally so that the threads of a node queue in memory instead of polling the database
+ */
+public class DatabaseSlotLockProvider implements ISlotLockProvider
+{
+    private static final String PROPERTY_LOCK_EXPIRATION = "appointment.slotLock.database.expiration";
+    private static final String PROPERTY_LOCK_RETRY_DELAY = "appointment.slotLock.database.retryDelay";
+    private static final String PREFIX_KEY_SLOT = "slot_";
+
+    private final ConcurrentMap<Integer, Lock> _mapSlotLock = new ConcurrentHashMap<>( );
+    private final long _lExpirationSeconds;
+    private final long _lRetryDelayMillis;
+
+    /**
+     * Constructor
+     */
+    public DatabaseSlotLockProvider( )
+    {
+        this( AppPropertiesService.getPropertyInt( PROPERTY_LOCK_EXPIRATION, 60 ), AppPropertiesService.getPropertyInt( PROPERTY_LOCK_RETRY_DELAY, 50 ) );
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param lExpirationSeconds
+     *            the time after which a lock that has not been released (node stopped) can be taken by another node
+     * @param lRetryDelayMillis
+     *            the delay between two attempts to take a lock held by another node
+     */
+    public DatabaseSlotLockProvider( long lExpirationSeconds, long lRetryDelayMillis )
+    {
+        _lExpirationSeconds = lExpirationSeconds;
+        _lRetryDelayMillis = lRetryDelayMillis;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Lock getLockOnSlot( int nIdSlot )
+    {
+        if ( nIdSlot == 0 )
+        {
+            return new ReentrantLock( );
+        }
+        return _mapSlotLock.computeIfAbsent( nIdSlot, id -> new DatabaseLock( getLockKey( id ), _lExpirationSeconds, _lRetryDelayMillis ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, Lock> getSlotLocksInMemory( )
+    {
+        return _mapSlotLock;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeLockOnSlot( int nIdSlot )
+    {
+        _mapSlotLock.remove( nIdSlot );
+    }
+
+    /**
+     * Get the key of the row of the lock of a slot
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @return the key of the lock
+     */
+    static String getLockKey( int nIdSlot )
+    {
+        return PREFIX_KEY_SLOT + nIdSlot;
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import fr.paris.lutece.plugins.appointment.service.SlotSafeService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Hashed timer wheel releasing the holds on the slots when they expire. The wheel is turned by a single thread: at each tick, the holds expired in the current
+ * bucket are grouped by slot and handed to the sink in one call, so that thousands of expiries cost one batch of updates per tick instead of one locked update
+ * per hold.
+ */
+public final class HoldExpiryWheel
+{
+    private static final String PROPERTY_TICK_DURATION = "appointment.holdExpiry.wheel.tickDuration";
+    private static final String PROPERTY_WHEEL_SIZE = "appointment.holdExpiry.wheel.size";
+    private static final long DEFAULT_TICK_DURATION = 1000;
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+    private static final String THREAD_NAME = "Lutece-AppointmentHoldExpiryWheel-thread";
+
+    private final long _lTickDuration;
+    private final int _nMask;
+    private final List<List<SlotEditTask>> _buckets;
+    private final Queue<SlotEditTask> _pendingTasks = new ConcurrentLinkedQueue<>( );
+    private final Map<Integer, SlotEditTask> _mapTasks = new ConcurrentHashMap<>( );
+    private final Consumer<Map<Integer, List<SlotEditTask>>> _sink;
+    private final long _lStartTime = System.nanoTime( );
+    private Thread _worker;
+    private volatile boolean _bShutdown;
+    private long _lTick;
+
+    // Metrics
+    private final AtomicLong _lNbReleased = new AtomicLong( );
+    private final AtomicLong _lNbBatches = new AtomicLong( );
+    private volatile long _lLastTickLag;
+    private volatile long _lMaxTickLag;
+
+    /**
+     * Holder of the instance of the application
+     */
+    private static final class InstanceHolder
+    {
+        private static final HoldExpiryWheel INSTANCE = new HoldExpiryWheel(
+                AppPropertiesService.getPropertyLong( PROPERTY_TICK_DURATION, DEFAULT_TICK_DURATION ),
+                AppPropertiesService.getPropertyInt( PROPERTY_WHEEL_SIZE, DEFAULT_WHEEL_SIZE ), SlotSafeService::incrementPotentialRemainingPlaces );
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param lTickDuration
+     *            the duration of a tick in milliseconds
+     * @param nWheelSize
+     *            the number of buckets of the wheel (rounded up to a power of two)
+     * @param sink
+     *            the consumer of the expired tasks, grouped by id of slot
+     */
+    public HoldExpiryWheel( long lTickDuration, int nWheelSize, Consumer<Map<Integer, List<SlotEditTask>>> sink )
+    {
+        _lTickDuration = TimeUnit.MILLISECONDS.toNanos( Math.max( 1, lTickDuration ) );
+        int nSize = Integer.highestOneBit( Math.max( 1, nWheelSize - 1 ) ) << 1;
+        _nMask = nSize - 1;
+        _buckets = new ArrayList<>( nSize );
+        for ( int i = 0; i < nSize; i++ )
+        {
+            _buckets.add( new ArrayList<>( ) );
+        }
+        _sink = sink;
+    }
+
+    /**
+     * Get the wheel of the application
+     * 
+     * @return the wheel
+     */
+    public static HoldExpiryWheel getInstance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Schedule the release of a hold
+     * 
+     * @param task
+     *            the task
+     * @param lDelay
+     *            the delay before the expiry
+     * @param unit
+     *            the unit of the delay
+     */
+    public void schedule( SlotEditTask task, long lDelay, TimeUnit unit )
+    {
+        if ( _bShutdown )
+        {
+            // The hold will be released by the slotHoldDaemon
+            return;
+        }
+        start( );
+        task.setDeadline( System.nanoTime( ) - _lStartTime + unit.toNanos( lDelay ) );
+        _mapTasks.put( task.getIdHold( ), task );
+        _pendingTasks.add( task );
+    }
+
+    /**
+     * Cancel the release of a hold
+     * 
+     * @param nIdHold
+     *            the id of the hold
+     */
+    public void cancel( int nIdHold )
+    {
+        SlotEditTask task = _mapTasks.remove( nIdHold );
+        if ( task != null )
+        {
+            task.cancel( );
+        }
+    }
+
+    /**
+     * Stop the wheel. The holds not yet expired are left to the slotHoldDaemon.
+     */
+    public void shutdown( )
+    {
+        _bShutdown = true;
+        Thread worker;
+        synchronized( this )
+        {
+            worker = _worker;
+        }
+        if ( worker != null )
+        {
+            worker.interrupt( );
+            try
+            {
+                worker.join( TimeUnit.NANOSECONDS.toMillis( _lTickDuration ) * 2 );
+            }
+            catch( InterruptedException e )
+            {
+                AppLogService.error( e.getMessage( ), e );
+                Thread.currentThread( ).interrupt( );
+            }
+        }
+    }
+
+    /**
+     * Get the number of holds waiting for their expiry
+     * 
+     * @return the queue depth
+     */
+    public int getQueueDepth( )
+    {
+        return _mapTasks.size( );
+    }
+
+    /**
+     * Get the lag of the last tick, i.e. the delay between the theoretical time of the tick and the time it was processed
+     * 
+     * @return the lag in milliseconds
+     */
+    public long getLastTickLag( )
+    {
+        return TimeUnit.NANOSECONDS.toMillis( _lLastTickLag );
+    }
+
+    /**
+     * Get the max lag of a tick since the start of the wheel
+     * 
+     * @return the lag in milliseconds
+     */
+    public long getMaxTickLag( )
+    {
+        return TimeUnit.NANOSECONDS.toMillis( _lMaxTickLag );
+    }
+
+    /**
+     * Get the number of holds released since the start of the wheel
+     * 
+     * @return the number of holds released
+     */
+    public long getNbReleased( )
+    {
+        return _lNbReleased.get( );
+    }
+
+    /**
+     * Get the number of batches handed to the sink since the start of the wheel
+     * 
+     * @return the number of batches
+     */
+    public long getNbBatches( )
+    {
+        return _lNbBatches.get( );
+    }
+
+    /**
+     * Start the worker thread if needed
+     */
+    private synchronized void start( )
+    {
+        if ( _worker == null )
+        {
+            _worker = new Thread( this::run, THREAD_NAME );
+            _worker.setDaemon( true );
+            _worker.start( );
+        }
+    }
+
+    /**
+     * Loop of the worker thread
+     */
+    private void run( )
+    {
+        while ( !_bShutdown )
+        {
+            long lDeadline = _lTickDuration * ( _lTick + 1 );
+            long lSleep = lDeadline - ( System.nanoTime( ) - _lStartTime );
+            if ( lSleep > 0 )
+            {
+                try
+                {
+                    TimeUnit.NANOSECONDS.sleep( lSleep );
+                }
+                catch( InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                    return;
+                }
+            }
+            long lLag = Math.max( 0, System.nanoTime( ) - _lStartTime - lDeadline );
+            _lLastTickLag = lLag;
+            _lMaxTickLag = Math.max( _lMaxTickLag, lLag );
+
+            transferPendingTasks( );
+            Map<Integer, List<SlotEditTask>> mapExpired = expireBucket( _buckets.get( (int) ( _lTick & _nMask ) ) );
+            _lTick++;
+            if ( !mapExpired.isEmpty( ) )
+            {
+                release( mapExpired );
+            }
+        }
+    }
+
+    /**
+     * Put the tasks scheduled since the last tick in their bucket
+     */
+    private void transferPendingTasks( )
+    {
+        SlotEditTask task;
+        while ( ( task = _pendingTasks.poll( ) ) != null )
+        {
+            if ( task.isCancelled( ) )
+            {
+                continue;
+            }
+            long lTicks = task.getDeadline( ) / _lTickDuration;
+            task.setRemainingRounds( Math.max( 0, lTicks - _lTick ) / _buckets.size( ) );
+            // A task whose deadline is already passed goes in the current bucket
+            _buckets.get( (int) ( Math.max( lTicks, _lTick ) & _nMask ) ).add( task );
+        }
+    }
+
+    /**
+     * Remove the expired tasks from a bucket
+     * 
+     * @param bucket
+     *            the bucket of the current tick
+     * @return the expired tasks grouped by id of slot
+     */
+    private Map<Integer, List<SlotEditTask>> expireBucket( List<SlotEditTask> bucket )
+    {
+        Map<Integer, List<SlotEditTask>> mapExpired = new LinkedHashMap<>( );
+        Iterator<SlotEditTask> iterator = bucket.iterator( );
+        while ( iterator.hasNext( ) )
+        {
+            SlotEditTask task = iterator.next( );
+            if ( task.isCancelled( ) )
+            {
+                iterator.remove( );
+            }
+            else
+                if ( task.getRemainingRounds( ) <= 0 )
+                {
+                    iterator.remove( );
+                    if ( _mapTasks.remove( task.getIdHold( ), task ) )
+                    {
+                        mapExpired.computeIfAbsent( task.getIdSlot( ), k -> new ArrayList<>( ) ).add( task );
+                    }
+                }
+                else
+                {
+                    task.setRemainingRounds( task.getRemainingRounds( ) - 1 );
+                }
+        }
+        return mapExpired;
+    }
+
+    /**
+     * Hand the expired tasks to the sink
+     * 
+     * @param mapExpired
+     *            the expired tasks grouped by id of slot
+     */
+    private void release( Map<Integer, List<SlotEditTask>> mapExpired )
+    {
+        try
+        {
+            _sink.accept( mapExpired );
+            _lNbBatches.incrementAndGet( );
+            _lNbReleased.addAndGet( mapExpired.values( ).stream( ).mapToLong( List::size ).sum( ) );
+        }
+        catch( Exception e )
+        {
+            // The holds are still in database, they will be released by the slotHoldDaemon
+            AppLogService.error( "Error releasing the expired holds " + e.getMessage( ), e );
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Provider of the locks taken on the slots. The implementation decides whether the locks are local to the JVM or shared by all the nodes
+ * of a cluster
+ */
+public interface ISlotLockProvider
+{
+    /**
+     * Get the lock of a slot. Only the locking and unlocking methods are supported by every implementation: the locks shared through the database do not support
+     * {@link Lock#newCondition()} and throw an UnsupportedOperationException
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @return the lock of the slot
+     */
+    Lock getLockOnSlot( int nIdSlot );
+
+    /**
+     * Get the locks of the slots kept in memory
+     * 
+     * @return the map of the locks, with the id of the slot for key
+     */
+    Map<Integer, Lock> getSlotLocksInMemory( );
+
+    /**
+     * Remove the lock of a slot from memory
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     */
+    void removeLockOnSlot( int nIdSlot );
+}
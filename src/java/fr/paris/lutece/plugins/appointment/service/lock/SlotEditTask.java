@@ -33,20 +33,21 @@
  */
 package fr.paris.lutece.plugins.appointment.service.lock;
 
-import java.util.concurrent.Callable;
-
-import fr.paris.lutece.plugins.appointment.business.slot.Slot;
-import fr.paris.lutece.plugins.appointment.service.SlotSafeService;
-
 /**
- * Timer Task for a slot (Manage a lock the time the user fill the form
+ * Timer Task for a slot (Manage a lock the time the user fill the form). The task is scheduled in the {@link HoldExpiryWheel} and gives the places back to
+ * the slot when the hold expires.
  * 
  * @author Laurent Payen
  *
  */
-public final class SlotEditTask implements Callable<Slot>
+public final class SlotEditTask
 {
 
+    /**
+     * Id of the hold in database
+     */
+    private int _idHold;
+
     /**
      * Potentially number of places taken
      */
@@ -57,17 +58,36 @@ public final class SlotEditTask implements Callable<Slot>
      */
     private int _idSlot;
 
-    public SlotEditTask( int nIdSlot, int nbPlacesTaken )
+    /**
+     * Deadline of the task, in nanoseconds from the start of the wheel
+     */
+    private long _lDeadline;
+
+    /**
+     * Number of turns of the wheel before the task expires
+     */
+    private long _lRemainingRounds;
+
+    /**
+     * True if the hold has been released before its expiry
+     */
+    private volatile boolean _bCancelled;
+
+    public SlotEditTask( int nIdHold, int nIdSlot, int nbPlacesTaken )
     {
+        _idHold = nIdHold;
         _idSlot = nIdSlot;
         _nbPlacesTaken = nbPlacesTaken;
     }
 
-    @Override
-    public Slot call( )
+    /**
+     * Get the id of the hold
+     * 
+     * @return the id of the hold
+     */
+    public int getIdHold( )
     {
-        return SlotSafeService.incrementPotentialRemainingPlaces( this );
-
+        return _idHold;
     }
 
     /**
@@ -110,4 +130,42 @@ public final class SlotEditTask implements Callable<Slot>
     {
         this._idSlot = nIdSlot;
     }
+
+    /**
+     * Check if the task has been cancelled
+     * 
+     * @return true if the hold has been released before its expiry
+     */
+    public boolean isCancelled( )
+    {
+        return _bCancelled;
+    }
+
+    /**
+     * Cancel the task
+     */
+    void cancel( )
+    {
+        _bCancelled = true;
+    }
+
+    long getDeadline( )
+    {
+        return _lDeadline;
+    }
+
+    void setDeadline( long lDeadline )
+    {
+        _lDeadline = lDeadline;
+    }
+
+    long getRemainingRounds( )
+    {
+        return _lRemainingRounds;
+    }
+
+    void setRemainingRounds( long lRemainingRounds )
+    {
+        _lRemainingRounds = lRemainingRounds;
+    }
 }
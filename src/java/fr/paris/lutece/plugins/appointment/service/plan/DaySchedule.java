@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.plan;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.planning.TimeSlot;
+import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
+import fr.paris.lutece.plugins.appointment.service.WorkingDayService;
+
+/**
+ * Compiled schedule of a working day: the bounds of the day and the time slots indexed by starting time
+ */
+public final class DaySchedule
+{
+    private final WorkingDay _workingDay;
+    private final LocalTime _minStartingTime;
+    private final LocalTime _maxEndingTime;
+    private final List<TimeSlot> _listTimeSlot;
+    // Sorted by starting time, the time slots with the same starting time are kept in the order of the working day
+    private final TimeSlot [ ] _tabTimeSlotByStartingTime;
+
+    /**
+     * Constructor
+     * 
+     * @param workingDay
+     *            the working day, with its time slots
+     */
+    DaySchedule( WorkingDay workingDay )
+    {
+        _workingDay = workingDay;
+        List<TimeSlot> listTimeSlot = workingDay.getListTimeSlot( ) != null ? workingDay.getListTimeSlot( ) : new ArrayList<>( );
+        _listTimeSlot = Collections.unmodifiableList( new ArrayList<>( listTimeSlot ) );
+        _minStartingTime = listTimeSlot.isEmpty( ) ? null : WorkingDayService.getMinStartingTimeOfAWorkingDay( workingDay );
+        _maxEndingTime = listTimeSlot.isEmpty( ) ? null : WorkingDayService.getMaxEndingTimeOfAWorkingDay( workingDay );
+        List<TimeSlot> listSorted = new ArrayList<>( _listTimeSlot );
+        // The sort is stable
+        listSorted.sort( Comparator.comparing( TimeSlot::getStartingTime ) );
+        _tabTimeSlotByStartingTime = listSorted.toArray( new TimeSlot [ listSorted.size( )] );
+    }
+
+    /**
+     * Get the working day
+     * 
+     * @return the working day
+     */
+    public WorkingDay getWorkingDay( )
+    {
+        return _workingDay;
+    }
+
+    /**
+     * Get the min starting time of the time slots of the day
+     * 
+     * @return the min starting time, or null if the day has no time slot
+     */
+    public LocalTime getMinStartingTime( )
+    {
+        return _minStartingTime;
+    }
+
+    /**
+     * Get the max ending time of the time slots of the day
+     * 
+     * @return the max ending time, or null if the day has no time slot
+     */
+    public LocalTime getMaxEndingTime( )
+    {
+        return _maxEndingTime;
+    }
+
+    /**
+     * Get the time slots of the day, in the order of the working day
+     * 
+     * @return the time slots
+     */
+    public List<TimeSlot> getListTimeSlot( )
+    {
+        return _listTimeSlot;
+    }
+
+    /**
+     * Get the time slot starting at a time, as TimeSlotService.getTimeSlotInListOfTimeSlotWithStartingTime does
+     * 
+     * @param startingTime
+     *            the starting time
+     * @return the time slot, or null if no time slot starts at this time
+     */
+    public TimeSlot getTimeSlotWithStartingTime( LocalTime startingTime )
+    {
+        int nLow = 0;
+        int nHigh = _tabTimeSlotByStartingTime.length;
+        // Search the first time slot starting at or after the time
+        while ( nLow < nHigh )
+        {
+            int nMiddle = ( nLow + nHigh ) >>> 1;
+            if ( _tabTimeSlotByStartingTime [nMiddle].getStartingTime( ).isBefore( startingTime ) )
+            {
+                nLow = nMiddle + 1;
+            }
+            else
+            {
+                nHigh = nMiddle;
+            }
+        }
+        if ( nLow < _tabTimeSlotByStartingTime.length && _tabTimeSlotByStartingTime [nLow].getStartingTime( ).equals( startingTime ) )
+        {
+            return _tabTimeSlotByStartingTime [nLow];
+        }
+        return null;
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.plan;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+
+/**
+ * Compiled schedule of a form: the week definitions indexed by date of apply, the reservation rules indexed by day of week, the time slots indexed by
+ * starting time and the closing days in a bitset. A plan is immutable and can be shared between threads.
+ */
+public final class FormSchedulePlan
+{
+    private final int _nIdForm;
+    // The week definitions in the order of the map given, to apply the same rule as Utilities.getClosestWeekDefinitionInPast if they overlap
+    private final List<WeekDefinition> _listWeekDefinition;
+    private final Map<WeekDefinition, ReservationRule> _mapReservationRule;
+    private final TreeMap<LocalDate, WeekDefinition> _mapWeekDefinitionByDateOfApply = new TreeMap<>( );
+    private final boolean _bOverlapping;
+    private final Map<WeekDefinition, RuleSchedule> _mapRuleSchedules = new IdentityHashMap<>( );
+    private final Map<Integer, WeekDefinition> _mapWeekDefinitionById = new HashMap<>( );
+    private final LocalDate _firstDateOfApply;
+    private final long _lFirstClosingDay;
+    private final BitSet _bitSetClosingDays = new BitSet( );
+
+    /**
+     * Constructor
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param mapReservationRule
+     *            the map of the rule week definition, the rules with their working days and time slots
+     * @param listDateOfClosingDay
+     *            the closing days of the form
+     */
+    private FormSchedulePlan( int nIdForm, Map<WeekDefinition, ReservationRule> mapReservationRule, Collection<LocalDate> listDateOfClosingDay )
+    {
+        _nIdForm = nIdForm;
+        _listWeekDefinition = Collections.unmodifiableList( new ArrayList<>( mapReservationRule.keySet( ) ) );
+        _mapReservationRule = Collections.unmodifiableMap( new LinkedHashMap<>( mapReservationRule ) );
+        boolean bOverlapping = false;
+        Map<ReservationRule, RuleSchedule> mapSchedulesByRule = new IdentityHashMap<>( );
+        for ( WeekDefinition weekDefinition : _listWeekDefinition )
+        {
+            ReservationRule reservationRule = mapReservationRule.get( weekDefinition );
+            if ( reservationRule != null )
+            {
+                _mapRuleSchedules.put( weekDefinition, mapSchedulesByRule.computeIfAbsent( reservationRule, RuleSchedule::new ) );
+            }
+            _mapWeekDefinitionById.put( weekDefinition.getIdWeekDefinition( ), weekDefinition );
+            bOverlapping |= _mapWeekDefinitionByDateOfApply.put( weekDefinition.getDateOfApply( ), weekDefinition ) != null;
+        }
+        WeekDefinition previous = null;
+        for ( WeekDefinition weekDefinition : _mapWeekDefinitionByDateOfApply.values( ) )
+        {
+            bOverlapping |= previous != null && !previous.getEndingDateOfApply( ).isBefore( weekDefinition.getDateOfApply( ) );
+            previous = weekDefinition;
+        }
+        _bOverlapping = bOverlapping;
+        _firstDateOfApply = _mapWeekDefinitionByDateOfApply.isEmpty( ) ? null : _mapWeekDefinitionByDateOfApply.firstKey( );
+
+        long lFirstClosingDay = Long.MAX_VALUE;
+        for ( LocalDate date : listDateOfClosingDay )
+        {
+            lFirstClosingDay = Math.min( lFirstClosingDay, date.toEpochDay( ) );
+        }
+        _lFirstClosingDay = lFirstClosingDay;
+        for ( LocalDate date : listDateOfClosingDay )
+        {
+            _bitSetClosingDays.set( (int) ( date.toEpochDay( ) - _lFirstClosingDay ) );
+        }
+    }
+
+    /**
+     * Compile the plan of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param mapReservationRule
+     *            the map of the rule week definition, the rules with their working days and time slots
+     * @param listDateOfClosingDay
+     *            the closing days of the form
+     * @return the plan
+     */
+    public static FormSchedulePlan compile( int nIdForm, Map<WeekDefinition, ReservationRule> mapReservationRule, Collection<LocalDate> listDateOfClosingDay )
+    {
+        return new FormSchedulePlan( nIdForm, mapReservationRule, listDateOfClosingDay );
+    }
+
+    /**
+     * Get the id of the form
+     * 
+     * @return the id of the form
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Get the map of the rule week definition the plan was compiled from. The week definitions and the rules are shared: they must not be modified
+     * @return the map of the rule week definition, in the order of the map given
+     */
+    public Map<WeekDefinition, ReservationRule> getMapReservationRule( )
+    {
+        return _mapReservationRule;
+    }
+
+    /**
+     * Get the first date of apply of the week definitions
+     * 
+     * @return the first date of apply, or null if there is no week definition
+     */
+    public LocalDate getFirstDateOfApply( )
+    {
+        return _firstDateOfApply;
+    }
+
+    /**
+     * Get the week definition applying to a date, as Utilities.getClosestWeekDefinitionInPast does
+     * 
+     * @param date
+     *            the date
+     * @return the week definition, or null if no week definition applies to this date
+     */
+    public WeekDefinition getWeekDefinition( LocalDate date )
+    {
+        if ( _bOverlapping )
+        {
+            for ( WeekDefinition weekDefinition : _listWeekDefinition )
+            {
+                if ( contains( weekDefinition, date ) )
+                {
+                    return weekDefinition;
+                }
+            }
+            return null;
+        }
+        Map.Entry<LocalDate, WeekDefinition> entry = _mapWeekDefinitionByDateOfApply.floorEntry( date );
+        if ( entry != null && contains( entry.getValue( ), date ) )
+        {
+            return entry.getValue( );
+        }
+        return null;
+    }
+
+    /**
+     * Get the schedule of the reservation rule applying to a date
+     * 
+     * @param date
+     *            the date
+     * @return the schedule of the rule, or null if no rule applies to this date
+     */
+    public RuleSchedule getRuleSchedule( LocalDate date )
+    {
+        WeekDefinition weekDefinition = getWeekDefinition( date );
+        return weekDefinition != null ? _mapRuleSchedules.get( weekDefinition ) : null;
+    }
+
+    /**
+     * Check if a date is a closing day of the form
+     * 
+     * @param date
+     *            the date
+     * @return true if the date is a closing day
+     */
+    public boolean isClosingDay( LocalDate date )
+    {
+        long lIndex = date.toEpochDay( ) - _lFirstClosingDay;
+        return lIndex >= 0 && lIndex <= Integer.MAX_VALUE && _bitSetClosingDays.get( (int) lIndex );
+    }
+
+    /**
+     * Check if a date is a bookable day: a working day of the rule applying to the date, which is not a closing day
+     * @param date
+     *            the date
+     * @return true if the slots of the date can be booked
+     */
+    public boolean isBookableDay( LocalDate date )
+    {
+        RuleSchedule ruleSchedule = getRuleSchedule( date );
+        return ruleSchedule != null && ruleSchedule.getDaySchedule( date.getDayOfWeek( ) ) != null && !isClosingDay( date );
+    }
+
+    /**
+     * Check if the plan gives the same week definitions as a map over a period: the week definitions of the map must be in the plan (they are compared by
+     * id, dates of apply and reservation rule), and the week definitions of the plan applying to the period must be in the map
+     * 
+     * @param mapReservationRule
+     *            the map of the rule week definition
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @return true if the plan can be used instead of the map over the period
+     */
+    public boolean isEquivalent( Map<WeekDefinition, ReservationRule> mapReservationRule, LocalDate startingDate, LocalDate endingDate )
+    {
+        Set<Integer> setIdWeekDefinition = new HashSet<>( );
+        for ( WeekDefinition weekDefinition : mapReservationRule.keySet( ) )
+        {
+            WeekDefinition weekDefinitionOfPlan = _mapWeekDefinitionById.get( weekDefinition.getIdWeekDefinition( ) );
+            if ( weekDefinitionOfPlan == null || weekDefinitionOfPlan.getIdReservationRule( ) != weekDefinition.getIdReservationRule( )
+                    || !weekDefinitionOfPlan.getDateOfApply( ).equals( weekDefinition.getDateOfApply( ) )
+                    || !weekDefinitionOfPlan.getEndingDateOfApply( ).equals( weekDefinition.getEndingDateOfApply( ) )
+                    || _mapRuleSchedules.containsKey( weekDefinitionOfPlan ) != ( mapReservationRule.get( weekDefinition ) != null ) )
+            {
+                return false;
+            }
+            setIdWeekDefinition.add( weekDefinition.getIdWeekDefinition( ) );
+        }
+        for ( WeekDefinition weekDefinition : _listWeekDefinition )
+        {
+            if ( !weekDefinition.getDateOfApply( ).isAfter( endingDate ) && !weekDefinition.getEndingDateOfApply( ).isBefore( startingDate )
+                    && !setIdWeekDefinition.contains( weekDefinition.getIdWeekDefinition( ) ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if a week definition applies to a date
+     * 
+     * @param weekDefinition
+     *            the week definition
+     * @param date
+     *            the date
+     * @return true if the date is between the dates of apply of the week definition
+     */
+    private static boolean contains( WeekDefinition weekDefinition, LocalDate date )
+    {
+        return !weekDefinition.getDateOfApply( ).isAfter( date ) && !weekDefinition.getEndingDateOfApply( ).isBefore( date );
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.plan;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.service.ClosingDayService;
+import fr.paris.lutece.plugins.appointment.service.ReservationRuleService;
+import fr.paris.lutece.plugins.appointment.service.WeekDefinitionService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Service giving the compiled schedule plans of the forms. The plan of a form is compiled once and shared by all the requests, until the week definitions,
+ * the reservation rules or the closing days of the form change. The changes made on another node of a cluster are not notified to this node: the plans are
+ * compiled again after the time to live.
+ */
+public final class FormSchedulePlanService
+{
+    private static final String PROPERTY_TIME_TO_LIVE = "appointment.schedulePlan.timeToLive";
+    private static final int DEFAULT_TIME_TO_LIVE = 60;
+
+    // Guarded by the class
+    private static final Map<Integer, PlanEntry> _mapPlans = new HashMap<>( );
+    // Incremented on each invalidation, guarded by the class
+    private static long _lVersion;
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private FormSchedulePlanService( )
+    {
+    }
+
+    /**
+     * Get the plan of a form, compiled from the week definitions, the reservation rules and the closing days of the form in database
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the plan of the form
+     */
+    public static FormSchedulePlan getPlan( int nIdForm )
+    {
+        long lNow = System.currentTimeMillis( );
+        long lVersion;
+        synchronized( FormSchedulePlanService.class )
+        {
+            PlanEntry entry = _mapPlans.get( nIdForm );
+            if ( entry != null && lNow - entry._lCreationTime <= AppPropertiesService.getPropertyInt( PROPERTY_TIME_TO_LIVE, DEFAULT_TIME_TO_LIVE ) * 1000L )
+            {
+                return entry._plan;
+            }
+            lVersion = _lVersion;
+        }
+        List<WeekDefinition> listWeekDefinition = WeekDefinitionService.findListWeekDefinition( nIdForm );
+        Map<WeekDefinition, ReservationRule> mapReservationRule = ReservationRuleService.findAllReservationRule( nIdForm, listWeekDefinition );
+        FormSchedulePlan plan = FormSchedulePlan.compile( nIdForm, mapReservationRule, ClosingDayService.findListDateOfClosingDayByIdForm( nIdForm ) );
+        synchronized( FormSchedulePlanService.class )
+        {
+            // A plan compiled while the form was changed is not shared
+            if ( lVersion == _lVersion )
+            {
+                _mapPlans.put( nIdForm, new PlanEntry( plan, lNow ) );
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Get a plan giving the same schedule as a map of rule week definition over a period. The shared plan of the form is returned if it is equivalent to the
+     * map over the period, otherwise a plan is compiled from the map
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param mapReservationRule
+     *            the map of the rule week definition
+     * @param startingDate
+     *            the starting date of the period
+     * @param endingDate
+     *            the ending date of the period
+     * @return the plan
+     */
+    public static FormSchedulePlan getPlan( int nIdForm, Map<WeekDefinition, ReservationRule> mapReservationRule, LocalDate startingDate,
+            LocalDate endingDate )
+    {
+        FormSchedulePlan plan = getPlan( nIdForm );
+        if ( plan.isEquivalent( mapReservationRule, startingDate, endingDate ) )
+        {
+            return plan;
+        }
+        return FormSchedulePlan.compile( nIdForm, mapReservationRule, ClosingDayService.findListDateOfClosingDayByIdForm( nIdForm ) );
+    }
+
+    /**
+     * Remove the plan of a form, to compile it again on the next use
+     * 
+     * @param nIdForm
+     *            the id of the form
+     */
+    public static synchronized void invalidate( int nIdForm )
+    {
+        _lVersion++;
+        _mapPlans.remove( nIdForm );
+    }
+
+    /**
+     * Remove the plans of all the forms
+     */
+    public static synchronized void invalidateAll( )
+    {
+        _lVersion++;
+        _mapPlans.clear( );
+    }
+
+    /**
+     * Plan of a form, with the time it was compiled
+     */
+    private static final class PlanEntry
+    {
+        private final FormSchedulePlan _plan;
+        private final long _lCreationTime;
+
+        PlanEntry( FormSchedulePlan plan, long lCreationTime )
+        {
+            _plan = plan;
+            _lCreationTime = lCreationTime;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.plan;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.service.WorkingDayService;
+
+/**
+ * Compiled schedule of a reservation rule: its working days indexed by day of week
+ */
+public final class RuleSchedule
+{
+    private final ReservationRule _reservationRule;
+    private final Map<DayOfWeek, DaySchedule> _mapDays = new EnumMap<>( DayOfWeek.class );
+    private final LocalTime _minStartingTime;
+    private final LocalTime _maxEndingTime;
+
+    /**
+     * Constructor
+     * 
+     * @param reservationRule
+     *            the reservation rule, with its working days and their time slots
+     */
+    RuleSchedule( ReservationRule reservationRule )
+    {
+        _reservationRule = reservationRule;
+        List<WorkingDay> listWorkingDay = reservationRule.getListWorkingDay( ) != null ? reservationRule.getListWorkingDay( ) : new ArrayList<>( );
+        for ( WorkingDay workingDay : listWorkingDay )
+        {
+            // The first working day of a day of week is the one used, as in WorkingDayService.getWorkingDayOfDayOfWeek
+            if ( workingDay.getDayOfWeek( ) >= DayOfWeek.MONDAY.getValue( ) && workingDay.getDayOfWeek( ) <= DayOfWeek.SUNDAY.getValue( ) )
+            {
+                _mapDays.computeIfAbsent( DayOfWeek.of( workingDay.getDayOfWeek( ) ), day -> new DaySchedule( workingDay ) );
+            }
+        }
+        _minStartingTime = WorkingDayService.getMinStartingTimeOfAListOfWorkingDay( listWorkingDay );
+        _maxEndingTime = WorkingDayService.getMaxEndingTimeOfAListOfWorkingDay( listWorkingDay );
+    }
+
+    /**
+     * Get the reservation rule
+     * 
+     * @return the reservation rule
+     */
+    public ReservationRule getReservationRule( )
+    {
+        return _reservationRule;
+    }
+
+    /**
+     * Get the schedule of a day of week
+     * 
+     * @param dayOfWeek
+     *            the day of week
+     * @return the schedule of the day, or null if it is not a working day
+     */
+    public DaySchedule getDaySchedule( DayOfWeek dayOfWeek )
+    {
+        return _mapDays.get( dayOfWeek );
+    }
+
+    /**
+     * Get the min starting time of the working days of the rule, as WorkingDayService.getMinStartingTimeOfAListOfWorkingDay does
+     * 
+     * @return the min starting time
+     */
+    public LocalTime getMinStartingTime( )
+    {
+        return _minStartingTime;
+    }
+
+    /**
+     * Get the max ending time of the working days of the rule, as WorkingDayService.getMaxEndingTimeOfAListOfWorkingDay does
+     * 
+     * @return the max ending time
+     */
+    public LocalTime getMaxEndingTime( )
+    {
+        return _maxEndingTime;
+    }
+}
@@ -0,0 +1,501 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.plan;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+
+/**
+ * Grid of the slots of the calendar of a form. The slots are stored in parallel arrays of primitives: starting and ending times in minutes since the epoch,
+ * capacities, counters and flags. The Slot objects are only created when they are asked for (see getSlot). The times of the slots are whole minutes.
+ */
+public final class SlotGrid
+{
+    private static final int MINUTES_PER_DAY = 1440;
+    private static final int DEFAULT_INITIAL_CAPACITY = 64;
+    private static final byte FLAG_OPEN = 1;
+    private static final byte FLAG_SPECIFIC = 2;
+    private static final byte FLAG_PASSED = 4;
+    private static final byte FLAG_FULL = 8;
+    // The slot is on a working day which is not a closing day
+    private static final byte FLAG_BOOKABLE_DAY = 16;
+
+    private final int _nIdForm;
+    private int _nSize;
+    private int [ ] _tabIdSlot;
+    private int [ ] _tabStartingMinute;
+    private int [ ] _tabEndingMinute;
+    private int [ ] _tabMaxCapacity;
+    private int [ ] _tabNbRemainingPlaces;
+    private int [ ] _tabNbPotentialRemainingPlaces;
+    private int [ ] _tabNbPlacesTaken;
+    private byte [ ] _tabFlags;
+
+    /**
+     * Constructor
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param nInitialCapacity
+     *            the number of slots the grid can hold before growing
+     */
+    public SlotGrid( int nIdForm, int nInitialCapacity )
+    {
+        int nCapacity = nInitialCapacity > 0 ? nInitialCapacity : DEFAULT_INITIAL_CAPACITY;
+        _nIdForm = nIdForm;
+        _tabIdSlot = new int [ nCapacity];
+        _tabStartingMinute = new int [ nCapacity];
+        _tabEndingMinute = new int [ nCapacity];
+        _tabMaxCapacity = new int [ nCapacity];
+        _tabNbRemainingPlaces = new int [ nCapacity];
+        _tabNbPotentialRemainingPlaces = new int [ nCapacity];
+        _tabNbPlacesTaken = new int [ nCapacity];
+        _tabFlags = new byte [ nCapacity];
+    }
+
+    /**
+     * Build a grid from a list of slots of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param listSlot
+     *            the slots
+     * @return the grid
+     */
+    public static SlotGrid fromListSlot( int nIdForm, List<Slot> listSlot )
+    {
+        SlotGrid grid = new SlotGrid( nIdForm, listSlot.size( ) );
+        for ( Slot slot : listSlot )
+        {
+            grid.addSlot( slot, false );
+        }
+        return grid;
+    }
+
+    /**
+     * Build a grid from a list of slots of a form, with the bookable days of the plan of the form
+     * 
+     * @param plan
+     *            the plan of the form
+     * @param listSlot
+     *            the slots
+     * @return the grid
+     */
+    public static SlotGrid fromListSlot( FormSchedulePlan plan, List<Slot> listSlot )
+    {
+        SlotGrid grid = new SlotGrid( plan.getIdForm( ), listSlot.size( ) );
+        for ( Slot slot : listSlot )
+        {
+            grid.addSlot( slot, plan.isBookableDay( slot.getStartingDateTime( ).toLocalDate( ) ) );
+        }
+        return grid;
+    }
+
+    /**
+     * Get the number of minutes since the epoch of a date time
+     * 
+     * @param dateTime
+     *            the date time
+     * @return the number of minutes, the seconds are ignored
+     */
+    public static int toEpochMinute( LocalDateTime dateTime )
+    {
+        return (int) ( dateTime.toLocalDate( ).toEpochDay( ) * MINUTES_PER_DAY ) + dateTime.getHour( ) * 60 + dateTime.getMinute( );
+    }
+
+    /**
+     * Get the date time of a number of minutes since the epoch
+     * 
+     * @param nEpochMinute
+     *            the number of minutes
+     * @return the date time
+     */
+    public static LocalDateTime toLocalDateTime( int nEpochMinute )
+    {
+        return LocalDateTime.ofEpochSecond( nEpochMinute * 60L, 0, ZoneOffset.UTC );
+    }
+
+    /**
+     * Add a slot found in the database
+     * 
+     * @param slot
+     *            the slot
+     * @param bBookableDay
+     *            true if the slot is on a working day which is not a closing day
+     */
+    public void addSlot( Slot slot, boolean bBookableDay )
+    {
+        int nIndex = add( toEpochMinute( slot.getStartingDateTime( ) ), toEpochMinute( slot.getEndingDateTime( ) ), slot.getMaxCapacity( ) );
+        _tabIdSlot [nIndex] = slot.getIdSlot( );
+        set( nIndex, slot );
+        if ( bBookableDay )
+        {
+            _tabFlags [nIndex] |= FLAG_BOOKABLE_DAY;
+        }
+    }
+
+    /**
+     * Add a slot not yet created in the database: all its places are free
+     * 
+     * @param nStartingMinute
+     *            the starting time, in minutes since the epoch
+     * @param nEndingMinute
+     *            the ending time, in minutes since the epoch
+     * @param nMaxCapacity
+     *            the capacity of the slot
+     * @param bIsOpen
+     *            true if the slot is open
+     * @param bBookableDay
+     *            true if the slot is on a working day which is not a closing day
+     */
+    public void addSlot( int nStartingMinute, int nEndingMinute, int nMaxCapacity, boolean bIsOpen, boolean bBookableDay )
+    {
+        int nIndex = add( nStartingMinute, nEndingMinute, nMaxCapacity );
+        _tabNbRemainingPlaces [nIndex] = nMaxCapacity;
+        _tabNbPotentialRemainingPlaces [nIndex] = nMaxCapacity;
+        _tabFlags [nIndex] = (byte) ( ( bIsOpen ? FLAG_OPEN : 0 ) | ( bBookableDay ? FLAG_BOOKABLE_DAY : 0 ) );
+    }
+
+    /**
+     * Add all the slots of another grid, after the slots of this grid
+     * 
+     * @param grid
+     *            the other grid
+     */
+    public void addAll( SlotGrid grid )
+    {
+        while ( _tabStartingMinute.length < _nSize + grid._nSize )
+        {
+            grow( );
+        }
+        System.arraycopy( grid._tabIdSlot, 0, _tabIdSlot, _nSize, grid._nSize );
+        System.arraycopy( grid._tabStartingMinute, 0, _tabStartingMinute, _nSize, grid._nSize );
+        System.arraycopy( grid._tabEndingMinute, 0, _tabEndingMinute, _nSize, grid._nSize );
+        System.arraycopy( grid._tabMaxCapacity, 0, _tabMaxCapacity, _nSize, grid._nSize );
+        System.arraycopy( grid._tabNbRemainingPlaces, 0, _tabNbRemainingPlaces, _nSize, grid._nSize );
+        System.arraycopy( grid._tabNbPotentialRemainingPlaces, 0, _tabNbPotentialRemainingPlaces, _nSize, grid._nSize );
+        System.arraycopy( grid._tabNbPlacesTaken, 0, _tabNbPlacesTaken, _nSize, grid._nSize );
+        System.arraycopy( grid._tabFlags, 0, _tabFlags, _nSize, grid._nSize );
+        _nSize += grid._nSize;
+    }
+
+    /**
+     * Replace the values of the slot of the grid with the same starting and ending time as the given one
+     * 
+     * @param slot
+     *            the slot
+     * @return true if the slot has been found in the grid
+     */
+    public boolean replaceSlot( Slot slot )
+    {
+        int nStartingMinute = toEpochMinute( slot.getStartingDateTime( ) );
+        int nEndingMinute = toEpochMinute( slot.getEndingDateTime( ) );
+        for ( int i = 0; i < _nSize; i++ )
+        {
+            if ( _tabStartingMinute [i] == nStartingMinute && _tabEndingMinute [i] == nEndingMinute )
+            {
+                _tabIdSlot [i] = slot.getIdSlot( );
+                _tabMaxCapacity [i] = slot.getMaxCapacity( );
+                set( i, slot );
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the id of the form
+     * 
+     * @return the id of the form
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Get the number of slots of the grid
+     * 
+     * @return the number of slots
+     */
+    public int size( )
+    {
+        return _nSize;
+    }
+
+    /**
+     * Get the starting time of a slot
+     * 
+     * @param nIndex
+     *            the index of the slot
+     * @return the starting time, in minutes since the epoch
+     */
+    public int getStartingMinute( int nIndex )
+    {
+        return _tabStartingMinute [nIndex];
+    }
+
+    /**
+     * Get the ending time of a slot
+     * 
+     * @param nIndex
+     *            the index of the slot
+     * @return the ending time, in minutes since the epoch
+     */
+    public int getEndingMinute( int nIndex )
+    {
+        return _tabEndingMinute [nIndex];
+    }
+
+    /**
+     * Get the number of potential remaining places of a slot
+     * 
+     * @param nIndex
+     *            the index of the slot
+     * @return the number of potential remaining places
+     */
+    public int getNbPotentialRemainingPlaces( int nIndex )
+    {
+        return _tabNbPotentialRemainingPlaces [nIndex];
+    }
+
+    /**
+     * Check if a slot is open
+     * 
+     * @param nIndex
+     *            the index of the slot
+     * @return true if the slot is open
+     */
+    public boolean isOpen( int nIndex )
+    {
+        return ( _tabFlags [nIndex] & FLAG_OPEN ) != 0;
+    }
+
+    /**
+     * Check if a slot is on a working day which is not a closing day
+     * 
+     * @param nIndex
+     *            the index of the slot
+     * @return true if the places of the slot can be taken on this day
+     */
+    public boolean isBookableDay( int nIndex )
+    {
+        return ( _tabFlags [nIndex] & FLAG_BOOKABLE_DAY ) != 0;
+    }
+
+    /**
+     * Create the slot object of a slot of the grid
+     * 
+     * @param nIndex
+     *            the index of the slot
+     * @return a new slot, which can be modified by the caller
+     */
+    public Slot getSlot( int nIndex )
+    {
+        Slot slot = new Slot( );
+        LocalDateTime startingDateTime = toLocalDateTime( _tabStartingMinute [nIndex] );
+        LocalDateTime endingDateTime = toLocalDateTime( _tabEndingMinute [nIndex] );
+        byte flags = _tabFlags [nIndex];
+        slot.setIdSlot( _tabIdSlot [nIndex] );
+        slot.setIdForm( _nIdForm );
+        slot.setStartingDateTime( startingDateTime );
+        slot.setEndingDateTime( endingDateTime );
+        slot.setDate( startingDateTime.toLocalDate( ) );
+        slot.setStartingTime( startingDateTime.toLocalTime( ) );
+        slot.setEndingTime( endingDateTime.toLocalTime( ) );
+        slot.setMaxCapacity( _tabMaxCapacity [nIndex] );
+        slot.setNbRemainingPlaces( _tabNbRemainingPlaces [nIndex] );
+        slot.setNbPotentialRemainingPlaces( _tabNbPotentialRemainingPlaces [nIndex] );
+        slot.setNbPlacestaken( _tabNbPlacesTaken [nIndex] );
+        slot.setIsOpen( ( flags & FLAG_OPEN ) != 0 );
+        slot.setIsSpecific( ( flags & FLAG_SPECIFIC ) != 0 );
+        slot.setIsPassed( ( flags & FLAG_PASSED ) != 0 );
+        slot.setIsFull( ( flags & FLAG_FULL ) != 0 ? 1 : 0 );
+        return slot;
+    }
+
+    /**
+     * Create the slot objects of all the slots of the grid
+     * 
+     * @return the list of the slots, in the order of the grid
+     */
+    public List<Slot> getListSlot( )
+    {
+        List<Slot> listSlot = new ArrayList<>( _nSize );
+        for ( int i = 0; i < _nSize; i++ )
+        {
+            listSlot.add( getSlot( i ) );
+        }
+        return listSlot;
+    }
+
+    /**
+     * Group the consecutive slots of the bookable days to take several places at once, one place per slot. A group is built for each window of nNbPlaces
+     * consecutive slots which can be taken in a day, so the groups overlap. The windows are found in a single pass over the slots, and a prefix count of the
+     * full slots tells if one of the slots taken since the previous group is full. Only the groups are created as slot objects.
+     * 
+     * @param nNbPlaces
+     *            the number of places to take; no group is built if it is lower than 1
+     * @param bAllOpenSlot
+     *            true to group the open slots even if they are full, one place per slot
+     * @param now
+     *            the current date time: the slots ended before are not taken
+     * @return the list of the groups
+     */
+    public List<Slot> buildListGroupedSlot( int nNbPlaces, boolean bAllOpenSlot, LocalDateTime now )
+    {
+        List<Slot> listGroupedSlot = new ArrayList<>( );
+        if ( nNbPlaces < 1 )
+        {
+            return listGroupedSlot;
+        }
+        // A slot is passed if it ends before this minute
+        int nPassedLimit = toEpochMinute( now ) + ( now.getSecond( ) > 0 || now.getNano( ) > 0 ? 1 : 0 );
+        // The number of full slots which can be taken before each index
+        int [ ] tabNbFullSlotBefore = new int [ _nSize + 1];
+        for ( int i = 0; i < _nSize; i++ )
+        {
+            boolean bIsFullSlot = isBookableDay( i ) && canBeTaken( i, nPassedLimit, bAllOpenSlot ) && _tabNbPotentialRemainingPlaces [i] <= 0;
+            tabNbFullSlotBefore [i + 1] = tabNbFullSlotBefore [i] + ( bIsFullSlot ? 1 : 0 );
+        }
+        // The index from which the full slots are counted for the next group
+        int nFullSlotFrom = 0;
+        int nDayStart = 0;
+        while ( nDayStart < _nSize )
+        {
+            if ( !isBookableDay( nDayStart ) )
+            {
+                nDayStart++;
+                continue;
+            }
+            int nDay = Math.floorDiv( _tabStartingMinute [nDayStart], MINUTES_PER_DAY );
+            int nDayEnd = nDayStart + 1;
+            while ( nDayEnd < _nSize && isBookableDay( nDayEnd ) && Math.floorDiv( _tabStartingMinute [nDayEnd], MINUTES_PER_DAY ) == nDay )
+            {
+                nDayEnd++;
+            }
+            // The first slot of the current run of slots which can be taken
+            int nRunStart = nDayStart;
+            for ( int i = nDayStart; i < nDayEnd; i++ )
+            {
+                if ( !canBeTaken( i, nPassedLimit, bAllOpenSlot ) )
+                {
+                    nRunStart = i + 1;
+                    continue;
+                }
+                int nFirst = i - nNbPlaces + 1;
+                if ( nFirst >= nRunStart )
+                {
+                    // A group following another slot of the day starts when this slot ends
+                    int nStartingMinute = ( nFirst == nDayStart ) ? _tabStartingMinute [nFirst] : _tabEndingMinute [nFirst - 1];
+                    Slot slot = new Slot( );
+                    slot.setStartingDateTime( toLocalDateTime( nStartingMinute ) );
+                    slot.setEndingDateTime( toLocalDateTime( _tabEndingMinute [i] ) );
+                    slot.setIsOpen( true );
+                    slot.setNbPotentialRemainingPlaces( nNbPlaces );
+                    slot.setNbRemainingPlaces( nNbPlaces );
+                    slot.setDate( LocalDate.ofEpochDay( nDay ) );
+                    slot.setIdForm( _nIdForm );
+                    slot.setIsFull( tabNbFullSlotBefore [i + 1] > tabNbFullSlotBefore [nFullSlotFrom] ? 1 : 0 );
+                    listGroupedSlot.add( slot );
+                    nFullSlotFrom = nFirst + 1;
+                }
+            }
+            nDayStart = nDayEnd;
+        }
+        return listGroupedSlot;
+    }
+
+    /**
+     * Check if a slot can be part of a group
+     */
+    private boolean canBeTaken( int nIndex, int nPassedLimit, boolean bAllOpenSlot )
+    {
+        return isOpen( nIndex ) && _tabEndingMinute [nIndex] >= nPassedLimit && ( bAllOpenSlot || _tabNbPotentialRemainingPlaces [nIndex] > 0 );
+    }
+
+    /**
+     * Add a slot at the end of the grid
+     */
+    private int add( int nStartingMinute, int nEndingMinute, int nMaxCapacity )
+    {
+        if ( _nSize == _tabStartingMinute.length )
+        {
+            grow( );
+        }
+        int nIndex = _nSize++;
+        _tabStartingMinute [nIndex] = nStartingMinute;
+        _tabEndingMinute [nIndex] = nEndingMinute;
+        _tabMaxCapacity [nIndex] = nMaxCapacity;
+        return nIndex;
+    }
+
+    /**
+     * Set the counters and the flags of a slot of the grid from a slot, keeping its bookable day flag
+     */
+    private void set( int nIndex, Slot slot )
+    {
+        _tabNbRemainingPlaces [nIndex] = slot.getNbRemainingPlaces( );
+        _tabNbPotentialRemainingPlaces [nIndex] = slot.getNbPotentialRemainingPlaces( );
+        _tabNbPlacesTaken [nIndex] = slot.getNbPlacesTaken( );
+        int nFlags = _tabFlags [nIndex] & FLAG_BOOKABLE_DAY;
+        nFlags |= slot.getIsOpen( ) ? FLAG_OPEN : 0;
+        nFlags |= slot.getIsSpecific( ) ? FLAG_SPECIFIC : 0;
+        nFlags |= slot.getIsPassed( ) ? FLAG_PASSED : 0;
+        nFlags |= slot.getIsFull( ) ? FLAG_FULL : 0;
+        _tabFlags [nIndex] = (byte) nFlags;
+    }
+
+    /**
+     * Double the capacity of the arrays
+     */
+    private void grow( )
+    {
+        int nCapacity = _tabStartingMinute.length * 2;
+        _tabIdSlot = Arrays.copyOf( _tabIdSlot, nCapacity );
+        _tabStartingMinute = Arrays.copyOf( _tabStartingMinute, nCapacity );
+        _tabEndingMinute = Arrays.copyOf( _tabEndingMinute, nCapacity );
+        _tabMaxCapacity = Arrays.copyOf( _tabMaxCapacity, nCapacity );
+        _tabNbRemainingPlaces = Arrays.copyOf( _tabNbRemainingPlaces, nCapacity );
+        _tabNbPotentialRemainingPlaces = Arrays.copyOf( _tabNbPotentialRemainingPlaces, nCapacity );
+        _tabNbPlacesTaken = Arrays.copyOf( _tabNbPlacesTaken, nCapacity );
+        _tabFlags = Arrays.copyOf( _tabFlags, nCapacity );
+    }
+}
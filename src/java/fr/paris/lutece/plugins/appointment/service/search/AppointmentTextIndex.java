@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.search;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trigram index of the names, the email and the phone number of the users of the appointments. The index gives the appointments which may match the text
+ * criteria of a search: each value containing a text contains all the sequences of three characters of the text. The values and the texts are upper cased
+ * and their accents are removed, so the candidates are a superset of the appointments matching a case and accent insensitive search.
+ */
+public final class AppointmentTextIndex
+{
+    private static final int NB_FIELDS = 4;
+    private static final int GRAM_LENGTH = 3;
+    // The wildcards of a LIKE, which the index cannot search
+    private static final String LIKE_WILDCARDS = "%_";
+
+    // The normalized values of each appointment, by field
+    private final Map<Integer, String [ ]> _mapValues = new HashMap<>( );
+    // The sorted ids of the appointments having each trigram in each field
+    private final Map<Long, IdList> _mapIdList = new HashMap<>( );
+
+    /**
+     * Add an appointment to the index, or replace its values
+     * 
+     * @param nIdAppointment
+     *            the id of the appointment
+     * @param strFirstName
+     *            the first name of the user
+     * @param strLastName
+     *            the last name of the user
+     * @param strEmail
+     *            the email of the user
+     * @param strPhoneNumber
+     *            the phone number of the user
+     */
+    public synchronized void put( int nIdAppointment, String strFirstName, String strLastName, String strEmail, String strPhoneNumber )
+    {
+        remove( nIdAppointment );
+        // The values by field: first name, last name, email and phone number
+        String [ ] tabValue = {
+                normalize( strFirstName ), normalize( strLastName ), normalize( strEmail ), normalize( strPhoneNumber )
+        };
+        _mapValues.put( nIdAppointment, tabValue );
+        for ( int nField = 0; nField < NB_FIELDS; nField++ )
+        {
+            for ( long lKey : getKeys( nField, tabValue [nField] ) )
+            {
+                _mapIdList.computeIfAbsent( lKey, k -> new IdList( ) ).add( nIdAppointment );
+            }
+        }
+    }
+
+    /**
+     * Remove an appointment from the index
+     * 
+     * @param nIdAppointment
+     *            the id of the appointment
+     */
+    public synchronized void remove( int nIdAppointment )
+    {
+        String [ ] tabValue = _mapValues.remove( nIdAppointment );
+        if ( tabValue == null )
+        {
+            return;
+        }
+        for ( int nField = 0; nField < NB_FIELDS; nField++ )
+        {
+            for ( long lKey : getKeys( nField, tabValue [nField] ) )
+            {
+                IdList idList = _mapIdList.get( lKey );
+                idList.remove( nIdAppointment );
+                if ( idList.size( ) == 0 )
+                {
+                    _mapIdList.remove( lKey );
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of appointments in the index
+     * 
+     * @return the number of appointments
+     */
+    public synchronized int size( )
+    {
+        return _mapValues.size( );
+    }
+
+    /**
+     * Find the appointments whose values may contain the texts of a search. A text which is null, shorter than three characters or containing a wildcard
+     * of a LIKE does not restrict the search.
+     * 
+     * @param strFirstName
+     *            the text to search in the first names, or null
+     * @param strLastName
+     *            the text to search in the last names, or null
+     * @param strEmail
+     *            the text to search in the emails, or null
+     * @param strPhoneNumber
+     *            the text to search in the phone numbers, or null
+     * @return the sorted ids of the candidate appointments, or null if no text restricts the search
+     */
+    public synchronized int [ ] findCandidates( String strFirstName, String strLastName, String strEmail, String strPhoneNumber )
+    {
+        String [ ] tabText = {
+                strFirstName, strLastName, strEmail, strPhoneNumber
+        };
+        int [ ] tabIdCandidate = null;
+        for ( int nField = 0; nField < NB_FIELDS; nField++ )
+        {
+            String strText = normalize( tabText [nField] );
+            if ( strText.length( ) < GRAM_LENGTH || strText.chars( ).anyMatch( c -> LIKE_WILDCARDS.indexOf( c ) >= 0 ) )
+            {
+                continue;
+            }
+            for ( long lKey : getKeys( nField, strText ) )
+            {
+                IdList idList = _mapIdList.get( lKey );
+                if ( idList == null )
+                {
+                    return new int [ 0];
+                }
+                tabIdCandidate = ( tabIdCandidate == null ) ? idList.toArray( ) : idList.retainIn( tabIdCandidate );
+                if ( tabIdCandidate.length == 0 )
+                {
+                    return tabIdCandidate;
+                }
+            }
+        }
+        return tabIdCandidate;
+    }
+
+    /**
+     * Upper case a value and remove its accents
+     * 
+     * @param strValue
+     *            the value, or null
+     * @return the normalized value, empty if the value is null
+     */
+    static String normalize( String strValue )
+    {
+        if ( strValue == null )
+        {
+            return "";
+        }
+        return Normalizer.normalize( strValue, Normalizer.Form.NFD ).replaceAll( "\\p{M}", "" ).toUpperCase( );
+    }
+
+    /**
+     * Get the keys of the distinct trigrams of a value in a field
+     */
+    private static Set<Long> getKeys( int nField, String strValue )
+    {
+        Set<Long> setKey = new HashSet<>( );
+        for ( int i = 0; i + GRAM_LENGTH <= strValue.length( ); i++ )
+        {
+            long lTrigram = ( (long) strValue.charAt( i ) << 32 ) | ( (long) strValue.charAt( i + 1 ) << 16 ) | strValue.charAt( i + 2 );
+            setKey.add( ( (long) nField << 48 ) | lTrigram );
+        }
+        return setKey;
+    }
+
+    /**
+     * Sorted list of ids
+     */
+    private static final class IdList
+    {
+        private int [ ] _tabId = new int [ 4];
+        private int _nSize;
+
+        /**
+         * Add an id, if it is not in the list
+         */
+        void add( int nId )
+        {
+            int nIndex = Arrays.binarySearch( _tabId, 0, _nSize, nId );
+            if ( nIndex >= 0 )
+            {
+                return;
+            }
+            nIndex = -nIndex - 1;
+            if ( _nSize == _tabId.length )
+            {
+                _tabId = Arrays.copyOf( _tabId, _nSize * 2 );
+            }
+            System.arraycopy( _tabId, nIndex, _tabId, nIndex + 1, _nSize - nIndex );
+            _tabId [nIndex] = nId;
+            _nSize++;
+        }
+
+        /**
+         * Remove an id, if it is in the list
+         */
+        void remove( int nId )
+        {
+            int nIndex = Arrays.binarySearch( _tabId, 0, _nSize, nId );
+            if ( nIndex >= 0 )
+            {
+                System.arraycopy( _tabId, nIndex + 1, _tabId, nIndex, _nSize - nIndex - 1 );
+                _nSize--;
+            }
+        }
+
+        /**
+         * Get the number of ids
+         */
+        int size( )
+        {
+            return _nSize;
+        }
+
+        /**
+         * Copy the ids
+         */
+        int [ ] toArray( )
+        {
+            return Arrays.copyOf( _tabId, _nSize );
+        }
+
+        /**
+         * Keep the ids of a sorted array which are in the list
+         */
+        int [ ] retainIn( int [ ] tabId )
+        {
+            int [ ] tabIdRetained = new int [ Math.min( tabId.length, _nSize )];
+            int nNbRetained = 0;
+            int j = 0;
+            for ( int i = 0; i < tabId.length && j < _nSize; i++ )
+            {
+                while ( j < _nSize && _tabId [j] < tabId [i] )
+                {
+                    j++;
+                }
+                if ( j < _nSize && _tabId [j] == tabId [i] )
+                {
+                    tabIdRetained [nNbRetained++] = tabId [i];
+                }
+            }
+            return Arrays.copyOf( tabIdRetained, nNbRetained );
+        }
+    }
+}
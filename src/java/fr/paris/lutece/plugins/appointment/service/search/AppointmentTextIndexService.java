@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.search;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
+import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentHome;
+import fr.paris.lutece.plugins.appointment.business.user.User;
+import fr.paris.lutece.plugins.appointment.business.user.UserHome;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFilterDTO;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Service giving the text index of the appointments, which resolves the text criteria of a search into the ids of the appointments which may match them.
+ * The index is built by the daemon and kept up to date by the services writing the appointments, on their node and once their transaction is committed. The
+ * appointments created on another node of a cluster since the index was built are not in the index: the search keeps all the appointments whose id is
+ * above the last id read by the build. The users updated on another node are seen when the daemon builds the index again.
+ */
+public final class AppointmentTextIndexService
+{
+    private static final String PROPERTY_ENABLED = "appointment.textIndex.enabled";
+    private static final String PROPERTY_MAX_NB_IDS = "appointment.textIndex.maxNbIds";
+    private static final int DEFAULT_MAX_NB_IDS = 1000;
+
+    // Null until the index is built, guarded by the class
+    private static AppointmentTextIndex _index;
+    // The highest id of appointment read when the index was built, guarded by the class
+    private static int _nIdLastIndexedAppointment;
+    // The appointments changed while the index is built, not null only during a build, guarded by the class
+    private static Set<Integer> _setIdChangedDuringBuild;
+
+    /**
+     * Private constructor - this class does not need to be instantiated
+     */
+    private AppointmentTextIndexService( )
+    {
+    }
+
+    /**
+     * Build the index of all the appointments and replace the current one
+     * 
+     * @return the number of appointments in the index, or -1 if the index is disabled or already being built
+     */
+    public static int buildIndex( )
+    {
+        synchronized( AppointmentTextIndexService.class )
+        {
+            if ( !AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, true ) )
+            {
+                _index = null;
+                return -1;
+            }
+            if ( _setIdChangedDuringBuild != null )
+            {
+                return -1;
+            }
+            _setIdChangedDuringBuild = new HashSet<>( );
+        }
+        AppointmentTextIndex index = new AppointmentTextIndex( );
+        int [ ] tabIdLastIndexed = new int [ 1];
+        Set<Integer> setIdChanged;
+        try
+        {
+            AppointmentHome.forEachWithUser( appointment -> {
+                index.put( appointment.getIdAppointment( ), appointment.getFirstName( ), appointment.getLastName( ), appointment.getEmail( ),
+                        appointment.getPhoneNumber( ) );
+                tabIdLastIndexed [0] = Math.max( tabIdLastIndexed [0], appointment.getIdAppointment( ) );
+            } );
+            synchronized( AppointmentTextIndexService.class )
+            {
+                _index = index;
+                _nIdLastIndexedAppointment = tabIdLastIndexed [0];
+                setIdChanged = _setIdChangedDuringBuild;
+            }
+        }
+        finally
+        {
+            synchronized( AppointmentTextIndexService.class )
+            {
+                _setIdChangedDuringBuild = null;
+            }
+        }
+        // The appointments changed while the rows were read may have been read before their change
+        for ( int nIdAppointment : setIdChanged )
+        {
+            indexAppointment( index, nIdAppointment );
+        }
+        return index.size( );
+    }
+
+    /**
+     * Index an appointment created or updated
+     * 
+     * @param nIdAppointment
+     *            the id of the appointment
+     */
+    public static void notifyAppointmentChange( int nIdAppointment )
+    {
+        AppointmentTextIndex index = getIndexToChange( nIdAppointment );
+        if ( index != null )
+        {
+            indexAppointment( index, nIdAppointment );
+        }
+    }
+
+    /**
+     * Remove an appointment from the index
+     * 
+     * @param nIdAppointment
+     *            the id of the appointment
+     */
+    public static void notifyAppointmentRemoval( int nIdAppointment )
+    {
+        AppointmentTextIndex index = getIndexToChange( nIdAppointment );
+        if ( index != null )
+        {
+            index.remove( nIdAppointment );
+        }
+    }
+
+    /**
+     * Resolve the text criteria of a filter into the ids of the appointments which may match them, and the appointments created after the index was built.
+     * The filter is not restricted if the index is not built, if no criterion is long enough to be searched in the index, or if too many appointments may
+     * match.
+     * 
+     * @param appointmentFilter
+     *            the filter
+     */
+    public static void resolveTextCriteria( AppointmentFilterDTO appointmentFilter )
+    {
+        appointmentFilter.setListIdAppointmentMatchingText( null );
+        AppointmentTextIndex index;
+        int nIdLastIndexedAppointment;
+        synchronized( AppointmentTextIndexService.class )
+        {
+            index = _index;
+            nIdLastIndexedAppointment = _nIdLastIndexedAppointment;
+        }
+        if ( index == null )
+        {
+            return;
+        }
+        int [ ] tabIdCandidate = index.findCandidates( appointmentFilter.getFirstName( ), appointmentFilter.getLastName( ), appointmentFilter.getEmail( ),
+                appointmentFilter.getPhoneNumber( ) );
+        if ( tabIdCandidate != null && tabIdCandidate.length <= AppPropertiesService.getPropertyInt( PROPERTY_MAX_NB_IDS, DEFAULT_MAX_NB_IDS ) )
+        {
+            appointmentFilter.setListIdAppointmentMatchingText( Arrays.stream( tabIdCandidate ).boxed( ).collect( Collectors.toList( ) ) );
+            appointmentFilter.setIdLastIndexedAppointment( nIdLastIndexedAppointment );
+        }
+    }
+
+    /**
+     * Get the index to change for an appointment, and record the change if the index is being built
+     */
+    private static synchronized AppointmentTextIndex getIndexToChange( int nIdAppointment )
+    {
+        if ( _setIdChangedDuringBuild != null )
+        {
+            _setIdChangedDuringBuild.add( nIdAppointment );
+        }
+        return _index;
+    }
+
+    /**
+     * Put the current values of an appointment in an index, or remove it if it no longer exists
+     */
+    private static void indexAppointment( AppointmentTextIndex index, int nIdAppointment )
+    {
+        Appointment appointment = AppointmentHome.findByPrimaryKey( nIdAppointment );
+        User user = ( appointment != null ) ? UserHome.findByPrimaryKey( appointment.getIdUser( ) ) : null;
+        if ( user == null )
+        {
+            index.remove( nIdAppointment );
+        }
+        else
+        {
+            index.put( nIdAppointment, user.getFirstName( ), user.getLastName( ), user.getEmail( ), user.getPhoneNumber( ) );
+        }
+    }
+}
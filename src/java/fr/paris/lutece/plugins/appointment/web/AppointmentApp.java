@@ -37,6 +37,7 @@ import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.TemporalField;
 import java.time.temporal.WeekFields;
 import java.util.ArrayList;
@@ -52,6 +53,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import fr.paris.lutece.portal.business.file.File;
 import fr.paris.lutece.portal.service.security.SecurityTokenService;
@@ -62,7 +64,6 @@ import org.apache.commons.lang3.StringUtils;
 import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
 import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentSlot;
 import fr.paris.lutece.plugins.appointment.business.calendar.CalendarTemplate;
-import fr.paris.lutece.plugins.appointment.business.calendar.CalendarTemplateHome;
 import fr.paris.lutece.plugins.appointment.business.form.Form;
 import fr.paris.lutece.plugins.appointment.business.message.FormMessage;
 import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
@@ -75,8 +76,8 @@ import fr.paris.lutece.plugins.appointment.log.LogUtilities;
 import fr.paris.lutece.plugins.appointment.service.AppointmentResponseService;
 import fr.paris.lutece.plugins.appointment.service.AppointmentService;
 import fr.paris.lutece.plugins.appointment.service.AppointmentUtilities;
+import fr.paris.lutece.plugins.appointment.service.AvailabilityService;
 import fr.paris.lutece.plugins.appointment.service.EntryService;
-import fr.paris.lutece.plugins.appointment.service.FormMessageService;
 import fr.paris.lutece.plugins.appointment.service.FormService;
 import fr.paris.lutece.plugins.appointment.service.ReservationRuleService;
 import fr.paris.lutece.plugins.appointment.service.SlotSafeService;
@@ -84,6 +85,10 @@ import fr.paris.lutece.plugins.appointment.service.SlotService;
 import fr.paris.lutece.plugins.appointment.service.UserService;
 import fr.paris.lutece.plugins.appointment.service.Utilities;
 import fr.paris.lutece.plugins.appointment.service.WeekDefinitionService;
+import fr.paris.lutece.plugins.appointment.service.admission.AdmissionService;
+import fr.paris.lutece.plugins.appointment.service.admission.AdmissionTicket;
+import fr.paris.lutece.plugins.appointment.service.cache.AvailabilityCacheService;
+import fr.paris.lutece.plugins.appointment.service.cache.FormSnapshotService;
 import fr.paris.lutece.plugins.appointment.service.listeners.AppointmentListenerManager;
 import fr.paris.lutece.plugins.appointment.service.upload.AppointmentAsynchronousUploadHandler;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
@@ -164,6 +169,7 @@ public class AppointmentApp extends MVCApplication
     private static final String TEMPLATE_HTML_CODE_NB_PLACES_TO_TAKE_FORM = "skin/plugins/appointment/appointment_nb_places_to_take_form.html";
     private static final String TEMPLATE_TASKS_FORM_WORKFLOW = "skin/plugins/appointment/tasks_form_workflow.html";
     private static final String TEMPLATE_ERROR_APPOINTMENT_REFERENCE = "skin/plugins/appointment/error_appointment_reference.html";
+    private static final String TEMPLATE_WAITING_ROOM = "skin/plugins/appointment/appointment_waiting_room.html";
 
     // Views
     public static final String VIEW_APPOINTMENT_FORM = "getViewAppointmentForm";
@@ -188,9 +194,16 @@ public class AppointmentApp extends MVCApplication
     private static final String PARAMETER_ENDING_DATE_OF_DISPLAY = "ending_date_of_display";
     private static final String PARAMETER_STR_ENDING_DATE_OF_DISPLAY = "str_ending_date_of_display";
     private static final String PARAMETER_DATE_OF_DISPLAY = "date_of_display";
+    private static final String PARAMETER_STARTING_DATE = "starting_date";
+    private static final String PARAMETER_ENDING_DATE = "ending_date";
+    private static final String PARAMETER_NB_BOOKED_SEATS = "nb_booked_seats";
     private static final String PARAMETER_DAY_OF_WEEK = "dow";
     private static final String PARAMETER_HIDDEN_DAYS = "hidden_days";
     private static final String PARAMETER_ID_FORM = "id_form";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    private static final String CACHE_CONTROL_NO_CACHE = "no-cache";
     private static final String PARAMETER_EVENTS = "events";
     private static final String PARAMETER_MIN_DURATION = "min_duration";
     private static final String PARAMETER_MIN_TIME = "min_time";
@@ -218,6 +231,7 @@ public class AppointmentApp extends MVCApplication
     // Mark
     private static final String MARK_MODIFICATION_DATE_APPOINTMENT = "modifDateAppointment";
     private static final String MARK_NBPLACESTOTAKE = "nbPlacesToTake";
+    private static final String MARK_NB_BOOKED_SEATS = "nb_booked_seats";
     private static final String MARK_MAX_NBPLACESTOTAKE = "maxNbPlacesToTake";
     private static final String MARK_INFOS = "infos";
     private static final String MARK_LOCALE = "locale";
@@ -243,6 +257,9 @@ public class AppointmentApp extends MVCApplication
     private static final String MARK_TIME_END = "%%HEURE_FIN%%";
     private static final String MARK_LIST_APPOINTMENTS = "list_appointments";
     private static final String MARK_BACK_URL = "backUrl";
+    private static final String MARK_POSITION = "position";
+    private static final String MARK_RETRY_DELAY = "retryDelay";
+    private static final String MARK_RETRY_URL = "retryUrl";
     private static final String MARK_FROM_URL = "fromUrl";
     private static final String MARK_LIST_RESPONSE_RECAP_DTO = "listResponseRecapDTO";
     private static final String MARK_DATA = "data";
@@ -308,9 +325,41 @@ public class AppointmentApp extends MVCApplication
      * @return the Xpage
      * @throws AccessDeniedException
      */
-    @SuppressWarnings( "unchecked" )
     @View( VIEW_APPOINTMENT_CALENDAR )
     public synchronized XPage getViewAppointmentCalendar( HttpServletRequest request ) throws AccessDeniedException
+    {
+        int nIdForm = Integer.parseInt( request.getParameter( PARAMETER_ID_FORM ) );
+        try ( AdmissionTicket admissionTicket = AdmissionService.enter( nIdForm ) )
+        {
+            if ( !admissionTicket.isAdmitted( ) )
+            {
+                UrlItem urlRetry = new UrlItem( AppPathService.getPortalUrl( ) );
+                urlRetry.addParameter( MVCUtils.PARAMETER_PAGE, XPAGE_NAME );
+                urlRetry.addParameter( MVCUtils.PARAMETER_VIEW, VIEW_APPOINTMENT_CALENDAR );
+                urlRetry.addParameter( PARAMETER_ID_FORM, nIdForm );
+                if ( StringUtils.isNotEmpty( request.getParameter( PARAMETER_NB_PLACE_TO_TAKE ) ) )
+                {
+                    urlRetry.addParameter( PARAMETER_NB_PLACE_TO_TAKE, request.getParameter( PARAMETER_NB_PLACE_TO_TAKE ) );
+                }
+                if ( StringUtils.isNotEmpty( request.getParameter( PARAMETER_REF_APPOINTMENT ) ) )
+                {
+                    urlRetry.addParameter( PARAMETER_REF_APPOINTMENT, request.getParameter( PARAMETER_REF_APPOINTMENT ) );
+                }
+                return getWaitingRoomXPage( request, admissionTicket, urlRetry );
+            }
+            return buildViewAppointmentCalendar( request );
+        }
+    }
+
+    /**
+     * Build the calendar view
+     *
+     * @param request
+     * @return the Xpage
+     * @throws AccessDeniedException
+     */
+    @SuppressWarnings( "unchecked" )
+    private XPage buildViewAppointmentCalendar( HttpServletRequest request ) throws AccessDeniedException
     {
         Map<String, Object> model = getModel( );
         Locale locale = getLocale( request );
@@ -329,7 +378,7 @@ public class AppointmentApp extends MVCApplication
             bError = true;
         }
 
-        FormMessage formMessages = FormMessageService.findFormMessageByIdForm( nIdForm );
+        FormMessage formMessages = FormSnapshotService.getFormMessage( nIdForm );
 
         if ( StringUtils.isNotEmpty( refAppointment ) )
         {
@@ -353,49 +402,19 @@ public class AppointmentApp extends MVCApplication
                 nbPlacesToTake = Integer.toString( _validatedAppointment.getNbBookedSeats( ) );
             }
         }
-        LocalDate startingDateOfDisplay = LocalDate.now( );
         // Check if the date of display and the endDateOfDisplay are in the
         // validity date range of the form
-        LocalDate startingValidityDate = null;
         if ( _appointmentForm.getDateStartValidity( ) == null )
         {
             addError( ERROR_MESSAGE_NO_STARTING_VALIDITY_DATE, locale );
             bError = true;
         }
-        else
-        {
-            startingValidityDate = _appointmentForm.getDateStartValidity( ).toLocalDate( );
-        }
-        if ( startingValidityDate != null && startingValidityDate.isAfter( startingDateOfDisplay ) )
+        LocalDate startingDateOfDisplay = AvailabilityService.getFirstDayOfBooking( _appointmentForm );
+        LocalDate endingDateOfDisplay = AvailabilityService.getLastDayOfBooking( _appointmentForm, startingDateOfDisplay, locale );
+        if ( _appointmentForm.getDateEndValidity( ) != null && startingDateOfDisplay.isAfter( endingDateOfDisplay ) )
         {
-            startingDateOfDisplay = startingValidityDate;
-        }
-        // Get the nb weeks to display
-        int nNbWeeksToDisplay = _appointmentForm.getNbWeeksToDisplay( );
-        // Calculate the ending date of display with the nb weeks to display
-        // since today
-        // We calculate the number of weeks including the current week, so it
-        // will end to the (n) next sunday
-        TemporalField fieldISO = WeekFields.of( locale ).dayOfWeek( );
-        LocalDate dateOfSunday = startingDateOfDisplay.with( fieldISO, DayOfWeek.SUNDAY.getValue( ) );
-        LocalDate endingDateOfDisplay = dateOfSunday.plusWeeks( (long) nNbWeeksToDisplay - 1 );
-        // if the ending date of display is after the ending validity date of
-        // the form
-        // assign the ending date of display with the ending validity date of
-        // the form
-        LocalDate endingValidityDate = null;
-        if ( _appointmentForm.getDateEndValidity( ) != null )
-        {
-            endingValidityDate = _appointmentForm.getDateEndValidity( ).toLocalDate( );
-            if ( endingDateOfDisplay.isAfter( endingValidityDate ) )
-            {
-                endingDateOfDisplay = endingValidityDate;
-            }
-            if ( startingDateOfDisplay.isAfter( endingDateOfDisplay ) )
-            {
-                addError( ERROR_MESSAGE_FORM_NO_MORE_VALID, locale );
-                bError = true;
-            }
+            addError( ERROR_MESSAGE_FORM_NO_MORE_VALID, locale );
+            bError = true;
         }
         // Get the current date of display of the calendar, if it exists
         String strDateOfDisplay = request.getParameter( PARAMETER_DATE_OF_DISPLAY );
@@ -417,7 +436,9 @@ public class AppointmentApp extends MVCApplication
 
         List<String> listStrBase0OpenDaysOfWeek = new ArrayList<>(
                 WeekDefinitionService.getSetDaysOfWeekOfAListOfWeekDefinitionForFullCalendar( listReservationRules ) );
-        // Build the slots if no errors
+        CalendarTemplate calendarTemplate = FormSnapshotService.getCalendarTemplate( nIdForm );
+        int nNbBookedSeats = 0;
+        // Build the slots of the week displayed if no errors, the other weeks are asked by the calendar (see getAvailability)
         List<Slot> listSlots = new ArrayList<>( );
         if ( !bError )
         {
@@ -425,13 +446,10 @@ public class AppointmentApp extends MVCApplication
             if ( _appointmentForm.getIsMultislotAppointment( ) && ( _nNbPlacesToTake != 0 || isNewNbPlacesToTake ) )
             {
                 _nNbPlacesToTake = isNewNbPlacesToTake ? Integer.parseInt( nbPlacesToTake ) : _nNbPlacesToTake;
-                listSlots = SlotService.buildListSlot( nIdForm, mapReservationRule, startingDateOfDisplay, endingDateOfDisplay, _nNbPlacesToTake );
-
             }
             else
             {
                 _nNbPlacesToTake = 0;
-                listSlots = SlotService.buildListSlot( nIdForm, mapReservationRule, startingDateOfDisplay, endingDateOfDisplay );
             }
 
             if ( _nNbPlacesToTake > Integer.parseInt( _strNbPlacesToTakeLength ) )
@@ -451,23 +469,12 @@ public class AppointmentApp extends MVCApplication
             	return accessControlPage;
             }
 
-            // Get the min time from now before a user can take an appointment (in hours)
-            int minTimeBeforeAppointment = _appointmentForm.getMinTimeBeforeAppointment( );
-            LocalDateTime dateTimeBeforeAppointment = LocalDateTime.now( ).plusHours( minTimeBeforeAppointment );
-            // Filter the list of slots
-            if ( CollectionUtils.isNotEmpty( listSlots ) )
-            {
-                listSlots = listSlots.stream( ).filter( s -> s.getStartingDateTime( ).isAfter( dateTimeBeforeAppointment ) ).collect( Collectors.toList( ) );
-            }
-
             // If we change the date of an appointment
-            // filter the list of slot with only the ones that have enough places at
+            // keep only the slots that have enough places at
             // the moment of the edition
             if ( _validatedAppointment != null )
             {
-                int nbBookedSeats = _validatedAppointment.getNbBookedSeats( );
-                listSlots = listSlots.stream( ).filter( s -> s.getNbPotentialRemainingPlaces( ) >= nbBookedSeats && s.getIsOpen( ) )
-                        .collect( Collectors.toList( ) );
+                nNbBookedSeats = _validatedAppointment.getNbBookedSeats( );
                 model.put( MARK_MODIFICATION_DATE_APPOINTMENT, true );
                 model.put( PARAMETER_REF_APPOINTMENT, refAppointment );
             }
@@ -476,17 +483,12 @@ public class AppointmentApp extends MVCApplication
                 model.put( MARK_MODIFICATION_DATE_APPOINTMENT, false );
             }
 
+            // Need to find the first available slot from now (with time), known by the index of the first available slots
+            Slot firstFreeOpenSlot = AvailabilityService.findFirstFreeOpenSlot( _appointmentForm, _nNbPlacesToTake, nNbBookedSeats );
             LocalDate firstDateOfFreeOpenSlot = null;
-            if ( CollectionUtils.isNotEmpty( listSlots ) )
+            if ( firstFreeOpenSlot != null && !firstFreeOpenSlot.getStartingDateTime( ).toLocalDate( ).isAfter( endingDateOfDisplay ) )
             {
-                // Need to find the first available slot from now (with time)
-                List<Slot> listAvailableSlots = listSlots.stream( ).filter( s -> ( s.getNbPotentialRemainingPlaces( ) > 0 && s.getIsOpen( ) == Boolean.TRUE ) )
-                        .collect( Collectors.toList( ) );
-                if ( CollectionUtils.isNotEmpty( listAvailableSlots ) )
-                {
-                    firstDateOfFreeOpenSlot = listAvailableSlots.stream( ).min( ( s1, s2 ) -> s1.getStartingDateTime( ).compareTo( s2.getStartingDateTime( ) ) )
-                            .get( ).getDate( );
-                }
+                firstDateOfFreeOpenSlot = firstFreeOpenSlot.getStartingDateTime( ).toLocalDate( );
             }
             if (firstDateOfFreeOpenSlot == null) {
                 if (formMessages != null && StringUtils.isNotEmpty(formMessages.getNoAvailableSlot())) {
@@ -501,6 +503,13 @@ public class AppointmentApp extends MVCApplication
             {
                 dateOfDisplay = firstDateOfFreeOpenSlot;
             }
+            TemporalField fieldISO = WeekFields.of( locale ).dayOfWeek( );
+            LocalDate startingDateOfWeek = dateOfDisplay.with( fieldISO, 1 );
+            LocalDate endingDateOfWeek = dateOfDisplay.with( fieldISO, DayOfWeek.SUNDAY.getValue( ) );
+            listSlots = AvailabilityService.findListSlotToDisplay( _appointmentForm,
+                    startingDateOfWeek.isBefore( startingDateOfDisplay ) ? startingDateOfDisplay : startingDateOfWeek,
+                    endingDateOfWeek.isAfter( endingDateOfDisplay ) ? endingDateOfDisplay : endingDateOfWeek, _nNbPlacesToTake, nNbBookedSeats,
+                    isFreeSlotsOnly( calendarTemplate ) );
         }
         if ( bError )
         {
@@ -518,7 +527,6 @@ public class AppointmentApp extends MVCApplication
             listInfos.add( message );
         }
 
-        CalendarTemplate calendarTemplate = CalendarTemplateHome.findByPrimaryKey( _appointmentForm.getCalendarTemplateId( ) );
         List<String> listHiddenDays = Stream.of( "0", "1", "2", "3", "4", "5", "6" ).collect( Collectors.toList( ) );
 
         /**
@@ -529,8 +537,7 @@ public class AppointmentApp extends MVCApplication
         switch( calendarTemplate.getTitle( ) )
         {
             case CalendarTemplate.FREE_SLOTS:
-                // Keep only the available slots
-                listSlots = listSlots.stream( ).filter( s -> ( ( s.getNbRemainingPlaces( ) > 0 ) && ( s.getIsOpen( ) ) ) ).collect( Collectors.toList( ) );
+                // Only the available slots are kept (see isFreeSlotsOnly)
                 listHiddenDays.clear( );
                 dayView = BASIC_DAY;
                 weekView = BASIC_WEEK;
@@ -548,8 +555,7 @@ public class AppointmentApp extends MVCApplication
                 weekView = AGENDA_WEEK;
                 break;
             case CalendarTemplate.FREE_SLOTS_ON_OPEN_DAYS:
-                // Keep only the available slots
-                listSlots = listSlots.stream( ).filter( s -> ( ( s.getNbRemainingPlaces( ) > 0 ) && ( s.getIsOpen( ) ) ) ).collect( Collectors.toList( ) );
+                // Only the available slots are kept (see isFreeSlotsOnly)
                 // update the list of the days to hide
                 listHiddenDays.removeAll( listStrBase0OpenDaysOfWeek );
                 dayView = BASIC_DAY;
@@ -581,6 +587,7 @@ public class AppointmentApp extends MVCApplication
         model.put( PARAMETER_MAX_TIME, AppointmentUtilities.getMaxTimeToDisplay( maxEndingTime ) );
         model.put( PARAMETER_MIN_DURATION, LocalTime.MIN.plusMinutes( AppointmentUtilities.THIRTY_MINUTES ) );
         model.put( MARK_NBPLACESTOTAKE, _nNbPlacesToTake );
+        model.put( MARK_NB_BOOKED_SEATS, nNbBookedSeats );
         model.put( PARAMETER_EVENTS, listSlots );
         model.put( PARAMETER_HIDDEN_DAYS, listHiddenDays );
         model.put( PARAMETER_DAY_VIEW, dayView );
@@ -592,6 +599,108 @@ public class AppointmentApp extends MVCApplication
         return getXPage( calendarTemplate.getTemplatePath( ), locale, model );
     }
 
+    /**
+     * Get the slots of a window of the calendar of a form in JSON (see AvailabilityService.toJson). The calendar of the front office asks the slots of the
+     * week displayed, so that only this week is built. The window is reduced to the dates the form can be booked and to the max number of days of a window.
+     * The slots are sent with the ETag of the form (see AvailabilityCacheService.getETag): if the browser already has them, the response is a 304 Not
+     * Modified and nothing is built
+     *
+     * @param request
+     *            the request, with the id of the form, the first and the last day of the window, the number of places to take and the number of places of the
+     *            appointment whose date is changed
+     * @param response
+     *            the response
+     * @return the JSON of the slots, or an empty string if not modified
+     */
+    public String getAvailability( HttpServletRequest request, HttpServletResponse response )
+    {
+        String strIdForm = request.getParameter( PARAMETER_ID_FORM );
+        if ( !StringUtils.isNumeric( strIdForm ) )
+        {
+            return AvailabilityService.JSON_NO_SLOT;
+        }
+        int nIdForm = Integer.parseInt( strIdForm );
+        // The form is read from the FormSnapshotService: the checks of the form are done before answering Not Modified, without access to the database
+        AppointmentFormDTO appointmentForm = FormService.buildAppointmentFormWithoutReservationRule( nIdForm );
+        if ( !appointmentForm.getIsActive( ) || appointmentForm.getDateStartValidity( ) == null )
+        {
+            return AvailabilityService.JSON_NO_SLOT;
+        }
+        // Check the Access Controls of the form, as when displaying the calendar
+        if ( AccessControlService.getInstance( ).doExecuteAccessControl( request, nIdForm, Form.RESOURCE_TYPE, null ) != null )
+        {
+            return AvailabilityService.JSON_NO_SLOT;
+        }
+        // Taken before building the slots, so that a change made meanwhile gives another ETag
+        String strETag = AvailabilityCacheService.getETag( nIdForm, System.currentTimeMillis( ) );
+        if ( AvailabilityCacheService.matchesETag( request.getHeader( HEADER_IF_NONE_MATCH ), strETag ) )
+        {
+            response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+            return StringUtils.EMPTY;
+        }
+        LocalDate startingDate;
+        LocalDate endingDate;
+        try
+        {
+            startingDate = LocalDate.parse( request.getParameter( PARAMETER_STARTING_DATE ) );
+            endingDate = LocalDate.parse( request.getParameter( PARAMETER_ENDING_DATE ) );
+        }
+        catch( NullPointerException | DateTimeParseException e )
+        {
+            return AvailabilityService.JSON_NO_SLOT;
+        }
+        LocalDate startingDateOfDisplay = AvailabilityService.getFirstDayOfBooking( appointmentForm );
+        LocalDate endingDateOfDisplay = AvailabilityService.getLastDayOfBooking( appointmentForm, startingDateOfDisplay, getLocale( request ) );
+        if ( startingDate.isBefore( startingDateOfDisplay ) )
+        {
+            startingDate = startingDateOfDisplay;
+        }
+        if ( endingDate.isAfter( endingDateOfDisplay ) )
+        {
+            endingDate = endingDateOfDisplay;
+        }
+        LocalDate maxEndingDate = startingDate.plusDays( (long) AvailabilityService.getMaxNbDays( ) - 1 );
+        if ( endingDate.isAfter( maxEndingDate ) )
+        {
+            endingDate = maxEndingDate;
+        }
+        if ( startingDate.isAfter( endingDate ) )
+        {
+            return AvailabilityService.JSON_NO_SLOT;
+        }
+        String strNbPlacesToTake = request.getParameter( PARAMETER_NB_PLACE_TO_TAKE );
+        String strNbBookedSeats = request.getParameter( PARAMETER_NB_BOOKED_SEATS );
+        int nNbPlacesToTake = appointmentForm.getIsMultislotAppointment( ) && StringUtils.isNumeric( strNbPlacesToTake ) ? Integer.parseInt( strNbPlacesToTake )
+                : 0;
+        int nNbBookedSeats = StringUtils.isNumeric( strNbBookedSeats ) ? Integer.parseInt( strNbBookedSeats ) : 0;
+        CalendarTemplate calendarTemplate = FormSnapshotService.getCalendarTemplate( nIdForm );
+        try ( AdmissionTicket admissionTicket = AdmissionService.enter( nIdForm ) )
+        {
+            if ( !admissionTicket.isAdmitted( ) )
+            {
+                return AvailabilityService.toJsonRetry( AdmissionService.getRetryDelay( ) );
+            }
+            String strJson = AvailabilityService.toJson( startingDate, endingDate, AvailabilityService.findListSlotToDisplay( appointmentForm, startingDate,
+                    endingDate, nNbPlacesToTake, nNbBookedSeats, isFreeSlotsOnly( calendarTemplate ) ) );
+            // The response must be revalidated each time, the slots of a window are in the cache of the browser only with their ETag
+            response.setHeader( HEADER_ETAG, strETag );
+            response.setHeader( HEADER_CACHE_CONTROL, CACHE_CONTROL_NO_CACHE );
+            return strJson;
+        }
+    }
+
+    /**
+     * Check if a calendar template displays only the available slots
+     *
+     * @param calendarTemplate
+     *            the calendar template
+     * @return true if only the open slots with remaining places are displayed
+     */
+    private static boolean isFreeSlotsOnly( CalendarTemplate calendarTemplate )
+    {
+        return CalendarTemplate.FREE_SLOTS.equals( calendarTemplate.getTitle( ) ) || CalendarTemplate.FREE_SLOTS_ON_OPEN_DAYS.equals( calendarTemplate.getTitle( ) );
+    }
+
     /**
      * Get the form appointment view (front office)
      *
@@ -778,7 +887,7 @@ public class AppointmentApp extends MVCApplication
         {
             EntryService.getHtmlEntry( model, entry.getIdEntry( ), strBuffer, locale, true, _notValidatedAppointment );
         }
-        FormMessage formMessages = FormMessageService.findFormMessageByIdForm( nIdForm );
+        FormMessage formMessages = FormSnapshotService.getFormMessage( nIdForm );
 
         if ( _nNbPlacesToTake != 0 )
         {
@@ -995,7 +1104,7 @@ public class AppointmentApp extends MVCApplication
             model.put( MARK_MODIFICATION_DATE_APPOINTMENT, Boolean.FALSE );
 
         }
-        model.put( MARK_FORM_MESSAGES, FormMessageService.findFormMessageByIdForm( _validatedAppointment.getIdForm( ) ) );
+        model.put( MARK_FORM_MESSAGES, FormSnapshotService.getFormMessage( _validatedAppointment.getIdForm( ) ) );
         fillCommons( model );
         model.put( MARK_APPOINTMENT, _validatedAppointment );
         Locale locale = getLocale( request );
@@ -1054,6 +1163,15 @@ public class AppointmentApp extends MVCApplication
             return redirect( request, VIEW_DISPLAY_RECAP_APPOINTMENT, PARAMETER_ID_FORM, _validatedAppointment.getIdForm( ) );
         }
 
+        AdmissionTicket admissionTicket = AdmissionService.enter( _validatedAppointment.getIdForm( ) );
+        if ( !admissionTicket.isAdmitted( ) )
+        {
+            UrlItem urlRetry = new UrlItem( AppPathService.getPortalUrl( ) );
+            urlRetry.addParameter( MVCUtils.PARAMETER_PAGE, XPAGE_NAME );
+            urlRetry.addParameter( MVCUtils.PARAMETER_VIEW, VIEW_DISPLAY_RECAP_APPOINTMENT );
+            urlRetry.addParameter( PARAMETER_ID_FORM, _validatedAppointment.getIdForm( ) );
+            return getWaitingRoomXPage( request, admissionTicket, urlRetry );
+        }
         int nIdAppointment;
         try
         {
@@ -1079,6 +1197,10 @@ public class AppointmentApp extends MVCApplication
             nIdAppointment = _validatedAppointment.getIdAppointment( );
             AppLogService.error( "Error Save appointment: " + e.getMessage( ), e );
         }
+        finally
+        {
+            admissionTicket.close( );
+        }
         AppLogService.info( LogUtilities.buildLog( ACTION_DO_MAKE_APPOINTMENT, Integer.toString( nIdAppointment ), null ) );
         AppointmentAsynchronousUploadHandler.getHandler( ).removeSessionFiles( request.getSession( ) );
         _nNbPlacesToTake = 0;
@@ -1102,6 +1224,26 @@ public class AppointmentApp extends MVCApplication
         }
     }
 
+    /**
+     * Get the page asking the user to wait when the form is saturated
+     *
+     * @param request
+     *            The request
+     * @param admissionTicket
+     *            the ticket refused by the admission control
+     * @param urlRetry
+     *            the url to try again
+     * @return The XPage to display
+     */
+    private XPage getWaitingRoomXPage( HttpServletRequest request, AdmissionTicket admissionTicket, UrlItem urlRetry )
+    {
+        Map<String, Object> model = getModel( );
+        model.put( MARK_POSITION, admissionTicket.getPosition( ) );
+        model.put( MARK_RETRY_DELAY, AdmissionService.getRetryDelay( ) );
+        model.put( MARK_RETRY_URL, urlRetry.getUrl( ) );
+        return getXPage( TEMPLATE_WAITING_ROOM, getLocale( request ), model );
+    }
+
     /**
      * Get the page to notify the user that the appointment has been created
      *
@@ -1117,7 +1259,7 @@ public class AppointmentApp extends MVCApplication
     		return redirectView( request, VIEW_APPOINTMENT_FORM_LIST );
     	}
         int nIdForm = Integer.parseInt( request.getParameter( PARAMETER_ID_FORM ) );
-        FormMessage formMessages = FormMessageService.findFormMessageByIdForm( nIdForm );
+        FormMessage formMessages = FormSnapshotService.getFormMessage( nIdForm );
         AppointmentFormDTO form = FormService.buildAppointmentForm( nIdForm, 0 );
         Slot firstSlot = _validatedAppointment.getSlot().get(0);
         Slot lastSlot = firstSlot;
@@ -1303,7 +1445,7 @@ public class AppointmentApp extends MVCApplication
             model.put( MARK_ENDING_TIME_APPOINTMENT, appointmentDto.getEndingTime( ) );
             model.put( MARK_PLACES, appointment.getNbPlaces( ) );
             model.put( MARK_FORM, FormService.buildAppointmentForm( appointmentDto.getIdForm( ), 0 ) );
-            model.put( MARK_FORM_MESSAGES, FormMessageService.findFormMessageByIdForm( appointmentDto.getIdForm( ) ) );
+            model.put( MARK_FORM_MESSAGES, FormSnapshotService.getFormMessage( appointmentDto.getIdForm( ) ) );
             AppointmentDTO appointmentDTO = AppointmentService.buildAppointmentDTOFromIdAppointment( nIdAppointment );
             appointmentDTO.setListResponse( AppointmentResponseService.findAndBuildListResponse( nIdAppointment, request ) );
             appointmentDTO.setMapResponsesByIdEntry( AppointmentResponseService.buildMapFromListResponse( appointmentDTO.getListResponse( ) ) );
@@ -1398,7 +1540,7 @@ public class AppointmentApp extends MVCApplication
         {
             int nIdForm = Integer.parseInt( strIdForm );
             Map<String, Object> model = new HashMap<>( );
-            model.put( MARK_FORM_MESSAGES, FormMessageService.findFormMessageByIdForm( nIdForm ) );
+            model.put( MARK_FORM_MESSAGES, FormSnapshotService.getFormMessage( nIdForm ) );
             if ( Boolean.parseBoolean( request.getParameter( PARAMETER_FROM_MY_APPOINTMENTS ) ) )
             {
                 String strFromUrl = request.getParameter( MARK_FROM_URL );
@@ -1883,10 +2025,7 @@ public class AppointmentApp extends MVCApplication
         {
             startingDateOfDisplay = startingValidityDate;
         }
-        // Calculate the ending date of display with the nb weeks to display since today
-        // We calculate the number of weeks including the current week, so it and will end to the (n) next sunday
-        LocalDate endingDateOfDisplay = startingDateOfDisplay.toLocalDate( ).with( WeekFields.of( locale ).dayOfWeek( ), DayOfWeek.SUNDAY.getValue( ) )
-                .plusWeeks( (long) _appointmentForm.getNbWeeksToDisplay( ) - 1 );
+        LocalDate endingDateOfDisplay = AvailabilityService.getLastDayOfBooking( _appointmentForm, startingDateOfDisplay.toLocalDate( ), locale );
         return !( date.toLocalDate( ).isAfter( endingDateOfDisplay ) || date.isBefore( startingDateOfDisplay ) );
 
     }
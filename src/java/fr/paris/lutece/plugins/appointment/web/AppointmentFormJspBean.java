@@ -54,7 +54,6 @@ import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
 import fr.paris.lutece.plugins.appointment.business.form.Form;
 import fr.paris.lutece.plugins.appointment.business.form.FormHome;
 import fr.paris.lutece.plugins.appointment.business.message.FormMessage;
-import fr.paris.lutece.plugins.appointment.business.message.FormMessageHome;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
 import fr.paris.lutece.plugins.appointment.log.LogUtilities;
 import fr.paris.lutece.plugins.appointment.service.AppointmentResourceIdService;
@@ -647,7 +646,7 @@ public class AppointmentFormJspBean extends AbstractAppointmentFormAndSlotJspBea
             url.addParameter( PARAMETER_ID_FORM, nIdForm );
             FormMessage formMessage = FormMessageService.findFormMessageByIdForm( nIdForm );
             populate( formMessage, request );
-            FormMessageHome.update( formMessage );
+            FormMessageService.updateFormMessage( formMessage );
             AppLogService.info( LogUtilities.buildLog( ACTION_DO_MODIFY_FORM_MESSAGES, strIdForm, getUser( ) ) );
             addInfo( INFO_APPOINTMENTFORM_MESSAGES_MODIFIED, getLocale( ) );
         }
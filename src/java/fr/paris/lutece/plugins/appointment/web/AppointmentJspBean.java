@@ -62,6 +62,7 @@ import org.apache.commons.lang3.StringUtils;
 
 import fr.paris.lutece.api.user.User;
 import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
+import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentSortKey;
 import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentSlot;
 import fr.paris.lutece.plugins.appointment.business.form.Form;
 import fr.paris.lutece.plugins.appointment.business.message.FormMessage;
@@ -88,9 +89,13 @@ import fr.paris.lutece.plugins.appointment.service.SlotService;
 import fr.paris.lutece.plugins.appointment.service.Utilities;
 import fr.paris.lutece.plugins.appointment.service.WeekDefinitionService;
 import fr.paris.lutece.plugins.appointment.service.addon.AppointmentAddOnManager;
+import fr.paris.lutece.plugins.appointment.service.cache.AvailabilityCacheService;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlan;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlanService;
 import fr.paris.lutece.plugins.appointment.service.export.AppointmentExportService;
 import fr.paris.lutece.plugins.appointment.service.export.ExcelAppointmentGenerator;
 import fr.paris.lutece.plugins.appointment.service.listeners.AppointmentListenerManager;
+import fr.paris.lutece.plugins.appointment.service.search.AppointmentTextIndexService;
 import fr.paris.lutece.plugins.appointment.service.upload.AppointmentAsynchronousUploadHandler;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFilterDTO;
@@ -131,7 +136,7 @@ import fr.paris.lutece.portal.util.mvc.admin.annotations.Controller;
 import fr.paris.lutece.portal.util.mvc.commons.annotations.Action;
 import fr.paris.lutece.portal.util.mvc.commons.annotations.View;
 import fr.paris.lutece.portal.util.mvc.utils.MVCUtils;
-import fr.paris.lutece.portal.web.util.LocalizedPaginator;
+import fr.paris.lutece.portal.web.util.LocalizedDelegatePaginator;
 import fr.paris.lutece.util.ReferenceList;
 import fr.paris.lutece.util.html.AbstractPaginator;
 import fr.paris.lutece.util.html.HtmlTemplate;
@@ -320,7 +325,10 @@ public class AppointmentJspBean extends MVCAdminJspBean
     private AppointmentFormDTO _appointmentForm;
     private AppointmentDTO _notValidatedAppointment;
     private AppointmentDTO _validatedAppointment;
-    private List<Integer> _listAppointmentsIds;
+    // The sort key of the last appointment of each page read in a row from the first one, and the order they were read with
+    private List<AppointmentSortKey> _listPageLastSortKey = new ArrayList<>( );
+    private String _strPageSortKeysOrder;
+    private int _nAppointmentsCount;
     List<GenericAttributeError> listFormErrors = new ArrayList<>( );
     Plugin _moduleAppointmentDesk = PluginService.getPlugin( AppPropertiesService.getProperty( PROPERTY_MODULE_APPOINTMENT_DESK_NAME ) );
 
@@ -401,8 +409,9 @@ public class AppointmentJspBean extends MVCAdminJspBean
             dateOfDisplay = LocalDate.parse( strDateOfDisplay );
         }
         List<Slot> listSlot = new ArrayList<>( );
-        List<WeekDefinition> listWeekDefinition = WeekDefinitionService.findListWeekDefinition( nIdForm );
-        Map<WeekDefinition, ReservationRule> mapReservationRule = ReservationRuleService.findAllReservationRule( nIdForm, listWeekDefinition );
+        // The week definitions and the rules are read from the shared plan of the form, not from the database
+        FormSchedulePlan plan = FormSchedulePlanService.getPlan( nIdForm );
+        Map<WeekDefinition, ReservationRule> mapReservationRule = plan.getMapReservationRule( );
         List<ReservationRule> listReservationRules = new ArrayList<>( mapReservationRule.values( ) );
 
         LocalTime maxEndingTime = WeekDefinitionService.getMaxEndingTimeOfAListOfWeekDefinition( listReservationRules );
@@ -425,7 +434,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
             {
 
                 _nNbPlacesToTake = 0;
-                listSlot = SlotService.buildListSlot( nIdForm, mapReservationRule, startingDateOfDisplay, endingDateOfDisplay );
+                listSlot = AvailabilityCacheService.getListSlot( plan, startingDateOfDisplay, endingDateOfDisplay );
             }
 
             // Tag as passed the slots passed
@@ -531,15 +540,18 @@ public class AppointmentJspBean extends MVCAdminJspBean
         _appointmentForm = null;
         int nIdForm = Integer.parseInt( strIdForm );
 
+        boolean bIsNewFilter = false;
         // If it is a new search
         if ( request.getParameter( PARAMETER_SEARCH ) != null )
         {
             // Populate the filter
             populate( _filter, request );
+            bIsNewFilter = true;
         }
         else
             if ( request.getParameter( PARAMETER_RESET ) != null || _filter == null || _filter.getIdForm( ) != nIdForm )
             {
+                bIsNewFilter = true;
                 _filter = new AppointmentFilterDTO( );
                 _filter.setIdForm( nIdForm );
                 // if we come from the calendar, need to get the starting and ending
@@ -577,11 +589,16 @@ public class AppointmentJspBean extends MVCAdminJspBean
         {
             _strCurrentPageIndex = DEFAULT_CURRENT_PAGE;
         }
-        if ( DEFAULT_CURRENT_PAGE.equals( _strCurrentPageIndex ) )
+        _nItemsPerPage = AbstractPaginator.getItemsPerPage( request, AbstractPaginator.PARAMETER_ITEMS_PER_PAGE, _nItemsPerPage, _nDefaultItemsPerPage );
+        // The page keys and the count are kept while the pages of the same list are read
+        String strPageSortKeysOrder = strOrderBy + bAsc + _nItemsPerPage;
+        if ( DEFAULT_CURRENT_PAGE.equals( _strCurrentPageIndex ) || bIsNewFilter || !strPageSortKeysOrder.equals( _strPageSortKeysOrder ) )
         {
-            _listAppointmentsIds = AppointmentService.findListAppointmentsIdsByFilter( _filter );
+            _listPageLastSortKey.clear( );
+            _strPageSortKeysOrder = strPageSortKeysOrder;
+            AppointmentTextIndexService.resolveTextCriteria( _filter );
+            _nAppointmentsCount = AppointmentService.countAppointmentsByFilter( _filter );
         }
-        _nItemsPerPage = AbstractPaginator.getItemsPerPage( request, AbstractPaginator.PARAMETER_ITEMS_PER_PAGE, _nItemsPerPage, _nDefaultItemsPerPage );
         List<AppointmentDTO> listAppointmentsDTO = findListAppointmentsDTOByFilterByPage( );
         // If it is an order by
         listAppointmentsDTO = orderList( listAppointmentsDTO );
@@ -599,8 +616,8 @@ public class AppointmentJspBean extends MVCAdminJspBean
         url.addParameter( MVCUtils.PARAMETER_VIEW, VIEW_MANAGE_APPOINTMENTS );
         url.addParameter( PARAMETER_ID_FORM, strIdForm );
         String strUrl = url.getUrl( );
-        LocalizedPaginator<Integer> paginator = new LocalizedPaginator<>(_listAppointmentsIds, _nItemsPerPage, strUrl, PARAMETER_PAGE_INDEX,
-                _strCurrentPageIndex, getLocale( ) );
+        LocalizedDelegatePaginator<AppointmentDTO> paginator = new LocalizedDelegatePaginator<>( listAppointmentsDTO, _nItemsPerPage, strUrl,
+                PARAMETER_PAGE_INDEX, _strCurrentPageIndex, _nAppointmentsCount, getLocale( ) );
         AppointmentFormDTO form = FormService.buildAppointmentFormLight( nIdForm );
         Map<String, Object> model = getModel( );
         model.put( MARK_FORM, form );
@@ -858,7 +875,7 @@ public class AppointmentJspBean extends MVCAdminJspBean
         List<AppointmentDTO> listAppointmentsDTO = new ArrayList<>( );
         if ( _filter != null && _filter.getIdForm( ) == Integer.parseInt( strIdForm ) )
         {
-
+            AppointmentTextIndexService.resolveTextCriteria( _filter );
             listAppointmentsDTO = AppointmentService.findListAppointmentsDTOByFilter( _filter );
         }
 
@@ -1480,6 +1497,8 @@ public class AppointmentJspBean extends MVCAdminJspBean
     {
         _filter = null;
         _strCurrentPageIndex = null;
+        _listPageLastSortKey.clear( );
+        _strPageSortKeysOrder = null;
         _notValidatedAppointment = null;
         _validatedAppointment = null;
         AppointmentAsynchronousUploadHandler.getHandler( ).removeSessionFiles( session );
@@ -1778,11 +1797,25 @@ public class AppointmentJspBean extends MVCAdminJspBean
             currentPage = 1;
         }
 
-        int skip = ( currentPage - 1 ) * _nItemsPerPage;
+        currentPage = Math.max( currentPage, 1 );
+
+        // The page is read after the last appointment of the previous page if it is known, else after the last one known and an offset
+        int nNbKnownPages = Math.min( currentPage - 1, _listPageLastSortKey.size( ) );
+        AppointmentSortKey sortKeyAfter = ( nNbKnownPages > 0 ) ? _listPageLastSortKey.get( nNbKnownPages - 1 ) : null;
+        int nOffset = ( currentPage - 1 - nNbKnownPages ) * _nItemsPerPage;
+        List<AppointmentSortKey> listSortKey = AppointmentService.findListAppointmentsSortKeysByFilter( _filter, sortKeyAfter, nOffset, _nItemsPerPage );
+        if ( listSortKey.isEmpty( ) )
+        {
+            return new ArrayList<>( );
+        }
+        if ( currentPage - 1 == _listPageLastSortKey.size( ) )
+        {
+            _listPageLastSortKey.add( listSortKey.get( listSortKey.size( ) - 1 ) );
+        }
 
         List<Integer> listIdAppointment = _filter.getListIdAppointment( );
 
-        _filter.setListIdAppointment( _listAppointmentsIds.stream( ).skip( skip ).limit( _nItemsPerPage ).collect( Collectors.toList( ) ) );
+        _filter.setListIdAppointment( listSortKey.stream( ).map( AppointmentSortKey::getIdAppointment ).collect( Collectors.toList( ) ) );
 
         List<AppointmentDTO> listAppointmentsDTO = AppointmentService.findListAppointmentsDTOByFilter( _filter );
 
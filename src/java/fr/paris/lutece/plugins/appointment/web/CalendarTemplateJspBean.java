@@ -48,6 +48,8 @@ import org.apache.commons.lang3.StringUtils;
 
 import fr.paris.lutece.plugins.appointment.business.calendar.CalendarTemplate;
 import fr.paris.lutece.plugins.appointment.business.calendar.CalendarTemplateHome;
+import fr.paris.lutece.plugins.appointment.service.cache.AvailabilityCacheService;
+import fr.paris.lutece.plugins.appointment.service.cache.FormSnapshotService;
 import fr.paris.lutece.portal.service.message.AdminMessage;
 import fr.paris.lutece.portal.service.message.AdminMessageService;
 import fr.paris.lutece.portal.service.util.AppLogService;
@@ -278,6 +280,9 @@ public class CalendarTemplateJspBean extends MVCAdminJspBean
         if ( _template.getIdCalendarTemplate( ) > 0 )
         {
             CalendarTemplateHome.update( _template );
+            FormSnapshotService.clear( );
+            // The ETag of the slots of the forms must change with their template
+            AvailabilityCacheService.clear( );
             addInfo( MESSAGE_INFO_TEMPLATE_UPDATED, getLocale( ) );
         }
         else
@@ -331,6 +336,8 @@ public class CalendarTemplateJspBean extends MVCAdminJspBean
         }
 
         CalendarTemplateHome.delete( Integer.parseInt( strIdTemplate ) );
+        FormSnapshotService.clear( );
+        AvailabilityCacheService.clear( );
 
         addInfo( MESSAGE_INFO_TEMPLATE_REMOVED, getLocale( ) );
 
@@ -79,6 +79,8 @@ import fr.paris.lutece.plugins.appointment.service.SlotSafeService;
 import fr.paris.lutece.plugins.appointment.service.SlotService;
 import fr.paris.lutece.plugins.appointment.service.WeekDefinitionService;
 import fr.paris.lutece.plugins.appointment.service.WorkingDayService;
+import fr.paris.lutece.plugins.appointment.service.cache.AvailabilityCacheService;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlanService;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
 import fr.paris.lutece.portal.service.admin.AccessDeniedException;
 import fr.paris.lutece.portal.service.i18n.I18nService;
@@ -624,6 +626,8 @@ public class SpecificWeekJspBean extends AbstractAppointmentFormAndSlotJspBean
                     // closing day so that the slot is not in conflict with the
                     // definition of the closing days
                     ClosingDayHome.deleteByIdFormAndDateOfClosingDay( slot.getIdForm( ), dateSlot );
+                    FormSchedulePlanService.invalidate( slot.getIdForm( ) );
+                    AvailabilityCacheService.invalidateWeek( slot.getIdForm( ), dateSlot );
                 }
                 if ( nVarMaxCapacity != 0 || ( nMaxCapacity >= 0 && nMaxCapacity != slot.getMaxCapacity( ) ) )
                 {
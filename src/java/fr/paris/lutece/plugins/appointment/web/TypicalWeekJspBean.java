@@ -71,7 +71,9 @@ import fr.paris.lutece.plugins.appointment.service.SlotService;
 import fr.paris.lutece.plugins.appointment.service.TimeSlotService;
 import fr.paris.lutece.plugins.appointment.service.WeekDefinitionService;
 import fr.paris.lutece.plugins.appointment.service.WorkingDayService;
+import fr.paris.lutece.plugins.appointment.service.cache.AvailabilityCacheService;
 import fr.paris.lutece.plugins.appointment.service.listeners.WeekDefinitionManagerListener;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlanService;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
 import fr.paris.lutece.portal.service.admin.AccessDeniedException;
 import fr.paris.lutece.portal.service.message.AdminMessage;
@@ -395,6 +397,8 @@ public class TypicalWeekJspBean extends AbstractAppointmentFormAndSlotJspBean
         }
 
         ReservationRuleHome.update( reservationRule );
+        FormSchedulePlanService.invalidate( _appointmentForm.getIdForm( ) );
+        AvailabilityCacheService.invalidateForm( _appointmentForm.getIdForm( ) );
         addInfo( INFO_GLOBAL_PARAMETERS_UPDATED, getLocale( ) );
         return redirect( request, VIEW_MANAGE_TYPICAL_WEEK, PARAMETER_ID_FORM, _appointmentForm.getIdForm( ), PARAMETER_ID_RULE,
                 _appointmentForm.getIdReservationRule( ) );
@@ -84,6 +84,16 @@ public class AppointmentFilterDTO extends User
 
     private List<Integer> _listIdAppointment = new ArrayList<>( );
 
+    /**
+     * The ids of the appointments which may match the text criteria, given by the text index, or null if the text criteria are not resolved
+     */
+    private List<Integer> _listIdAppointmentMatchingText;
+
+    /**
+     * The highest id of appointment in the text index: the appointments created after it are kept with the ids matching the text criteria
+     */
+    private int _nIdLastIndexedAppointment;
+
 
     private String _orderBy;
 
@@ -283,6 +293,48 @@ public class AppointmentFilterDTO extends User
         _listIdAppointment = new ArrayList<>( listIdAppointment );
     }
 
+    /**
+     * Get the ids of the appointments which may match the text criteria
+     * 
+     * @return the ids, or null if the text criteria are not resolved
+     */
+    public List<Integer> getListIdAppointmentMatchingText( )
+    {
+        return _listIdAppointmentMatchingText;
+    }
+
+    /**
+     * Set the ids of the appointments which may match the text criteria
+     * 
+     * @param listIdAppointmentMatchingText
+     *            the ids, or null if the text criteria are not resolved
+     */
+    public void setListIdAppointmentMatchingText( List<Integer> listIdAppointmentMatchingText )
+    {
+        _listIdAppointmentMatchingText = listIdAppointmentMatchingText;
+    }
+
+    /**
+     * Get the highest id of appointment in the text index which gave the ids matching the text criteria
+     * 
+     * @return the id
+     */
+    public int getIdLastIndexedAppointment( )
+    {
+        return _nIdLastIndexedAppointment;
+    }
+
+    /**
+     * Set the highest id of appointment in the text index which gave the ids matching the text criteria
+     * 
+     * @param nIdLastIndexedAppointment
+     *            the id
+     */
+    public void setIdLastIndexedAppointment( int nIdLastIndexedAppointment )
+    {
+        _nIdLastIndexedAppointment = nIdLastIndexedAppointment;
+    }
+
     public String getOrderBy() {
         return _orderBy;
     }
@@ -17,6 +17,9 @@ DROP TABLE IF EXISTS appointment_form ;
 DROP TABLE IF EXISTS appointment_category ;
 DROP TABLE IF EXISTS appointment_comment;
 DROP TABLE IF EXISTS appointment_comment_notification_cf;
+DROP TABLE IF EXISTS appointment_slot_lock;
+DROP TABLE IF EXISTS appointment_slot_hold;
+DROP TABLE IF EXISTS appointment_listener_event;
 
 
 -- -----------------------------------------------------
@@ -404,3 +407,43 @@ CREATE TABLE appointment_comment_notification_cf
 	subject VARCHAR(255) DEFAULT NULL, 
 	message LONG VARCHAR DEFAULT NULL
 );
+
+-- -----------------------------------------------------
+-- Table appointment_slot_lock
+-- -----------------------------------------------------
+CREATE TABLE appointment_slot_lock (
+  lock_key VARCHAR(50) NOT NULL,
+  lock_owner VARCHAR(50) NULL,
+  date_expiry TIMESTAMP NULL,
+  PRIMARY KEY (lock_key)
+);
+
+-- -----------------------------------------------------
+-- Table appointment_slot_hold
+-- -----------------------------------------------------
+CREATE TABLE appointment_slot_hold (
+  id_hold INT AUTO_INCREMENT,
+  id_slot INT NOT NULL,
+  nb_places INT NOT NULL DEFAULT 0,
+  date_expiry TIMESTAMP NOT NULL,
+  PRIMARY KEY (id_hold)
+);
+CREATE INDEX id_slot_hold_idx ON appointment_slot_hold (id_slot ASC);
+CREATE INDEX date_expiry_hold_idx ON appointment_slot_hold (date_expiry ASC);
+
+-- -----------------------------------------------------
+-- Table appointment_listener_event
+-- -----------------------------------------------------
+CREATE TABLE appointment_listener_event (
+  id_event INT AUTO_INCREMENT,
+  event_type VARCHAR(50) NOT NULL,
+  id_resource INT NOT NULL,
+  event_data VARCHAR(1000) NULL,
+  date_creation TIMESTAMP NOT NULL,
+  date_next_attempt TIMESTAMP NOT NULL,
+  nb_attempts INT NOT NULL DEFAULT 0,
+  claim_token VARCHAR(50) NULL,
+  PRIMARY KEY (id_event)
+);
+CREATE INDEX date_next_attempt_event_idx ON appointment_listener_event (date_next_attempt ASC);
+CREATE INDEX claim_token_event_idx ON appointment_listener_event (claim_token ASC);
@@ -0,0 +1,42 @@
+-- -----------------------------------------------------
+-- Table appointment_slot_lock
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS appointment_slot_lock (
+  lock_key VARCHAR(50) NOT NULL,
+  lock_owner VARCHAR(50) NULL,
+  date_expiry TIMESTAMP NULL,
+  PRIMARY KEY (lock_key)
+);
+
+-- -----------------------------------------------------
+-- Table appointment_slot_hold
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS appointment_slot_hold (
+  id_hold INT AUTO_INCREMENT,
+  id_slot INT NOT NULL,
+  nb_places INT NOT NULL DEFAULT 0,
+  date_expiry TIMESTAMP NOT NULL,
+  PRIMARY KEY (id_hold)
+);
+CREATE INDEX id_slot_hold_idx ON appointment_slot_hold (id_slot ASC);
+CREATE INDEX date_expiry_hold_idx ON appointment_slot_hold (date_expiry ASC);
+
+-- Give back the places held by the in-memory timers of the previous version
+UPDATE appointment_slot SET nb_potential_remaining_places = nb_remaining_places WHERE nb_potential_remaining_places < nb_remaining_places;
+
+-- -----------------------------------------------------
+-- Table appointment_listener_event
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS appointment_listener_event (
+  id_event INT AUTO_INCREMENT,
+  event_type VARCHAR(50) NOT NULL,
+  id_resource INT NOT NULL,
+  event_data VARCHAR(1000) NULL,
+  date_creation TIMESTAMP NOT NULL,
+  date_next_attempt TIMESTAMP NOT NULL,
+  nb_attempts INT NOT NULL DEFAULT 0,
+  claim_token VARCHAR(50) NULL,
+  PRIMARY KEY (id_event)
+);
+CREATE INDEX date_next_attempt_event_idx ON appointment_listener_event (date_next_attempt ASC);
+CREATE INDEX claim_token_event_idx ON appointment_listener_event (claim_token ASC);
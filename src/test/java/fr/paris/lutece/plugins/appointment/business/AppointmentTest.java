@@ -35,11 +35,13 @@ package fr.paris.lutece.plugins.appointment.business;
 
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import fr.paris.lutece.plugins.appointment.business.appointment.Appointment;
 import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentHome;
 import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentSlot;
+import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentSortKey;
 import fr.paris.lutece.plugins.appointment.business.form.Form;
 import fr.paris.lutece.plugins.appointment.business.form.FormHome;
 import fr.paris.lutece.plugins.appointment.business.slot.Slot;
@@ -47,7 +49,9 @@ import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
 import fr.paris.lutece.plugins.appointment.business.user.User;
 import fr.paris.lutece.plugins.appointment.business.user.UserHome;
 import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFilterDTO;
 import fr.paris.lutece.test.LuteceTestCase;
+import fr.paris.lutece.util.sql.DAOUtil;
 
 /**
  * Test Class for the Appointment
@@ -187,6 +191,256 @@ public final class AppointmentTest extends LuteceTestCase
         UserHome.delete( user2.getIdUser( ) );
     }
 
+    /**
+     * Test findByFilter and forEachByFilter methods: an appointment is given once with all its slots, in the order of the filter
+     */
+    public void testFindByFilter( )
+    {
+        Form form = FormTest.buildForm1( );
+        FormHome.create( form );
+
+        User user1 = UserTest.buildUser( Constants.GUID_1, Constants.FIRST_NAME_1, Constants.LAST_NAME_1, Constants.EMAIL_1, Constants.PHONE_NUMBER_1 );
+        UserHome.create( user1 );
+
+        User user2 = UserTest.buildUser( Constants.GUID_2, Constants.FIRST_NAME_2, Constants.LAST_NAME_2, Constants.EMAIL_2, Constants.PHONE_NUMBER_2 );
+        UserHome.create( user2 );
+
+        Slot slot1 = SlotTest.buildSlot( form.getIdForm( ), Constants.STARTING_DATE_1, Constants.ENDING_DATE_1, Constants.NB_REMAINING_PLACES_2,
+                Constants.NB_REMAINING_PLACES_2, 0, Constants.NB_REMAINING_PLACES_2, Boolean.TRUE, Boolean.TRUE );
+        SlotHome.create( slot1 );
+        Slot slot2 = SlotTest.buildSlot( form.getIdForm( ), Constants.STARTING_DATE_2, Constants.ENDING_DATE_2, Constants.NB_REMAINING_PLACES_2,
+                Constants.NB_REMAINING_PLACES_2, 0, Constants.NB_REMAINING_PLACES_2, Boolean.TRUE, Boolean.TRUE );
+        SlotHome.create( slot2 );
+
+        // The first slot is taken by both appointments: sorted by date, the rows of the first appointment are not consecutive
+        Appointment appointment1 = buildAppointment( user1, slot2, slot1 );
+        AppointmentHome.create( appointment1 );
+        Appointment appointment2 = buildAppointment( user2, slot1 );
+        AppointmentHome.create( appointment2 );
+
+        AppointmentFilterDTO filter = new AppointmentFilterDTO( );
+        filter.setIdForm( form.getIdForm( ) );
+        filter.setOrderBy( "last_name" );
+        filter.setOrderAsc( false );
+        List<Appointment> listAppointmentStored = AppointmentHome.findByFilter( filter );
+        assertEquals( 2, listAppointmentStored.size( ) );
+        Appointment appointmentStored1 = listAppointmentStored.get( 1 );
+        assertEquals( appointment1.getIdAppointment( ), appointmentStored1.getIdAppointment( ) );
+        assertEquals( Constants.LAST_NAME_1, appointmentStored1.getUser( ).getLastName( ) );
+        assertEquals( 2, appointmentStored1.getSlot( ).size( ) );
+        assertEquals( slot1.getIdSlot( ), appointmentStored1.getSlot( ).get( 0 ).getIdSlot( ) );
+        assertEquals( slot2.getIdSlot( ), appointmentStored1.getSlot( ).get( 1 ).getIdSlot( ) );
+
+        filter.setOrderBy( null );
+        filter.setOrderAsc( true );
+        List<Appointment> listAppointmentGiven = new ArrayList<>( );
+        AppointmentHome.forEachByFilter( filter, listAppointmentGiven::add );
+        assertEquals( 2, listAppointmentGiven.size( ) );
+        assertEquals( appointment1.getIdAppointment( ), listAppointmentGiven.get( 0 ).getIdAppointment( ) );
+        assertEquals( 2, listAppointmentGiven.get( 0 ).getSlot( ).size( ) );
+        assertEquals( appointment2.getIdAppointment( ), listAppointmentGiven.get( 1 ).getIdAppointment( ) );
+        assertEquals( 1, listAppointmentGiven.get( 1 ).getSlot( ).size( ) );
+
+        // The appointments created after the text index was built are kept with the ids given by the index
+        filter.setListIdAppointmentMatchingText( new ArrayList<>( ) );
+        filter.setIdLastIndexedAppointment( appointment1.getIdAppointment( ) );
+        assertEquals( Collections.singletonList( appointment2.getIdAppointment( ) ), AppointmentHome.findIdsByFilter( filter ) );
+        filter.setListIdAppointmentMatchingText( Collections.singletonList( appointment1.getIdAppointment( ) ) );
+        assertEquals( 2, AppointmentHome.countByFilter( filter ) );
+        filter.setIdLastIndexedAppointment( appointment2.getIdAppointment( ) );
+        assertEquals( 1, AppointmentHome.countByFilter( filter ) );
+        assertTrue( AppointmentHome.findIdsByFilter( filter ).contains( appointment1.getIdAppointment( ) ) );
+
+        // Clean
+        AppointmentHome.delete( appointment1.getIdAppointment( ) );
+        AppointmentHome.delete( appointment2.getIdAppointment( ) );
+        SlotHome.delete( slot1.getIdSlot( ) );
+        SlotHome.delete( slot2.getIdSlot( ) );
+        FormHome.delete( form.getIdForm( ) );
+        UserHome.delete( user1.getIdUser( ) );
+        UserHome.delete( user2.getIdUser( ) );
+    }
+
+    /**
+     * Test findSortKeysByFilter and countByFilter methods: the pages read after the last appointment of the previous page or from an offset are the same
+     */
+    public void testFindSortKeysByFilter( )
+    {
+        Form form = FormTest.buildForm1( );
+        FormHome.create( form );
+
+        User user = UserTest.buildUser( Constants.GUID_1, Constants.FIRST_NAME_1, Constants.LAST_NAME_1, Constants.EMAIL_1, Constants.PHONE_NUMBER_1 );
+        UserHome.create( user );
+
+        Slot slot1 = SlotTest.buildSlot( form.getIdForm( ), Constants.STARTING_DATE_1, Constants.ENDING_DATE_1, Constants.NB_REMAINING_PLACES_3,
+                Constants.NB_REMAINING_PLACES_3, 0, Constants.NB_REMAINING_PLACES_3, Boolean.TRUE, Boolean.TRUE );
+        SlotHome.create( slot1 );
+        Slot slot2 = SlotTest.buildSlot( form.getIdForm( ), Constants.STARTING_DATE_2, Constants.ENDING_DATE_2, Constants.NB_REMAINING_PLACES_3,
+                Constants.NB_REMAINING_PLACES_3, 0, Constants.NB_REMAINING_PLACES_3, Boolean.TRUE, Boolean.TRUE );
+        SlotHome.create( slot2 );
+
+        List<Appointment> listAppointment = new ArrayList<>( );
+        listAppointment.add( buildAppointment( user, slot2 ) );
+        listAppointment.add( buildAppointment( user, slot1, slot2 ) );
+        listAppointment.add( buildAppointment( user, slot1 ) );
+        for ( Appointment appointment : listAppointment )
+        {
+            AppointmentHome.create( appointment );
+        }
+
+        AppointmentFilterDTO filter = new AppointmentFilterDTO( );
+        filter.setIdForm( form.getIdForm( ) );
+        assertEquals( 3, AppointmentHome.countByFilter( filter ) );
+
+        for ( String strOrderBy : new String [ ] {
+                "date_appointment", "last_name", "phone_number", "status"
+        } )
+        {
+            for ( boolean bOrderAsc : new boolean [ ] {
+                    true, false
+            } )
+            {
+                filter.setOrderBy( strOrderBy );
+                filter.setOrderAsc( bOrderAsc );
+                List<AppointmentSortKey> listAll = AppointmentHome.findSortKeysByFilter( filter, null, 0, 10 );
+                assertEquals( 3, listAll.size( ) );
+
+                List<AppointmentSortKey> listFirstPage = AppointmentHome.findSortKeysByFilter( filter, null, 0, 2 );
+                List<AppointmentSortKey> listSecondPage = AppointmentHome.findSortKeysByFilter( filter, listFirstPage.get( 1 ), 0, 2 );
+                List<AppointmentSortKey> listSecondPageFromOffset = AppointmentHome.findSortKeysByFilter( filter, null, 2, 2 );
+                assertEquals( 2, listFirstPage.size( ) );
+                assertEquals( 1, listSecondPage.size( ) );
+                assertEquals( 1, listSecondPageFromOffset.size( ) );
+                assertEquals( listAll.get( 0 ).getIdAppointment( ), listFirstPage.get( 0 ).getIdAppointment( ) );
+                assertEquals( listAll.get( 1 ).getIdAppointment( ), listFirstPage.get( 1 ).getIdAppointment( ) );
+                assertEquals( listAll.get( 2 ).getIdAppointment( ), listSecondPage.get( 0 ).getIdAppointment( ) );
+                assertEquals( listAll.get( 2 ).getIdAppointment( ), listSecondPageFromOffset.get( 0 ).getIdAppointment( ) );
+            }
+        }
+
+        // The appointments starting on the first slot come first by date
+        filter.setOrderBy( "date_appointment" );
+        filter.setOrderAsc( true );
+        List<AppointmentSortKey> listByDate = AppointmentHome.findSortKeysByFilter( filter, null, 0, 10 );
+        assertEquals( listAppointment.get( 1 ).getIdAppointment( ), listByDate.get( 0 ).getIdAppointment( ) );
+        assertEquals( listAppointment.get( 2 ).getIdAppointment( ), listByDate.get( 1 ).getIdAppointment( ) );
+        assertEquals( listAppointment.get( 0 ).getIdAppointment( ), listByDate.get( 2 ).getIdAppointment( ) );
+
+        // Clean
+        for ( Appointment appointment : listAppointment )
+        {
+            AppointmentHome.delete( appointment.getIdAppointment( ) );
+        }
+        SlotHome.delete( slot1.getIdSlot( ) );
+        SlotHome.delete( slot2.getIdSlot( ) );
+        FormHome.delete( form.getIdForm( ) );
+        UserHome.delete( user.getIdUser( ) );
+    }
+
+    /**
+     * Test findSortKeysByFilter method on nullable columns: reading the pages one appointment at a time after the last appointment of the previous page must
+     * give all the appointments, whether their value is NULL or not
+     */
+    public void testFindSortKeysByFilterWithNullValues( )
+    {
+        Form form = FormTest.buildForm1( );
+        FormHome.create( form );
+
+        User user = UserTest.buildUser( Constants.GUID_1, Constants.FIRST_NAME_1, Constants.LAST_NAME_1, Constants.EMAIL_1, Constants.PHONE_NUMBER_1 );
+        UserHome.create( user );
+        User userWithoutEmail = UserTest.buildUser( Constants.GUID_2, Constants.FIRST_NAME_2, Constants.LAST_NAME_2, null, Constants.PHONE_NUMBER_2 );
+        UserHome.create( userWithoutEmail );
+
+        Slot slot = SlotTest.buildSlot( form.getIdForm( ), Constants.STARTING_DATE_1, Constants.ENDING_DATE_1, Constants.NB_REMAINING_PLACES_3,
+                Constants.NB_REMAINING_PLACES_3, 0, Constants.NB_REMAINING_PLACES_3, Boolean.TRUE, Boolean.TRUE );
+        SlotHome.create( slot );
+
+        List<Appointment> listAppointment = new ArrayList<>( );
+        listAppointment.add( buildAppointment( userWithoutEmail, slot ) );
+        listAppointment.add( buildAppointment( user, slot ) );
+        listAppointment.add( buildAppointment( userWithoutEmail, slot ) );
+        listAppointment.add( buildAppointment( user, slot ) );
+        listAppointment.get( 1 ).setIdAdminUser( 1 );
+        for ( Appointment appointment : listAppointment )
+        {
+            AppointmentHome.create( appointment );
+        }
+        // The appointments created by another application can have no admin user
+        for ( int i : new int [ ] {
+                0, 3
+        } )
+        {
+            try ( DAOUtil daoUtil = new DAOUtil( "UPDATE appointment_appointment SET id_admin_user = NULL WHERE id_appointment = ?" ) )
+            {
+                daoUtil.setInt( 1, listAppointment.get( i ).getIdAppointment( ) );
+                daoUtil.executeUpdate( );
+            }
+        }
+
+        AppointmentFilterDTO filter = new AppointmentFilterDTO( );
+        filter.setIdForm( form.getIdForm( ) );
+        for ( String strOrderBy : new String [ ] {
+                "email", "admin"
+        } )
+        {
+            for ( boolean bOrderAsc : new boolean [ ] {
+                    true, false
+            } )
+            {
+                filter.setOrderBy( strOrderBy );
+                filter.setOrderAsc( bOrderAsc );
+                List<AppointmentSortKey> listAll = AppointmentHome.findSortKeysByFilter( filter, null, 0, 10 );
+                assertEquals( 4, listAll.size( ) );
+
+                AppointmentSortKey sortKeyAfter = null;
+                for ( AppointmentSortKey sortKey : listAll )
+                {
+                    List<AppointmentSortKey> listPage = AppointmentHome.findSortKeysByFilter( filter, sortKeyAfter, 0, 1 );
+                    assertEquals( 1, listPage.size( ) );
+                    assertEquals( sortKey.getIdAppointment( ), listPage.get( 0 ).getIdAppointment( ) );
+                    assertNotNull( listPage.get( 0 ).getSortValue( ) );
+                    sortKeyAfter = listPage.get( 0 );
+                }
+                assertTrue( AppointmentHome.findSortKeysByFilter( filter, sortKeyAfter, 0, 1 ).isEmpty( ) );
+            }
+        }
+
+        // Clean
+        for ( Appointment appointment : listAppointment )
+        {
+            AppointmentHome.delete( appointment.getIdAppointment( ) );
+        }
+        SlotHome.delete( slot.getIdSlot( ) );
+        FormHome.delete( form.getIdForm( ) );
+        UserHome.delete( user.getIdUser( ) );
+        UserHome.delete( userWithoutEmail.getIdUser( ) );
+    }
+
+    /**
+     * Build an appointment of one place on each slot
+     * 
+     * @param user
+     *            the user
+     * @param slots
+     *            the slots
+     * @return the appointment
+     */
+    private static Appointment buildAppointment( User user, Slot... slots )
+    {
+        Appointment appointment = new Appointment( );
+        appointment.setIdUser( user.getIdUser( ) );
+        appointment.setListAppointmentSlot( new ArrayList<>( ) );
+        for ( Slot slot : slots )
+        {
+            AppointmentSlot appointmentSlot = new AppointmentSlot( );
+            appointmentSlot.setIdSlot( slot.getIdSlot( ) );
+            appointmentSlot.setNbPlaces( 1 );
+            appointment.addSlot( slot );
+            appointment.getListAppointmentSlot( ).add( appointmentSlot );
+        }
+        return appointment;
+    }
+
     /**
      * Check that all the asserts are true
      * 
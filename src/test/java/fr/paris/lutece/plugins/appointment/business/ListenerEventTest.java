@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import fr.paris.lutece.plugins.appointment.business.outbox.ListenerEvent;
+import fr.paris.lutece.plugins.appointment.business.outbox.ListenerEventHome;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.AppointmentPlugin;
+import fr.paris.lutece.plugins.appointment.service.listeners.ListenerEventDispatcher;
+import fr.paris.lutece.test.LuteceTestCase;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+/**
+ * Test class for the ListenerEvent
+ */
+public final class ListenerEventTest extends LuteceTestCase
+{
+    private static final int ID_RESOURCE = Integer.MAX_VALUE - 1;
+
+    /**
+     * Test of the life cycle of the events: creation, rollback, claim, postponing and deletion
+     */
+    public void testListenerEvent( )
+    {
+        // The events must not be delivered during the test
+        ListenerEventDispatcher.getInstance( ).shutdown( );
+        try
+        {
+            int nbEventsBefore = ListenerEventHome.count( );
+            ListenerEventDispatcher.publish( ListenerEvent.TYPE_SLOT_CHANGE, Arrays.asList( ID_RESOURCE, ID_RESOURCE ) );
+            ListenerEventDispatcher.publish( ListenerEvent.TYPE_SLOT_CREATION, ID_RESOURCE );
+            assertEquals( nbEventsBefore + 3, ListenerEventHome.count( ) );
+
+            // The events of a transaction rolled back are not kept
+            TransactionManager.beginTransaction( AppointmentPlugin.getPlugin( ) );
+            ListenerEventDispatcher.publish( ListenerEvent.TYPE_SLOT_CHANGE, ID_RESOURCE );
+            TransactionManager.rollBack( AppointmentPlugin.getPlugin( ) );
+            assertEquals( nbEventsBefore + 3, ListenerEventHome.count( ) );
+
+            // Claim the events, they can not be claimed twice
+            LocalDateTime now = LocalDateTime.now( ).plusSeconds( 1 );
+            List<Integer> listIdEvent = ListenerEventHome.findIdReady( now, Integer.MAX_VALUE );
+            String strClaimToken = UUID.randomUUID( ).toString( );
+            assertTrue( ListenerEventHome.claim( listIdEvent, strClaimToken, now, now.plusMinutes( 1 ) ) >= 3 );
+            assertEquals( 0, ListenerEventHome.claim( listIdEvent, UUID.randomUUID( ).toString( ), now, now.plusMinutes( 1 ) ) );
+            List<Integer> listIdEventTest = ListenerEventHome.findByClaimToken( strClaimToken ).stream( )
+                    .filter( event -> event.getIdResource( ) == ID_RESOURCE ).map( ListenerEvent::getIdEvent ).collect( Collectors.toList( ) );
+            assertEquals( 3, listIdEventTest.size( ) );
+
+            // A postponed event is not ready before its next attempt
+            ListenerEventHome.postpone( listIdEventTest, now.plusMinutes( 5 ) );
+            assertFalse( ListenerEventHome.findIdReady( now.plusMinutes( 1 ), Integer.MAX_VALUE ).contains( listIdEventTest.get( 0 ) ) );
+            assertTrue( ListenerEventHome.findIdReady( now.plusMinutes( 5 ), Integer.MAX_VALUE ).contains( listIdEventTest.get( 0 ) ) );
+
+            // Clean
+            assertEquals( 3, ListenerEventHome.deleteList( listIdEventTest ) );
+        }
+        finally
+        {
+            ListenerEventDispatcher.getInstance( ).start( );
+        }
+    }
+
+    /**
+     * Test of the delivery of the events, with the changes of the same slot coalesced
+     */
+    public void testDrain( )
+    {
+        ListenerEventDispatcher dispatcher = ListenerEventDispatcher.getInstance( );
+        dispatcher.shutdown( );
+        try
+        {
+            long lNbDelivered = dispatcher.getNbDelivered( );
+            long lNbCoalesced = dispatcher.getNbCoalesced( );
+            ListenerEventDispatcher.publish( ListenerEvent.TYPE_SLOT_CHANGE, Arrays.asList( ID_RESOURCE, ID_RESOURCE ) );
+
+            assertTrue( dispatcher.drain( ) >= 2 );
+            assertTrue( dispatcher.getNbDelivered( ) >= lNbDelivered + 2 );
+            assertTrue( dispatcher.getNbCoalesced( ) >= lNbCoalesced + 1 );
+            assertTrue( dispatcher.getLastLatency( ) >= 0 );
+        }
+        finally
+        {
+            dispatcher.start( );
+        }
+    }
+
+    /**
+     * Test of the events with data: the data is kept in database until the delivery
+     */
+    public void testEventData( )
+    {
+        ListenerEventDispatcher dispatcher = ListenerEventDispatcher.getInstance( );
+        dispatcher.shutdown( );
+        try
+        {
+            LocalDateTime endingDateTime = LocalDateTime.of( 2030, 1, 7, 10, 30 );
+            Slot slot = SlotTest.buildSlot( 1, LocalDateTime.of( 2030, 1, 7, 10, 0 ), endingDateTime, 2, 2, 1, 3, true, true );
+            slot.setIdSlot( ID_RESOURCE );
+            ListenerEventDispatcher.publishSlotRemoval( slot );
+            ListenerEventDispatcher.publishSlotEndingTimeChanged( ID_RESOURCE, 1, endingDateTime );
+            ListenerEventDispatcher.publishAppointmentWFAction( ID_RESOURCE, 2 );
+
+            LocalDateTime now = LocalDateTime.now( ).plusSeconds( 1 );
+            String strClaimToken = UUID.randomUUID( ).toString( );
+            ListenerEventHome.claim( ListenerEventHome.findIdReady( now, Integer.MAX_VALUE ), strClaimToken, now, LocalDateTime.now( ).minusSeconds( 1 ) );
+            List<ListenerEvent> listEvent = ListenerEventHome.findByClaimToken( strClaimToken ).stream( )
+                    .filter( event -> event.getIdResource( ) == ID_RESOURCE ).collect( Collectors.toList( ) );
+            assertEquals( 3, listEvent.size( ) );
+            assertTrue( listEvent.get( 0 ).getData( ).contains( "2030-01-07T10:00" ) );
+            assertTrue( listEvent.get( 1 ).getData( ).contains( "2030-01-07T10:30" ) );
+            assertTrue( listEvent.get( 2 ).getData( ).contains( ":2" ) );
+
+            // The lease given to the claim is already over, the events are delivered
+            long lNbDelivered = dispatcher.getNbDelivered( );
+            assertTrue( dispatcher.drain( ) >= 3 );
+            assertTrue( dispatcher.getNbDelivered( ) >= lNbDelivered + 3 );
+        }
+        finally
+        {
+            dispatcher.start( );
+        }
+    }
+}
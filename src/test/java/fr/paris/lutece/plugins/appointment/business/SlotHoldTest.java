@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.business;
+
+import java.time.LocalDateTime;
+
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.form.FormHome;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHold;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHoldHome;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
+import fr.paris.lutece.plugins.appointment.service.SlotHoldService;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the SlotHold
+ */
+public final class SlotHoldTest extends LuteceTestCase
+{
+
+    /**
+     * Test method for the SlotHold (CRD)
+     */
+    public void testSlotHold( )
+    {
+        Form form = FormTest.buildForm1( );
+        FormHome.create( form );
+        Slot slot = SlotTest.buildSlot( form.getIdForm( ), Constants.STARTING_DATE_1, Constants.ENDING_DATE_1, Constants.NB_REMAINING_PLACES_2,
+                Constants.NB_REMAINING_PLACES_2, 0, Constants.NB_REMAINING_PLACES_2, Boolean.TRUE, Boolean.TRUE );
+        SlotHome.create( slot );
+
+        // Create a hold in database
+        SlotHold slotHold = buildSlotHold( slot.getIdSlot( ), 1, LocalDateTime.now( ).plusMinutes( 5 ) );
+        SlotHoldHome.create( slotHold );
+        SlotHold slotHoldStored = SlotHoldHome.findByPrimaryKey( slotHold.getIdHold( ) );
+        assertEquals( slotHold.getIdSlot( ), slotHoldStored.getIdSlot( ) );
+        assertEquals( slotHold.getNbPlaces( ), slotHoldStored.getNbPlaces( ) );
+        assertFalse( slotHoldStored.isExpired( LocalDateTime.now( ) ) );
+
+        // A hold can only be deleted once
+        assertTrue( SlotHoldHome.delete( slotHold.getIdHold( ) ) );
+        assertFalse( SlotHoldHome.delete( slotHold.getIdHold( ) ) );
+        assertNull( SlotHoldHome.findByPrimaryKey( slotHold.getIdHold( ) ) );
+
+        // Clean
+        SlotHome.delete( slot.getIdSlot( ) );
+        FormHome.delete( form.getIdForm( ) );
+    }
+
+    /**
+     * Test that the expired holds give their places back to the slot
+     */
+    public void testReleaseExpiredHolds( )
+    {
+        Form form = FormTest.buildForm1( );
+        FormHome.create( form );
+        Slot slot = SlotTest.buildSlot( form.getIdForm( ), Constants.STARTING_DATE_1, Constants.ENDING_DATE_1, Constants.NB_REMAINING_PLACES_2,
+                Constants.NB_REMAINING_PLACES_2, 0, Constants.NB_REMAINING_PLACES_2, Boolean.TRUE, Boolean.TRUE );
+        SlotHome.create( slot );
+
+        // A live hold and a hold already expired
+        SlotHold slotHoldLive = SlotHoldService.createHold( slot.getIdSlot( ), 1, 5 );
+        SlotHold slotHoldExpired = SlotHoldService.createHold( slot.getIdSlot( ), 1, -1 );
+        assertEquals( 0, SlotHome.findByPrimaryKey( slot.getIdSlot( ) ).getNbPotentialRemainingPlaces( ) );
+        assertTrue( SlotHoldService.isExpired( slotHoldExpired.getIdHold( ) ) );
+
+        // No hold can be taken on the slot without potential remaining places
+        assertNull( SlotHoldService.createHold( slot.getIdSlot( ), 1, 5 ) );
+        assertEquals( 0, SlotHome.findByPrimaryKey( slot.getIdSlot( ) ).getNbPotentialRemainingPlaces( ) );
+
+        // Only the expired hold is released
+        SlotHoldService.releaseExpiredHolds( );
+        assertNull( SlotHoldHome.findByPrimaryKey( slotHoldExpired.getIdHold( ) ) );
+        assertFalse( SlotHoldService.isExpired( slotHoldLive.getIdHold( ) ) );
+        assertEquals( Constants.NB_REMAINING_PLACES_2 - 1, SlotHome.findByPrimaryKey( slot.getIdSlot( ) ).getNbPotentialRemainingPlaces( ) );
+
+        // Release the live hold
+        SlotHoldService.releaseHold( slotHoldLive.getIdHold( ) );
+        assertEquals( Constants.NB_REMAINING_PLACES_2, SlotHome.findByPrimaryKey( slot.getIdSlot( ) ).getNbPotentialRemainingPlaces( ) );
+
+        // Clean
+        SlotHome.delete( slot.getIdSlot( ) );
+        FormHome.delete( form.getIdForm( ) );
+    }
+
+    /**
+     * Build a SlotHold Business Object
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param nbPlaces
+     *            the number of places held
+     * @param expiryDateTime
+     *            the expiry date time
+     * @return the hold
+     */
+    public static SlotHold buildSlotHold( int nIdSlot, int nbPlaces, LocalDateTime expiryDateTime )
+    {
+        SlotHold slotHold = new SlotHold( );
+        slotHold.setIdSlot( nIdSlot );
+        slotHold.setNbPlaces( nbPlaces );
+        slotHold.setExpiryDateTime( expiryDateTime );
+        return slotHold;
+    }
+}
@@ -34,6 +34,7 @@
 package fr.paris.lutece.plugins.appointment.business;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 
 import fr.paris.lutece.plugins.appointment.business.form.Form;
@@ -189,6 +190,89 @@ public final class SlotTest extends LuteceTestCase
 
     }
 
+    /**
+     * Test of reservePlaces and releasePlaces
+     */
+    public void testReserveAndReleasePlaces( )
+    {
+        Form form = FormTest.buildForm1( );
+        FormHome.create( form );
+
+        // Initialize a Slot with 2 places
+        Slot slot = buildSlot( form.getIdForm( ), Constants.STARTING_DATE_1, Constants.ENDING_DATE_1, Constants.NB_REMAINING_PLACES_2,
+                Constants.NB_REMAINING_PLACES_2, 0, Constants.NB_REMAINING_PLACES_2, Boolean.TRUE, Boolean.TRUE );
+        SlotHome.create( slot );
+
+        // Take the 2 places, the third one must be refused
+        assertTrue( SlotHome.reservePlaces( slot.getIdSlot( ), 1, 0, null, false ) );
+        assertTrue( SlotHome.reservePlaces( slot.getIdSlot( ), 1, 0, null, false ) );
+        assertFalse( SlotHome.reservePlaces( slot.getIdSlot( ), 1, 0, null, false ) );
+        Slot slotStored = SlotHome.findByPrimaryKey( slot.getIdSlot( ) );
+        assertEquals( 0, slotStored.getNbRemainingPlaces( ) );
+        assertEquals( 0, slotStored.getNbPotentialRemainingPlaces( ) );
+        assertEquals( 2, slotStored.getNbPlacesTaken( ) );
+
+        // The slot is over
+        assertFalse( SlotHome.reservePlaces( slot.getIdSlot( ), 1, 0, Constants.ENDING_DATE_1.plusMinutes( 1 ), true ) );
+
+        // Over booking
+        assertTrue( SlotHome.reservePlaces( slot.getIdSlot( ), 1, 0, null, true ) );
+        slotStored = SlotHome.findByPrimaryKey( slot.getIdSlot( ) );
+        assertEquals( -1, slotStored.getNbRemainingPlaces( ) );
+        assertEquals( 3, slotStored.getNbPlacesTaken( ) );
+
+        // Release the places, the remaining places can not exceed the capacity
+        assertTrue( SlotHome.releasePlaces( slot.getIdSlot( ), 1 ) );
+        slotStored = SlotHome.findByPrimaryKey( slot.getIdSlot( ) );
+        assertEquals( 0, slotStored.getNbRemainingPlaces( ) );
+        assertEquals( 2, slotStored.getNbPlacesTaken( ) );
+        assertTrue( SlotHome.releasePlaces( slot.getIdSlot( ), 2 ) );
+        slotStored = SlotHome.findByPrimaryKey( slot.getIdSlot( ) );
+        assertEquals( 2, slotStored.getNbRemainingPlaces( ) );
+        assertEquals( 2, slotStored.getNbPotentialRemainingPlaces( ) );
+        assertEquals( 0, slotStored.getNbPlacesTaken( ) );
+
+        // Clean
+        SlotHome.delete( slot.getIdSlot( ) );
+        FormHome.delete( form.getIdForm( ) );
+    }
+
+    /**
+     * Test of createList and incrementMaxCapacity
+     */
+    public void testCreateListAndIncrementMaxCapacity( )
+    {
+        Form form = FormTest.buildForm1( );
+        FormHome.create( form );
+
+        // Insert the two slots in one statement
+        Slot slot1 = buildSlot( form.getIdForm( ), Constants.STARTING_DATE_1, Constants.ENDING_DATE_1, Constants.NB_REMAINING_PLACES_2,
+                Constants.NB_REMAINING_PLACES_2, 0, Constants.NB_REMAINING_PLACES_2, Boolean.TRUE, Boolean.FALSE );
+        Slot slot2 = buildSlot( form.getIdForm( ), Constants.STARTING_DATE_2, Constants.ENDING_DATE_2, Constants.NB_REMAINING_PLACES_2,
+                Constants.NB_REMAINING_PLACES_2, 0, Constants.NB_REMAINING_PLACES_2, Boolean.TRUE, Boolean.FALSE );
+        SlotHome.createList( Arrays.asList( slot1, slot2 ) );
+        List<Slot> listSlotStored = SlotHome.findByIdFormAndDateRange( form.getIdForm( ), Constants.STARTING_DATE_1, Constants.ENDING_DATE_2 );
+        assertEquals( 2, listSlotStored.size( ) );
+
+        // Take one place on a slot, then add 3 places to both slots
+        int nIdSlot1 = listSlotStored.get( 0 ).getIdSlot( );
+        int nIdSlot2 = listSlotStored.get( 1 ).getIdSlot( );
+        assertTrue( SlotHome.reservePlaces( nIdSlot1, 1, 0, null, false ) );
+        assertEquals( 2, SlotHome.incrementMaxCapacity( Arrays.asList( nIdSlot1, nIdSlot2 ), 3, true ) );
+        Slot slotStored = SlotHome.findByPrimaryKey( nIdSlot1 );
+        assertEquals( Constants.NB_REMAINING_PLACES_2 + 3, slotStored.getMaxCapacity( ) );
+        assertEquals( Constants.NB_REMAINING_PLACES_2 + 2, slotStored.getNbRemainingPlaces( ) );
+        assertEquals( Constants.NB_REMAINING_PLACES_2 + 2, slotStored.getNbPotentialRemainingPlaces( ) );
+        assertEquals( 1, slotStored.getNbPlacesTaken( ) );
+        assertTrue( slotStored.getIsSpecific( ) );
+        assertEquals( Constants.NB_REMAINING_PLACES_2 + 3, SlotHome.findByPrimaryKey( nIdSlot2 ).getNbRemainingPlaces( ) );
+
+        // Clean
+        SlotHome.delete( nIdSlot1 );
+        SlotHome.delete( nIdSlot2 );
+        FormHome.delete( form.getIdForm( ) );
+    }
+
     /**
      * Build a SLot Business Object
      * 
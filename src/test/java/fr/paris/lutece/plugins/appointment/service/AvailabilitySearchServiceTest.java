@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the AvailabilitySearchService
+ */
+public final class AvailabilitySearchServiceTest extends LuteceTestCase
+{
+    private static final LocalDate MONDAY = LocalDate.of( 2030, 1, 7 );
+
+    /**
+     * The slots of the forms must be merged by starting date time, and the iterators read only as far as needed
+     */
+    public void testMergeEarliestSlots( )
+    {
+        List<Slot> listSlotForm1 = Arrays.asList( buildSlot( 1, MONDAY.atTime( 9, 0 ) ), buildSlot( 1, MONDAY.atTime( 11, 0 ) ),
+                buildSlot( 1, MONDAY.plusDays( 1 ).atTime( 9, 0 ) ) );
+        List<Slot> listSlotForm2 = Arrays.asList( buildSlot( 2, MONDAY.atTime( 9, 0 ) ), buildSlot( 2, MONDAY.atTime( 10, 0 ) ) );
+        List<Slot> listSlotForm3 = Arrays.asList( buildSlot( 3, MONDAY.plusDays( 2 ).atTime( 8, 0 ) ), buildSlot( 3, MONDAY.plusDays( 2 ).atTime( 9, 0 ) ) );
+        List<Iterator<Slot>> listIterator = new ArrayList<>( );
+        listIterator.add( listSlotForm1.iterator( ) );
+        listIterator.add( listSlotForm2.iterator( ) );
+        listIterator.add( new ArrayList<Slot>( ).iterator( ) );
+        Iterator<Slot> iteratorForm3 = listSlotForm3.iterator( );
+        listIterator.add( iteratorForm3 );
+
+        List<Slot> listSlot = AvailabilitySearchService.mergeEarliestSlots( listIterator, 4 );
+        assertEquals( 4, listSlot.size( ) );
+        assertSame( listSlotForm1.get( 0 ), listSlot.get( 0 ) );
+        assertSame( listSlotForm2.get( 0 ), listSlot.get( 1 ) );
+        assertSame( listSlotForm2.get( 1 ), listSlot.get( 2 ) );
+        assertSame( listSlotForm1.get( 1 ), listSlot.get( 3 ) );
+        // Only the first slot of the third form has been read
+        assertTrue( iteratorForm3.hasNext( ) );
+
+        listIterator.clear( );
+        listIterator.add( listSlotForm1.iterator( ) );
+        listIterator.add( listSlotForm3.iterator( ) );
+        listSlot = AvailabilitySearchService.mergeEarliestSlots( listIterator, 10 );
+        assertEquals( 5, listSlot.size( ) );
+        assertSame( listSlotForm3.get( 0 ), listSlot.get( 3 ) );
+        assertTrue( AvailabilitySearchService.mergeEarliestSlots( new ArrayList<>( ), 10 ).isEmpty( ) );
+    }
+
+    /**
+     * Build a slot of 30 minutes
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param startingDateTime
+     *            the starting date time
+     * @return the slot
+     */
+    private static Slot buildSlot( int nIdForm, LocalDateTime startingDateTime )
+    {
+        Slot slot = new Slot( );
+        slot.setIdForm( nIdForm );
+        slot.setStartingDateTime( startingDateTime );
+        slot.setEndingDateTime( startingDateTime.plusMinutes( 30 ) );
+        slot.setIsOpen( true );
+        slot.setNbPotentialRemainingPlaces( 1 );
+        return slot;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the AvailabilityService
+ */
+public final class AvailabilityServiceTest extends LuteceTestCase
+{
+    private static final LocalDate MONDAY = LocalDate.of( 2030, 1, 7 );
+
+    /**
+     * The JSON of a window must contain the dates of the window and the values of the slots
+     */
+    public void testToJson( )
+    {
+        List<Slot> listSlot = new ArrayList<>( );
+        Slot slot = new Slot( );
+        slot.setIdSlot( 12 );
+        slot.setStartingDateTime( MONDAY.atTime( 9, 0 ) );
+        slot.setEndingDateTime( MONDAY.atTime( 9, 30 ) );
+        slot.setIsOpen( true );
+        slot.setNbRemainingPlaces( 2 );
+        slot.setNbPotentialRemainingPlaces( 1 );
+        listSlot.add( slot );
+
+        assertEquals( "{\"from\":\"2030-01-07\",\"to\":\"2030-01-13\",\"slots\":[{\"id\":12,\"start\":\"2030-01-07T09:00\",\"end\":\"2030-01-07T09:30\","
+                + "\"open\":true,\"remaining\":2,\"potential\":1}]}", AvailabilityService.toJson( MONDAY, MONDAY.plusDays( 6 ), listSlot ) );
+        assertEquals( "{\"from\":\"2030-01-07\",\"to\":\"2030-01-07\",\"slots\":[]}", AvailabilityService.toJson( MONDAY, MONDAY, new ArrayList<>( ) ) );
+        assertEquals( "{\"retry\":5,\"slots\":[]}", AvailabilityService.toJsonRetry( 5 ) );
+    }
+}
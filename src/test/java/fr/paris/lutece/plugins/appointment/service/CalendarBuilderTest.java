@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlan;
+import fr.paris.lutece.plugins.appointment.service.plan.FormSchedulePlanTest;
+import fr.paris.lutece.plugins.appointment.service.plan.SlotGrid;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the CalendarBuilder
+ */
+public final class CalendarBuilderTest extends LuteceTestCase
+{
+    private static final LocalDate DATE_START = LocalDate.of( 2030, 1, 1 );
+
+    /**
+     * The grid built in parallel must be the same as the grid built on the calling thread, whatever the size of the chunks
+     */
+    public void testParallelBuildSameAsSequential( )
+    {
+        Map<WeekDefinition, ReservationRule> mapReservationRule = new HashMap<>( );
+        ReservationRule rule1 = FormSchedulePlanTest.buildReservationRule( 1, LocalTime.of( 9, 0 ), LocalTime.of( 12, 0 ), 30, DayOfWeek.MONDAY,
+                DayOfWeek.TUESDAY, DayOfWeek.FRIDAY );
+        ReservationRule rule2 = FormSchedulePlanTest.buildReservationRule( 2, LocalTime.of( 8, 0 ), LocalTime.of( 18, 0 ), 20, DayOfWeek.WEDNESDAY,
+                DayOfWeek.SATURDAY );
+        mapReservationRule.put( FormSchedulePlanTest.buildWeekDefinition( 1, 1, DATE_START, DATE_START.plusDays( 120 ) ), rule1 );
+        mapReservationRule.put( FormSchedulePlanTest.buildWeekDefinition( 2, 2, DATE_START.plusDays( 121 ), DATE_START.plusDays( 250 ) ), rule2 );
+        mapReservationRule.put( FormSchedulePlanTest.buildWeekDefinition( 3, 1, DATE_START.plusDays( 280 ), DATE_START.plusDays( 400 ) ), rule1 );
+        List<LocalDate> listClosingDay = Arrays.asList( DATE_START.plusDays( 10 ), DATE_START.plusDays( 150 ), DATE_START.plusDays( 300 ) );
+        FormSchedulePlan plan = FormSchedulePlan.compile( 1, mapReservationRule, listClosingDay );
+
+        // Slots in database: one longer than the time slots, one taken, one on a day which is not a working day
+        Map<LocalDateTime, Slot> mapSlot = new HashMap<>( );
+        addSlot( mapSlot, 1, DATE_START.atTime( 9, 0 ), DATE_START.atTime( 10, 0 ), 3, true );
+        addSlot( mapSlot, 2, DATE_START.plusDays( 128 ).atTime( 8, 20 ), DATE_START.plusDays( 128 ).atTime( 8, 40 ), 0, true );
+        addSlot( mapSlot, 3, DATE_START.plusDays( 3 ).atTime( 9, 0 ), DATE_START.plusDays( 3 ).atTime( 9, 30 ), 3, false );
+        addSlot( mapSlot, 4, DATE_START.plusDays( 290 ).atTime( 11, 30 ), DATE_START.plusDays( 290 ).atTime( 12, 0 ), 1, true );
+
+        LocalDate endingDate = DATE_START.plusDays( 420 );
+        List<String> listExpected = toListString( CalendarBuilder.buildSlotGrid( 1, plan, mapSlot, DATE_START, endingDate, 0 ) );
+        assertFalse( listExpected.isEmpty( ) );
+        for ( int nChunkSize : new int [ ] {
+                1, 2, 7, 28, 100, 1000
+        } )
+        {
+            assertEquals( listExpected, toListString( CalendarBuilder.buildSlotGrid( 1, plan, mapSlot, DATE_START, endingDate, nChunkSize ) ) );
+        }
+        // A period of one day, and a period beginning before the first week definition
+        assertEquals( toListString( CalendarBuilder.buildSlotGrid( 1, plan, mapSlot, DATE_START, DATE_START, 0 ) ),
+                toListString( CalendarBuilder.buildSlotGrid( 1, plan, mapSlot, DATE_START, DATE_START, 1 ) ) );
+        assertEquals( toListString( CalendarBuilder.buildSlotGrid( 1, plan, mapSlot, DATE_START.minusDays( 20 ), DATE_START.plusDays( 20 ), 0 ) ),
+                toListString( CalendarBuilder.buildSlotGrid( 1, plan, mapSlot, DATE_START.minusDays( 20 ), DATE_START.plusDays( 20 ), 3 ) ) );
+    }
+
+    /**
+     * Get the values of the slots of a grid
+     * 
+     * @param grid
+     *            the grid
+     * @return the values of each slot
+     */
+    private static List<String> toListString( SlotGrid grid )
+    {
+        List<String> listString = new ArrayList<>( );
+        for ( int i = 0; i < grid.size( ); i++ )
+        {
+            Slot slot = grid.getSlot( i );
+            listString.add( slot.getIdSlot( ) + " " + slot.getStartingDateTime( ) + " " + slot.getEndingDateTime( ) + " " + slot.getMaxCapacity( ) + " "
+                    + slot.getNbRemainingPlaces( ) + " " + slot.getNbPotentialRemainingPlaces( ) + " " + slot.getIsOpen( ) + " " + grid.isBookableDay( i ) );
+        }
+        return listString;
+    }
+
+    /**
+     * Add a slot in database
+     * 
+     * @param mapSlot
+     *            the slots by starting date time
+     * @param nIdSlot
+     *            the id of the slot
+     * @param startingDateTime
+     *            the starting date time
+     * @param endingDateTime
+     *            the ending date time
+     * @param nNbRemainingPlaces
+     *            the number of remaining places
+     * @param bIsOpen
+     *            true if the slot is open
+     */
+    private static void addSlot( Map<LocalDateTime, Slot> mapSlot, int nIdSlot, LocalDateTime startingDateTime, LocalDateTime endingDateTime,
+            int nNbRemainingPlaces, boolean bIsOpen )
+    {
+        Slot slot = new Slot( );
+        slot.setIdSlot( nIdSlot );
+        slot.setIdForm( 1 );
+        slot.setStartingDateTime( startingDateTime );
+        slot.setEndingDateTime( endingDateTime );
+        slot.setMaxCapacity( 3 );
+        slot.setNbRemainingPlaces( nNbRemainingPlaces );
+        slot.setNbPotentialRemainingPlaces( nNbRemainingPlaces );
+        slot.setIsOpen( bIsOpen );
+        mapSlot.put( startingDateTime, slot );
+    }
+}
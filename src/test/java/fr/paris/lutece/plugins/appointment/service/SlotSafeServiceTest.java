@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import fr.paris.lutece.plugins.appointment.business.AppointmentTest;
+import fr.paris.lutece.plugins.appointment.business.SlotTest;
+import fr.paris.lutece.plugins.appointment.business.appointment.AppointmentHome;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
+import fr.paris.lutece.plugins.appointment.business.user.UserHome;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the SlotSafeService
+ */
+public final class SlotSafeServiceTest extends LuteceTestCase
+{
+    private static final int CAPACITY = 100;
+    private static final int NB_REPORTS_PER_SLOT = 10;
+    private static final int NB_BOOKINGS_PER_SLOT = 20;
+    private static final int NB_MULTI_SLOT_BOOKINGS = 10;
+    private static final int NB_THREADS = 8;
+    private static final LocalTime TIME_START_A = LocalTime.of( 10, 0 );
+    private static final LocalTime TIME_START_B = LocalTime.of( 10, 30 );
+    private static final LocalTime TIME_END_B = LocalTime.of( 11, 0 );
+
+    /**
+     * New bookings and reports swapping the appointments of two slots are saved concurrently with SlotSafeService.saveAppointment. With the slots locked in
+     * the order of their ids, none of them may fail on a deadlock or a lock timeout, and the places of the slots must add up
+     * 
+     * @throws Exception
+     */
+    public void testConcurrentBookingsAndReports( ) throws Exception
+    {
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+        LocalDate date = LocalDate.now( ).plusDays( 1 );
+        Slot slotA = SlotService.saveSlot( SlotTest.buildSlot( nIdForm, date.atTime( TIME_START_A ), date.atTime( TIME_START_B ), CAPACITY, CAPACITY, 0,
+                CAPACITY, Boolean.TRUE, Boolean.TRUE ) );
+        Slot slotB = SlotService.saveSlot( SlotTest.buildSlot( nIdForm, date.atTime( TIME_START_B ), date.atTime( TIME_END_B ), CAPACITY, CAPACITY, 0,
+                CAPACITY, Boolean.TRUE, Boolean.TRUE ) );
+        List<AppointmentDTO> listAppointment = new ArrayList<>( );
+        try
+        {
+            // The appointments to report, half of them on each slot
+            List<AppointmentDTO> listToReportFromA = new ArrayList<>( );
+            List<AppointmentDTO> listToReportFromB = new ArrayList<>( );
+            for ( int i = 0; i < NB_REPORTS_PER_SLOT; i++ )
+            {
+                listToReportFromA.add( book( nIdForm, slotA, "report.a" + i, listAppointment ) );
+                listToReportFromB.add( book( nIdForm, slotB, "report.b" + i, listAppointment ) );
+            }
+
+            List<Callable<Integer>> listOperations = new ArrayList<>( );
+            for ( int i = 0; i < NB_REPORTS_PER_SLOT; i++ )
+            {
+                AppointmentDTO reportToB = buildReport( nIdForm, listToReportFromA.get( i ), slotB );
+                AppointmentDTO reportToA = buildReport( nIdForm, listToReportFromB.get( i ), slotA );
+                listOperations.add( ( ) -> SlotSafeService.saveAppointment( reportToB, new MockHttpServletRequest( ) ) );
+                listOperations.add( ( ) -> SlotSafeService.saveAppointment( reportToA, new MockHttpServletRequest( ) ) );
+            }
+            for ( int i = 0; i < NB_BOOKINGS_PER_SLOT; i++ )
+            {
+                AppointmentDTO bookingA = buildBooking( nIdForm, slotA, "booking.a" + i, listAppointment );
+                AppointmentDTO bookingB = buildBooking( nIdForm, slotB, "booking.b" + i, listAppointment );
+                listOperations.add( ( ) -> SlotSafeService.saveAppointment( bookingA, null ) );
+                listOperations.add( ( ) -> SlotSafeService.saveAppointment( bookingB, null ) );
+            }
+            ExecutorService executor = Executors.newFixedThreadPool( NB_THREADS );
+            try
+            {
+                for ( Future<Integer> future : executor.invokeAll( listOperations, 2, TimeUnit.MINUTES ) )
+                {
+                    // Throws if an operation failed or is still blocked after the timeout
+                    assertTrue( future.get( ) > 0 );
+                }
+            }
+            finally
+            {
+                executor.shutdownNow( );
+            }
+
+            // The reports cancel each other, each booking takes one place on its slot
+            int nbPlacesTaken = NB_REPORTS_PER_SLOT + NB_BOOKINGS_PER_SLOT;
+            for ( int nIdSlot : Arrays.asList( slotA.getIdSlot( ), slotB.getIdSlot( ) ) )
+            {
+                Slot slotStored = SlotHome.findByPrimaryKey( nIdSlot );
+                assertEquals( nbPlacesTaken, slotStored.getNbPlacesTaken( ) );
+                assertEquals( CAPACITY - nbPlacesTaken, slotStored.getNbRemainingPlaces( ) );
+                assertEquals( CAPACITY - nbPlacesTaken, slotStored.getNbPotentialRemainingPlaces( ) );
+            }
+            for ( AppointmentDTO appointmentDTO : listToReportFromA )
+            {
+                assertEquals( slotB.getIdSlot( ),
+                        AppointmentService.findAppointmentById( appointmentDTO.getIdAppointment( ) ).getListAppointmentSlot( ).get( 0 ).getIdSlot( ) );
+            }
+        }
+        finally
+        {
+            // Clean
+            cleanAppointments( listAppointment );
+            FormServiceTest.cleanForm( nIdForm );
+        }
+    }
+
+    /**
+     * Multi slot bookings listing the same slots in opposite orders, and reports moving multi slot appointments between overlapping groups of slots, are saved
+     * concurrently. The slots are created so that the order of their ids is the reverse of the order of their times. With the slots locked in the order of
+     * their ids, none of them may fail on a deadlock or a lock timeout, and the places of the slots must add up
+     * 
+     * @throws Exception
+     */
+    public void testOverlappingMultiSlotBookingsInReversedOrder( ) throws Exception
+    {
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+        LocalDate date = LocalDate.now( ).plusDays( 1 );
+        Slot slotC = SlotService.saveSlot( SlotTest.buildSlot( nIdForm, date.atTime( TIME_END_B ), date.atTime( TIME_END_B ).plusMinutes( 30 ), CAPACITY,
+                CAPACITY, 0, CAPACITY, Boolean.TRUE, Boolean.TRUE ) );
+        Slot slotB = SlotService.saveSlot( SlotTest.buildSlot( nIdForm, date.atTime( TIME_START_B ), date.atTime( TIME_END_B ), CAPACITY, CAPACITY, 0,
+                CAPACITY, Boolean.TRUE, Boolean.TRUE ) );
+        Slot slotA = SlotService.saveSlot( SlotTest.buildSlot( nIdForm, date.atTime( TIME_START_A ), date.atTime( TIME_START_B ), CAPACITY, CAPACITY, 0,
+                CAPACITY, Boolean.TRUE, Boolean.TRUE ) );
+        List<AppointmentDTO> listAppointment = new ArrayList<>( );
+        try
+        {
+            // The appointments to report, half of them on A and B, half of them on B and C
+            List<AppointmentDTO> listToReportFromAB = new ArrayList<>( );
+            List<AppointmentDTO> listToReportFromBC = new ArrayList<>( );
+            for ( int i = 0; i < NB_REPORTS_PER_SLOT; i++ )
+            {
+                AppointmentDTO appointmentAB = buildBooking( nIdForm, slotA, "report.ab" + i, listAppointment, slotB );
+                SlotSafeService.saveAppointment( appointmentAB, null );
+                listToReportFromAB.add( appointmentAB );
+                AppointmentDTO appointmentBC = buildBooking( nIdForm, slotB, "report.bc" + i, listAppointment, slotC );
+                SlotSafeService.saveAppointment( appointmentBC, null );
+                listToReportFromBC.add( appointmentBC );
+            }
+
+            List<Callable<Integer>> listOperations = new ArrayList<>( );
+            for ( int i = 0; i < NB_REPORTS_PER_SLOT; i++ )
+            {
+                AppointmentDTO reportToBC = buildReport( nIdForm, listToReportFromAB.get( i ), slotB, slotC );
+                AppointmentDTO reportToAB = buildReport( nIdForm, listToReportFromBC.get( i ), slotA, slotB );
+                listOperations.add( ( ) -> SlotSafeService.saveAppointment( reportToBC, new MockHttpServletRequest( ) ) );
+                listOperations.add( ( ) -> SlotSafeService.saveAppointment( reportToAB, new MockHttpServletRequest( ) ) );
+            }
+            for ( int i = 0; i < NB_MULTI_SLOT_BOOKINGS; i++ )
+            {
+                AppointmentDTO bookingAB = buildBooking( nIdForm, slotA, "booking.ab" + i, listAppointment, slotB );
+                AppointmentDTO bookingBA = buildBooking( nIdForm, slotB, "booking.ba" + i, listAppointment, slotA );
+                AppointmentDTO bookingBC = buildBooking( nIdForm, slotB, "booking.bc" + i, listAppointment, slotC );
+                AppointmentDTO bookingCB = buildBooking( nIdForm, slotC, "booking.cb" + i, listAppointment, slotB );
+                listOperations.add( ( ) -> SlotSafeService.saveAppointment( bookingAB, null ) );
+                listOperations.add( ( ) -> SlotSafeService.saveAppointment( bookingBA, null ) );
+                listOperations.add( ( ) -> SlotSafeService.saveAppointment( bookingBC, null ) );
+                listOperations.add( ( ) -> SlotSafeService.saveAppointment( bookingCB, null ) );
+            }
+            ExecutorService executor = Executors.newFixedThreadPool( NB_THREADS );
+            try
+            {
+                for ( Future<Integer> future : executor.invokeAll( listOperations, 2, TimeUnit.MINUTES ) )
+                {
+                    // Throws if an operation failed or is still blocked after the timeout
+                    assertTrue( future.get( ) > 0 );
+                }
+            }
+            finally
+            {
+                executor.shutdownNow( );
+            }
+
+            // The reports swap the appointments of A and C, each booking takes one place on both of its slots
+            int [ ] tabNbPlacesTaken = {
+                    NB_REPORTS_PER_SLOT + 2 * NB_MULTI_SLOT_BOOKINGS, 2 * NB_REPORTS_PER_SLOT + 4 * NB_MULTI_SLOT_BOOKINGS,
+                    NB_REPORTS_PER_SLOT + 2 * NB_MULTI_SLOT_BOOKINGS
+            };
+            List<Slot> listSlot = Arrays.asList( slotA, slotB, slotC );
+            for ( int i = 0; i < listSlot.size( ); i++ )
+            {
+                Slot slotStored = SlotHome.findByPrimaryKey( listSlot.get( i ).getIdSlot( ) );
+                assertEquals( tabNbPlacesTaken [i], slotStored.getNbPlacesTaken( ) );
+                assertEquals( CAPACITY - tabNbPlacesTaken [i], slotStored.getNbRemainingPlaces( ) );
+                assertEquals( CAPACITY - tabNbPlacesTaken [i], slotStored.getNbPotentialRemainingPlaces( ) );
+            }
+        }
+        finally
+        {
+            // Clean
+            cleanAppointments( listAppointment );
+            FormServiceTest.cleanForm( nIdForm );
+        }
+    }
+
+    /**
+     * Delete the appointments saved by a test and their users
+     * 
+     * @param listAppointment
+     *            the appointments
+     */
+    public static void cleanAppointments( List<AppointmentDTO> listAppointment )
+    {
+        for ( AppointmentDTO appointmentDTO : listAppointment )
+        {
+            if ( appointmentDTO.getIdAppointment( ) != 0 )
+            {
+                AppointmentHome.delete( appointmentDTO.getIdAppointment( ) );
+            }
+            if ( appointmentDTO.getUser( ) != null )
+            {
+                UserHome.delete( appointmentDTO.getUser( ).getIdUser( ) );
+            }
+        }
+    }
+
+    /**
+     * Build a booking of one place on a slot
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param slot
+     *            the slot
+     * @param strName
+     *            the name of the user, unique to the booking
+     * @param listAppointment
+     *            the appointments to clean at the end of the test
+     * @param otherSlots
+     *            the other slots of a multi slot booking, one place is taken on each slot
+     * @return the booking
+     */
+    public static AppointmentDTO buildBooking( int nIdForm, Slot slot, String strName, List<AppointmentDTO> listAppointment, Slot... otherSlots )
+    {
+        AppointmentDTO appointmentDTO = AppointmentTest.buildAppointmentDTO( nIdForm, slot, strName + "@mdp.fr", strName, strName,
+                slot.getStartingDateTime( ).toLocalTime( ), slot.getEndingDateTime( ).toLocalTime( ), 1 );
+        for ( Slot otherSlot : otherSlots )
+        {
+            appointmentDTO.addSlot( otherSlot );
+        }
+        listAppointment.add( appointmentDTO );
+        return appointmentDTO;
+    }
+
+    /**
+     * Book one place on a slot
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param slot
+     *            the slot
+     * @param strName
+     *            the name of the user, unique to the booking
+     * @param listAppointment
+     *            the appointments to clean at the end of the test
+     * @return the booking saved
+     */
+    private static AppointmentDTO book( int nIdForm, Slot slot, String strName, List<AppointmentDTO> listAppointment )
+    {
+        AppointmentDTO appointmentDTO = buildBooking( nIdForm, slot, strName, listAppointment );
+        SlotSafeService.saveAppointment( appointmentDTO, null );
+        return appointmentDTO;
+    }
+
+    /**
+     * Build the report of an appointment to another slot
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param appointmentDTO
+     *            the appointment saved
+     * @param newSlot
+     *            the new slot of the appointment
+     * @param otherNewSlots
+     *            the other new slots of a multi slot appointment
+     * @return the report
+     */
+    private static AppointmentDTO buildReport( int nIdForm, AppointmentDTO appointmentDTO, Slot newSlot, Slot... otherNewSlots )
+    {
+        AppointmentDTO report = AppointmentTest.buildAppointmentDTO( nIdForm, newSlot, appointmentDTO.getEmail( ), appointmentDTO.getFirstName( ),
+                appointmentDTO.getLastName( ), newSlot.getStartingDateTime( ).toLocalTime( ), newSlot.getEndingDateTime( ).toLocalTime( ), 1 );
+        for ( Slot otherNewSlot : otherNewSlots )
+        {
+            report.addSlot( otherNewSlot );
+        }
+        report.setIdAppointment( appointmentDTO.getIdAppointment( ) );
+        report.setUser( appointmentDTO.getUser( ) );
+        return report;
+    }
+}
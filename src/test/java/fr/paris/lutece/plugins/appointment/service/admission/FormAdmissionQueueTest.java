@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.admission;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the FormAdmissionQueue
+ */
+public final class FormAdmissionQueueTest extends LuteceTestCase
+{
+    /**
+     * The requests beyond the capacity and the queue length must be rejected at once, the others admitted when a place is given back
+     * 
+     * @throws Exception
+     */
+    public void testAdmission( ) throws Exception
+    {
+        FormAdmissionQueue queue = new FormAdmissionQueue( 1, 2, 1 );
+
+        AdmissionTicket ticket1 = queue.enter( 0 );
+        AdmissionTicket ticket2 = queue.enter( 0 );
+        assertTrue( ticket1.isAdmitted( ) );
+        assertTrue( ticket2.isAdmitted( ) );
+        assertEquals( 2, queue.getNbInProgress( ) );
+
+        // A third request waits for a place
+        ExecutorService executor = Executors.newSingleThreadExecutor( );
+        CountDownLatch latchWaiting = new CountDownLatch( 1 );
+        Future<AdmissionTicket> futureTicket3 = executor.submit( ( ) -> {
+            latchWaiting.countDown( );
+            return queue.enter( 5000 );
+        } );
+        latchWaiting.await( );
+        long lTimeout = System.currentTimeMillis( ) + 5000;
+        while ( queue.getNbWaiting( ) == 0 && System.currentTimeMillis( ) < lTimeout )
+        {
+            Thread.sleep( 10 );
+        }
+
+        // The queue is full: the fourth request is rejected without waiting
+        long lStart = System.nanoTime( );
+        AdmissionTicket ticket4 = queue.enter( 5000 );
+        assertFalse( ticket4.isAdmitted( ) );
+        assertEquals( 2, ticket4.getPosition( ) );
+        assertTrue( TimeUnit.NANOSECONDS.toMillis( System.nanoTime( ) - lStart ) < 1000 );
+
+        // A place is given back to the waiting request
+        ticket1.close( );
+        ticket1.close( );
+        AdmissionTicket ticket3 = futureTicket3.get( 5, TimeUnit.SECONDS );
+        assertTrue( ticket3.isAdmitted( ) );
+        assertEquals( 2, queue.getNbInProgress( ) );
+        executor.shutdown( );
+
+        ticket2.close( );
+        ticket3.close( );
+        assertEquals( 0, queue.getNbInProgress( ) );
+        assertEquals( 3, queue.getNbAdmitted( ) );
+        assertEquals( 1, queue.getNbRejected( ) );
+    }
+
+    /**
+     * The requests waiting longer than the max wait must be rejected
+     * 
+     * @throws Exception
+     */
+    public void testMaxWait( ) throws Exception
+    {
+        FormAdmissionQueue queue = new FormAdmissionQueue( 1, 1, 10 );
+        List<AdmissionTicket> listTickets = new ArrayList<>( );
+        listTickets.add( queue.enter( 0 ) );
+        AdmissionTicket ticket = queue.enter( 50 );
+        assertFalse( ticket.isAdmitted( ) );
+        assertEquals( 1, ticket.getPosition( ) );
+        listTickets.forEach( AdmissionTicket::close );
+        assertTrue( queue.enter( 0 ).isAdmitted( ) );
+    }
+}
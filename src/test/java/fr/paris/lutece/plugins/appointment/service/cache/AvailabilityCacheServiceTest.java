@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the ETags of the AvailabilityCacheService
+ */
+public final class AvailabilityCacheServiceTest extends LuteceTestCase
+{
+    private static final int ID_FORM = 1001;
+    private static final int ID_OTHER_FORM = 1002;
+    private static final long NOW = 1_900_000_000_000L;
+
+    /**
+     * The ETag of a form must change with the changes of the form only
+     */
+    public void testGetETag( )
+    {
+        String strETag = AvailabilityCacheService.getETag( ID_FORM, NOW );
+        String strOtherETag = AvailabilityCacheService.getETag( ID_OTHER_FORM, NOW );
+        long lChangeSequence = AvailabilityCacheService.getChangeSequence( ID_FORM );
+        assertEquals( strETag, AvailabilityCacheService.getETag( ID_FORM, NOW ) );
+
+        AvailabilityCacheService.invalidateForm( ID_FORM );
+        assertEquals( lChangeSequence + 1, AvailabilityCacheService.getChangeSequence( ID_FORM ) );
+        assertFalse( strETag.equals( AvailabilityCacheService.getETag( ID_FORM, NOW ) ) );
+        assertEquals( strOtherETag, AvailabilityCacheService.getETag( ID_OTHER_FORM, NOW ) );
+
+        // The ETag changes after the time to live of the cache
+        strETag = AvailabilityCacheService.getETag( ID_FORM, NOW );
+        assertFalse( strETag.equals( AvailabilityCacheService.getETag( ID_FORM, NOW + 24 * 3600 * 1000L ) ) );
+
+        AvailabilityCacheService.clear( );
+        assertFalse( strOtherETag.equals( AvailabilityCacheService.getETag( ID_OTHER_FORM, NOW ) ) );
+    }
+
+    /**
+     * The If-None-Match header must be compared with the weak comparison
+     */
+    public void testMatchesETag( )
+    {
+        String strETag = "\"abc-0-1-2\"";
+        assertFalse( AvailabilityCacheService.matchesETag( null, strETag ) );
+        assertFalse( AvailabilityCacheService.matchesETag( "", strETag ) );
+        assertFalse( AvailabilityCacheService.matchesETag( "\"abc-0-1-3\"", strETag ) );
+        assertTrue( AvailabilityCacheService.matchesETag( strETag, strETag ) );
+        assertTrue( AvailabilityCacheService.matchesETag( "W/" + strETag, strETag ) );
+        assertTrue( AvailabilityCacheService.matchesETag( "\"xyz\", " + strETag, strETag ) );
+        assertTrue( AvailabilityCacheService.matchesETag( "*", strETag ) );
+    }
+}
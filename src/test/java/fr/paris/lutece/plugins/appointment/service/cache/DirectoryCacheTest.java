@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the DirectoryCache
+ */
+public final class DirectoryCacheTest extends LuteceTestCase
+{
+    /**
+     * The keys missing from the cache must be loaded at once, and the keys without value must not be loaded again
+     */
+    public void testGetAll( )
+    {
+        DirectoryCache<Integer, String> cache = new DirectoryCache<>( 10, 1000 );
+        RecordingLoader loader = new RecordingLoader( );
+
+        Map<Integer, String> mapValues = cache.getAll( Arrays.asList( 1, 2, 3, null, 2 ), loader, 0 );
+        assertEquals( 2, mapValues.size( ) );
+        assertEquals( "value1", mapValues.get( 1 ) );
+        assertEquals( "value2", mapValues.get( 2 ) );
+        assertEquals( 1, loader._listLoadedKeys.size( ) );
+        assertEquals( new HashSet<>( Arrays.asList( 1, 2, 3 ) ), loader._listLoadedKeys.get( 0 ) );
+
+        // The key 3 has no value, and is not loaded again
+        mapValues = cache.getAll( Arrays.asList( 1, 3, 4 ), loader, 500 );
+        assertEquals( 2, mapValues.size( ) );
+        assertEquals( "value4", mapValues.get( 4 ) );
+        assertEquals( 2, loader._listLoadedKeys.size( ) );
+        assertEquals( new HashSet<>( Arrays.asList( 4 ) ), loader._listLoadedKeys.get( 1 ) );
+
+        cache.getAll( Arrays.asList( 1, 2, 3 ), loader, 500 );
+        assertEquals( 2, loader._listLoadedKeys.size( ) );
+        assertEquals( 4, cache.size( ) );
+        assertEquals( 1, cache.getNbHits( ) );
+        assertEquals( 2, cache.getNbMisses( ) );
+    }
+
+    /**
+     * The values must expire after the time to live
+     */
+    public void testTimeToLive( )
+    {
+        DirectoryCache<Integer, String> cache = new DirectoryCache<>( 10, 1000 );
+        RecordingLoader loader = new RecordingLoader( );
+        cache.getAll( Arrays.asList( 1, 2 ), loader, 0 );
+        cache.getAll( Arrays.asList( 2 ), loader, 600 );
+
+        assertEquals( 1, loader._listLoadedKeys.size( ) );
+
+        // The values expire even if they were read meanwhile
+        cache.getAll( Arrays.asList( 1, 2 ), loader, 1001 );
+        assertEquals( 2, loader._listLoadedKeys.size( ) );
+        assertEquals( new HashSet<>( Arrays.asList( 1, 2 ) ), loader._listLoadedKeys.get( 1 ) );
+    }
+
+    /**
+     * The least recently used keys must be evicted first
+     */
+    public void testEviction( )
+    {
+        DirectoryCache<Integer, String> cache = new DirectoryCache<>( 2, 1000 );
+        RecordingLoader loader = new RecordingLoader( );
+        cache.getAll( Arrays.asList( 1, 2 ), loader, 0 );
+        cache.getAll( Arrays.asList( 1 ), loader, 0 );
+        cache.getAll( Arrays.asList( 4 ), loader, 0 );
+
+        assertEquals( 2, cache.size( ) );
+        cache.getAll( Arrays.asList( 1, 4 ), loader, 0 );
+        assertEquals( 2, loader._listLoadedKeys.size( ) );
+        cache.getAll( Arrays.asList( 2 ), loader, 0 );
+        assertEquals( 3, loader._listLoadedKeys.size( ) );
+    }
+
+    /**
+     * The keys invalidated must be loaded again, and the values loaded during an invalidation must not be put in the cache
+     */
+    public void testInvalidate( )
+    {
+        DirectoryCache<Integer, String> cache = new DirectoryCache<>( 10, 1000 );
+        RecordingLoader loader = new RecordingLoader( );
+        cache.getAll( Arrays.asList( 1, 2 ), loader, 0 );
+        cache.invalidate( 1 );
+        cache.getAll( Arrays.asList( 1, 2 ), loader, 0 );
+        assertEquals( 2, loader._listLoadedKeys.size( ) );
+        assertEquals( new HashSet<>( Arrays.asList( 1 ) ), loader._listLoadedKeys.get( 1 ) );
+
+        // The key 4 is invalidated while it is loaded
+        Map<Integer, String> mapValues = cache.getAll( Arrays.asList( 4 ), setKey -> {
+            cache.invalidate( 4 );
+            return loader.apply( setKey );
+        }, 0 );
+        assertEquals( "value4", mapValues.get( 4 ) );
+        cache.getAll( Arrays.asList( 4 ), loader, 0 );
+        assertEquals( 4, loader._listLoadedKeys.size( ) );
+
+        cache.clear( );
+        assertEquals( 0, cache.size( ) );
+    }
+
+    /**
+     * Loader recording the keys loaded, giving a value to the keys which are not multiple of 3
+     */
+    private static final class RecordingLoader implements Function<Set<Integer>, Map<Integer, String>>
+    {
+        private final List<Set<Integer>> _listLoadedKeys = new ArrayList<>( );
+
+        @Override
+        public Map<Integer, String> apply( Set<Integer> setKey )
+        {
+            _listLoadedKeys.add( new HashSet<>( setKey ) );
+            Map<Integer, String> mapValues = new HashMap<>( );
+            for ( Integer nKey : setKey )
+            {
+                if ( nKey % 3 != 0 )
+                {
+                    mapValues.put( nKey, "value" + nKey );
+                }
+            }
+            return mapValues;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the FirstAvailableSlotIndex
+ */
+public final class FirstAvailableSlotIndexTest extends LuteceTestCase
+{
+    private static final LocalDate MONDAY = LocalDate.of( 2030, 1, 7 );
+    private static final LocalDate ENDING_DATE = MONDAY.plusWeeks( 4 );
+    private static final LocalDateTime NOW = MONDAY.atTime( 8, 0 );
+
+    /**
+     * The entries must be valid only for their change sequence, their ending date and their time to live
+     */
+    public void testGetAndPut( )
+    {
+        FirstAvailableSlotIndex index = new FirstAvailableSlotIndex( 1000 );
+        assertFalse( index.get( 1, 0, 0, NOW, ENDING_DATE, 0, 0 ).isKnown( ) );
+
+        index.put( 1, 0, 0, buildSlot( 10, MONDAY.atTime( 9, 0 ), 2 ), ENDING_DATE, 3, 0 );
+        FirstAvailableSlotIndex.Lookup lookup = index.get( 1, 0, 0, NOW, ENDING_DATE, 3, 500 );
+        assertTrue( lookup.isKnown( ) );
+        assertEquals( 10, lookup.getSlot( ).getIdSlot( ) );
+        assertEquals( MONDAY.atTime( 9, 0 ), lookup.getSlot( ).getStartingDateTime( ) );
+        assertFalse( index.get( 1, 0, 2, NOW, ENDING_DATE, 3, 500 ).isKnown( ) );
+        assertFalse( index.get( 1, 0, 0, NOW, ENDING_DATE, 4, 500 ).isKnown( ) );
+        assertFalse( index.get( 1, 0, 0, NOW, ENDING_DATE.plusDays( 1 ), 3, 500 ).isKnown( ) );
+        assertFalse( index.get( 1, 0, 0, NOW, ENDING_DATE, 3, 1001 ).isKnown( ) );
+        // The slot is too close to now
+        assertFalse( index.get( 1, 0, 0, MONDAY.atTime( 9, 0 ), ENDING_DATE, 3, 500 ).isKnown( ) );
+
+        index.put( 2, 0, 0, null, ENDING_DATE, 0, 0 );
+        assertNoSlot( index.get( 2, 0, 0, NOW, ENDING_DATE, 0, 0 ) );
+
+        index.invalidateForm( 1 );
+        assertFalse( index.get( 1, 0, 0, NOW, ENDING_DATE, 3, 500 ).isKnown( ) );
+        index.clear( );
+        assertEquals( 0, index.size( ) );
+    }
+
+    /**
+     * The entries must follow the changes of the slots, or be removed when the change is not enough to know the first slot
+     */
+    public void testUpdateSlot( )
+    {
+        FirstAvailableSlotIndex index = new FirstAvailableSlotIndex( 1000 );
+        index.put( 1, 0, 0, buildSlot( 10, MONDAY.atTime( 10, 0 ), 2 ), ENDING_DATE, 0, 0 );
+
+        // A later slot: the first slot does not change
+        index.updateSlot( buildSlot( 11, MONDAY.atTime( 11, 0 ), 2 ), 1 );
+        assertEquals( 10, index.get( 1, 0, 0, NOW, ENDING_DATE, 1, 0 ).getSlot( ).getIdSlot( ) );
+
+        // An earlier slot becoming available
+        index.updateSlot( buildSlot( 9, MONDAY.atTime( 9, 0 ), 1 ), 2 );
+        assertEquals( 9, index.get( 1, 0, 0, NOW, ENDING_DATE, 2, 0 ).getSlot( ).getIdSlot( ) );
+
+        // The first slot taken
+        index.updateSlot( buildSlot( 9, MONDAY.atTime( 9, 0 ), 0 ), 3 );
+        assertFalse( index.get( 1, 0, 0, NOW, ENDING_DATE, 3, 0 ).isKnown( ) );
+
+        // A change not notified to the index
+        index.put( 1, 0, 0, buildSlot( 10, MONDAY.atTime( 10, 0 ), 2 ), ENDING_DATE, 3, 0 );
+        index.updateSlot( buildSlot( 11, MONDAY.atTime( 11, 0 ), 2 ), 5 );
+        assertFalse( index.get( 1, 0, 0, NOW, ENDING_DATE, 5, 0 ).isKnown( ) );
+
+        // A form without available slot
+        index.put( 1, 0, 0, null, ENDING_DATE, 5, 0 );
+        index.updateSlot( buildSlot( 11, MONDAY.atTime( 11, 0 ), 0 ), 6 );
+        assertNoSlot( index.get( 1, 0, 0, NOW, ENDING_DATE, 6, 0 ) );
+        index.updateSlot( buildSlot( 11, MONDAY.atTime( 11, 0 ), 1 ), 7 );
+        assertFalse( index.get( 1, 0, 0, NOW, ENDING_DATE, 7, 0 ).isKnown( ) );
+
+        // Groups of slots: only the changes after the group are applied
+        index.put( 1, 2, 0, buildSlot( 0, MONDAY.atTime( 10, 0 ), 2 ), ENDING_DATE, 7, 0 );
+        index.updateSlot( buildSlot( 12, MONDAY.atTime( 10, 30 ), 2 ), 8 );
+        assertEquals( MONDAY.atTime( 10, 0 ), index.get( 1, 2, 0, NOW, ENDING_DATE, 8, 0 ).getSlot( ).getStartingDateTime( ) );
+        index.updateSlot( buildSlot( 13, MONDAY.atTime( 9, 30 ), 2 ), 9 );
+        assertFalse( index.get( 1, 2, 0, NOW, ENDING_DATE, 9, 0 ).isKnown( ) );
+    }
+
+    /**
+     * Check that the index knows that the form has no available slot
+     * 
+     * @param lookup
+     *            the result of the lookup
+     */
+    private static void assertNoSlot( FirstAvailableSlotIndex.Lookup lookup )
+    {
+        assertTrue( lookup.isKnown( ) );
+        assertNull( lookup.getSlot( ) );
+    }
+
+    /**
+     * Build an open slot of 30 minutes
+     * 
+     * @param nIdSlot
+     *            the id of the slot
+     * @param startingDateTime
+     *            the starting date time
+     * @param nNbPotentialRemainingPlaces
+     *            the number of potential remaining places
+     * @return the slot
+     */
+    private static Slot buildSlot( int nIdSlot, LocalDateTime startingDateTime, int nNbPotentialRemainingPlaces )
+    {
+        Slot slot = new Slot( );
+        slot.setIdSlot( nIdSlot );
+        slot.setIdForm( 1 );
+        slot.setStartingDateTime( startingDateTime );
+        slot.setEndingDateTime( startingDateTime.plusMinutes( 30 ) );
+        slot.setIsOpen( true );
+        slot.setMaxCapacity( 2 );
+        slot.setNbRemainingPlaces( nNbPotentialRemainingPlaces );
+        slot.setNbPotentialRemainingPlaces( nNbPotentialRemainingPlaces );
+        return slot;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the FormAvailabilityCache
+ */
+public final class FormAvailabilityCacheTest extends LuteceTestCase
+{
+    private static final LocalDate MONDAY = LocalDate.of( 2030, 1, 7 );
+
+    /**
+     * The slots returned must be copies, and the weeks must expire after the time to live
+     */
+    public void testGetAndPut( )
+    {
+        FormAvailabilityCache cache = new FormAvailabilityCache( 10, 1000 );
+        assertNull( cache.get( 1, MONDAY, 0 ) );
+
+        cache.put( 1, MONDAY, buildListSlot( 1, MONDAY ), cache.getVersion( 1 ), 0 );
+        List<Slot> listSlot = cache.get( 1, MONDAY, 500 );
+        assertEquals( 2, listSlot.size( ) );
+        listSlot.get( 0 ).setIsPassed( true );
+        listSlot.get( 0 ).setNbRemainingPlaces( 0 );
+        Slot slot = cache.get( 1, MONDAY, 500 ).get( 0 );
+        assertFalse( slot.getIsPassed( ) );
+        assertEquals( 5, slot.getNbRemainingPlaces( ) );
+        assertNull( cache.get( 2, MONDAY, 500 ) );
+
+        // The week has expired
+        assertNull( cache.get( 1, MONDAY, 1001 ) );
+        assertEquals( 0, cache.size( ) );
+        assertEquals( 2, cache.getNbHits( ) );
+        assertEquals( 3, cache.getNbMisses( ) );
+    }
+
+    /**
+     * The least recently used weeks must be evicted first
+     */
+    public void testEviction( )
+    {
+        FormAvailabilityCache cache = new FormAvailabilityCache( 2, 1000 );
+        cache.put( 1, MONDAY, buildListSlot( 1, MONDAY ), cache.getVersion( 1 ), 0 );
+        cache.put( 1, MONDAY.plusWeeks( 1 ), buildListSlot( 1, MONDAY.plusWeeks( 1 ) ), cache.getVersion( 1 ), 0 );
+        assertNotNull( cache.get( 1, MONDAY, 0 ) );
+        cache.put( 2, MONDAY, buildListSlot( 2, MONDAY ), cache.getVersion( 2 ), 0 );
+
+        assertEquals( 2, cache.size( ) );
+        assertNotNull( cache.get( 1, MONDAY, 0 ) );
+        assertNull( cache.get( 1, MONDAY.plusWeeks( 1 ), 0 ) );
+        assertNotNull( cache.get( 2, MONDAY, 0 ) );
+    }
+
+    /**
+     * The slots changed must be replaced, the weeks of the slots not found removed, and the weeks built before a change not put in the cache
+     */
+    public void testInvalidation( )
+    {
+        FormAvailabilityCache cache = new FormAvailabilityCache( 10, 1000 );
+        cache.put( 1, MONDAY, buildListSlot( 1, MONDAY ), cache.getVersion( 1 ), 0 );
+        cache.put( 1, MONDAY.plusWeeks( 1 ), buildListSlot( 1, MONDAY.plusWeeks( 1 ) ), cache.getVersion( 1 ), 0 );
+        cache.put( 2, MONDAY, buildListSlot( 2, MONDAY ), cache.getVersion( 2 ), 0 );
+
+        // A slot of the week is changed
+        Slot slotChanged = buildSlot( 1, MONDAY.atTime( 9, 0 ), 1 );
+        slotChanged.setIdSlot( 12 );
+        cache.replaceSlot( slotChanged );
+        List<Slot> listSlot = cache.get( 1, MONDAY, 0 );
+        assertEquals( 12, listSlot.get( 0 ).getIdSlot( ) );
+        assertEquals( 1, listSlot.get( 0 ).getNbRemainingPlaces( ) );
+        assertEquals( 5, listSlot.get( 1 ).getNbRemainingPlaces( ) );
+
+        // A slot not found in the week
+        cache.replaceSlot( buildSlot( 1, MONDAY.atTime( 9, 15 ), 1 ) );
+        assertNull( cache.get( 1, MONDAY, 0 ) );
+
+        // A week built before a change is not put in the cache
+        long lVersion = cache.getVersion( 2 );
+        cache.invalidateWeek( 2, MONDAY.plusDays( 3 ) );
+        assertNull( cache.get( 2, MONDAY, 0 ) );
+        cache.put( 2, MONDAY, buildListSlot( 2, MONDAY ), lVersion, 0 );
+        assertNull( cache.get( 2, MONDAY, 0 ) );
+
+        // A change of another form does not prevent the week from being put in the cache
+        lVersion = cache.getVersion( 2 );
+        cache.invalidateForm( 3 );
+        cache.put( 2, MONDAY, buildListSlot( 2, MONDAY ), lVersion, 0 );
+        assertNotNull( cache.get( 2, MONDAY, 0 ) );
+        lVersion = cache.getVersion( 2 );
+        cache.clear( );
+        cache.put( 2, MONDAY, buildListSlot( 2, MONDAY ), lVersion, 0 );
+        assertNull( cache.get( 2, MONDAY, 0 ) );
+
+        cache.put( 2, MONDAY, buildListSlot( 2, MONDAY ), cache.getVersion( 2 ), 0 );
+        cache.invalidateForm( 1 );
+        assertNull( cache.get( 1, MONDAY.plusWeeks( 1 ), 0 ) );
+        assertNotNull( cache.get( 2, MONDAY, 0 ) );
+        cache.clear( );
+        assertEquals( 0, cache.size( ) );
+    }
+
+    /**
+     * Build the slots of a week: two slots on monday
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param monday
+     *            the monday of the week
+     * @return the slots
+     */
+    private static List<Slot> buildListSlot( int nIdForm, LocalDate monday )
+    {
+        List<Slot> listSlot = new ArrayList<>( );
+        listSlot.add( buildSlot( nIdForm, monday.atTime( 9, 0 ), 5 ) );
+        listSlot.add( buildSlot( nIdForm, monday.atTime( 9, 30 ), 5 ) );
+        return listSlot;
+    }
+
+    /**
+     * Build a slot of 30 minutes
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param startingDateTime
+     *            the starting date time of the slot
+     * @param nNbRemainingPlaces
+     *            the number of remaining places
+     * @return the slot
+     */
+    private static Slot buildSlot( int nIdForm, LocalDateTime startingDateTime, int nNbRemainingPlaces )
+    {
+        Slot slot = new Slot( );
+        slot.setIdForm( nIdForm );
+        slot.setStartingDateTime( startingDateTime );
+        slot.setEndingDateTime( startingDateTime.plusMinutes( 30 ) );
+        slot.setDate( startingDateTime.toLocalDate( ) );
+        slot.setNbRemainingPlaces( nNbRemainingPlaces );
+        return slot;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.appointment.business.calendar.CalendarTemplate;
+import fr.paris.lutece.plugins.appointment.business.display.Display;
+import fr.paris.lutece.plugins.appointment.business.form.Form;
+import fr.paris.lutece.plugins.appointment.business.localization.Localization;
+import fr.paris.lutece.plugins.appointment.business.message.FormMessage;
+import fr.paris.lutece.plugins.appointment.business.rule.FormRule;
+import fr.paris.lutece.plugins.appointment.service.FormService;
+import fr.paris.lutece.plugins.appointment.service.FormServiceTest;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentFormDTO;
+import fr.paris.lutece.portal.service.image.ImageResource;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the FormSnapshot
+ */
+public final class FormSnapshotTest extends LuteceTestCase
+{
+    /**
+     * The parts of the form returned must be copies, which can be modified without changing the snapshot
+     */
+    public void testCopies( )
+    {
+        Form form = new Form( );
+        form.setIdForm( 1 );
+        form.setTitle( "Form" );
+        Display display = new Display( );
+        display.setNbWeeksToDisplay( 3 );
+        ImageResource icon = new ImageResource( );
+        icon.setImage( new byte [ ] {
+                1
+        } );
+        icon.setMimeType( "image/png" );
+        display.setIcon( icon );
+        Localization localization = new Localization( );
+        localization.setAddress( "Address" );
+        FormRule formRule = new FormRule( );
+        formRule.setNbMaxAppointmentsPerUser( 2 );
+        FormMessage formMessage = new FormMessage( );
+        formMessage.setIdForm( 1 );
+        formMessage.setCalendarTitle( "Calendar" );
+        CalendarTemplate calendarTemplate = new CalendarTemplate( );
+        calendarTemplate.setIdCalendarTemplate( 2 );
+        calendarTemplate.setTemplatePath( "calendar.html" );
+        FormSnapshot formSnapshot = new FormSnapshot( form, display, localization, formRule, formMessage, calendarTemplate );
+
+        FormMessage formMessageCopy = formSnapshot.getFormMessage( );
+        assertNotSame( formMessage, formMessageCopy );
+        assertEquals( "Calendar", formMessageCopy.getCalendarTitle( ) );
+        formMessageCopy.setCalendarTitle( "Changed" );
+        assertEquals( "Calendar", formSnapshot.getFormMessage( ).getCalendarTitle( ) );
+
+        CalendarTemplate calendarTemplateCopy = formSnapshot.getCalendarTemplate( );
+        assertNotSame( calendarTemplate, calendarTemplateCopy );
+        assertEquals( 2, calendarTemplateCopy.getIdCalendarTemplate( ) );
+        calendarTemplateCopy.setTemplatePath( "changed.html" );
+        assertEquals( "calendar.html", formSnapshot.getCalendarTemplate( ).getTemplatePath( ) );
+
+        Form formCopy = formSnapshot.getForm( );
+        assertNotSame( form, formCopy );
+        formCopy.setTitle( "Changed" );
+        assertEquals( "Form", formSnapshot.getForm( ).getTitle( ) );
+
+        Display displayCopy = formSnapshot.getDisplay( );
+        assertNotSame( display, displayCopy );
+        displayCopy.setNbWeeksToDisplay( 5 );
+        displayCopy.getIcon( ).getImage( ) [0] = 2;
+        assertEquals( 3, formSnapshot.getDisplay( ).getNbWeeksToDisplay( ) );
+        assertEquals( 1, formSnapshot.getDisplay( ).getIcon( ).getImage( ) [0] );
+        assertEquals( "image/png", displayCopy.getIcon( ).getMimeType( ) );
+
+        Localization localizationCopy = formSnapshot.getLocalization( );
+        localizationCopy.setAddress( "Changed" );
+        assertEquals( "Address", formSnapshot.getLocalization( ).getAddress( ) );
+
+        FormRule formRuleCopy = formSnapshot.getFormRule( );
+        formRuleCopy.setNbMaxAppointmentsPerUser( 5 );
+        assertEquals( 2, formSnapshot.getFormRule( ).getNbMaxAppointmentsPerUser( ) );
+
+        FormSnapshot formSnapshotEmpty = new FormSnapshot( form, null, null, null, null, null );
+        assertNull( formSnapshotEmpty.getDisplay( ) );
+        assertNull( formSnapshotEmpty.getLocalization( ) );
+        assertNull( formSnapshotEmpty.getFormRule( ) );
+        assertNull( formSnapshotEmpty.getFormMessage( ) );
+    }
+
+    /**
+     * The snapshots of several forms read at once must have the parts of each form, and the forms not found must be missing
+     */
+    public void testGetFormSnapshots( )
+    {
+        AppointmentFormDTO appointmentForm1 = FormServiceTest.buildAppointmentForm( );
+        int nIdForm1 = FormService.createAppointmentForm( appointmentForm1 );
+        AppointmentFormDTO appointmentForm2 = FormServiceTest.buildAppointmentForm( );
+        appointmentForm2.setNbWeeksToDisplay( 5 );
+        appointmentForm2.setNbMaxAppointmentsPerUser( 4 );
+        int nIdForm2 = FormService.createAppointmentForm( appointmentForm2 );
+        try
+        {
+            FormSnapshotService.invalidate( nIdForm1 );
+            FormSnapshotService.invalidate( nIdForm2 );
+            Map<Integer, FormSnapshot> mapFormSnapshot = FormSnapshotService.getFormSnapshots( Arrays.asList( nIdForm1, nIdForm2, Integer.MAX_VALUE ) );
+            assertEquals( 2, mapFormSnapshot.size( ) );
+            assertFalse( mapFormSnapshot.containsKey( Integer.MAX_VALUE ) );
+
+            FormSnapshot formSnapshot1 = mapFormSnapshot.get( nIdForm1 );
+            assertEquals( nIdForm1, formSnapshot1.getForm( ).getIdForm( ) );
+            assertEquals( 3, formSnapshot1.getDisplay( ).getNbWeeksToDisplay( ) );
+            assertEquals( nIdForm1, formSnapshot1.getLocalization( ).getIdForm( ) );
+            assertEquals( 2, formSnapshot1.getFormRule( ).getNbMaxAppointmentsPerUser( ) );
+            assertEquals( nIdForm1, formSnapshot1.getFormMessage( ).getIdForm( ) );
+            assertNotNull( formSnapshot1.getCalendarTemplate( ) );
+
+            FormSnapshot formSnapshot2 = mapFormSnapshot.get( nIdForm2 );
+            assertEquals( nIdForm2, formSnapshot2.getForm( ).getIdForm( ) );
+            assertEquals( 5, formSnapshot2.getDisplay( ).getNbWeeksToDisplay( ) );
+            assertEquals( 4, formSnapshot2.getFormRule( ).getNbMaxAppointmentsPerUser( ) );
+            assertEquals( nIdForm2, formSnapshot2.getFormMessage( ).getIdForm( ) );
+        }
+        finally
+        {
+            FormServiceTest.cleanForm( nIdForm1 );
+            FormServiceTest.cleanForm( nIdForm2 );
+        }
+    }
+}
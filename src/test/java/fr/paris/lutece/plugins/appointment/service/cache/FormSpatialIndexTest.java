@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import fr.paris.lutece.plugins.appointment.business.localization.Localization;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the FormSpatialIndex
+ */
+public final class FormSpatialIndexTest extends LuteceTestCase
+{
+    private static final double PARIS_LATITUDE = 48.8566;
+    private static final double PARIS_LONGITUDE = 2.3522;
+    private static final double LYON_LATITUDE = 45.7640;
+    private static final double LYON_LONGITUDE = 4.8357;
+
+    /**
+     * The distance must be the distance on the Earth
+     */
+    public void testGetDistance( )
+    {
+        double dDistance = FormSpatialIndex.getDistance( PARIS_LATITUDE, PARIS_LONGITUDE, LYON_LATITUDE, LYON_LONGITUDE );
+        assertEquals( 392, dDistance, 2 );
+        assertEquals( 0, FormSpatialIndex.getDistance( PARIS_LATITUDE, PARIS_LONGITUDE, PARIS_LATITUDE, PARIS_LONGITUDE ), 1e-9 );
+    }
+
+    /**
+     * The forms must be returned by increasing distance, as sorting all the forms by distance does
+     */
+    public void testFindNearest( )
+    {
+        Random random = new Random( 42 );
+        List<Localization> listLocalization = new ArrayList<>( );
+        for ( int i = 0; i < 500; i++ )
+        {
+            listLocalization.add( buildLocalization( i, 42 + random.nextDouble( ) * 9, -5 + random.nextDouble( ) * 13 ) );
+        }
+        // A form without coordinates is not indexed
+        listLocalization.add( new Localization( ) );
+        FormSpatialIndex index = new FormSpatialIndex( listLocalization );
+        assertEquals( 500, index.size( ) );
+
+        for ( int nSearch = 0; nSearch < 20; nSearch++ )
+        {
+            double dLatitude = 42 + random.nextDouble( ) * 9;
+            double dLongitude = -5 + random.nextDouble( ) * 13;
+            Iterator<FormSpatialIndex.Neighbor> iterator = index.findNearest( dLatitude, dLongitude );
+            double dPreviousDistance = -1;
+            int nNbNeighbors = 0;
+            while ( iterator.hasNext( ) )
+            {
+                FormSpatialIndex.Neighbor neighbor = iterator.next( );
+                Localization localization = listLocalization.get( neighbor.getIdForm( ) );
+                double dDistance = FormSpatialIndex.getDistance( dLatitude, dLongitude, localization.getLatitude( ), localization.getLongitude( ) );
+                assertEquals( dDistance, neighbor.getDistance( ), 1e-6 );
+                assertTrue( neighbor.getDistance( ) >= dPreviousDistance - 1e-9 );
+                dPreviousDistance = neighbor.getDistance( );
+                nNbNeighbors++;
+            }
+            assertEquals( 500, nNbNeighbors );
+        }
+        assertFalse( new FormSpatialIndex( new ArrayList<>( ) ).findNearest( PARIS_LATITUDE, PARIS_LONGITUDE ).hasNext( ) );
+    }
+
+    /**
+     * Build the localization of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param dLatitude
+     *            the latitude
+     * @param dLongitude
+     *            the longitude
+     * @return the localization
+     */
+    private static Localization buildLocalization( int nIdForm, double dLatitude, double dLongitude )
+    {
+        Localization localization = new Localization( );
+        localization.setIdForm( nIdForm );
+        localization.setLatitude( dLatitude );
+        localization.setLongitude( dLongitude );
+        return localization;
+    }
+}
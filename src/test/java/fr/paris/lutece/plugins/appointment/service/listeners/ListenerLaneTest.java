@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.listeners;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the ListenerLane
+ */
+public final class ListenerLaneTest extends LuteceTestCase
+{
+    private static final long TIMEOUT = 200;
+
+    /**
+     * A listener blocked in its lane does not delay the lane of another listener
+     * 
+     * @throws Exception
+     */
+    public void testLanesAreIsolated( ) throws Exception
+    {
+        ListenerLane laneSlow = new ListenerLane( new Object( ), 10, 10000 );
+        ListenerLane laneFast = new ListenerLane( new Object( ), 10, 10000 );
+        CountDownLatch latch = new CountDownLatch( 1 );
+        try
+        {
+            laneSlow.submit( ( ) -> await( latch ) );
+            Future<?> future = laneFast.submit( ( ) -> {
+            } );
+            future.get( 1, TimeUnit.SECONDS );
+            assertEquals( 1, laneFast.getNbCalls( ) );
+            assertEquals( 0, laneSlow.getNbCalls( ) );
+        }
+        finally
+        {
+            latch.countDown( );
+            laneSlow.shutdown( );
+            laneFast.shutdown( );
+        }
+    }
+
+    /**
+     * A notification running longer than the timeout is interrupted, and the next notification runs normally
+     * 
+     * @throws Exception
+     */
+    public void testTimeout( ) throws Exception
+    {
+        ListenerLane lane = new ListenerLane( new Object( ), 10, TIMEOUT );
+        try
+        {
+            AtomicBoolean bInterrupted = new AtomicBoolean( );
+            lane.submit( ( ) -> {
+                try
+                {
+                    Thread.sleep( TIMEOUT * 50 );
+                }
+                catch( InterruptedException e )
+                {
+                    bInterrupted.set( true );
+                }
+            } ).get( TIMEOUT * 10, TimeUnit.MILLISECONDS );
+            assertTrue( bInterrupted.get( ) );
+            assertEquals( 1, lane.getNbTimeouts( ) );
+
+            AtomicBoolean bNextInterrupted = new AtomicBoolean( );
+            lane.submit( ( ) -> bNextInterrupted.set( Thread.currentThread( ).isInterrupted( ) ) ).get( 1, TimeUnit.SECONDS );
+            assertFalse( bNextInterrupted.get( ) );
+            assertEquals( 2, lane.getNbCalls( ) );
+            assertTrue( lane.getMaxLatency( ) >= TIMEOUT );
+        }
+        finally
+        {
+            lane.shutdown( );
+        }
+    }
+
+    /**
+     * The errors are counted, and the notifications beyond the size of the queue are rejected
+     * 
+     * @throws Exception
+     */
+    public void testErrorsAndRejections( ) throws Exception
+    {
+        ListenerLane lane = new ListenerLane( new Object( ), 1, 10000 );
+        CountDownLatch latch = new CountDownLatch( 1 );
+        try
+        {
+            Future<?> futureError = lane.submit( ( ) -> {
+                throw new IllegalStateException( "Listener failure" );
+            } );
+            try
+            {
+                futureError.get( 1, TimeUnit.SECONDS );
+                fail( "The error of the listener must be reported" );
+            }
+            catch( ExecutionException e )
+            {
+                assertEquals( 1, lane.getNbErrors( ) );
+            }
+
+            // One notification running, one waiting, the third one is rejected
+            CountDownLatch latchStarted = new CountDownLatch( 1 );
+            lane.submit( ( ) -> {
+                latchStarted.countDown( );
+                await( latch );
+            } );
+            latchStarted.await( 1, TimeUnit.SECONDS );
+            lane.submit( ( ) -> {
+            } );
+            Future<?> futureRejected = lane.submit( ( ) -> {
+            } );
+            assertTrue( futureRejected.isDone( ) );
+            assertEquals( 1, lane.getNbRejected( ) );
+            assertEquals( 1, lane.getQueueSize( ) );
+        }
+        finally
+        {
+            latch.countDown( );
+            lane.shutdown( );
+        }
+    }
+
+    /**
+     * Wait for a latch, ignoring the interruptions
+     */
+    private static void await( CountDownLatch latch )
+    {
+        try
+        {
+            latch.await( 10, TimeUnit.SECONDS );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+}
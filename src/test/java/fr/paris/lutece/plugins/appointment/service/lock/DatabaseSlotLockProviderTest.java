@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import fr.paris.lutece.plugins.appointment.business.SlotTest;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotHome;
+import fr.paris.lutece.plugins.appointment.business.slot.SlotLockHome;
+import fr.paris.lutece.plugins.appointment.exception.SlotFullException;
+import fr.paris.lutece.plugins.appointment.service.FormService;
+import fr.paris.lutece.plugins.appointment.service.FormServiceTest;
+import fr.paris.lutece.plugins.appointment.service.SlotSafeService;
+import fr.paris.lutece.plugins.appointment.service.SlotSafeServiceTest;
+import fr.paris.lutece.plugins.appointment.service.SlotService;
+import fr.paris.lutece.plugins.appointment.web.dto.AppointmentDTO;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the DatabaseSlotLockProvider
+ */
+public final class DatabaseSlotLockProviderTest extends LuteceTestCase
+{
+    private static final int NB_PLACES = 10;
+    private static final int NB_EDITS_PER_NODE = 20;
+    private static final int NB_THREADS_PER_NODE = 4;
+    private static final int NB_BOOKINGS_PER_NODE = 5;
+
+    /**
+     * Two providers simulate two nodes sharing the same database: each one edits the capacity of the slot like the back office does, reading the slot then
+     * saving it with SlotSafeService.updateSlot under the lock of its own provider. No edit must be lost
+     * 
+     * @throws Exception
+     */
+    public void testNoLostEditWithTwoNodes( ) throws Exception
+    {
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+        LocalDateTime startingDateTime = LocalDate.now( ).plusDays( 1 ).atTime( 10, 0 );
+        Slot slot = SlotTest.buildSlot( nIdForm, startingDateTime, startingDateTime.plusMinutes( 30 ), NB_PLACES, NB_PLACES, 0, NB_PLACES, Boolean.TRUE,
+                Boolean.TRUE );
+        slot = SlotService.saveSlot( slot );
+        int nIdSlot = slot.getIdSlot( );
+
+        ISlotLockProvider node1 = new DatabaseSlotLockProvider( 60, 5 );
+        ISlotLockProvider node2 = new DatabaseSlotLockProvider( 60, 5 );
+        ExecutorService executor = Executors.newFixedThreadPool( 2 * NB_THREADS_PER_NODE );
+        try
+        {
+            List<Future<?>> listFuture = new ArrayList<>( );
+            for ( int i = 0; i < NB_EDITS_PER_NODE; i++ )
+            {
+                listFuture.add( executor.submit( ( ) -> addOnePlace( node1, nIdSlot ) ) );
+                listFuture.add( executor.submit( ( ) -> addOnePlace( node2, nIdSlot ) ) );
+            }
+            for ( Future<?> future : listFuture )
+            {
+                future.get( 60, TimeUnit.SECONDS );
+            }
+
+            Slot slotStored = SlotHome.findByPrimaryKey( nIdSlot );
+            assertEquals( NB_PLACES + 2 * NB_EDITS_PER_NODE, slotStored.getMaxCapacity( ) );
+            assertEquals( NB_PLACES + 2 * NB_EDITS_PER_NODE, slotStored.getNbRemainingPlaces( ) );
+            assertEquals( NB_PLACES + 2 * NB_EDITS_PER_NODE, slotStored.getNbPotentialRemainingPlaces( ) );
+        }
+        finally
+        {
+            executor.shutdown( );
+            // Clean
+            SlotLockHome.delete( DatabaseSlotLockProvider.getLockKey( nIdSlot ) );
+            FormServiceTest.cleanForm( nIdForm );
+        }
+    }
+
+    /**
+     * Two nodes book the last place of a slot at the same time: the bookings and the back office edits are protected by the lock of the row of the slot in
+     * database, so only one of them can take it
+     * 
+     * @throws Exception
+     */
+    public void testLastPlaceBookedOnTwoNodes( ) throws Exception
+    {
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+        LocalDateTime startingDateTime = LocalDate.now( ).plusDays( 1 ).atTime( 10, 0 );
+        Slot slot = SlotService.saveSlot( SlotTest.buildSlot( nIdForm, startingDateTime, startingDateTime.plusMinutes( 30 ), 1, 1, 0, 1, Boolean.TRUE,
+                Boolean.TRUE ) );
+        List<AppointmentDTO> listAppointment = new ArrayList<>( );
+        ExecutorService node1 = Executors.newFixedThreadPool( NB_THREADS_PER_NODE );
+        ExecutorService node2 = Executors.newFixedThreadPool( NB_THREADS_PER_NODE );
+        try
+        {
+            List<Future<Boolean>> listFuture = new ArrayList<>( );
+            for ( int i = 0; i < NB_BOOKINGS_PER_NODE; i++ )
+            {
+                AppointmentDTO booking1 = SlotSafeServiceTest.buildBooking( nIdForm, slot, "node1.booking" + i, listAppointment );
+                AppointmentDTO booking2 = SlotSafeServiceTest.buildBooking( nIdForm, slot, "node2.booking" + i, listAppointment );
+                listFuture.add( node1.submit( ( ) -> tryToBook( booking1 ) ) );
+                listFuture.add( node2.submit( ( ) -> tryToBook( booking2 ) ) );
+            }
+            int nNbBookings = 0;
+            for ( Future<Boolean> future : listFuture )
+            {
+                if ( future.get( 60, TimeUnit.SECONDS ) )
+                {
+                    nNbBookings++;
+                }
+            }
+
+            assertEquals( 1, nNbBookings );
+            Slot slotStored = SlotHome.findByPrimaryKey( slot.getIdSlot( ) );
+            assertEquals( 1, slotStored.getNbPlacesTaken( ) );
+            assertEquals( 0, slotStored.getNbRemainingPlaces( ) );
+            assertEquals( 0, slotStored.getNbPotentialRemainingPlaces( ) );
+        }
+        finally
+        {
+            node1.shutdown( );
+            node2.shutdown( );
+            // Clean
+            SlotSafeServiceTest.cleanAppointments( listAppointment );
+            FormServiceTest.cleanForm( nIdForm );
+        }
+    }
+
+    /**
+     * Bookings are saved while the capacity of the slot is edited on both nodes like the back office does: neither the places taken by the bookings nor the
+     * places added by the edits must be lost
+     * 
+     * @throws Exception
+     */
+    public void testBookingsDuringEditsWithTwoNodes( ) throws Exception
+    {
+        int nIdForm = FormService.createAppointmentForm( FormServiceTest.buildAppointmentForm( ) );
+        LocalDateTime startingDateTime = LocalDate.now( ).plusDays( 1 ).atTime( 10, 0 );
+        Slot slot = SlotService.saveSlot( SlotTest.buildSlot( nIdForm, startingDateTime, startingDateTime.plusMinutes( 30 ), NB_PLACES, NB_PLACES, 0,
+                NB_PLACES, Boolean.TRUE, Boolean.TRUE ) );
+        int nIdSlot = slot.getIdSlot( );
+        List<AppointmentDTO> listAppointment = new ArrayList<>( );
+        ISlotLockProvider node1 = new DatabaseSlotLockProvider( 60, 5 );
+        ISlotLockProvider node2 = new DatabaseSlotLockProvider( 60, 5 );
+        ExecutorService executor = Executors.newFixedThreadPool( 2 * NB_THREADS_PER_NODE );
+        try
+        {
+            List<Future<?>> listFuture = new ArrayList<>( );
+            for ( int i = 0; i < NB_EDITS_PER_NODE; i++ )
+            {
+                listFuture.add( executor.submit( ( ) -> addOnePlace( node1, nIdSlot ) ) );
+                listFuture.add( executor.submit( ( ) -> addOnePlace( node2, nIdSlot ) ) );
+                if ( i < NB_BOOKINGS_PER_NODE )
+                {
+                    AppointmentDTO booking1 = SlotSafeServiceTest.buildBooking( nIdForm, slot, "node1.booking" + i, listAppointment );
+                    AppointmentDTO booking2 = SlotSafeServiceTest.buildBooking( nIdForm, slot, "node2.booking" + i, listAppointment );
+                    listFuture.add( executor.submit( ( ) -> SlotSafeService.saveAppointment( booking1, null ) ) );
+                    listFuture.add( executor.submit( ( ) -> SlotSafeService.saveAppointment( booking2, null ) ) );
+                }
+            }
+            for ( Future<?> future : listFuture )
+            {
+                future.get( 60, TimeUnit.SECONDS );
+            }
+
+            int nNbPlacesTaken = 2 * NB_BOOKINGS_PER_NODE;
+            Slot slotStored = SlotHome.findByPrimaryKey( nIdSlot );
+            assertEquals( NB_PLACES + 2 * NB_EDITS_PER_NODE, slotStored.getMaxCapacity( ) );
+            assertEquals( nNbPlacesTaken, slotStored.getNbPlacesTaken( ) );
+            assertEquals( NB_PLACES + 2 * NB_EDITS_PER_NODE - nNbPlacesTaken, slotStored.getNbRemainingPlaces( ) );
+            assertEquals( NB_PLACES + 2 * NB_EDITS_PER_NODE - nNbPlacesTaken, slotStored.getNbPotentialRemainingPlaces( ) );
+        }
+        finally
+        {
+            executor.shutdown( );
+            // Clean
+            SlotLockHome.delete( DatabaseSlotLockProvider.getLockKey( nIdSlot ) );
+            SlotSafeServiceTest.cleanAppointments( listAppointment );
+            FormServiceTest.cleanForm( nIdForm );
+        }
+    }
+
+    /**
+     * A lock held by a node can not be taken by another node until it is released
+     * 
+     * @throws Exception
+     */
+    public void testLockIsSharedByTheNodes( ) throws Exception
+    {
+        ISlotLockProvider node1 = new DatabaseSlotLockProvider( 60, 5 );
+        ISlotLockProvider node2 = new DatabaseSlotLockProvider( 60, 5 );
+        Lock lock1 = node1.getLockOnSlot( Integer.MAX_VALUE );
+        Lock lock2 = node2.getLockOnSlot( Integer.MAX_VALUE );
+        ExecutorService executor = Executors.newSingleThreadExecutor( );
+        try
+        {
+            assertTrue( lock1.tryLock( ) );
+            assertFalse( executor.submit( ( ) -> lock2.tryLock( 100, TimeUnit.MILLISECONDS ) ).get( ) );
+            lock1.unlock( );
+            assertTrue( executor.submit( ( ) -> {
+                boolean bLocked = lock2.tryLock( 100, TimeUnit.MILLISECONDS );
+                if ( bLocked )
+                {
+                    lock2.unlock( );
+                }
+                return bLocked;
+            } ).get( ) );
+        }
+        finally
+        {
+            executor.shutdown( );
+            // Clean
+            SlotLockHome.delete( DatabaseSlotLockProvider.getLockKey( Integer.MAX_VALUE ) );
+        }
+    }
+
+    /**
+     * Book a place, the way the front office does
+     * 
+     * @param appointmentDTO
+     *            the booking
+     * @return true if the place has been taken, false if the slot is full
+     */
+    private static boolean tryToBook( AppointmentDTO appointmentDTO )
+    {
+        try
+        {
+            SlotSafeService.saveAppointment( appointmentDTO, null );
+            return true;
+        }
+        catch( SlotFullException e )
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Add one place to the capacity of the slot, the way the back office modifies a slot
+     * 
+     * @param provider
+     *            the lock provider of the node
+     * @param nIdSlot
+     *            the id of the slot
+     */
+    private static void addOnePlace( ISlotLockProvider provider, int nIdSlot )
+    {
+        Lock lock = provider.getLockOnSlot( nIdSlot );
+        lock.lock( );
+        try
+        {
+            Slot slot = SlotService.findSlotById( nIdSlot );
+            slot.setMaxCapacity( slot.getMaxCapacity( ) + 1 );
+            SlotSafeService.updateSlot( slot, false, null, false );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.lock;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the HoldExpiryWheel
+ */
+public final class HoldExpiryWheelTest extends LuteceTestCase
+{
+    private static final long TICK_DURATION = 20;
+    // Long enough to schedule all the holds of the first test in one tick
+    private static final long LONG_TICK_DURATION = 200;
+    private static final int NB_SLOTS = 3;
+    private static final int NB_HOLDS_PER_SLOT = 50;
+
+    /**
+     * The holds expiring in the same tick must be released in one batch, grouped by slot, and the cancelled holds must not be released
+     * 
+     * @throws Exception
+     */
+    public void testExpiriesAreGroupedBySlot( ) throws Exception
+    {
+        List<Map<Integer, List<SlotEditTask>>> listBatches = new CopyOnWriteArrayList<>( );
+        HoldExpiryWheel wheel = new HoldExpiryWheel( LONG_TICK_DURATION, 8, listBatches::add );
+        try
+        {
+            int nIdHold = 1;
+            for ( int nIdSlot = 1; nIdSlot <= NB_SLOTS; nIdSlot++ )
+            {
+                for ( int i = 0; i < NB_HOLDS_PER_SLOT; i++ )
+                {
+                    wheel.schedule( new SlotEditTask( nIdHold++, nIdSlot, 1 ), 0, TimeUnit.MILLISECONDS );
+                }
+            }
+            // This hold is released by the user before its expiry
+            wheel.schedule( new SlotEditTask( nIdHold, 1, 1 ), 0, TimeUnit.MILLISECONDS );
+            wheel.cancel( nIdHold );
+
+            waitForEmptyWheel( wheel );
+
+            assertEquals( 1, listBatches.size( ) );
+            Map<Integer, List<SlotEditTask>> mapBatch = listBatches.get( 0 );
+            assertEquals( NB_SLOTS, mapBatch.size( ) );
+            for ( List<SlotEditTask> listTasks : mapBatch.values( ) )
+            {
+                assertEquals( NB_HOLDS_PER_SLOT, listTasks.size( ) );
+            }
+            assertEquals( NB_SLOTS * NB_HOLDS_PER_SLOT, wheel.getNbReleased( ) );
+            assertEquals( 1, wheel.getNbBatches( ) );
+        }
+        finally
+        {
+            wheel.shutdown( );
+        }
+    }
+
+    /**
+     * A hold whose delay is longer than a turn of the wheel must not be released before its expiry
+     * 
+     * @throws Exception
+     */
+    public void testExpiryAfterSeveralRounds( ) throws Exception
+    {
+        List<Map<Integer, List<SlotEditTask>>> listBatches = new CopyOnWriteArrayList<>( );
+        HoldExpiryWheel wheel = new HoldExpiryWheel( TICK_DURATION, 4, listBatches::add );
+        try
+        {
+            long lDelay = TICK_DURATION * 10;
+            long lStart = System.nanoTime( );
+            wheel.schedule( new SlotEditTask( 1, 1, 1 ), lDelay, TimeUnit.MILLISECONDS );
+            assertEquals( 1, wheel.getQueueDepth( ) );
+
+            waitForEmptyWheel( wheel );
+
+            assertTrue( TimeUnit.NANOSECONDS.toMillis( System.nanoTime( ) - lStart ) >= lDelay );
+            assertEquals( 1, listBatches.size( ) );
+        }
+        finally
+        {
+            wheel.shutdown( );
+        }
+    }
+
+    /**
+     * Wait until all the holds of the wheel are released
+     * 
+     * @param wheel
+     *            the wheel
+     * @throws InterruptedException
+     */
+    private static void waitForEmptyWheel( HoldExpiryWheel wheel ) throws InterruptedException
+    {
+        long lTimeout = System.currentTimeMillis( ) + 5000;
+        while ( wheel.getQueueDepth( ) > 0 && System.currentTimeMillis( ) < lTimeout )
+        {
+            Thread.sleep( TICK_DURATION );
+        }
+        // Let the worker hand the last batch to the sink
+        Thread.sleep( TICK_DURATION * 2 );
+        assertEquals( 0, wheel.getQueueDepth( ) );
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.plan;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.appointment.business.planning.TimeSlot;
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.planning.WorkingDay;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.service.TimeSlotService;
+import fr.paris.lutece.plugins.appointment.service.Utilities;
+import fr.paris.lutece.plugins.appointment.service.WorkingDayService;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the FormSchedulePlan
+ */
+public final class FormSchedulePlanTest extends LuteceTestCase
+{
+    private static final LocalDate DATE_START = LocalDate.of( 2030, 1, 1 );
+
+    /**
+     * The plan must give the same week definitions, working days and time slots as the linear searches it replaces
+     */
+    public void testSameScheduleAsLinearSearches( )
+    {
+        Map<WeekDefinition, ReservationRule> mapReservationRule = buildMapReservationRule( );
+        List<WeekDefinition> listWeekDefinition = new ArrayList<>( mapReservationRule.keySet( ) );
+        List<LocalDate> listClosingDay = Arrays.asList( DATE_START.plusDays( 10 ), DATE_START.plusDays( 45 ), DATE_START.plusDays( 46 ) );
+        FormSchedulePlan plan = FormSchedulePlan.compile( 1, mapReservationRule, listClosingDay );
+
+        assertEquals( DATE_START, plan.getFirstDateOfApply( ) );
+        for ( LocalDate date = DATE_START.minusDays( 10 ); date.isBefore( DATE_START.plusDays( 200 ) ); date = date.plusDays( 1 ) )
+        {
+            WeekDefinition weekDefinition = Utilities.getClosestWeekDefinitionInPast( listWeekDefinition, date );
+            assertSame( weekDefinition, plan.getWeekDefinition( date ) );
+            assertEquals( listClosingDay.contains( date ), plan.isClosingDay( date ) );
+            RuleSchedule ruleSchedule = plan.getRuleSchedule( date );
+            if ( weekDefinition == null )
+            {
+                assertNull( ruleSchedule );
+                assertFalse( plan.isBookableDay( date ) );
+                continue;
+            }
+            ReservationRule reservationRule = mapReservationRule.get( weekDefinition );
+            assertSame( reservationRule, ruleSchedule.getReservationRule( ) );
+            assertEquals( WorkingDayService.getMaxEndingTimeOfAListOfWorkingDay( reservationRule.getListWorkingDay( ) ), ruleSchedule.getMaxEndingTime( ) );
+            WorkingDay workingDay = WorkingDayService.getWorkingDayOfDayOfWeek( reservationRule.getListWorkingDay( ), date.getDayOfWeek( ) );
+            DaySchedule daySchedule = ruleSchedule.getDaySchedule( date.getDayOfWeek( ) );
+            if ( workingDay == null )
+            {
+                assertNull( daySchedule );
+                assertFalse( plan.isBookableDay( date ) );
+                continue;
+            }
+            assertEquals( !listClosingDay.contains( date ), plan.isBookableDay( date ) );
+            assertSame( workingDay, daySchedule.getWorkingDay( ) );
+            assertEquals( WorkingDayService.getMinStartingTimeOfAWorkingDay( workingDay ), daySchedule.getMinStartingTime( ) );
+            assertEquals( WorkingDayService.getMaxEndingTimeOfAWorkingDay( workingDay ), daySchedule.getMaxEndingTime( ) );
+            for ( LocalTime time = LocalTime.of( 7, 0 ); time.isBefore( LocalTime.of( 20, 0 ) ); time = time.plusMinutes( 5 ) )
+            {
+                assertSame( TimeSlotService.getTimeSlotInListOfTimeSlotWithStartingTime( workingDay.getListTimeSlot( ), time ),
+                        daySchedule.getTimeSlotWithStartingTime( time ) );
+            }
+        }
+    }
+
+    /**
+     * The plan must be equivalent to a map only if it gives the same week definitions over the period
+     */
+    public void testIsEquivalent( )
+    {
+        Map<WeekDefinition, ReservationRule> mapReservationRule = buildMapReservationRule( );
+        FormSchedulePlan plan = FormSchedulePlan.compile( 1, mapReservationRule, new ArrayList<>( ) );
+        assertTrue( plan.isEquivalent( mapReservationRule, DATE_START, DATE_START.plusDays( 200 ) ) );
+
+        // Only the week definition of the first period
+        Map<WeekDefinition, ReservationRule> mapFirstPeriod = new HashMap<>( );
+        mapReservationRule.entrySet( ).stream( ).filter( entry -> entry.getKey( ).getDateOfApply( ).equals( DATE_START ) )
+                .forEach( entry -> mapFirstPeriod.put( entry.getKey( ), entry.getValue( ) ) );
+        assertTrue( plan.isEquivalent( mapFirstPeriod, DATE_START, DATE_START.plusDays( 20 ) ) );
+        assertFalse( plan.isEquivalent( mapFirstPeriod, DATE_START, DATE_START.plusDays( 200 ) ) );
+
+        // A week definition changed
+        WeekDefinition weekDefinitionChanged = buildWeekDefinition( 1, 1, DATE_START, DATE_START.plusDays( 40 ) );
+        Map<WeekDefinition, ReservationRule> mapChanged = new HashMap<>( );
+        mapChanged.put( weekDefinitionChanged, mapFirstPeriod.values( ).iterator( ).next( ) );
+        assertFalse( plan.isEquivalent( mapChanged, DATE_START, DATE_START.plusDays( 20 ) ) );
+    }
+
+    /**
+     * Build the week definitions of a form: two periods with two rules, and a gap between them
+     * 
+     * @return the map of the rule week definition
+     */
+    private static Map<WeekDefinition, ReservationRule> buildMapReservationRule( )
+    {
+        ReservationRule rule1 = buildReservationRule( 1, LocalTime.of( 9, 0 ), LocalTime.of( 12, 0 ), 30, DayOfWeek.MONDAY, DayOfWeek.TUESDAY,
+                DayOfWeek.FRIDAY );
+        ReservationRule rule2 = buildReservationRule( 2, LocalTime.of( 8, 0 ), LocalTime.of( 18, 0 ), 20, DayOfWeek.WEDNESDAY, DayOfWeek.SATURDAY );
+        Map<WeekDefinition, ReservationRule> mapReservationRule = new HashMap<>( );
+        mapReservationRule.put( buildWeekDefinition( 1, 1, DATE_START, DATE_START.plusDays( 30 ) ), rule1 );
+        mapReservationRule.put( buildWeekDefinition( 2, 2, DATE_START.plusDays( 31 ), DATE_START.plusDays( 90 ) ), rule2 );
+        mapReservationRule.put( buildWeekDefinition( 3, 1, DATE_START.plusDays( 100 ), DATE_START.plusDays( 150 ) ), rule1 );
+        return mapReservationRule;
+    }
+
+    /**
+     * Build a week definition
+     * 
+     * @param nIdWeekDefinition
+     *            the id of the week definition
+     * @param nIdReservationRule
+     *            the id of the reservation rule
+     * @param dateOfApply
+     *            the date of apply
+     * @param endingDateOfApply
+     *            the ending date of apply
+     * @return the week definition
+     */
+    public static WeekDefinition buildWeekDefinition( int nIdWeekDefinition, int nIdReservationRule, LocalDate dateOfApply, LocalDate endingDateOfApply )
+    {
+        WeekDefinition weekDefinition = new WeekDefinition( );
+        weekDefinition.setIdWeekDefinition( nIdWeekDefinition );
+        weekDefinition.setIdReservationRule( nIdReservationRule );
+        weekDefinition.setDateOfApply( dateOfApply );
+        weekDefinition.setEndingDateOfApply( endingDateOfApply );
+        return weekDefinition;
+    }
+
+    /**
+     * Build a reservation rule with the same time slots on each working day. The second time slot of each day is closed
+     * 
+     * @param nIdReservationRule
+     *            the id of the reservation rule
+     * @param startingTime
+     *            the starting time of the days
+     * @param endingTime
+     *            the ending time of the days
+     * @param nDuration
+     *            the duration of the time slots
+     * @param days
+     *            the working days
+     * @return the reservation rule
+     */
+    public static ReservationRule buildReservationRule( int nIdReservationRule, LocalTime startingTime, LocalTime endingTime, int nDuration,
+            DayOfWeek... days )
+    {
+        ReservationRule reservationRule = new ReservationRule( );
+        reservationRule.setIdReservationRule( nIdReservationRule );
+        reservationRule.setIdForm( 1 );
+        reservationRule.setMaxCapacityPerSlot( 3 );
+        reservationRule.setDurationAppointments( nDuration );
+        List<WorkingDay> listWorkingDay = new ArrayList<>( );
+        for ( DayOfWeek day : days )
+        {
+            WorkingDay workingDay = new WorkingDay( );
+            workingDay.setDayOfWeek( day.getValue( ) );
+            workingDay.setIdReservationRule( nIdReservationRule );
+            List<TimeSlot> listTimeSlot = new ArrayList<>( );
+            // The time slots are not sorted, as they can be in database
+            for ( LocalTime time = endingTime.minusMinutes( nDuration ); !time.isBefore( startingTime ); time = time.minusMinutes( nDuration ) )
+            {
+                TimeSlot timeSlot = new TimeSlot( );
+                timeSlot.setStartingTime( time );
+                timeSlot.setEndingTime( time.plusMinutes( nDuration ) );
+                timeSlot.setIsOpen( !time.equals( startingTime.plusMinutes( nDuration ) ) );
+                timeSlot.setMaxCapacity( 3 );
+                listTimeSlot.add( timeSlot );
+            }
+            workingDay.setListTimeSlot( listTimeSlot );
+            listWorkingDay.add( workingDay );
+        }
+        reservationRule.setListWorkingDay( listWorkingDay );
+        return reservationRule;
+    }
+}
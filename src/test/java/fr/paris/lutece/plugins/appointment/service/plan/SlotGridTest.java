@@ -0,0 +1,553 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.plan;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import fr.paris.lutece.plugins.appointment.business.SlotTest;
+import fr.paris.lutece.plugins.appointment.business.planning.WeekDefinition;
+import fr.paris.lutece.plugins.appointment.business.rule.ReservationRule;
+import fr.paris.lutece.plugins.appointment.business.slot.Slot;
+import fr.paris.lutece.plugins.appointment.service.CalendarBuilder;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the SlotGrid
+ */
+public final class SlotGridTest extends LuteceTestCase
+{
+    private static final LocalDate MONDAY = LocalDate.of( 2030, 1, 7 );
+
+    /**
+     * The slots created from the grid must have the values of the slots added
+     */
+    public void testGetSlot( )
+    {
+        SlotGrid grid = new SlotGrid( 3, 1 );
+        Slot slot = new Slot( );
+        slot.setIdSlot( 12 );
+        slot.setStartingDateTime( MONDAY.atTime( 9, 0 ) );
+        slot.setEndingDateTime( MONDAY.atTime( 9, 30 ) );
+        slot.setMaxCapacity( 4 );
+        slot.setNbRemainingPlaces( 2 );
+        slot.setNbPotentialRemainingPlaces( 1 );
+        slot.setNbPlacestaken( 2 );
+        slot.setIsOpen( true );
+        slot.setIsSpecific( true );
+        grid.addSlot( slot, true );
+        grid.addSlot( SlotGrid.toEpochMinute( MONDAY.atTime( 9, 30 ) ), SlotGrid.toEpochMinute( MONDAY.atTime( 10, 0 ) ), 5, false, false );
+
+        assertEquals( 2, grid.size( ) );
+        Slot slotFromGrid = grid.getSlot( 0 );
+        assertEquals( 12, slotFromGrid.getIdSlot( ) );
+        assertEquals( 3, slotFromGrid.getIdForm( ) );
+        assertEquals( MONDAY.atTime( 9, 0 ), slotFromGrid.getStartingDateTime( ) );
+        assertEquals( MONDAY.atTime( 9, 30 ), slotFromGrid.getEndingDateTime( ) );
+        assertEquals( MONDAY, slotFromGrid.getDate( ) );
+        assertEquals( LocalTime.of( 9, 0 ), slotFromGrid.getStartingTime( ) );
+        assertEquals( LocalTime.of( 9, 30 ), slotFromGrid.getEndingTime( ) );
+        assertEquals( 4, slotFromGrid.getMaxCapacity( ) );
+        assertEquals( 2, slotFromGrid.getNbRemainingPlaces( ) );
+        assertEquals( 1, slotFromGrid.getNbPotentialRemainingPlaces( ) );
+        assertEquals( 2, slotFromGrid.getNbPlacesTaken( ) );
+        assertTrue( slotFromGrid.getIsOpen( ) );
+        assertTrue( slotFromGrid.getIsSpecific( ) );
+        assertTrue( grid.isBookableDay( 0 ) );
+
+        slotFromGrid = grid.getSlot( 1 );
+        assertEquals( 0, slotFromGrid.getIdSlot( ) );
+        assertEquals( 5, slotFromGrid.getNbRemainingPlaces( ) );
+        assertEquals( 5, slotFromGrid.getNbPotentialRemainingPlaces( ) );
+        assertEquals( 0, slotFromGrid.getNbPlacesTaken( ) );
+        assertFalse( slotFromGrid.getIsOpen( ) );
+        assertFalse( grid.isBookableDay( 1 ) );
+
+        // The slot is replaced, but keeps its day
+        slot.setNbPotentialRemainingPlaces( 0 );
+        assertTrue( grid.replaceSlot( slot ) );
+        assertEquals( 0, grid.getSlot( 0 ).getNbPotentialRemainingPlaces( ) );
+        assertTrue( grid.getSlot( 0 ).getIsFull( ) );
+        assertTrue( grid.isBookableDay( 0 ) );
+        slot.setEndingDateTime( MONDAY.atTime( 9, 15 ) );
+        assertFalse( grid.replaceSlot( slot ) );
+    }
+
+    /**
+     * The groups of slots built on the grid must be the ones built by walking through the slots of each day
+     */
+    public void testGroupedSlotsSameAsWalk( )
+    {
+        Random random = new Random( 42 );
+        LocalDateTime now = MONDAY.plusDays( 1 ).atTime( 10, 20, 30 );
+        for ( int nTest = 0; nTest < 50; nTest++ )
+        {
+            SlotGrid grid = buildRandomGrid( random );
+            for ( int nNbPlaces = 1; nNbPlaces <= 4; nNbPlaces++ )
+            {
+                for ( boolean bAllOpenSlot : new boolean [ ] {
+                        false, true
+                } )
+                {
+                    assertSameGroups( buildListGroupedSlotByWalk( grid, nNbPlaces, bAllOpenSlot, now ),
+                            grid.buildListGroupedSlot( nNbPlaces, bAllOpenSlot, now ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * The groups built in a single pass must be the ones built by the rescan of the overlapping windows, on grids of random days with random slot durations
+     */
+    public void testGroupedSlotsSameAsRescan( )
+    {
+        Random random = new Random( 7 );
+        for ( int nTest = 0; nTest < 200; nTest++ )
+        {
+            SlotGrid grid = buildRandomGridOfDays( random );
+            LocalDateTime now = MONDAY.atStartOfDay( ).plusMinutes( random.nextInt( 3 * 24 * 60 ) ).plusSeconds( random.nextInt( 2 ) * 30 );
+            RescanGrouping rescan = new RescanGrouping( grid );
+            for ( int nNbPlaces = 1; nNbPlaces <= 12; nNbPlaces++ )
+            {
+                for ( boolean bAllOpenSlot : new boolean [ ] {
+                        false, true
+                } )
+                {
+                    assertSameGroups( rescan.build( nNbPlaces, bAllOpenSlot, now ), grid.buildListGroupedSlot( nNbPlaces, bAllOpenSlot, now ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * The groups built from the slots of the cache, with the bookable days of the plan, must be the ones built on the grid of the calendar
+     */
+    public void testGroupedSlotsFromCachedSlots( )
+    {
+        ReservationRule reservationRule = FormSchedulePlanTest.buildReservationRule( 1, LocalTime.of( 9, 0 ), LocalTime.of( 12, 0 ), 30, DayOfWeek.MONDAY,
+                DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY );
+        Map<WeekDefinition, ReservationRule> mapReservationRule = new HashMap<>( );
+        mapReservationRule.put( FormSchedulePlanTest.buildWeekDefinition( 1, 1, MONDAY, MONDAY.plusDays( 20 ) ), reservationRule );
+        FormSchedulePlan plan = FormSchedulePlan.compile( 1, mapReservationRule, Arrays.asList( MONDAY.plusDays( 1 ) ) );
+        // A full slot on monday and on wednesday
+        Map<LocalDateTime, Slot> mapSlot = new HashMap<>( );
+        for ( LocalDateTime startingDateTime : new LocalDateTime [ ] {
+                MONDAY.atTime( 10, 0 ), MONDAY.plusDays( 2 ).atTime( 11, 0 )
+        } )
+        {
+            mapSlot.put( startingDateTime, SlotTest.buildSlot( 1, startingDateTime, startingDateTime.plusMinutes( 30 ), 0, 0, 3, 3, true, false ) );
+        }
+        SlotGrid grid = CalendarBuilder.buildSlotGrid( 1, plan, mapSlot, MONDAY.minusDays( 2 ), MONDAY.plusDays( 13 ), 0 );
+        SlotGrid gridOfCache = SlotGrid.fromListSlot( plan, grid.getListSlot( ) );
+        LocalDateTime now = MONDAY.minusDays( 3 ).atStartOfDay( );
+        for ( int nNbPlaces = 1; nNbPlaces <= 4; nNbPlaces++ )
+        {
+            assertSameGroups( grid.buildListGroupedSlot( nNbPlaces, false, now ), gridOfCache.buildListGroupedSlot( nNbPlaces, false, now ) );
+        }
+        assertFalse( grid.buildListGroupedSlot( 2, false, now ).isEmpty( ) );
+    }
+
+    /**
+     * The groups of long days of one minute slots must be the ones built by the rescan. The time taken by the single pass and by the rescan is logged
+     */
+    public void testGroupedSlotsOfLongDaysTime( )
+    {
+        Random random = new Random( 11 );
+        SlotGrid grid = new SlotGrid( 1, 30 * 14 * 60 );
+        for ( int nDay = 0; nDay < 30; nDay++ )
+        {
+            LocalDateTime dateTime = MONDAY.plusDays( nDay ).atTime( 7, 0 );
+            for ( int nSlot = 0; nSlot < 14 * 60; nSlot++ )
+            {
+                int nNbPotentialRemainingPlaces = random.nextInt( 500 ) > 0 ? 1 : 0;
+                Slot slot = new Slot( );
+                slot.setStartingDateTime( dateTime );
+                slot.setEndingDateTime( dateTime.plusMinutes( 1 ) );
+                slot.setIsOpen( random.nextInt( 1000 ) > 0 );
+                slot.setMaxCapacity( 1 );
+                slot.setNbPotentialRemainingPlaces( nNbPotentialRemainingPlaces );
+                slot.setNbRemainingPlaces( nNbPotentialRemainingPlaces );
+                grid.addSlot( slot, true );
+                dateTime = dateTime.plusMinutes( 1 );
+            }
+        }
+        LocalDateTime now = MONDAY.atStartOfDay( );
+        RescanGrouping rescan = new RescanGrouping( grid );
+        int nNbPlaces = 120;
+        for ( boolean bAllOpenSlot : new boolean [ ] {
+                false, true
+        } )
+        {
+            assertSameGroups( rescan.build( nNbPlaces, bAllOpenSlot, now ), grid.buildListGroupedSlot( nNbPlaces, bAllOpenSlot, now ) );
+
+            // Keep the best of several runs, so that a pause of the JVM does not show in the log
+            long lRescanDuration = Long.MAX_VALUE;
+            long lSinglePassDuration = Long.MAX_VALUE;
+            for ( int nRun = 0; nRun < 5; nRun++ )
+            {
+                long lStart = System.nanoTime( );
+                rescan.build( nNbPlaces, bAllOpenSlot, now );
+                lRescanDuration = Math.min( lRescanDuration, System.nanoTime( ) - lStart );
+                lStart = System.nanoTime( );
+                grid.buildListGroupedSlot( nNbPlaces, bAllOpenSlot, now );
+                lSinglePassDuration = Math.min( lSinglePassDuration, System.nanoTime( ) - lStart );
+            }
+            AppLogService.debug( "Grouping of " + grid.size( ) + " slots by " + nNbPlaces + ( bAllOpenSlot ? " open slots" : " free slots" ) + ": rescan "
+                    + TimeUnit.NANOSECONDS.toMillis( lRescanDuration ) + " ms, single pass " + TimeUnit.NANOSECONDS.toMillis( lSinglePassDuration ) + " ms" );
+        }
+    }
+
+    /**
+     * Check that two lists of groups have the same groups
+     * 
+     * @param listExpected
+     *            the expected groups
+     * @param listGroupedSlot
+     *            the groups to check
+     */
+    private static void assertSameGroups( List<Slot> listExpected, List<Slot> listGroupedSlot )
+    {
+        assertEquals( listExpected.size( ), listGroupedSlot.size( ) );
+        for ( int i = 0; i < listExpected.size( ); i++ )
+        {
+            Slot expected = listExpected.get( i );
+            Slot slot = listGroupedSlot.get( i );
+            assertEquals( expected.getStartingDateTime( ), slot.getStartingDateTime( ) );
+            assertEquals( expected.getEndingDateTime( ), slot.getEndingDateTime( ) );
+            assertEquals( expected.getDate( ), slot.getDate( ) );
+            assertEquals( expected.getNbPotentialRemainingPlaces( ), slot.getNbPotentialRemainingPlaces( ) );
+            assertEquals( expected.getNbRemainingPlaces( ), slot.getNbRemainingPlaces( ) );
+            assertEquals( expected.getIsFull( ), slot.getIsFull( ) );
+            assertEquals( expected.getIdForm( ), slot.getIdForm( ) );
+        }
+    }
+
+    /**
+     * Build a grid of three days, each one closed or bookable, with a random number of slots of a random duration starting at a random time
+     * 
+     * @param random
+     *            the random generator
+     * @return the grid
+     */
+    private static SlotGrid buildRandomGridOfDays( Random random )
+    {
+        int [ ] tabDuration = {
+                1, 5, 10, 15, 30
+        };
+        SlotGrid grid = new SlotGrid( 2, 16 );
+        for ( int nDay = 0; nDay < 3; nDay++ )
+        {
+            boolean bIsBookableDay = random.nextInt( 5 ) > 0;
+            int nDuration = tabDuration [random.nextInt( tabDuration.length )];
+            LocalDateTime dateTime = MONDAY.plusDays( nDay ).atTime( 6 + random.nextInt( 4 ), 0 );
+            int nNbSlot = 1 + random.nextInt( Math.min( 120, 14 * 60 / nDuration ) );
+            for ( int nSlot = 0; nSlot < nNbSlot; nSlot++ )
+            {
+                Slot slot = new Slot( );
+                slot.setStartingDateTime( dateTime );
+                slot.setEndingDateTime( dateTime.plusMinutes( nDuration ) );
+                slot.setIsOpen( random.nextInt( 8 ) > 0 );
+                slot.setMaxCapacity( 2 );
+                slot.setNbPotentialRemainingPlaces( random.nextInt( 6 ) > 0 ? 1 + random.nextInt( 2 ) : 0 );
+                slot.setNbRemainingPlaces( slot.getNbPotentialRemainingPlaces( ) );
+                grid.addSlot( slot, bIsBookableDay );
+                dateTime = dateTime.plusMinutes( nDuration );
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Build a grid of three days: a closed day and two bookable days of slots of 20 minutes from 9:00 to 12:00, with random capacities
+     * 
+     * @param random
+     *            the random generator
+     * @return the grid
+     */
+    private static SlotGrid buildRandomGrid( Random random )
+    {
+        SlotGrid grid = new SlotGrid( 1, 4 );
+        for ( int nDay = 0; nDay < 3; nDay++ )
+        {
+            LocalDate date = MONDAY.plusDays( nDay );
+            for ( LocalTime time = LocalTime.of( 9, 0 ); time.isBefore( LocalTime.NOON ); time = time.plusMinutes( 20 ) )
+            {
+                Slot slot = new Slot( );
+                slot.setStartingDateTime( date.atTime( time ) );
+                slot.setEndingDateTime( date.atTime( time.plusMinutes( 20 ) ) );
+                slot.setIsOpen( random.nextInt( 6 ) > 0 );
+                slot.setMaxCapacity( 2 );
+                slot.setNbPotentialRemainingPlaces( random.nextInt( 3 ) );
+                slot.setNbRemainingPlaces( slot.getNbPotentialRemainingPlaces( ) );
+                grid.addSlot( slot, nDay > 0 );
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Build the groups of slots by walking through the slots of each bookable day from time to time, as the calendar was built before the grid
+     * 
+     * @param grid
+     *            the grid
+     * @param nNbPlaces
+     *            the number of places to take
+     * @param bAllOpenSlot
+     *            true to group the open slots
+     * @param now
+     *            the current date time
+     * @return the groups
+     */
+    private static List<Slot> buildListGroupedSlotByWalk( SlotGrid grid, int nNbPlaces, boolean bAllOpenSlot, LocalDateTime now )
+    {
+        Map<LocalDate, Map<LocalTime, Slot>> mapSlotByDay = new HashMap<>( );
+        List<LocalDate> listDay = new ArrayList<>( );
+        for ( int i = 0; i < grid.size( ); i++ )
+        {
+            if ( grid.isBookableDay( i ) )
+            {
+                Slot slot = grid.getSlot( i );
+                if ( !mapSlotByDay.containsKey( slot.getDate( ) ) )
+                {
+                    mapSlotByDay.put( slot.getDate( ), new HashMap<>( ) );
+                    listDay.add( slot.getDate( ) );
+                }
+                mapSlotByDay.get( slot.getDate( ) ).put( slot.getStartingTime( ), slot );
+            }
+        }
+        List<Slot> listSlotToShow = new ArrayList<>( );
+        boolean isfull = false;
+        for ( LocalDate date : listDay )
+        {
+            Map<LocalTime, Slot> mapSlot = mapSlotByDay.get( date );
+            LocalTime timeTemp = LocalTime.of( 9, 0 );
+            LocalTime tempEndingTime = timeTemp;
+            LocalDateTime startingDateTime = null;
+            int sumNbPotentialRemainingPlaces = 0;
+            int sumNbRemainingPlaces = 0;
+            int nbSlot = 0;
+            boolean isChanged = true;
+            while ( !timeTemp.equals( LocalTime.NOON ) )
+            {
+                if ( isChanged )
+                {
+                    startingDateTime = date.atTime( timeTemp );
+                    isChanged = false;
+                }
+                Slot slotToAdd = mapSlot.get( timeTemp );
+                timeTemp = slotToAdd.getEndingTime( );
+                boolean bIsNewSlot;
+                if ( bAllOpenSlot )
+                {
+                    bIsNewSlot = nbSlot == nNbPlaces || !slotToAdd.getIsOpen( ) || slotToAdd.getEndingDateTime( ).isBefore( now );
+                }
+                else
+                {
+                    bIsNewSlot = sumNbPotentialRemainingPlaces >= nNbPlaces || !slotToAdd.getIsOpen( ) || slotToAdd.getNbPotentialRemainingPlaces( ) <= 0
+                            || slotToAdd.getEndingDateTime( ).isBefore( now );
+                }
+                if ( bIsNewSlot )
+                {
+                    sumNbPotentialRemainingPlaces = 0;
+                    nbSlot = 0;
+                    sumNbRemainingPlaces = 0;
+                    startingDateTime = slotToAdd.getEndingDateTime( );
+                    tempEndingTime = slotToAdd.getEndingTime( );
+                }
+                else
+                {
+                    if ( slotToAdd.getNbPotentialRemainingPlaces( ) <= 0 )
+                    {
+                        isfull = true;
+                    }
+                    sumNbPotentialRemainingPlaces++;
+                    nbSlot++;
+                    sumNbRemainingPlaces++;
+                }
+                if ( bAllOpenSlot ? nbSlot == nNbPlaces : sumNbPotentialRemainingPlaces >= nNbPlaces )
+                {
+                    Slot slt = new Slot( );
+                    slt.setStartingDateTime( startingDateTime );
+                    slt.setEndingDateTime( slotToAdd.getEndingDateTime( ) );
+                    slt.setIsOpen( true );
+                    slt.setNbPotentialRemainingPlaces( sumNbPotentialRemainingPlaces );
+                    slt.setNbRemainingPlaces( sumNbRemainingPlaces );
+                    slt.setDate( slotToAdd.getDate( ) );
+                    slt.setIdForm( slotToAdd.getIdForm( ) );
+                    slt.setIsFull( isfull ? 1 : 0 );
+                    listSlotToShow.add( slt );
+                    isChanged = true;
+                    isfull = false;
+                    timeTemp = tempEndingTime;
+                }
+            }
+        }
+        return listSlotToShow;
+    }
+
+    /**
+     * The grouping of the slots of a grid which goes back to the slot following the last slot which could not be taken after each group, as the grid did
+     * before grouping the slots in a single pass
+     */
+    private static final class RescanGrouping
+    {
+        private final int _nIdForm;
+        private final int [ ] _tabStartingMinute;
+        private final int [ ] _tabEndingMinute;
+        private final int [ ] _tabNbPotentialRemainingPlaces;
+        private final boolean [ ] _tabIsOpen;
+        private final boolean [ ] _tabIsBookableDay;
+
+        /**
+         * Constructor
+         * 
+         * @param grid
+         *            the grid of the slots to group
+         */
+        RescanGrouping( SlotGrid grid )
+        {
+            int nSize = grid.size( );
+            _nIdForm = ( nSize > 0 ) ? grid.getSlot( 0 ).getIdForm( ) : 0;
+            _tabStartingMinute = new int [ nSize];
+            _tabEndingMinute = new int [ nSize];
+            _tabNbPotentialRemainingPlaces = new int [ nSize];
+            _tabIsOpen = new boolean [ nSize];
+            _tabIsBookableDay = new boolean [ nSize];
+            for ( int i = 0; i < nSize; i++ )
+            {
+                Slot slot = grid.getSlot( i );
+                _tabStartingMinute [i] = SlotGrid.toEpochMinute( slot.getStartingDateTime( ) );
+                _tabEndingMinute [i] = SlotGrid.toEpochMinute( slot.getEndingDateTime( ) );
+                _tabNbPotentialRemainingPlaces [i] = slot.getNbPotentialRemainingPlaces( );
+                _tabIsOpen [i] = slot.getIsOpen( );
+                _tabIsBookableDay [i] = grid.isBookableDay( i );
+            }
+        }
+
+        /**
+         * Build the groups of slots
+         * 
+         * @param nNbPlaces
+         *            the number of places to take
+         * @param bAllOpenSlot
+         *            true to group the open slots
+         * @param now
+         *            the current date time
+         * @return the groups
+         */
+        List<Slot> build( int nNbPlaces, boolean bAllOpenSlot, LocalDateTime now )
+        {
+            List<Slot> listGroupedSlot = new ArrayList<>( );
+            int nSize = _tabStartingMinute.length;
+            int nPassedLimit = SlotGrid.toEpochMinute( now ) + ( now.getSecond( ) > 0 || now.getNano( ) > 0 ? 1 : 0 );
+            boolean bIsFull = false;
+            int nDayStart = 0;
+            while ( nDayStart < nSize )
+            {
+                if ( !_tabIsBookableDay [nDayStart] )
+                {
+                    nDayStart++;
+                    continue;
+                }
+                int nDay = Math.floorDiv( _tabStartingMinute [nDayStart], 24 * 60 );
+                int nDayEnd = nDayStart + 1;
+                while ( nDayEnd < nSize && _tabIsBookableDay [nDayEnd] && Math.floorDiv( _tabStartingMinute [nDayEnd], 24 * 60 ) == nDay )
+                {
+                    nDayEnd++;
+                }
+                int nNbSlot = 0;
+                int nStartingMinute = 0;
+                boolean bIsChanged = true;
+                int nRestart = nDayStart;
+                int i = nDayStart;
+                while ( i < nDayEnd )
+                {
+                    if ( bIsChanged )
+                    {
+                        nStartingMinute = _tabStartingMinute [i];
+                        bIsChanged = false;
+                    }
+                    boolean bIsNewGroup = !_tabIsOpen [i] || _tabEndingMinute [i] < nPassedLimit || nNbSlot >= nNbPlaces
+                            || ( !bAllOpenSlot && _tabNbPotentialRemainingPlaces [i] <= 0 );
+                    if ( bIsNewGroup )
+                    {
+                        nNbSlot = 0;
+                        nStartingMinute = _tabEndingMinute [i];
+                        nRestart = i + 1;
+                    }
+                    else
+                    {
+                        if ( _tabNbPotentialRemainingPlaces [i] <= 0 )
+                        {
+                            bIsFull = true;
+                        }
+                        nNbSlot++;
+                    }
+                    if ( nNbSlot == nNbPlaces )
+                    {
+                        Slot slot = new Slot( );
+                        slot.setStartingDateTime( SlotGrid.toLocalDateTime( nStartingMinute ) );
+                        slot.setEndingDateTime( SlotGrid.toLocalDateTime( _tabEndingMinute [i] ) );
+                        slot.setIsOpen( true );
+                        slot.setNbPotentialRemainingPlaces( nNbSlot );
+                        slot.setNbRemainingPlaces( nNbSlot );
+                        slot.setDate( LocalDate.ofEpochDay( nDay ) );
+                        slot.setIdForm( _nIdForm );
+                        slot.setIsFull( bIsFull ? 1 : 0 );
+                        listGroupedSlot.add( slot );
+                        bIsChanged = true;
+                        bIsFull = false;
+                        i = nRestart;
+                    }
+                    else
+                    {
+                        i++;
+                    }
+                }
+                nDayStart = nDayEnd;
+            }
+            return listGroupedSlot;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2002-2022, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.appointment.service.search;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the AppointmentTextIndex
+ */
+public final class AppointmentTextIndexTest extends LuteceTestCase
+{
+    private static final String ALPHABET = "abcde\u00e9\u00e8";
+
+    /**
+     * The candidates must be the appointments whose values contain the trigrams of the texts
+     */
+    public void testFindCandidates( )
+    {
+        AppointmentTextIndex index = new AppointmentTextIndex( );
+        index.put( 1, "Jean", "Dupont", "jean.dupont@test.fr", "0601020304" );
+        index.put( 2, "Jeanne", "Durand", "jeanne@test.fr", "0605060708" );
+        index.put( 3, "Pierre", "Martin", "pierre@test.fr", null );
+
+        assertTrue( Arrays.equals( new int [ ] {
+                1, 2
+        }, index.findCandidates( "jean", null, null, null ) ) );
+        assertTrue( Arrays.equals( new int [ ] {
+                2
+        }, index.findCandidates( "jean", "dur", null, null ) ) );
+        assertTrue( Arrays.equals( new int [ ] {
+                1
+        }, index.findCandidates( null, null, null, "0203" ) ) );
+        assertEquals( 0, index.findCandidates( null, "Bernard", null, null ).length );
+        assertEquals( 3, index.size( ) );
+    }
+
+    /**
+     * The texts shorter than a trigram or containing a wildcard must not restrict the search
+     */
+    public void testFindCandidatesWithoutRestriction( )
+    {
+        AppointmentTextIndex index = new AppointmentTextIndex( );
+        index.put( 1, "Jean", "Dupont", "jean.dupont@test.fr", "0601020304" );
+
+        assertNull( index.findCandidates( null, null, null, null ) );
+        assertNull( index.findCandidates( "Je", "", null, null ) );
+        assertNull( index.findCandidates( "Je%n", "Du_ont", null, null ) );
+        assertTrue( Arrays.equals( new int [ ] {
+                1
+        }, index.findCandidates( "Je", "Dupont", null, null ) ) );
+    }
+
+    /**
+     * The search must ignore the case and the accents
+     */
+    public void testFindCandidatesIgnoringCaseAndAccents( )
+    {
+        AppointmentTextIndex index = new AppointmentTextIndex( );
+        index.put( 1, "H\u00e9l\u00e8ne", "Lef\u00e8vre", null, null );
+
+        assertTrue( Arrays.equals( new int [ ] {
+                1
+        }, index.findCandidates( "HELENE", "lefevre", null, null ) ) );
+        assertTrue( Arrays.equals( new int [ ] {
+                1
+        }, index.findCandidates( "\u00e9l\u00e8", null, null, null ) ) );
+    }
+
+    /**
+     * The appointments removed or replaced must no longer be found with their old values
+     */
+    public void testRemoveAndReplace( )
+    {
+        AppointmentTextIndex index = new AppointmentTextIndex( );
+        index.put( 1, "Jean", "Dupont", null, null );
+        index.put( 2, "Jean", "Durand", null, null );
+
+        index.put( 1, "Paul", "Dupont", null, null );
+        assertTrue( Arrays.equals( new int [ ] {
+                2
+        }, index.findCandidates( "Jean", null, null, null ) ) );
+        assertTrue( Arrays.equals( new int [ ] {
+                1
+        }, index.findCandidates( "Paul", null, null, null ) ) );
+
+        index.remove( 2 );
+        index.remove( 3 );
+        assertEquals( 0, index.findCandidates( "Jean", null, null, null ).length );
+        assertEquals( 1, index.size( ) );
+    }
+
+    /**
+     * The candidates must contain all the appointments whose values contain the texts searched
+     */
+    public void testCandidatesContainTheMatches( )
+    {
+        Random random = new Random( 42 );
+        AppointmentTextIndex index = new AppointmentTextIndex( );
+        Map<Integer, String> mapLastName = new HashMap<>( );
+        for ( int nId = 1; nId <= 500; nId++ )
+        {
+            String strLastName = randomText( random, 4 + random.nextInt( 6 ) );
+            mapLastName.put( nId, strLastName );
+            index.put( nId, null, strLastName, null, null );
+        }
+        for ( int i = 0; i < 200; i++ )
+        {
+            String strText = randomText( random, 3 + random.nextInt( 2 ) );
+            int [ ] tabIdCandidate = index.findCandidates( null, strText, null, null );
+            String strNormalizedText = AppointmentTextIndex.normalize( strText );
+            for ( Map.Entry<Integer, String> entry : mapLastName.entrySet( ) )
+            {
+                if ( AppointmentTextIndex.normalize( entry.getValue( ) ).contains( strNormalizedText ) )
+                {
+                    assertTrue( Arrays.binarySearch( tabIdCandidate, entry.getKey( ) ) >= 0 );
+                }
+            }
+            for ( int j = 1; j < tabIdCandidate.length; j++ )
+            {
+                assertTrue( tabIdCandidate [j - 1] < tabIdCandidate [j] );
+            }
+        }
+    }
+
+    /**
+     * Build a random text
+     */
+    private static String randomText( Random random, int nLength )
+    {
+        StringBuilder sbText = new StringBuilder( );
+        for ( int i = 0; i < nLength; i++ )
+        {
+            char c = ALPHABET.charAt( random.nextInt( ALPHABET.length( ) ) );
+            sbText.append( random.nextBoolean( ) ? Character.toUpperCase( c ) : c );
+        }
+        return sbText.toString( );
+    }
+}
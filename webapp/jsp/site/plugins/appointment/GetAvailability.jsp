@@ -0,0 +1,5 @@
+<%@ page errorPage="../../ErrorPage.jsp" contentType="application/json; charset=UTF-8" trimDirectiveWhitespaces="true" %>
+
+<jsp:useBean id="appointmentApp" scope="request" class="fr.paris.lutece.plugins.appointment.web.AppointmentApp" />
+
+<%= appointmentApp.getAvailability( request, response ) %>
\ No newline at end of file